@@ -0,0 +1,212 @@
+package com.klimber.hiveddbudtf.benchmark;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+
+/**
+ * Generates DynamoDB items of realistic shapes, with the column mappings and Hive types reading every
+ * attribute. Items are generated from a fixed seed, so runs of different commits decode the same data.
+ */
+public class SyntheticItems {
+    private static final long SEED = 42;
+    private static final int WIDE_ATTRIBUTES = 50;
+    private static final int NESTED_LINES = 8;
+    private static final int NESTED_LIST_SIZE = 8;
+    private static final int BINARY_BYTES = 64 * 1024;
+    private static final int NUMBER_SET_SIZE = 256;
+
+    @Getter
+    private final List<ColumnMapping> columnMapping;
+    @Getter
+    private final List<TypeInfo> hiveTypes;
+    @Getter
+    private final List<Map<String, AttributeValue>> items;
+
+    /**
+     * @param shape the shape of the items
+     * @param count the number of distinct items to generate
+     */
+    public SyntheticItems(Shape shape, int count) {
+        Random random = new Random(SEED);
+        Map<String, String> columns = shape.getColumns();
+        this.columnMapping = columns.keySet()
+                                    .stream()
+                                    .map(att -> ColumnMapping.builder()
+                                                             .hiveColumn(att.toLowerCase())
+                                                             .ddbAttName(att)
+                                                             .build())
+                                    .collect(Collectors.toList());
+        this.hiveTypes = TypeInfoUtils.getTypeInfosFromTypeString(String.join(",", columns.values()));
+        this.items = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            this.items.add(shape.newItem(i, random));
+        }
+    }
+
+    public enum Shape {
+        /**
+         * A handful of scalar attributes, the most common shape.
+         */
+        FLAT {
+            @Override
+            Map<String, String> getColumns() {
+                Map<String, String> columns = new LinkedHashMap<>();
+                columns.put("Id", "string");
+                columns.put("Name", "string");
+                columns.put("Quantity", "bigint");
+                columns.put("Price", "double");
+                columns.put("Active", "boolean");
+                return columns;
+            }
+
+            @Override
+            Map<String, AttributeValue> newItem(int i, Random random) {
+                Map<String, AttributeValue> item = new HashMap<>();
+                item.put("Id", new AttributeValue("id-" + i));
+                item.put("Name", new AttributeValue(randomString(random, 24)));
+                item.put("Quantity", new AttributeValue().withN(Integer.toString(random.nextInt(10_000))));
+                item.put("Price", new AttributeValue().withN(Double.toString(random.nextDouble() * 100)));
+                item.put("Active", new AttributeValue().withBOOL(random.nextBoolean()));
+                return item;
+            }
+        },
+        /**
+         * Many string and number attributes, e.g. denormalized records.
+         */
+        WIDE {
+            @Override
+            Map<String, String> getColumns() {
+                Map<String, String> columns = new LinkedHashMap<>();
+                for (int i = 0; i < WIDE_ATTRIBUTES; i++) {
+                    columns.put("S" + i, "string");
+                    columns.put("N" + i, "bigint");
+                }
+                return columns;
+            }
+
+            @Override
+            Map<String, AttributeValue> newItem(int i, Random random) {
+                Map<String, AttributeValue> item = new HashMap<>();
+                for (int a = 0; a < WIDE_ATTRIBUTES; a++) {
+                    item.put("S" + a, new AttributeValue(randomString(random, 16)));
+                    item.put("N" + a, new AttributeValue().withN(Long.toString(random.nextLong())));
+                }
+                return item;
+            }
+        },
+        /**
+         * A document of lists of maps, e.g. JSON payloads stored as maps. Nested maps are read as structs,
+         * see the limitations in the README.
+         */
+        NESTED {
+            @Override
+            Map<String, String> getColumns() {
+                Map<String, String> columns = new LinkedHashMap<>();
+                columns.put("Id", "string");
+                columns.put("Lines", "array<struct<name:string,tags:array<string>,"
+                                     + "details:struct<sku:string,quantity:bigint,options:array<string>>>>");
+                return columns;
+            }
+
+            @Override
+            Map<String, AttributeValue> newItem(int i, Random random) {
+                List<AttributeValue> lines = new ArrayList<>(NESTED_LINES);
+                for (int l = 0; l < NESTED_LINES; l++) {
+                    Map<String, AttributeValue> details = new HashMap<>();
+                    details.put("sku", new AttributeValue(randomString(random, 12)));
+                    details.put("quantity", new AttributeValue().withN(Integer.toString(random.nextInt(100))));
+                    details.put("options", new AttributeValue().withL(randomStrings(random, NESTED_LIST_SIZE)));
+                    Map<String, AttributeValue> line = new HashMap<>();
+                    line.put("name", new AttributeValue(randomString(random, 16)));
+                    line.put("tags", new AttributeValue().withL(randomStrings(random, NESTED_LIST_SIZE)));
+                    line.put("details", new AttributeValue().withM(details));
+                    lines.add(new AttributeValue().withM(line));
+                }
+                Map<String, AttributeValue> item = new HashMap<>();
+                item.put("Id", new AttributeValue("id-" + i));
+                item.put("Lines", new AttributeValue().withL(lines));
+                return item;
+            }
+        },
+        /**
+         * A large binary attribute, e.g. compressed blobs.
+         */
+        BINARY {
+            @Override
+            Map<String, String> getColumns() {
+                Map<String, String> columns = new LinkedHashMap<>();
+                columns.put("Id", "string");
+                columns.put("Payload", "binary");
+                return columns;
+            }
+
+            @Override
+            Map<String, AttributeValue> newItem(int i, Random random) {
+                byte[] payload = new byte[BINARY_BYTES];
+                random.nextBytes(payload);
+                Map<String, AttributeValue> item = new HashMap<>();
+                item.put("Id", new AttributeValue("id-" + i));
+                item.put("Payload", new AttributeValue().withB(ByteBuffer.wrap(payload)));
+                return item;
+            }
+        },
+        /**
+         * A large number set, e.g. identifiers of related items.
+         */
+        NUMBER_SET {
+            @Override
+            Map<String, String> getColumns() {
+                Map<String, String> columns = new LinkedHashMap<>();
+                columns.put("Id", "string");
+                columns.put("Related", "array<bigint>");
+                return columns;
+            }
+
+            @Override
+            Map<String, AttributeValue> newItem(int i, Random random) {
+                List<String> numbers = random.longs(NUMBER_SET_SIZE)
+                                             .distinct()
+                                             .mapToObj(Long::toString)
+                                             .collect(Collectors.toList());
+                Map<String, AttributeValue> item = new HashMap<>();
+                item.put("Id", new AttributeValue("id-" + i));
+                item.put("Related", new AttributeValue().withNS(numbers));
+                return item;
+            }
+        };
+
+        /**
+         * @return the Hive type of every attribute, in column order
+         */
+        abstract Map<String, String> getColumns();
+
+        abstract Map<String, AttributeValue> newItem(int i, Random random);
+    }
+
+    private static List<AttributeValue> randomStrings(Random random, int count) {
+        List<AttributeValue> values = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            values.add(new AttributeValue(randomString(random, 8)));
+        }
+        return values;
+    }
+
+    private static String randomString(Random random, int length) {
+        StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            builder.append((char) ('a' + random.nextInt(26)));
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,51 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems.Shape;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Finds the type of every attribute of items of every shape.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DynamoDbTypeFinderBenchmark {
+    private static final int ITEMS = 256;
+
+    @Param
+    public Shape shape;
+
+    private AttributeValue[] values;
+
+    @Setup
+    public void setUp() {
+        this.values = new SyntheticItems(this.shape, ITEMS).getItems()
+                                                            .stream()
+                                                            .flatMap(item -> item.values().stream())
+                                                            .toArray(AttributeValue[]::new);
+    }
+
+    @Benchmark
+    public void forAttributeValue(Blackhole blackhole) {
+        for (AttributeValue value : this.values) {
+            blackhole.consume(DynamoDbTypeFinder.forAttributeValue(value));
+        }
+    }
+}
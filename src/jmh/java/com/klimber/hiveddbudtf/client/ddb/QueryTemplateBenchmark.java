@@ -0,0 +1,148 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems.Shape;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Builds query requests from filters: compiling a template, as done once per filter shape, and binding the
+ * filter values of a row to a compiled template, as done for every row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryTemplateBenchmark {
+    private static final String HASH_KEY = "Id";
+    private static final String SORT_KEY = "CreatedAt";
+    private static final Map<KeyType, String> KEY_ATTRIBUTES = ImmutableMap.of(KeyType.HASH, HASH_KEY,
+                                                                               KeyType.RANGE, SORT_KEY);
+
+    @Param
+    public Filters filters;
+    @Param({"FLAT", "WIDE"})
+    public Shape shape;
+
+    private HiveDdbQueryParameters params;
+    private Multimap<String, HiveDdbQueryFilter> rowFilters;
+    private QueryTemplate template;
+
+    @Setup
+    public void setUp() {
+        SyntheticItems synthetic = new SyntheticItems(this.shape, 1);
+        this.params = HiveDdbQueryParameters.builder()
+                                            .tableName("Table")
+                                            .hiveDdbColumnMapping(synthetic.getColumnMapping())
+                                            .hiveTypes(synthetic.getHiveTypes())
+                                            .build();
+        this.rowFilters = this.filters.newFilters();
+        this.template = QueryTemplate.compile(this.params, this.rowFilters, KEY_ATTRIBUTES);
+    }
+
+    @Benchmark
+    public QueryRequest compile() {
+        return QueryTemplate.compile(this.params, this.rowFilters, KEY_ATTRIBUTES).newRequest(this.rowFilters);
+    }
+
+    @Benchmark
+    public QueryRequest newRequest() {
+        if (!this.template.matches(this.params, this.rowFilters)) {
+            throw new IllegalStateException("Expected the filters to match the compiled template");
+        }
+        return this.template.newRequest(this.rowFilters);
+    }
+
+    public enum Filters {
+        /**
+         * Equality on the hash key only.
+         */
+        HASH_KEY {
+            @Override
+            Multimap<String, HiveDdbQueryFilter> newFilters() {
+                return ImmutableMultimap.of(HASH_KEY, filter(HASH_KEY, "S", "EQ", "id-1"));
+            }
+        },
+        /**
+         * Equality on the hash key and a range on the sort key.
+         */
+        SORT_KEY_RANGE {
+            @Override
+            Multimap<String, HiveDdbQueryFilter> newFilters() {
+                return ImmutableMultimap.of(HASH_KEY, filter(HASH_KEY, "S", "EQ", "id-1"),
+                                            SORT_KEY, listFilter(SORT_KEY, "BETWEEN", "2024-01", "2024-12"));
+            }
+        },
+        /**
+         * Key conditions with a filter expression combining comparisons, IN, existence checks and an OR group.
+         */
+        FILTER_EXPRESSION {
+            @Override
+            Multimap<String, HiveDdbQueryFilter> newFilters() {
+                return ImmutableMultimap.<String, HiveDdbQueryFilter>builder()
+                                        .put(HASH_KEY, filter(HASH_KEY, "S", "EQ", "id-1"))
+                                        .put(SORT_KEY, filter(SORT_KEY, "S", "BEGINS_WITH", "2024"))
+                                        .put("Name", filter("Name", "S", "NE", "unknown"))
+                                        .put("Type", listFilter("Type", "IN", "A", "B", "C", "D", "E", "F"))
+                                        .put("Deleted", filter("Deleted", "S", "ATTRIBUTE_NOT_EXISTS", null))
+                                        .put("Expiry", filter("Expiry", "S", "GT", "2024").toBuilder()
+                                                                                          .orGroup("g")
+                                                                                          .build())
+                                        .put("Pinned", filter("Pinned", "S", "ATTRIBUTE_EXISTS", null)
+                                                .toBuilder()
+                                                .orGroup("g")
+                                                .build())
+                                        .build();
+            }
+        };
+
+        abstract Multimap<String, HiveDdbQueryFilter> newFilters();
+
+        private static HiveDdbQueryFilter filter(String attribute, String attributeType, String operator,
+                                                 String value) {
+            return HiveDdbQueryFilter.builder()
+                                     .attribute(attribute)
+                                     .attributeType(attributeType)
+                                     .operator(operator)
+                                     .value(value)
+                                     .valueOi(PrimitiveObjectInspectorFactory.javaStringObjectInspector)
+                                     .build();
+        }
+
+        private static HiveDdbQueryFilter listFilter(String attribute, String operator, String... values) {
+            ObjectInspector listOI = ObjectInspectorFactory.getStandardListObjectInspector(
+                    PrimitiveObjectInspectorFactory.javaStringObjectInspector);
+            return HiveDdbQueryFilter.builder()
+                                     .attribute(attribute)
+                                     .attributeType("S")
+                                     .operator(operator)
+                                     .value(Arrays.asList(values))
+                                     .valueOi(listOI)
+                                     .build();
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems.Shape;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Converts the query parameters and filters structs of a row, as done for every input row. Filters are
+ * either literals, whose attribute, type and operator are constant, or columns read from every row.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ConvertersBenchmark {
+    private static final List<String> FILTER_FIELDS = Arrays.asList(HiveDdbQueryFiltersConverter.ATTRIBUTE,
+                                                                    HiveDdbQueryFiltersConverter.ATTRIBUTE_TYPE,
+                                                                    HiveDdbQueryFiltersConverter.OPERATOR,
+                                                                    HiveDdbQueryFiltersConverter.VALUE);
+
+    @Param({"1", "4", "16"})
+    public int filterCount;
+    @Param({"true", "false"})
+    public boolean constantFilters;
+    @Param({"false", "true"})
+    public boolean detachValues;
+    @Param({"FLAT", "WIDE"})
+    public Shape shape;
+
+    private HiveDdbQueryParametersConverter paramsConverter;
+    private HiveDdbQueryFiltersConverter filtersConverter;
+    private List<Object> paramsStruct;
+    private List<Object> filtersStruct;
+
+    @Setup
+    public void setUp() throws UDFArgumentException {
+        SyntheticItems synthetic = new SyntheticItems(this.shape, 1);
+        String columnMapping = synthetic.getColumnMapping()
+                                        .stream()
+                                        .map(c -> c.getHiveColumn() + HiveDdbQueryParametersConverter.MAPPING_SEPARATOR
+                                                  + c.getDdbAttName())
+                                        .collect(Collectors.joining(HiveDdbQueryParametersConverter.MAPPING_DIVIDER));
+        String hiveTypes = synthetic.getHiveTypes()
+                                    .stream()
+                                    .map(Object::toString)
+                                    .collect(Collectors.joining(","));
+        ObjectInspector stringOI = PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+        StructObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList(HiveDdbQueryParametersConverter.TABLE_NAME, HiveDdbQueryParametersConverter.INDEX_NAME,
+                              HiveDdbQueryParametersConverter.HIVE_DDB_COLUMN_MAPPING,
+                              HiveDdbQueryParametersConverter.HIVE_TYPE_MAPPING),
+                Arrays.asList(stringOI, stringOI, new JavaConstantStringObjectInspector(columnMapping),
+                              new JavaConstantStringObjectInspector(hiveTypes)));
+        this.paramsConverter = new HiveDdbQueryParametersConverter(paramsOI, true);
+        this.paramsStruct = Arrays.asList("Table", null, null, null);
+
+        List<String> filterNames = new ArrayList<>(this.filterCount);
+        List<ObjectInspector> filterOIs = new ArrayList<>(this.filterCount);
+        this.filtersStruct = new ArrayList<>(this.filterCount);
+        for (int i = 0; i < this.filterCount; i++) {
+            String attribute = "Attribute" + i;
+            String operator = i == 0 ? "EQ" : "GT";
+            List<ObjectInspector> fieldOIs = this.constantFilters
+                                             ? Arrays.asList(new JavaConstantStringObjectInspector(attribute),
+                                                             new JavaConstantStringObjectInspector("S"),
+                                                             new JavaConstantStringObjectInspector(operator),
+                                                             stringOI)
+                                             : Arrays.asList(stringOI, stringOI, stringOI, stringOI);
+            filterNames.add("filter" + i);
+            filterOIs.add(ObjectInspectorFactory.getStandardStructObjectInspector(FILTER_FIELDS, fieldOIs));
+            this.filtersStruct.add(this.constantFilters
+                                   ? Arrays.asList(null, null, null, "value" + i)
+                                   : Arrays.asList(attribute, "S", operator, "value" + i));
+        }
+        StructObjectInspector filtersOI = ObjectInspectorFactory.getStandardStructObjectInspector(filterNames,
+                                                                                                  filterOIs);
+        this.filtersConverter = new HiveDdbQueryFiltersConverter(filtersOI, this.detachValues);
+    }
+
+    @Benchmark
+    public HiveDdbQueryParameters convertParameters() {
+        return this.paramsConverter.convert(this.paramsStruct);
+    }
+
+    @Benchmark
+    public Multimap<String, HiveDdbQueryFilter> convertFilters() {
+        return this.filtersConverter.convert(this.filtersStruct);
+    }
+}
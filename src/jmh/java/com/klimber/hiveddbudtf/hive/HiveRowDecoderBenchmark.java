@@ -0,0 +1,72 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems;
+import com.klimber.hiveddbudtf.benchmark.SyntheticItems.Shape;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig.OutputMode;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Decodes items of every shape into Hive rows, with every output mode. Lazy rows only decode columns when
+ * they are read, so {@link #decodeAndRead()} also reads every value of the row, as an operator
+ * using every column would.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HiveRowDecoderBenchmark {
+    private static final int ITEMS = 256;
+
+    @Param
+    public Shape shape;
+    @Param
+    public OutputMode outputMode;
+
+    private HiveRowDecoder decoder;
+    private StructObjectInspector rowOI;
+    private List<Map<String, AttributeValue>> items;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        SyntheticItems synthetic = new SyntheticItems(this.shape, ITEMS);
+        this.decoder = new HiveRowDecoder(synthetic.getColumnMapping(), synthetic.getHiveTypes(), this.outputMode);
+        this.rowOI = this.decoder.getRowObjectInspector();
+        this.items = synthetic.getItems();
+    }
+
+    @Benchmark
+    public Object decode() {
+        return this.decoder.toRow(this.nextItem());
+    }
+
+    @Benchmark
+    public Object decodeAndRead() {
+        Object row = this.decoder.toRow(this.nextItem());
+        return ObjectInspectorUtils.copyToStandardJavaObject(row, this.rowOI);
+    }
+
+    private Map<String, AttributeValue> nextItem() {
+        Map<String, AttributeValue> item = this.items.get(this.next);
+        this.next = (this.next + 1) % ITEMS;
+        return item;
+    }
+}
@@ -0,0 +1,338 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.klimber.hiveddbudtf.client.ddb.CachingDynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.CoalescingDynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.CredentialsProvider;
+import com.klimber.hiveddbudtf.client.ddb.DdbTableSchema;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbAsyncClientRegistry;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbAsyncClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientRegistry;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapperImpl;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbRequestListener;
+import com.klimber.hiveddbudtf.exec.TaskCounterReporter;
+import com.klimber.hiveddbudtf.exec.TaskPerformanceReport;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig.ClientSdk;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFiltersConverter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParametersConverter;
+import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hive.conf.HiveConf;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.hive.ql.exec.LateralViewJoinOperator;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.hive.ql.exec.Operator;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.ql.session.SessionState;
+import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
+import org.apache.hadoop.hive.ql.udf.generic.UDTFCollector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.mapred.JobConf;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.STRUCT;
+
+/**
+ * Base of the UDTFs receiving the query parameters and filters structs, handling the settings, credentials
+ * and table schemas resolved during query planning, and the DynamoDB client wrapper used by the tasks.
+ */
+@Slf4j
+public abstract class AbstractHiveDdbUdtf extends GenericUDTF {
+    /**
+     * Logs once per JVM that the collector couldn't be inspected, rather than once per task.
+     */
+    private static final AtomicBoolean LATERAL_VIEW_UNKNOWN_LOGGED = new AtomicBoolean();
+
+    protected transient DynamoDbClientWrapper ddbWrapper;
+    protected transient HiveDdbQueryParametersConverter queryParamsConverter;
+    protected transient HiveDdbQueryFiltersConverter queryFiltersConverter;
+    protected AWSCredentialsProvider awsCredProvider;
+    protected HiveDdbQueryConfig config;
+    private HashMap<String, DdbTableSchema> tableSchemas;
+    private transient DynamoDbMetrics metrics;
+    private transient TaskCounterReporter counterReporter;
+    private transient JobConf jobConf;
+    private transient CachingDynamoDbClientWrapper cachingWrapper;
+    private transient CoalescingDynamoDbClientWrapper coalescingWrapper;
+
+    protected AbstractHiveDdbUdtf() {
+    }
+
+    // For tests
+    protected AbstractHiveDdbUdtf(DynamoDbClientWrapper mockWrapper) {
+        this.ddbWrapper = mockWrapper;
+    }
+
+    @Override
+    public void configure(MapredContext mapredContext) {
+        // Runs on the tasks, after the config was deserialized, so the read budget can be split between them
+        if (Objects.isNull(this.config)) {
+            return;
+        }
+        if (this.config.getThroughputTasks() == 0) {
+            this.config = this.config.toBuilder().throughputTasks(getParallelism(mapredContext)).build();
+        }
+        // Opens connections while Hive sets up the rest of the task
+        if (this.config.getClientSdk() == ClientSdk.V2) {
+            DynamoDbAsyncClientRegistry.prewarm(this.config, this.awsCredProvider);
+        } else {
+            DynamoDbClientRegistry.prewarm(this.config, this.awsCredProvider);
+        }
+        this.jobConf = mapredContext.getJobConf();
+        if (this.config.isMetricsEnabled()) {
+            this.metrics = new DynamoDbMetrics();
+        }
+        if (this.config.isCountersEnabled()) {
+            this.counterReporter = new TaskCounterReporter(mapredContext::getReporter, this.metrics,
+                                                           this.config.getCountersIntervalMillis());
+        }
+    }
+
+    /**
+     * The number of tasks sharing the throughput budgets: the map tasks of the job on MapReduce, the parallelism
+     * of the vertex running the UDTF on Tez, which doesn't set {@code mapreduce.job.maps}.
+     */
+    private static int getParallelism(MapredContext mapredContext) {
+        JobConf jobConf = mapredContext.getJobConf();
+        if (!"tez".equals(HiveConf.getVar(jobConf, ConfVars.HIVE_EXECUTION_ENGINE))) {
+            return Math.max(1, jobConf.getNumMapTasks());
+        }
+        try {
+            // TezContext.getTezProcessorContext().getVertexParallelism(), Tez is not a dependency
+            Object processorContext = mapredContext.getClass()
+                                                   .getMethod("getTezProcessorContext")
+                                                   .invoke(mapredContext);
+            Class<?> taskContext = Class.forName("org.apache.tez.runtime.api.TaskContext", false,
+                                                 processorContext.getClass().getClassLoader());
+            int parallelism = (int) taskContext.getMethod("getVertexParallelism").invoke(processorContext);
+            if (parallelism > 0) {
+                return parallelism;
+            }
+            log.warn("Vertex parallelism is unknown, budgets are not divided, set {} to share them "
+                     + "(found={})", HiveDdbQueryConfig.THROUGHPUT_TASKS, parallelism);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.warn("Failed to read the vertex parallelism, budgets are not divided, set {} to share them",
+                     HiveDdbQueryConfig.THROUGHPUT_TASKS, e);
+        }
+        return 1;
+    }
+
+    /**
+     * Reads the settings and builds the converters of the query parameters and filters structs.
+     *
+     * @param argOIs       the UDTF arguments
+     * @param functionName the function name used in error messages
+     * @param projected    whether the parameters must define the column mappings and types
+     */
+    protected void initializeArguments(StructObjectInspector argOIs, String functionName, boolean projected)
+            throws UDFArgumentException {
+        List<? extends StructField> inputFields = argOIs.getAllStructFieldRefs();
+        if (inputFields.size() != 2) {
+            throw new UDFArgumentLengthException(functionName + " requires 2 arguments "
+                                                 + "(found=" + inputFields.size() + ")");
+        }
+        this.initializeArguments(inputFields.get(0).getFieldObjectInspector(),
+                                 inputFields.get(1).getFieldObjectInspector(), functionName, projected);
+    }
+
+    /**
+     * Reads the settings and builds the converters of the query parameters and filters structs.
+     *
+     * @param paramsOI     the query parameters argument
+     * @param filtersOI    the query filters argument, {@code null} when the function was called without filters
+     * @param functionName the function name used in error messages
+     * @param projected    whether the parameters must define the column mappings and types
+     */
+    protected void initializeArguments(ObjectInspector paramsOI, ObjectInspector filtersOI, String functionName,
+                                       boolean projected) throws UDFArgumentException {
+        /*
+         * SessionState won't be available at EMR nodes, so initialize
+         * anything that requires it during query planning.
+         */
+        if (Objects.nonNull(SessionState.get())) {
+            if (Objects.isNull(this.awsCredProvider)) {
+                this.awsCredProvider = new CredentialsProvider(SessionState.get().getConf());
+            }
+            if (Objects.isNull(this.config)) {
+                this.config = HiveDdbQueryConfig.fromConf(SessionState.get().getConf());
+            }
+        }
+        if (Objects.isNull(this.config)) {
+            this.config = HiveDdbQueryConfig.builder().build();
+        }
+
+        if (!STRUCT.equals(paramsOI.getCategory())) {
+            throw new UDFArgumentException(functionName + " first argument should be a struct "
+                                           + "(found=" + paramsOI.getCategory() + ")");
+        }
+        this.queryParamsConverter = new HiveDdbQueryParametersConverter((StructObjectInspector) paramsOI,
+                                                                        projected);
+
+        if (Objects.nonNull(filtersOI) && !STRUCT.equals(filtersOI.getCategory())) {
+            throw new UDFArgumentException(functionName + " second argument should be a struct "
+                                           + "(found=" + filtersOI.getCategory() + ")");
+        }
+        if (Objects.nonNull(SessionState.get()) && Objects.isNull(this.tableSchemas)) {
+            this.tableSchemas = this.resolveTableSchemas();
+        }
+
+        if (Objects.nonNull(filtersOI)) {
+            // Concurrent queries read filter values after Hive moved on to the next row
+            this.queryFiltersConverter = new HiveDdbQueryFiltersConverter((StructObjectInspector) filtersOI,
+                                                                          this.config.isConcurrent());
+        }
+    }
+
+    /**
+     * Describes the table during query planning when its name is constant, so tasks don't call
+     * DescribeTable. If it fails (e.g. DynamoDB is not reachable from where the query is planned)
+     * each task will describe the table instead.
+     */
+    private HashMap<String, DdbTableSchema> resolveTableSchemas() {
+        HashMap<String, DdbTableSchema> schemas = new HashMap<>();
+        Optional<String> tableName = this.queryParamsConverter.getConstantTableName();
+        if (!tableName.isPresent()) {
+            return schemas;
+        }
+        DynamoDbClientWrapper wrapper = Objects.nonNull(this.ddbWrapper)
+                                        ? this.ddbWrapper
+                                        : new DynamoDbClientWrapperImpl(this.awsCredProvider, this.config);
+        try {
+            DdbTableSchema schema = wrapper.describeTableSchema(tableName.get());
+            if (Objects.nonNull(schema)) {
+                schemas.put(tableName.get(), schema);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to describe table during planning, tasks will describe it (table={})",
+                     tableName.get(), e);
+        }
+        return schemas;
+    }
+
+    /**
+     * @param listener notified of every request attempt, may be {@code null}
+     * @return the wrapper used by the task, with the cache and query coalescing enabled by the settings
+     */
+    protected DynamoDbClientWrapper createWrapper(DynamoDbRequestListener listener) {
+        Map<String, DdbTableSchema> schemas = Objects.nonNull(this.tableSchemas)
+                                              ? this.tableSchemas
+                                              : Collections.emptyMap();
+        DynamoDbClientWrapper wrapper = this.createClientWrapper(listener, this.metrics, schemas);
+        if (this.config.isCacheEnabled()) {
+            this.cachingWrapper = new CachingDynamoDbClientWrapper(wrapper, this.config.getCacheMaxBytes(),
+                                                                   this.config.getCacheTtlSeconds());
+            wrapper = this.cachingWrapper;
+        }
+        if (this.config.isConcurrent() && this.config.isQueryCoalesce()) {
+            this.coalescingWrapper = new CoalescingDynamoDbClientWrapper(wrapper);
+            wrapper = this.coalescingWrapper;
+        }
+        return wrapper;
+    }
+
+    /**
+     * @param listener notified of every request attempt, may be {@code null}
+     * @param metrics  updated with the traffic of the wrapper, may be {@code null}
+     * @param schemas  table schemas resolved during query planning
+     * @return the wrapper sending the requests to DynamoDB, before the cache and query coalescing
+     */
+    protected DynamoDbClientWrapper createClientWrapper(DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                                                        Map<String, DdbTableSchema> schemas) {
+        if (this.config.getClientSdk() == ClientSdk.V2) {
+            return new DynamoDbAsyncClientWrapper(this.awsCredProvider, this.config, listener, metrics, schemas);
+        }
+        return new DynamoDbClientWrapperImpl(this.awsCredProvider, this.config, listener, metrics, schemas);
+    }
+
+    /**
+     * Whether Hive runs this UDTF in a {@code LATERAL VIEW}, which pairs every forwarded row with the input row
+     * being processed, so the rows of an input row must be forwarded before {@code process} returns. Hive doesn't
+     * expose it, so the operator behind the collector is inspected, assuming a lateral view when it can't be,
+     * e.g. when Hive renames the fields or the collector isn't Hive's.
+     */
+    protected boolean isLateralView() {
+        try {
+            Field collectorField = GenericUDTF.class.getDeclaredField("collector");
+            collectorField.setAccessible(true);
+            Object collector = collectorField.get(this);
+            if (!(collector instanceof UDTFCollector)) {
+                throw new IllegalStateException(String.format("Unexpected UDTF collector (collector=%s)",
+                                                              collector));
+            }
+            Field operatorField = UDTFCollector.class.getDeclaredField("op");
+            operatorField.setAccessible(true);
+            Operator<?> operator = (Operator<?>) operatorField.get(collector);
+            return operator.getChildOperators().stream().anyMatch(LateralViewJoinOperator.class::isInstance);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            if (LATERAL_VIEW_UNKNOWN_LOGGED.compareAndSet(false, true)) {
+                log.warn("Failed to find whether the UDTF runs in a LATERAL VIEW, assuming it does", e);
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Counts an input row for the task counters, publishing them when due.
+     */
+    protected void onInputRow() {
+        if (Objects.nonNull(this.counterReporter)) {
+            this.counterReporter.onInputRow();
+        }
+    }
+
+    /**
+     * Forwards a row, counting it for the task counters, which are published with a progress report when due,
+     * so long queries keep the task alive while their pages are forwarded.
+     */
+    protected void forwardRow(Object row) throws HiveException {
+        this.forward(row);
+        if (Objects.nonNull(this.counterReporter)) {
+            this.counterReporter.onOutputRow();
+        }
+    }
+
+    @Override
+    public void close() throws HiveException {
+        if (Objects.nonNull(this.ddbWrapper)) {
+            this.ddbWrapper.close();
+        }
+        if (Objects.nonNull(this.counterReporter)) {
+            this.counterReporter.report();
+        }
+        if (Objects.nonNull(this.metrics) && this.config.isReportEnabled()) {
+            this.writeReport();
+        }
+    }
+
+    private void writeReport() {
+        String taskId = Objects.nonNull(this.jobConf) ? this.jobConf.get("mapreduce.task.attempt.id") : null;
+        if (Objects.isNull(taskId)) {
+            taskId = UUID.randomUUID().toString();
+        }
+        TaskPerformanceReport report = new TaskPerformanceReport(taskId, this.metrics);
+        if (Objects.nonNull(this.counterReporter)) {
+            report.withRows(this.counterReporter.getInputRows(), this.counterReporter.getOutputRows());
+        }
+        if (Objects.nonNull(this.cachingWrapper)) {
+            report.withCache(this.cachingWrapper.getStats());
+        }
+        if (Objects.nonNull(this.coalescingWrapper)) {
+            report.withCoalescing(this.coalescingWrapper.getQueryCount(), this.coalescingWrapper.getCoalescedCount());
+        }
+        report.write(this.config.getReportPath(), Objects.nonNull(this.jobConf) ? this.jobConf : new JobConf());
+    }
+}
@@ -0,0 +1,61 @@
+package com.klimber.hiveddbudtf;
+
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.Collections;
+import java.util.Objects;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+
+/**
+ * Checks whether DynamoDB has items matching each input row, forwarding a single boolean column for every row.
+ * <p>
+ * Only key attributes are read: lookups binding the full primary key of the base table use a GetItem
+ * projecting the key attributes, other queries only count the matching items. Each check is done and
+ * forwarded while Hive processes its input row, so results can be paired with their rows by a
+ * {@code LATERAL VIEW}.
+ */
+@Description(name = "ddb_exists",
+        value = "_FUNC_(a, b) - Checks whether DynamoDB has items matching the filters from struct b,"
+                + " in the table defined by struct a."
+                + " Returns one row for each input row, with a single boolean column")
+public class HiveDdbExistsUdtf extends AbstractHiveDdbUdtf {
+    public static final String FOUND_COLUMN = "found";
+
+    private transient Object[] row;
+
+    public HiveDdbExistsUdtf() {
+    }
+
+    // For tests
+    HiveDdbExistsUdtf(DynamoDbClientWrapper mockWrapper) {
+        super(mockWrapper);
+    }
+
+    @Override
+    public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
+        this.initializeArguments(argOIs, "DDB_EXISTS", false);
+        this.row = new Object[1];
+        return ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList(FOUND_COLUMN),
+                Collections.singletonList(PrimitiveObjectInspectorFactory.javaBooleanObjectInspector));
+    }
+
+    @Override
+    public void process(Object[] args) throws HiveException {
+        if (Objects.isNull(this.ddbWrapper)) {
+            this.ddbWrapper = this.createWrapper(null);
+        }
+        this.onInputRow();
+        HiveDdbQueryParameters params = this.queryParamsConverter.convert(args[0]);
+        Multimap<String, HiveDdbQueryFilter> filters = this.queryFiltersConverter.convert(args[1]);
+        this.row[0] = this.ddbWrapper.exists(params, filters);
+        this.forwardRow(this.row);
+    }
+}
@@ -0,0 +1,274 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.klimber.hiveddbudtf.client.ddb.DdbTableSchema;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.exec.ConcurrentQueryExecutor;
+import com.klimber.hiveddbudtf.hive.HiveDdbItemConverter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.STRUCT;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+/**
+ * Writes one DynamoDB item per input row, forwarding a status row for every item once its batch is written.
+ * <p>
+ * Items are grouped into BatchWriteItem calls of up to 25 items, with several calls in flight, see
+ * {@code hiveddbudtf.put.concurrency}. Status rows are forwarded as batches complete, so they carry the
+ * primary key of their item instead of being paired with input rows. A batch putting a key that is still being
+ * written by another batch waits for it, so puts of the same key are applied in input order.
+ * <p>
+ * In a {@code LATERAL VIEW}, which pairs status rows with the input row being processed, every item is written
+ * before {@code process} returns instead.
+ */
+@Description(name = "ddb_put",
+        value = "_FUNC_(a, b) - Puts the item defined by struct b into the DynamoDB table defined by struct a."
+                + " Returns one row for each item, with its status, error and primary key")
+@Slf4j
+public class HiveDdbPutUdtf extends AbstractHiveDdbUdtf {
+    public static final String STATUS_COLUMN = "status";
+    public static final String ERROR_COLUMN = "error";
+    public static final String KEY_COLUMN = "key";
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_UNPROCESSED = "UNPROCESSED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    private transient Boolean lateralView;
+    private transient HiveDdbItemConverter itemConverter;
+    private transient ConcurrentQueryExecutor<List<Object[]>> writeExecutor;
+    private transient Map<String, Collection<String>> keyAttributes;
+    private transient String batchTable;
+    private transient List<Map<String, AttributeValue>> batchItems;
+    private transient Set<Map<String, String>> batchKeys;
+    private transient Set<Map<String, String>> inFlightKeys;
+
+    public HiveDdbPutUdtf() {
+    }
+
+    // For tests
+    HiveDdbPutUdtf(DynamoDbClientWrapper mockWrapper) {
+        super(mockWrapper);
+    }
+
+    @Override
+    public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
+        List<? extends StructField> inputFields = argOIs.getAllStructFieldRefs();
+        if (inputFields.size() != 2) {
+            throw new UDFArgumentLengthException("DDB_PUT requires 2 arguments "
+                                                 + "(found=" + inputFields.size() + ")");
+        }
+        this.initializeArguments(inputFields.get(0).getFieldObjectInspector(), null, "DDB_PUT", false);
+        ObjectInspector itemOI = inputFields.get(1).getFieldObjectInspector();
+        if (!STRUCT.equals(itemOI.getCategory())) {
+            throw new UDFArgumentException("DDB_PUT second argument should be a struct "
+                                           + "(found=" + itemOI.getCategory() + ")");
+        }
+        this.itemConverter = new HiveDdbItemConverter((StructObjectInspector) itemOI);
+        this.keyAttributes = new HashMap<>();
+        this.batchItems = new ArrayList<>();
+        this.batchKeys = new HashSet<>();
+        this.inFlightKeys = ConcurrentHashMap.newKeySet();
+
+        List<ObjectInspector> columnOIs = Arrays.asList(
+                javaStringObjectInspector, javaStringObjectInspector,
+                ObjectInspectorFactory.getStandardMapObjectInspector(javaStringObjectInspector,
+                                                                     javaStringObjectInspector));
+        return ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList(STATUS_COLUMN, ERROR_COLUMN, KEY_COLUMN), columnOIs);
+    }
+
+    @Override
+    public void process(Object[] args) throws HiveException {
+        if (Objects.isNull(this.ddbWrapper)) {
+            this.ddbWrapper = this.createWrapper(null);
+        }
+        if (Objects.isNull(this.writeExecutor)) {
+            this.writeExecutor = new ConcurrentQueryExecutor<>(this.config.getPutConcurrency(), false,
+                                                               this::forwardAll);
+        }
+        if (Objects.isNull(this.lateralView)) {
+            this.lateralView = this.isLateralView();
+            if (this.lateralView) {
+                log.warn("Writing items one by one, status rows of batches can't be paired with their input rows "
+                         + "in a LATERAL VIEW");
+            }
+        }
+        this.onInputRow();
+        HiveDdbQueryParameters params = this.queryParamsConverter.convert(args[0]);
+        Map<String, AttributeValue> item = this.itemConverter.convert(args[1]);
+        Collection<String> keyAttributes = this.getKeyAttributes(params.getTableName());
+        String keyError = getKeyError(params.getTableName(), item, keyAttributes);
+        if (Objects.nonNull(keyError)) {
+            this.forwardRow(new Object[]{STATUS_FAILED, keyError, toKey(item, keyAttributes)});
+            return;
+        }
+        Map<String, String> key = toKey(item, keyAttributes);
+
+        // A batch can only write to one table, and can't put the same key twice
+        if (!params.getTableName().equals(this.batchTable) || this.batchKeys.contains(key)) {
+            this.flush();
+            this.batchTable = params.getTableName();
+        }
+        this.batchItems.add(item);
+        this.batchKeys.add(key);
+        if (this.lateralView) {
+            this.flush();
+            this.writeExecutor.drain();
+        } else if (this.batchItems.size() >= HiveDdbQueryConfig.MAX_BATCH_WRITE_SIZE) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Starts writing the current batch, forwarding the status rows of batches already written.
+     */
+    private void flush() throws HiveException {
+        if (this.batchItems.isEmpty()) {
+            return;
+        }
+        String tableName = this.batchTable;
+        List<Map<String, AttributeValue>> items = ImmutableList.copyOf(this.batchItems);
+        Set<Map<String, String>> keys = ImmutableSet.copyOf(this.batchKeys);
+        Collection<String> keyAttributes = this.keyAttributes.get(tableName);
+        this.batchItems.clear();
+        this.batchKeys.clear();
+        if (keys.stream().anyMatch(this.inFlightKeys::contains)) {
+            // Concurrent batches complete in any order, the previous put of the key must land first
+            this.writeExecutor.drain();
+        }
+        this.inFlightKeys.addAll(keys);
+        this.writeExecutor.submit(executor -> CompletableFuture.supplyAsync(
+                () -> this.write(tableName, items, keys, keyAttributes), executor));
+    }
+
+    private List<Object[]> write(String tableName, List<Map<String, AttributeValue>> items,
+                                 Set<Map<String, String>> keys, Collection<String> keyAttributes) {
+        try {
+            return this.write(tableName, items, keyAttributes);
+        } finally {
+            this.inFlightKeys.removeAll(keys);
+        }
+    }
+
+    private List<Object[]> write(String tableName, List<Map<String, AttributeValue>> items,
+                                 Collection<String> keyAttributes) {
+        Collection<Map<String, AttributeValue>> unprocessed;
+        try {
+            unprocessed = new HashSet<>(this.ddbWrapper.batchPutItems(tableName, items));
+        } catch (RuntimeException e) {
+            String error = Objects.nonNull(e.getMessage()) ? e.getMessage() : e.getClass().getName();
+            List<Object[]> rows = new ArrayList<>(items.size());
+            for (Map<String, AttributeValue> item : items) {
+                rows.add(new Object[]{STATUS_FAILED, error, toKey(item, keyAttributes)});
+            }
+            return rows;
+        }
+        List<Object[]> rows = new ArrayList<>(items.size());
+        for (Map<String, AttributeValue> item : items) {
+            rows.add(unprocessed.contains(item)
+                     ? new Object[]{STATUS_UNPROCESSED, "Item still unprocessed after retries",
+                                    toKey(item, keyAttributes)}
+                     : new Object[]{STATUS_OK, null, toKey(item, keyAttributes)});
+        }
+        return rows;
+    }
+
+    private void forwardAll(List<Object[]> rows) throws HiveException {
+        for (Object[] row : rows) {
+            this.forwardRow(row);
+        }
+    }
+
+    private Collection<String> getKeyAttributes(String tableName) {
+        return this.keyAttributes.computeIfAbsent(tableName, table -> {
+            DdbTableSchema schema = this.ddbWrapper.describeTableSchema(table);
+            return ImmutableList.copyOf(schema.getKeyAttributes(null).values());
+        });
+    }
+
+    /**
+     * @return why the item can't be written, {@code null} when every key attribute is a string, number or binary
+     */
+    private static String getKeyError(String tableName, Map<String, AttributeValue> item,
+                                      Collection<String> keyAttributes) {
+        for (String keyAttribute : keyAttributes) {
+            AttributeValue value = item.get(keyAttribute);
+            if (Objects.isNull(value)) {
+                return String.format("Expected item to contain the key attribute (table=%s, attribute=%s)",
+                                     tableName, keyAttribute);
+            }
+            if (Objects.isNull(value.getS()) && Objects.isNull(value.getN()) && Objects.isNull(value.getB())) {
+                return String.format("Expected key attribute to be a string, number or binary "
+                                     + "(table=%s, attribute=%s, found=%s)", tableName, keyAttribute, value);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the string, number and binary (base64) key attributes of the item
+     */
+    private static Map<String, String> toKey(Map<String, AttributeValue> item, Collection<String> keyAttributes) {
+        Map<String, String> key = new LinkedHashMap<>();
+        for (String keyAttribute : keyAttributes) {
+            AttributeValue value = item.get(keyAttribute);
+            if (Objects.isNull(value)) {
+                continue;
+            }
+            if (Objects.nonNull(value.getS())) {
+                key.put(keyAttribute, value.getS());
+            } else if (Objects.nonNull(value.getN())) {
+                key.put(keyAttribute, value.getN());
+            } else if (Objects.nonNull(value.getB())) {
+                ByteBuffer bytes = value.getB().duplicate();
+                byte[] data = new byte[bytes.remaining()];
+                bytes.get(data);
+                key.put(keyAttribute, Base64.getEncoder().encodeToString(data));
+            }
+        }
+        return key;
+    }
+
+    @Override
+    public void close() throws HiveException {
+        try {
+            if (Objects.nonNull(this.writeExecutor)) {
+                try {
+                    this.flush();
+                    this.writeExecutor.drain();
+                } finally {
+                    this.writeExecutor.close();
+                    this.writeExecutor = null;
+                }
+            }
+        } finally {
+            super.close();
+        }
+    }
+}
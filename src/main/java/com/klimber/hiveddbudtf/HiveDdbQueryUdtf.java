@@ -1,98 +1,64 @@
 package com.klimber.hiveddbudtf;
 
-import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.google.common.collect.Multimap;
-import com.klimber.hiveddbudtf.client.ddb.CredentialsProvider;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
-import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapperImpl;
-import com.klimber.hiveddbudtf.client.ddb.DynamoDbTypeFinder;
+import com.klimber.hiveddbudtf.client.ddb.ItemKeys;
+import com.klimber.hiveddbudtf.exec.AimdConcurrencyLimit;
+import com.klimber.hiveddbudtf.exec.BatchGetBuffer;
+import com.klimber.hiveddbudtf.exec.BatchGetBuffer.Batch;
+import com.klimber.hiveddbudtf.exec.ConcurrentQueryExecutor;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
-import com.klimber.hiveddbudtf.hive.HiveDdbQueryFiltersConverter;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
-import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
-import com.klimber.hiveddbudtf.hive.HiveDdbQueryParametersConverter;
+import com.klimber.hiveddbudtf.hive.HiveRowDecoder;
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
-import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBNullType;
-import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 import org.apache.hadoop.hive.ql.exec.Description;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
-import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
 import org.apache.hadoop.hive.ql.metadata.HiveException;
-import org.apache.hadoop.hive.ql.session.SessionState;
-import org.apache.hadoop.hive.ql.udf.generic.GenericUDTF;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
-import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
-import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
-import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
-import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
-
-import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.STRUCT;
 
 @Description(name = "ddb_query",
         value = "_FUNC_(a, b) - Queries DynamoDB using the parameters from struct a"
                 + " and the filters from struct b."
                 + " The resulting items are returned as multiple rows and columns")
-public class HiveDdbQueryUdtf extends GenericUDTF {
-    private transient DynamoDbClientWrapper ddbWrapper;
-    private transient HiveDdbQueryParametersConverter queryParamsConverter;
-    private transient HiveDdbQueryFiltersConverter queryFiltersConverter;
-    private AWSCredentialsProvider awsCredProvider;
+@Slf4j
+public class HiveDdbQueryUdtf extends AbstractHiveDdbUdtf {
+    private transient Boolean lateralView;
+    private transient ConcurrentQueryExecutor<QueryResults> queryExecutor;
+    private transient BatchGetBuffer batchGetBuffer;
+    private transient HiveRowDecoder rowDecoder;
+    private transient ExecutorService fanOutPool;
 
     public HiveDdbQueryUdtf() {
     }
 
     // For tests
     HiveDdbQueryUdtf(DynamoDbClientWrapper mockWrapper) {
-        this.ddbWrapper = mockWrapper;
+        super(mockWrapper);
     }
 
     @Override
     public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
-        List<? extends StructField> inputFields = argOIs.getAllStructFieldRefs();
-        if (inputFields.size() != 2) {
-            throw new UDFArgumentLengthException("DDB_QUERY requires 2 arguments "
-                                                 + "(found=" + inputFields.size() + ")");
-        }
-
-        ObjectInspector fieldOI = inputFields.get(0).getFieldObjectInspector();
-        if (!STRUCT.equals(fieldOI.getCategory())) {
-            throw new UDFArgumentException("DDB_QUERY first argument should be a struct "
-                                           + "(found=" + fieldOI.getCategory() + ")");
-        }
-        this.queryParamsConverter = new HiveDdbQueryParametersConverter((StructObjectInspector) fieldOI);
+        this.initializeArguments(argOIs, "DDB_QUERY", true);
+        this.rowDecoder = new HiveRowDecoder(this.queryParamsConverter.getHiveDdbColumnMapping(),
+                                             this.queryParamsConverter.getHiveTypes(),
+                                             this.config.getOutputMode());
 
-        fieldOI = inputFields.get(1).getFieldObjectInspector();
-        if (!STRUCT.equals(fieldOI.getCategory())) {
-            throw new UDFArgumentException("DDB_QUERY second argument should be a struct "
-                                           + "(found=" + fieldOI.getCategory() + ")");
-        }
-        this.queryFiltersConverter = new HiveDdbQueryFiltersConverter((StructObjectInspector) fieldOI);
-
-        List<String> fieldNames = this.queryParamsConverter
-                .getHiveDdbColumnMapping().stream()
-                .map(ColumnMapping::getHiveColumn)
-                .collect(Collectors.toList());
-        List<ObjectInspector> fieldOIs = this.queryParamsConverter
-                .getHiveTypes().stream()
-                .map(TypeInfoUtils::getStandardJavaObjectInspectorFromTypeInfo)
-                .collect(Collectors.toList());
-
-        /*
-         * SessionState won't be available at EMR nodes, so initialize
-         * anything that requires it during query planning.
-         */
-        if (Objects.isNull(this.awsCredProvider) && Objects.nonNull(SessionState.get())) {
-            this.awsCredProvider = new CredentialsProvider(SessionState.get().getConf());
-        }
-
-        return ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+        return this.rowDecoder.getRowObjectInspector();
     }
 
     @Override
@@ -101,39 +67,247 @@ public class HiveDdbQueryUdtf extends GenericUDTF {
          * Delay DDB client initialization to process because UDTF will be serialized
          * at plan creation and deserialized on EMR nodes.
          */
+        if (Objects.isNull(this.lateralView)) {
+            // Rows forwarded after process returns would be paired with later input rows
+            this.lateralView = (this.config.isConcurrent() || this.config.isBatchGetEnabled())
+                               && this.isLateralView();
+            if (this.lateralView) {
+                log.warn("Running queries sequentially without batching, results of concurrent queries and "
+                         + "batched lookups can't be paired with their input rows in a LATERAL VIEW");
+            }
+        }
+        if (Objects.isNull(this.queryExecutor) && this.config.isConcurrent() && !this.lateralView) {
+            AimdConcurrencyLimit limit = this.config.isQueryConcurrencyAdaptive()
+                                         ? new AimdConcurrencyLimit(this.config.getQueryConcurrencyMin(),
+                                                                    this.config.getQueryConcurrency(),
+                                                                    this.config.getQueryLatencyTolerance())
+                                         : AimdConcurrencyLimit.fixed(this.config.getQueryConcurrency());
+            this.queryExecutor = new ConcurrentQueryExecutor<>(limit, this.config.isQueryOrdered(),
+                                                               this::forwardResults);
+        }
         if (Objects.isNull(this.ddbWrapper)) {
-            this.ddbWrapper = new DynamoDbClientWrapperImpl(this.awsCredProvider);
+            // The executor adapts its limit to the throttling and latency seen by the client
+            this.ddbWrapper = this.createWrapper(Objects.nonNull(this.queryExecutor)
+                                                 ? this.queryExecutor.getLimit()
+                                                 : null);
+        }
+        if (Objects.isNull(this.batchGetBuffer) && this.config.isBatchGetEnabled() && !this.lateralView) {
+            this.batchGetBuffer = new BatchGetBuffer(this.config.getBatchGetSize(),
+                                                     this.config.getBatchGetWindowRows(),
+                                                     this.config.getBatchGetWindowMillis());
         }
+        this.onInputRow();
         HiveDdbQueryParameters params = this.queryParamsConverter.convert(args[0]);
         Multimap<String, HiveDdbQueryFilter> filters = this.queryFiltersConverter.convert(args[1]);
-        Stream<Map<String, AttributeValue>> queryResults = this.ddbWrapper.queryTable(params, filters);
+        List<Multimap<String, HiveDdbQueryFilter>> queries = this.ddbWrapper.fanOut(params, filters);
+        if (queries.size() > 1 && Objects.isNull(this.queryExecutor) && Objects.isNull(this.batchGetBuffer)) {
+            this.queryFanOut(params, queries);
+            return;
+        }
+        for (Multimap<String, HiveDdbQueryFilter> query : queries) {
+            this.query(params, query);
+        }
+    }
+
+    private void query(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters)
+            throws HiveException {
+        if (Objects.nonNull(this.batchGetBuffer)) {
+            this.loadBatches(this.batchGetBuffer.pollExpired());
+            Optional<Map<String, AttributeValue>> primaryKey = this.ddbWrapper.findPrimaryKey(params, filters);
+            boolean ordered = Objects.nonNull(this.queryExecutor) && this.config.isQueryOrdered();
+            if (primaryKey.isPresent()) {
+                if (ordered) {
+                    // Lookups of earlier rows in other batches are submitted first
+                    this.loadBatches(this.batchGetBuffer.flushOthers(params));
+                }
+                this.loadBatches(this.batchGetBuffer.add(params, primaryKey.get()));
+                return;
+            }
+            if (ordered) {
+                // Results are forwarded in submission order, after the lookups of earlier rows
+                this.loadBatches(this.batchGetBuffer.flush());
+            }
+        }
+        if (Objects.nonNull(this.queryExecutor)) {
+            this.queryExecutor.submit(executor -> this.queryAhead(params, filters, executor));
+            return;
+        }
+        try (Stream<Map<String, AttributeValue>> queryResults = this.ddbWrapper.queryTable(params, filters)) {
+            Iterator<Object> recordIterator = queryResults.map(this.rowDecoder::toRow).iterator();
+
+            while (recordIterator.hasNext()) {
+                this.forwardRow(recordIterator.next());
+            }
+        }
+    }
+
+    /**
+     * Runs the queries of an input row using {@code IN} on the hash key, forwarding their results before
+     * returning so they stay paired with the row. Single item lookups are fetched with BatchGetItem, other
+     * queries run in parallel.
+     */
+    private void queryFanOut(HiveDdbQueryParameters params, List<Multimap<String, HiveDdbQueryFilter>> queries)
+            throws HiveException {
+        List<Map<String, AttributeValue>> keys = new ArrayList<>(queries.size());
+        for (Multimap<String, HiveDdbQueryFilter> query : queries) {
+            Optional<Map<String, AttributeValue>> primaryKey = this.ddbWrapper.findPrimaryKey(params, query);
+            if (!primaryKey.isPresent()) {
+                keys = null;
+                break;
+            }
+            keys.add(primaryKey.get());
+        }
+        if (Objects.nonNull(keys)) {
+            Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items =
+                    this.ddbWrapper.batchGetItems(params, keys);
+            for (Map<String, AttributeValue> key : keys) {
+                Map<String, AttributeValue> item = items.get(ItemKeys.normalize(key));
+                if (Objects.nonNull(item)) {
+                    this.forwardRow(this.rowDecoder.toRow(item));
+                }
+            }
+            return;
+        }
 
-        Iterator<Object[]> recordIterator = queryResults.map(record -> this.toHiveData(record, params)).iterator();
+        List<CompletableFuture<QueryResults>> results = new ArrayList<>(queries.size());
+        for (Multimap<String, HiveDdbQueryFilter> query : queries) {
+            results.add(this.queryAhead(params, query, this.getFanOutPool()));
+        }
+        for (CompletableFuture<QueryResults> result : results) {
+            try {
+                this.forwardResults(result.join());
+            } catch (CompletionException e) {
+                for (CompletableFuture<QueryResults> other : results) {
+                    other.cancel(true);
+                    // Already completed, closes the query streams that won't be forwarded
+                    other.thenAccept(QueryResults::close);
+                }
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new HiveException("Query failed", e.getCause());
+            }
+        }
+    }
 
-        while (recordIterator.hasNext()) {
-            this.forward(recordIterator.next());
+    private ExecutorService getFanOutPool() {
+        if (Objects.isNull(this.fanOutPool)) {
+            int threads = this.config.getQueryFanOutConcurrency();
+            this.fanOutPool = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                    .setNameFormat("ddb-fanout-%d")
+                    .setDaemon(true)
+                    .build());
         }
+        return this.fanOutPool;
     }
 
-    private Object[] toHiveData(Map<String, AttributeValue> record, HiveDdbQueryParameters params) {
-        Object[] row = new Object[params.getHiveDdbColumnMapping().size()];
-        for (int i = 0; i < params.getHiveDdbColumnMapping().size(); i++) {
-            String ddbAttName = params.getHiveDdbColumnMapping().get(i).getDdbAttName();
-            TypeInfo type = params.getHiveTypes().get(i);
-            ObjectInspector oi = TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(type);
-            AttributeValue attValue = record.get(ddbAttName);
-            HiveDynamoDBType hiveDdbType = DynamoDbTypeFinder.forAttributeValue(attValue);
-            if (!(hiveDdbType instanceof HiveDynamoDBNullType) && !hiveDdbType.supportsHiveType(type)) {
-                String msg = String.format("Hive type '%s' does not support DynamoDB type '%s' (ddbAttributeName=%s)",
-                                           type, hiveDdbType.getDynamoDBType(), ddbAttName);
-                throw new IllegalArgumentException(msg);
+    private void loadBatches(List<Batch> batches) throws HiveException {
+        for (Batch batch : batches) {
+            if (Objects.nonNull(this.queryExecutor)) {
+                this.queryExecutor.submit(executor -> CompletableFuture.supplyAsync(
+                        () -> new QueryResults(this.loadBatch(batch), null, null), executor));
+            } else {
+                this.forwardAll(this.loadBatch(batch));
             }
-            row[i] = hiveDdbType.getHiveData(attValue, oi);
         }
-        return row;
+    }
+
+    private List<Map<String, AttributeValue>> loadBatch(Batch batch) {
+        return batch.route(this.ddbWrapper.batchGetItems(batch.getParams(), batch.getKeys()));
+    }
+
+    /**
+     * Starts a query reading at most {@code hiveddbudtf.query.concurrency.max.items} items ahead, so queries
+     * waiting to be forwarded don't hold whole partitions in memory. Queries whose limit fits are read whole
+     * with {@link DynamoDbClientWrapper#queryTableAsync}, others keep their stream open after the items read
+     * ahead, and the rest is read from it as it is forwarded.
+     */
+    private CompletableFuture<QueryResults> queryAhead(HiveDdbQueryParameters params,
+                                                       Multimap<String, HiveDdbQueryFilter> filters,
+                                                       Executor executor) {
+        int maxItems = this.config.getQueryConcurrencyMaxItems();
+        if (maxItems == Integer.MAX_VALUE || (Objects.nonNull(params.getLimit()) && params.getLimit() <= maxItems)) {
+            return this.ddbWrapper.queryTableAsync(params, filters, executor)
+                                  .thenApply(items -> new QueryResults(items, null, null));
+        }
+        return CompletableFuture.supplyAsync(() -> {
+            Stream<Map<String, AttributeValue>> stream = this.ddbWrapper.queryTable(params, filters);
+            try {
+                Iterator<Map<String, AttributeValue>> iterator = stream.iterator();
+                List<Map<String, AttributeValue>> items = new ArrayList<>();
+                while (items.size() < maxItems && iterator.hasNext()) {
+                    items.add(iterator.next());
+                }
+                if (!iterator.hasNext()) {
+                    stream.close();
+                    return new QueryResults(items, null, null);
+                }
+                return new QueryResults(items, stream, iterator);
+            } catch (RuntimeException e) {
+                stream.close();
+                throw e;
+            }
+        }, executor);
+    }
+
+    /**
+     * Forwards the items read ahead, then the rest of the query from its open stream.
+     */
+    private void forwardResults(QueryResults results) throws HiveException {
+        try {
+            this.forwardAll(results.getItems());
+            Iterator<Map<String, AttributeValue>> remaining = results.getRemainingItems();
+            while (Objects.nonNull(remaining) && remaining.hasNext()) {
+                this.forwardRow(this.rowDecoder.toRow(remaining.next()));
+            }
+        } finally {
+            results.close();
+        }
+    }
+
+    private void forwardAll(List<Map<String, AttributeValue>> records) throws HiveException {
+        for (Map<String, AttributeValue> record : records) {
+            this.forwardRow(this.rowDecoder.toRow(record));
+        }
     }
 
     @Override
-    public void close() {
+    public void close() throws HiveException {
+        try {
+            if (Objects.nonNull(this.batchGetBuffer)) {
+                this.loadBatches(this.batchGetBuffer.flush());
+            }
+            if (Objects.nonNull(this.queryExecutor)) {
+                try {
+                    this.queryExecutor.drain();
+                } finally {
+                    this.queryExecutor.close();
+                    this.queryExecutor = null;
+                }
+            }
+            if (Objects.nonNull(this.fanOutPool)) {
+                this.fanOutPool.shutdownNow();
+                this.fanOutPool = null;
+            }
+        } finally {
+            super.close();
+        }
+    }
+
+    /**
+     * The items of a query or of a batch of lookups, and the open stream of the query when it has more items
+     * than were read ahead.
+     */
+    @Value
+    private static class QueryResults {
+        List<Map<String, AttributeValue>> items;
+        Stream<Map<String, AttributeValue>> remaining;
+        Iterator<Map<String, AttributeValue>> remainingItems;
+
+        void close() {
+            if (Objects.nonNull(this.remaining)) {
+                this.remaining.close();
+            }
+        }
     }
-}
\ No newline at end of file
+}
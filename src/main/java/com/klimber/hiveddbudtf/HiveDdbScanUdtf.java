@@ -0,0 +1,113 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveRowDecoder;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Stream;
+import org.apache.hadoop.hive.ql.exec.Description;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentLengthException;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.PRIMITIVE;
+
+/**
+ * Scans segments of a DynamoDB parallel scan, taking the segment and the total number of segments from each
+ * input row, so selecting it from a table with one row per segment spreads the scan across the tasks.
+ * <p>
+ * Filters are optional, every filter is pushed down as part of the scan's filter expression. Each segment can
+ * be further split into concurrently scanned sub-segments, see {@code hiveddbudtf.scan.subsegments}.
+ */
+@Description(name = "ddb_scan",
+        value = "_FUNC_(a, [b,] segment, totalSegments) - Scans a segment of the DynamoDB table defined by"
+                + " struct a, keeping the items matching the optional filters from struct b."
+                + " The resulting items are returned as multiple rows and columns")
+public class HiveDdbScanUdtf extends AbstractHiveDdbUdtf {
+    private transient HiveRowDecoder rowDecoder;
+    private transient PrimitiveObjectInspector segmentOI;
+    private transient PrimitiveObjectInspector totalSegmentsOI;
+    private transient boolean filtered;
+
+    public HiveDdbScanUdtf() {
+    }
+
+    // For tests
+    HiveDdbScanUdtf(DynamoDbClientWrapper mockWrapper) {
+        super(mockWrapper);
+    }
+
+    @Override
+    public StructObjectInspector initialize(StructObjectInspector argOIs) throws UDFArgumentException {
+        List<? extends StructField> inputFields = argOIs.getAllStructFieldRefs();
+        if (inputFields.size() != 3 && inputFields.size() != 4) {
+            throw new UDFArgumentLengthException("DDB_SCAN requires 3 or 4 arguments "
+                                                 + "(found=" + inputFields.size() + ")");
+        }
+        this.filtered = inputFields.size() == 4;
+        int segmentArg = this.filtered ? 2 : 1;
+        this.initializeArguments(inputFields.get(0).getFieldObjectInspector(),
+                                 this.filtered ? inputFields.get(1).getFieldObjectInspector() : null,
+                                 "DDB_SCAN", true);
+        this.segmentOI = getSegmentOI(inputFields.get(segmentArg), "segment");
+        this.totalSegmentsOI = getSegmentOI(inputFields.get(segmentArg + 1), "totalSegments");
+        this.rowDecoder = new HiveRowDecoder(this.queryParamsConverter.getHiveDdbColumnMapping(),
+                                             this.queryParamsConverter.getHiveTypes(),
+                                             this.config.getOutputMode());
+
+        return this.rowDecoder.getRowObjectInspector();
+    }
+
+    @Override
+    public void process(Object[] args) throws HiveException {
+        if (Objects.isNull(this.ddbWrapper)) {
+            this.ddbWrapper = this.createWrapper(null);
+        }
+        this.onInputRow();
+        HiveDdbQueryParameters params = this.queryParamsConverter.convert(args[0]);
+        Multimap<String, HiveDdbQueryFilter> filters = this.filtered
+                                                       ? this.queryFiltersConverter.convert(args[1])
+                                                       : ImmutableMultimap.of();
+        int segmentArg = this.filtered ? 2 : 1;
+        int segment = getSegment(args[segmentArg], this.segmentOI, "segment");
+        int totalSegments = getSegment(args[segmentArg + 1], this.totalSegmentsOI, "totalSegments");
+        try (Stream<Map<String, AttributeValue>> items = this.ddbWrapper.scanTable(params, filters, segment,
+                                                                                   totalSegments)) {
+            Iterator<Object> recordIterator = items.map(this.rowDecoder::toRow).iterator();
+
+            while (recordIterator.hasNext()) {
+                this.forwardRow(recordIterator.next());
+            }
+        }
+    }
+
+    private static PrimitiveObjectInspector getSegmentOI(StructField field, String name)
+            throws UDFArgumentException {
+        ObjectInspector oi = field.getFieldObjectInspector();
+        if (!PRIMITIVE.equals(oi.getCategory())) {
+            throw new UDFArgumentException("DDB_SCAN " + name + " argument should be a number "
+                                           + "(found=" + oi.getTypeName() + ")");
+        }
+        return (PrimitiveObjectInspector) oi;
+    }
+
+    private static int getSegment(Object data, PrimitiveObjectInspector oi, String name) {
+        if (Objects.isNull(data)) {
+            throw new IllegalArgumentException(String.format("Expected scan argument to not be null (name=%s)",
+                                                             name));
+        }
+        return PrimitiveObjectInspectorUtils.getInt(data, oi);
+    }
+}
@@ -0,0 +1,247 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Ticker;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Caches query results in memory, so repeated queries (e.g. the same partition key on many input rows)
+ * are only sent to DynamoDB once per task.
+ * <p>
+ * The cache is bounded by the estimated size of the cached items. Results larger than a tenth of it
+ * are not cached, they are streamed from the delegate as usual. Single item lookups done with
+ * BatchGetItem are not cached.
+ */
+@Slf4j
+public class CachingDynamoDbClientWrapper implements DynamoDbClientWrapper {
+    private static final int MAX_ENTRY_FRACTION = 10;
+    private static final int ENTRY_OVERHEAD_BYTES = 128;
+    private static final int VALUE_OVERHEAD_BYTES = 48;
+
+    private final DynamoDbClientWrapper delegate;
+    private final long maxEntryBytes;
+    private final Cache<QueryKey, List<Map<String, AttributeValue>>> cache;
+
+    /**
+     * @param delegate   runs the queries that are not cached
+     * @param maxBytes   maximum estimated size of the cached items
+     * @param ttlSeconds how long results stay cached, {@code 0} to keep them until evicted by size
+     */
+    public CachingDynamoDbClientWrapper(DynamoDbClientWrapper delegate, long maxBytes, long ttlSeconds) {
+        this(delegate, maxBytes, ttlSeconds, Ticker.systemTicker());
+    }
+
+    CachingDynamoDbClientWrapper(DynamoDbClientWrapper delegate, long maxBytes, long ttlSeconds, Ticker ticker) {
+        if (maxBytes < 1) {
+            String msg = String.format("Expected cache size to be a positive number (found=%d)", maxBytes);
+            throw new IllegalArgumentException(msg);
+        }
+        this.delegate = delegate;
+        this.maxEntryBytes = Math.min(maxBytes / MAX_ENTRY_FRACTION, Integer.MAX_VALUE);
+        CacheBuilder<QueryKey, List<Map<String, AttributeValue>>> builder = CacheBuilder
+                .newBuilder()
+                .maximumWeight(maxBytes)
+                .weigher((QueryKey key, List<Map<String, AttributeValue>> items) -> estimateSize(items))
+                .ticker(ticker)
+                .recordStats();
+        if (ttlSeconds > 0) {
+            builder.expireAfterWrite(ttlSeconds, TimeUnit.SECONDS);
+        }
+        this.cache = builder.build();
+    }
+
+    @Override
+    public Stream<Map<String, AttributeValue>> queryTable(HiveDdbQueryParameters params,
+                                                          Multimap<String, HiveDdbQueryFilter> filters) {
+        QueryKey key = QueryKey.of(params, filters);
+        List<Map<String, AttributeValue>> cached = this.cache.getIfPresent(key);
+        if (Objects.nonNull(cached)) {
+            return cached.stream();
+        }
+        Stream<Map<String, AttributeValue>> items = this.delegate.queryTable(params, filters);
+        Iterator<Map<String, AttributeValue>> cachingIterator = new CachingIterator(key, items.iterator());
+        Spliterator<Map<String, AttributeValue>> spliterator = Spliterators.spliteratorUnknownSize(cachingIterator,
+                                                                                                    0);
+        return StreamSupport.stream(spliterator, false).onClose(items::close);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, AttributeValue>>> queryTableAsync(
+            HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters, Executor executor) {
+        QueryKey key = QueryKey.of(params, filters);
+        List<Map<String, AttributeValue>> cached = this.cache.getIfPresent(key);
+        if (Objects.nonNull(cached)) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        return this.delegate.queryTableAsync(params, filters, executor).thenApply(items -> {
+            if (estimateSize(items) <= this.maxEntryBytes) {
+                this.cache.put(key, ImmutableList.copyOf(items));
+            }
+            return items;
+        });
+    }
+
+    @Override
+    public List<Multimap<String, HiveDdbQueryFilter>> fanOut(HiveDdbQueryParameters params,
+                                                             Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.fanOut(params, filters);
+    }
+
+    @Override
+    public Optional<Map<String, AttributeValue>> findPrimaryKey(HiveDdbQueryParameters params,
+                                                                Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.findPrimaryKey(params, filters);
+    }
+
+    @Override
+    public boolean exists(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.exists(params, filters);
+    }
+
+    @Override
+    public Stream<Map<String, AttributeValue>> scanTable(HiveDdbQueryParameters params,
+                                                         Multimap<String, HiveDdbQueryFilter> filters,
+                                                         int segment, int totalSegments) {
+        return this.delegate.scanTable(params, filters, segment, totalSegments);
+    }
+
+    @Override
+    public Map<Map<String, AttributeValue>, Map<String, AttributeValue>> batchGetItems(
+            HiveDdbQueryParameters params, Collection<Map<String, AttributeValue>> keys) {
+        return this.delegate.batchGetItems(params, keys);
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> batchPutItems(String tableName,
+                                                           List<Map<String, AttributeValue>> items) {
+        return this.delegate.batchPutItems(tableName, items);
+    }
+
+    @Override
+    public DdbTableSchema describeTableSchema(String tableName) {
+        return this.delegate.describeTableSchema(tableName);
+    }
+
+    public CacheStats getStats() {
+        return this.cache.stats();
+    }
+
+    @Override
+    public void close() {
+        CacheStats stats = this.cache.stats();
+        log.info("Query cache closed (hits={}, misses={}, evictions={}, hitRate={})",
+                 stats.hitCount(), stats.missCount(), stats.evictionCount(), stats.hitRate());
+        this.cache.invalidateAll();
+        this.delegate.close();
+    }
+
+    static int estimateSize(List<Map<String, AttributeValue>> items) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (Map<String, AttributeValue> item : items) {
+            size += estimateSize(item);
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
+    }
+
+    private static long estimateSize(Map<String, AttributeValue> item) {
+        long size = ENTRY_OVERHEAD_BYTES;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += estimateSize(attribute.getKey()) + estimateSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long estimateSize(AttributeValue value) {
+        if (Objects.isNull(value)) {
+            return 0;
+        }
+        long size = VALUE_OVERHEAD_BYTES;
+        size += estimateSize(value.getS()) + estimateSize(value.getN()) + estimateSize(value.getB());
+        if (Objects.nonNull(value.getSS())) {
+            size += value.getSS().stream().mapToLong(CachingDynamoDbClientWrapper::estimateSize).sum();
+        }
+        if (Objects.nonNull(value.getNS())) {
+            size += value.getNS().stream().mapToLong(CachingDynamoDbClientWrapper::estimateSize).sum();
+        }
+        if (Objects.nonNull(value.getBS())) {
+            size += value.getBS().stream().mapToLong(CachingDynamoDbClientWrapper::estimateSize).sum();
+        }
+        if (Objects.nonNull(value.getM())) {
+            size += estimateSize(value.getM());
+        }
+        if (Objects.nonNull(value.getL())) {
+            size += value.getL().stream().mapToLong(CachingDynamoDbClientWrapper::estimateSize).sum();
+        }
+        return size;
+    }
+
+    private static long estimateSize(String value) {
+        return Objects.isNull(value) ? 0 : VALUE_OVERHEAD_BYTES + 2L * value.length();
+    }
+
+    private static long estimateSize(ByteBuffer value) {
+        return Objects.isNull(value) ? 0 : VALUE_OVERHEAD_BYTES + value.capacity();
+    }
+
+    /**
+     * Collects the items while they are consumed, caching them once the results are exhausted.
+     * Results that are too large, or that are not fully consumed, are not cached.
+     */
+    private class CachingIterator implements Iterator<Map<String, AttributeValue>> {
+        private final QueryKey key;
+        private final Iterator<Map<String, AttributeValue>> items;
+        private List<Map<String, AttributeValue>> collected = new ArrayList<>();
+        private long collectedBytes = ENTRY_OVERHEAD_BYTES;
+
+        CachingIterator(QueryKey key, Iterator<Map<String, AttributeValue>> items) {
+            this.key = key;
+            this.items = items;
+        }
+
+        @Override
+        public boolean hasNext() {
+            boolean hasNext = this.items.hasNext();
+            if (!hasNext && Objects.nonNull(this.collected)) {
+                CachingDynamoDbClientWrapper.this.cache.put(this.key, ImmutableList.copyOf(this.collected));
+                this.collected = null;
+            }
+            return hasNext;
+        }
+
+        @Override
+        public Map<String, AttributeValue> next() {
+            Map<String, AttributeValue> item = this.items.next();
+            if (Objects.nonNull(this.collected)) {
+                this.collectedBytes += estimateSize(item);
+                if (this.collectedBytes > CachingDynamoDbClientWrapper.this.maxEntryBytes) {
+                    this.collected = null;
+                } else {
+                    this.collected.add(item);
+                }
+            }
+            return item;
+        }
+    }
+}
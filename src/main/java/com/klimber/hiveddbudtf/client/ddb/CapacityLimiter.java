@@ -0,0 +1,83 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Token bucket limiting the read or write capacity units consumed per second.
+ * <p>
+ * The cost of a read is only known from its response, so requests are let through while the bucket
+ * is not in debt and the consumed capacity is taken from it afterwards. Requests wait for the debt to be
+ * refilled, so the consumed rate converges to the budget, overshooting at most by the reads in flight.
+ * Up to one second of unused budget is kept for bursts.
+ */
+class CapacityLimiter {
+    private final double unitsPerSecond;
+    private final Ticker ticker;
+    private double available;
+    private long refilledNanos;
+
+    CapacityLimiter(double unitsPerSecond) {
+        this(unitsPerSecond, Ticker.systemTicker());
+    }
+
+    CapacityLimiter(double unitsPerSecond, Ticker ticker) {
+        if (!(unitsPerSecond > 0)) {
+            String msg = String.format("Expected capacity budget to be positive (found=%s)", unitsPerSecond);
+            throw new IllegalArgumentException(msg);
+        }
+        this.unitsPerSecond = unitsPerSecond;
+        this.ticker = ticker;
+        this.available = unitsPerSecond;
+        this.refilledNanos = ticker.read();
+    }
+
+    double getUnitsPerSecond() {
+        return this.unitsPerSecond;
+    }
+
+    /**
+     * Waits until the capacity consumed so far fits the budget.
+     *
+     * @throws DynamoDbClientWrapperException if the thread is interrupted
+     */
+    void acquire() {
+        long waitNanos;
+        while ((waitNanos = this.getWaitNanos()) > 0) {
+            try {
+                TimeUnit.NANOSECONDS.sleep(waitNanos);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new DynamoDbClientWrapperException("Interrupted while waiting for read capacity", e);
+            }
+        }
+    }
+
+    /**
+     * Takes capacity consumed by a completed read from the bucket.
+     *
+     * @param units the consumed read capacity units, as returned by DynamoDB
+     */
+    synchronized void consume(double units) {
+        this.refill();
+        this.available -= units;
+    }
+
+    /**
+     * @return how long to wait before the next read, {@code 0} if it can proceed
+     */
+    synchronized long getWaitNanos() {
+        this.refill();
+        if (this.available >= 0) {
+            return 0;
+        }
+        return (long) Math.ceil(-this.available / this.unitsPerSecond * TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private void refill() {
+        long now = this.ticker.read();
+        double refilled = (now - this.refilledNanos) * this.unitsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.available = Math.min(this.unitsPerSecond, this.available + refilled);
+        this.refilledNanos = now;
+    }
+}
@@ -0,0 +1,137 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares the results of identical queries running at the same time, so only the first one is sent
+ * to DynamoDB and the others wait for its results.
+ * <p>
+ * Only {@link #queryTableAsync(HiveDdbQueryParameters, Multimap, Executor)} is coalesced, sequential
+ * queries never overlap. Queries are forgotten as soon as they complete, combine with
+ * {@link CachingDynamoDbClientWrapper} to reuse results afterwards. Every caller gets its own future depending
+ * on the shared query, so cancelling one doesn't cancel the query for the others.
+ */
+@Slf4j
+public class CoalescingDynamoDbClientWrapper implements DynamoDbClientWrapper {
+    private final DynamoDbClientWrapper delegate;
+    private final ConcurrentMap<QueryKey, CompletableFuture<List<Map<String, AttributeValue>>>> inFlight =
+            new ConcurrentHashMap<>();
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+
+    public CoalescingDynamoDbClientWrapper(DynamoDbClientWrapper delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Stream<Map<String, AttributeValue>> queryTable(HiveDdbQueryParameters params,
+                                                          Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.queryTable(params, filters);
+    }
+
+    @Override
+    public CompletableFuture<List<Map<String, AttributeValue>>> queryTableAsync(
+            HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters, Executor executor) {
+        this.queries.increment();
+        QueryKey key = QueryKey.of(params, filters);
+        // Registered before the query starts, so it can't complete before being visible to other callers
+        CompletableFuture<List<Map<String, AttributeValue>>> shared = new CompletableFuture<>();
+        CompletableFuture<List<Map<String, AttributeValue>>> existing = this.inFlight.putIfAbsent(key, shared);
+        if (Objects.nonNull(existing)) {
+            this.coalesced.increment();
+            return existing.thenApply(Function.identity());
+        }
+        try {
+            this.delegate.queryTableAsync(params, filters, executor).whenComplete((items, error) -> {
+                this.inFlight.remove(key, shared);
+                if (Objects.nonNull(error)) {
+                    shared.completeExceptionally(error);
+                } else {
+                    shared.complete(items);
+                }
+            });
+        } catch (RuntimeException e) {
+            this.inFlight.remove(key, shared);
+            shared.completeExceptionally(e);
+            throw e;
+        }
+        return shared.thenApply(Function.identity());
+    }
+
+    @Override
+    public List<Multimap<String, HiveDdbQueryFilter>> fanOut(HiveDdbQueryParameters params,
+                                                             Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.fanOut(params, filters);
+    }
+
+    @Override
+    public Optional<Map<String, AttributeValue>> findPrimaryKey(HiveDdbQueryParameters params,
+                                                                Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.findPrimaryKey(params, filters);
+    }
+
+    @Override
+    public boolean exists(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        return this.delegate.exists(params, filters);
+    }
+
+    @Override
+    public Stream<Map<String, AttributeValue>> scanTable(HiveDdbQueryParameters params,
+                                                         Multimap<String, HiveDdbQueryFilter> filters,
+                                                         int segment, int totalSegments) {
+        return this.delegate.scanTable(params, filters, segment, totalSegments);
+    }
+
+    @Override
+    public Map<Map<String, AttributeValue>, Map<String, AttributeValue>> batchGetItems(
+            HiveDdbQueryParameters params, Collection<Map<String, AttributeValue>> keys) {
+        return this.delegate.batchGetItems(params, keys);
+    }
+
+    @Override
+    public List<Map<String, AttributeValue>> batchPutItems(String tableName,
+                                                           List<Map<String, AttributeValue>> items) {
+        return this.delegate.batchPutItems(tableName, items);
+    }
+
+    @Override
+    public DdbTableSchema describeTableSchema(String tableName) {
+        return this.delegate.describeTableSchema(tableName);
+    }
+
+    /**
+     * @return the number of asynchronous queries requested
+     */
+    public long getQueryCount() {
+        return this.queries.sum();
+    }
+
+    /**
+     * @return the number of asynchronous queries answered by an identical query already in flight
+     */
+    public long getCoalescedCount() {
+        return this.coalesced.sum();
+    }
+
+    @Override
+    public void close() {
+        log.info("Query coalescing closed (queries={}, coalesced={})", this.getQueryCount(), this.getCoalescedCount());
+        this.delegate.close();
+    }
+}
@@ -0,0 +1,129 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * The parts of a {@link TableDescription} needed to query a table: key schemas, key attribute types,
+ * index projections and read capacity.
+ * <p>
+ * It is resolved during query planning when the table name is constant, and serialized with the UDTF
+ * so tasks don't call DescribeTable. Only plain {@link HashMap} and {@link ArrayList} are used, which
+ * Hive's Kryo serializes without custom serializers.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+public class DdbTableSchema {
+    private final String tableName;
+    private final boolean onDemand;
+    private final HashMap<String, String> attributeTypes;
+    private final IndexSchema baseTable;
+    private final HashMap<String, IndexSchema> indexes;
+
+    public static DdbTableSchema of(TableDescription tableDesc) {
+        HashMap<String, String> attributeTypes = new HashMap<>();
+        for (AttributeDefinition attribute : nullToEmpty(tableDesc.getAttributeDefinitions())) {
+            attributeTypes.put(attribute.getAttributeName(), attribute.getAttributeType());
+        }
+        IndexSchema baseTable = new IndexSchema(null, false, getKeyAttributes(tableDesc.getKeySchema()), null,
+                                                new ArrayList<>(),
+                                                getReadCapacityUnits(tableDesc.getProvisionedThroughput()));
+        HashMap<String, IndexSchema> indexes = new HashMap<>();
+        for (GlobalSecondaryIndexDescription index : nullToEmpty(tableDesc.getGlobalSecondaryIndexes())) {
+            indexes.put(index.getIndexName(),
+                        new IndexSchema(index.getIndexName(), true, getKeyAttributes(index.getKeySchema()),
+                                        getProjectionType(index.getProjection()),
+                                        getNonKeyAttributes(index.getProjection()),
+                                        getReadCapacityUnits(index.getProvisionedThroughput())));
+        }
+        for (LocalSecondaryIndexDescription index : nullToEmpty(tableDesc.getLocalSecondaryIndexes())) {
+            // Local indexes share the table capacity
+            indexes.put(index.getIndexName(),
+                        new IndexSchema(index.getIndexName(), false, getKeyAttributes(index.getKeySchema()),
+                                        getProjectionType(index.getProjection()),
+                                        getNonKeyAttributes(index.getProjection()),
+                                        baseTable.getReadCapacityUnits()));
+        }
+        boolean onDemand = Objects.nonNull(tableDesc.getBillingModeSummary())
+                           && BillingMode.PAY_PER_REQUEST.toString().equals(
+                                   tableDesc.getBillingModeSummary().getBillingMode());
+        return new DdbTableSchema(tableDesc.getTableName(), onDemand, attributeTypes, baseTable, indexes);
+    }
+
+    /**
+     * @param indexName the index name, {@code null} for the base table
+     * @return the index, or the base table, empty if there is no such index
+     */
+    public IndexSchema getIndex(String indexName) {
+        return Objects.isNull(indexName) ? this.baseTable : this.indexes.get(indexName);
+    }
+
+    /**
+     * @param indexName the index name, {@code null} for the base table
+     * @return the key attribute names by key type, empty if there is no such index
+     */
+    public Map<KeyType, String> getKeyAttributes(String indexName) {
+        IndexSchema index = this.getIndex(indexName);
+        return Objects.isNull(index) ? Collections.emptyMap() : index.getKeyAttributes();
+    }
+
+    private static HashMap<KeyType, String> getKeyAttributes(List<KeySchemaElement> keySchema) {
+        HashMap<KeyType, String> keyAttributes = new HashMap<>();
+        for (KeySchemaElement element : nullToEmpty(keySchema)) {
+            keyAttributes.put(KeyType.fromValue(element.getKeyType()), element.getAttributeName());
+        }
+        return keyAttributes;
+    }
+
+    private static String getProjectionType(Projection projection) {
+        return Objects.isNull(projection) ? null : projection.getProjectionType();
+    }
+
+    private static ArrayList<String> getNonKeyAttributes(Projection projection) {
+        return Objects.isNull(projection)
+               ? new ArrayList<>()
+               : new ArrayList<>(nullToEmpty(projection.getNonKeyAttributes()));
+    }
+
+    private static long getReadCapacityUnits(ProvisionedThroughputDescription throughput) {
+        if (Objects.isNull(throughput) || Objects.isNull(throughput.getReadCapacityUnits())) {
+            return 0;
+        }
+        return throughput.getReadCapacityUnits();
+    }
+
+    private static <T> Collection<T> nullToEmpty(Collection<T> collection) {
+        return Objects.isNull(collection) ? Collections.emptyList() : collection;
+    }
+
+    @Getter
+    @RequiredArgsConstructor(access = AccessLevel.PRIVATE)
+    public static class IndexSchema {
+        private final String indexName;
+        private final boolean global;
+        private final HashMap<KeyType, String> keyAttributes;
+        private final String projectionType;
+        private final ArrayList<String> nonKeyAttributes;
+        /**
+         * Provisioned read capacity, {@code 0} for on-demand tables.
+         */
+        private final long readCapacityUnits;
+    }
+}
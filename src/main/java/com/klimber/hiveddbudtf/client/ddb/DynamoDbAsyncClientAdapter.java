@@ -0,0 +1,389 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.auth.AWSCredentials;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSSessionCredentials;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DeleteRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import software.amazon.awssdk.auth.credentials.AwsBasicCredentials;
+import software.amazon.awssdk.auth.credentials.AwsCredentialsProvider;
+import software.amazon.awssdk.auth.credentials.AwsSessionCredentials;
+import software.amazon.awssdk.awscore.AwsRequestOverrideConfiguration;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+
+/**
+ * Sends the SDKv1 requests built by {@link DynamoDbClientWrapperImpl} with an AWS SDKv2
+ * {@link DynamoDbAsyncClient}, so {@link DynamoDbAsyncClientWrapper} keeps every feature of the SDKv1 wrapper
+ * (query templates, throughput limits, metrics) while requests are sent with non-blocking I/O.
+ * <p>
+ * The asynchronous methods complete on the SDK threads once the response is read, the blocking methods
+ * of {@link com.amazonaws.services.dynamodbv2.AmazonDynamoDB} wait for them. Like with SDKv1, every request
+ * carries the credentials provider of the wrapper that sent it and reports its attempts to its listener.
+ * Only the operations and fields used by the wrappers are supported.
+ */
+class DynamoDbAsyncClientAdapter extends AbstractAmazonDynamoDB {
+    private final DynamoDbAsyncClient client;
+
+    DynamoDbAsyncClientAdapter(DynamoDbAsyncClient client) {
+        this.client = client;
+    }
+
+    CompletableFuture<QueryResult> queryAsync(QueryRequest request) {
+        return this.client.query(software.amazon.awssdk.services.dynamodb.model.QueryRequest
+                                         .builder()
+                                         .tableName(request.getTableName())
+                                         .indexName(request.getIndexName())
+                                         .select(request.getSelect())
+                                         .projectionExpression(request.getProjectionExpression())
+                                         .keyConditionExpression(request.getKeyConditionExpression())
+                                         .filterExpression(request.getFilterExpression())
+                                         .expressionAttributeNames(request.getExpressionAttributeNames())
+                                         .expressionAttributeValues(
+                                                 SdkV2AttributeValues.toV2(request.getExpressionAttributeValues()))
+                                         .exclusiveStartKey(SdkV2AttributeValues.toV2(request.getExclusiveStartKey()))
+                                         .limit(request.getLimit())
+                                         .scanIndexForward(request.getScanIndexForward())
+                                         .consistentRead(request.getConsistentRead())
+                                         .returnConsumedCapacity(request.getReturnConsumedCapacity())
+                                         .overrideConfiguration(overrideConfiguration(request))
+                                         .build())
+                          .thenApply(result -> new QueryResult()
+                                  .withItems(SdkV2AttributeValues.toV1(result.items()))
+                                  .withCount(result.count())
+                                  .withScannedCount(result.scannedCount())
+                                  .withLastEvaluatedKey(result.hasLastEvaluatedKey()
+                                                        ? SdkV2AttributeValues.toV1(result.lastEvaluatedKey())
+                                                        : null)
+                                  .withConsumedCapacity(toV1(result.consumedCapacity())));
+    }
+
+    CompletableFuture<ScanResult> scanAsync(ScanRequest request) {
+        return this.client.scan(software.amazon.awssdk.services.dynamodb.model.ScanRequest
+                                        .builder()
+                                        .tableName(request.getTableName())
+                                        .indexName(request.getIndexName())
+                                        .select(request.getSelect())
+                                        .projectionExpression(request.getProjectionExpression())
+                                        .filterExpression(request.getFilterExpression())
+                                        .expressionAttributeNames(request.getExpressionAttributeNames())
+                                        .expressionAttributeValues(
+                                                SdkV2AttributeValues.toV2(request.getExpressionAttributeValues()))
+                                        .exclusiveStartKey(SdkV2AttributeValues.toV2(request.getExclusiveStartKey()))
+                                        .limit(request.getLimit())
+                                        .segment(request.getSegment())
+                                        .totalSegments(request.getTotalSegments())
+                                        .consistentRead(request.getConsistentRead())
+                                        .returnConsumedCapacity(request.getReturnConsumedCapacity())
+                                        .overrideConfiguration(overrideConfiguration(request))
+                                        .build())
+                          .thenApply(result -> new ScanResult()
+                                  .withItems(SdkV2AttributeValues.toV1(result.items()))
+                                  .withCount(result.count())
+                                  .withScannedCount(result.scannedCount())
+                                  .withLastEvaluatedKey(result.hasLastEvaluatedKey()
+                                                        ? SdkV2AttributeValues.toV1(result.lastEvaluatedKey())
+                                                        : null)
+                                  .withConsumedCapacity(toV1(result.consumedCapacity())));
+    }
+
+    CompletableFuture<GetItemResult> getItemAsync(GetItemRequest request) {
+        return this.client.getItem(software.amazon.awssdk.services.dynamodb.model.GetItemRequest
+                                           .builder()
+                                           .tableName(request.getTableName())
+                                           .key(SdkV2AttributeValues.toV2(request.getKey()))
+                                           .projectionExpression(request.getProjectionExpression())
+                                           .expressionAttributeNames(request.getExpressionAttributeNames())
+                                           .consistentRead(request.getConsistentRead())
+                                           .returnConsumedCapacity(request.getReturnConsumedCapacity())
+                                           .overrideConfiguration(overrideConfiguration(request))
+                                           .build())
+                          .thenApply(result -> new GetItemResult()
+                                  .withItem(result.hasItem() ? SdkV2AttributeValues.toV1(result.item()) : null)
+                                  .withConsumedCapacity(toV1(result.consumedCapacity())));
+    }
+
+    CompletableFuture<BatchGetItemResult> batchGetItemAsync(BatchGetItemRequest request) {
+        Map<String, software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes> requestItems = new HashMap<>();
+        request.getRequestItems().forEach((tableName, keys) -> requestItems.put(tableName, toV2(keys)));
+        return this.client.batchGetItem(software.amazon.awssdk.services.dynamodb.model.BatchGetItemRequest
+                                                .builder()
+                                                .requestItems(requestItems)
+                                                .returnConsumedCapacity(request.getReturnConsumedCapacity())
+                                                .overrideConfiguration(overrideConfiguration(request))
+                                                .build())
+                          .thenApply(result -> {
+                              Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+                              result.responses().forEach((tableName, items) -> responses.put(
+                                      tableName, SdkV2AttributeValues.toV1(items)));
+                              Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+                              result.unprocessedKeys().forEach((tableName, keys) -> unprocessed.put(
+                                      tableName, toV1(keys)));
+                              return new BatchGetItemResult()
+                                      .withResponses(responses)
+                                      .withUnprocessedKeys(unprocessed)
+                                      .withConsumedCapacity(convert(result.consumedCapacity(),
+                                                                    DynamoDbAsyncClientAdapter::toV1));
+                          });
+    }
+
+    CompletableFuture<BatchWriteItemResult> batchWriteItemAsync(BatchWriteItemRequest request) {
+        Map<String, List<software.amazon.awssdk.services.dynamodb.model.WriteRequest>> requestItems =
+                new HashMap<>();
+        request.getRequestItems().forEach((tableName, writes) -> requestItems.put(
+                tableName, convert(writes, DynamoDbAsyncClientAdapter::toV2)));
+        return this.client.batchWriteItem(software.amazon.awssdk.services.dynamodb.model.BatchWriteItemRequest
+                                                  .builder()
+                                                  .requestItems(requestItems)
+                                                  .returnConsumedCapacity(request.getReturnConsumedCapacity())
+                                                  .overrideConfiguration(overrideConfiguration(request))
+                                                  .build())
+                          .thenApply(result -> {
+                              Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+                              result.unprocessedItems().forEach((tableName, writes) -> unprocessed.put(
+                                      tableName, convert(writes, DynamoDbAsyncClientAdapter::toV1)));
+                              return new BatchWriteItemResult()
+                                      .withUnprocessedItems(unprocessed)
+                                      .withConsumedCapacity(convert(result.consumedCapacity(),
+                                                                    DynamoDbAsyncClientAdapter::toV1));
+                          });
+    }
+
+    CompletableFuture<DescribeTableResult> describeTableAsync(DescribeTableRequest request) {
+        return this.client.describeTable(software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest
+                                                 .builder()
+                                                 .tableName(request.getTableName())
+                                                 .overrideConfiguration(overrideConfiguration(request))
+                                                 .build())
+                          .thenApply(result -> new DescribeTableResult().withTable(toV1(result.table())));
+    }
+
+    @Override
+    public QueryResult query(QueryRequest request) {
+        return join(this.queryAsync(request));
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest request) {
+        return join(this.scanAsync(request));
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        return join(this.getItemAsync(request));
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+        return join(this.batchGetItemAsync(request));
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+        return join(this.batchWriteItemAsync(request));
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest request) {
+        return join(this.describeTableAsync(request));
+    }
+
+    /**
+     * @param credentials signs the request, {@code null} for the default credentials of the client
+     * @param listener    notified of every attempt, may be {@code null}
+     * @return the SDKv2 configuration of a request
+     */
+    static AwsRequestOverrideConfiguration overrideConfiguration(AWSCredentialsProvider credentials,
+                                                                 DynamoDbRequestListener listener) {
+        AwsRequestOverrideConfiguration.Builder builder = AwsRequestOverrideConfiguration.builder();
+        if (Objects.nonNull(credentials)) {
+            builder.credentialsProvider(toV2(credentials));
+        }
+        if (Objects.nonNull(listener)) {
+            builder.addMetricPublisher(new RequestListenerMetricPublisher(listener));
+        }
+        return builder.build();
+    }
+
+    private static AwsRequestOverrideConfiguration overrideConfiguration(AmazonWebServiceRequest request) {
+        return overrideConfiguration(request.getRequestCredentialsProvider(),
+                                     request.getHandlerContext(RequestListenerHandler.LISTENER));
+    }
+
+    /**
+     * Resolves SDKv1 credentials on every request, so providers refreshing their credentials keep working.
+     */
+    private static AwsCredentialsProvider toV2(AWSCredentialsProvider credentials) {
+        return () -> {
+            AWSCredentials resolved = credentials.getCredentials();
+            if (resolved instanceof AWSSessionCredentials) {
+                return AwsSessionCredentials.create(resolved.getAWSAccessKeyId(), resolved.getAWSSecretKey(),
+                                                    ((AWSSessionCredentials) resolved).getSessionToken());
+            }
+            return AwsBasicCredentials.create(resolved.getAWSAccessKeyId(), resolved.getAWSSecretKey());
+        };
+    }
+
+    private static <T> T join(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            // Fails like the SDKv1 client would, with the service or client exception
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static <S, T> List<T> convert(List<S> values, Function<S, T> converter) {
+        if (Objects.isNull(values)) {
+            return null;
+        }
+        List<T> converted = new ArrayList<>(values.size());
+        values.forEach(value -> converted.add(converter.apply(value)));
+        return converted;
+    }
+
+    private static software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes toV2(KeysAndAttributes keys) {
+        List<Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue>> keyValues =
+                new ArrayList<>(keys.getKeys().size());
+        keys.getKeys().forEach(key -> keyValues.add(SdkV2AttributeValues.toV2(key)));
+        return software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes
+                .builder()
+                .keys(keyValues)
+                .projectionExpression(keys.getProjectionExpression())
+                .expressionAttributeNames(keys.getExpressionAttributeNames())
+                .consistentRead(keys.getConsistentRead())
+                .build();
+    }
+
+    private static KeysAndAttributes toV1(software.amazon.awssdk.services.dynamodb.model.KeysAndAttributes keys) {
+        return new KeysAndAttributes()
+                .withKeys(SdkV2AttributeValues.toV1(keys.keys()))
+                .withProjectionExpression(keys.projectionExpression())
+                .withExpressionAttributeNames(keys.hasExpressionAttributeNames()
+                                              ? keys.expressionAttributeNames()
+                                              : null)
+                .withConsistentRead(keys.consistentRead());
+    }
+
+    private static software.amazon.awssdk.services.dynamodb.model.WriteRequest toV2(WriteRequest write) {
+        software.amazon.awssdk.services.dynamodb.model.WriteRequest.Builder builder =
+                software.amazon.awssdk.services.dynamodb.model.WriteRequest.builder();
+        if (Objects.nonNull(write.getPutRequest())) {
+            builder.putRequest(r -> r.item(SdkV2AttributeValues.toV2(write.getPutRequest().getItem())));
+        }
+        if (Objects.nonNull(write.getDeleteRequest())) {
+            builder.deleteRequest(r -> r.key(SdkV2AttributeValues.toV2(write.getDeleteRequest().getKey())));
+        }
+        return builder.build();
+    }
+
+    private static WriteRequest toV1(software.amazon.awssdk.services.dynamodb.model.WriteRequest write) {
+        WriteRequest converted = new WriteRequest();
+        if (Objects.nonNull(write.putRequest())) {
+            converted.setPutRequest(new PutRequest(SdkV2AttributeValues.toV1(write.putRequest().item())));
+        }
+        if (Objects.nonNull(write.deleteRequest())) {
+            converted.setDeleteRequest(new DeleteRequest(SdkV2AttributeValues.toV1(write.deleteRequest().key())));
+        }
+        return converted;
+    }
+
+    private static ConsumedCapacity toV1(software.amazon.awssdk.services.dynamodb.model.ConsumedCapacity capacity) {
+        if (Objects.isNull(capacity)) {
+            return null;
+        }
+        return new ConsumedCapacity().withTableName(capacity.tableName()).withCapacityUnits(capacity.capacityUnits());
+    }
+
+    /**
+     * Keeps the fields read by {@link DdbTableSchema#of(TableDescription)}.
+     */
+    private static TableDescription toV1(software.amazon.awssdk.services.dynamodb.model.TableDescription table) {
+        List<AttributeDefinition> attributes = convert(table.attributeDefinitions(), a -> new AttributeDefinition(
+                a.attributeName(), a.attributeTypeAsString()));
+        List<GlobalSecondaryIndexDescription> globalIndexes = table.hasGlobalSecondaryIndexes()
+                ? convert(table.globalSecondaryIndexes(), index -> new GlobalSecondaryIndexDescription()
+                        .withIndexName(index.indexName())
+                        .withKeySchema(toV1(index.keySchema()))
+                        .withProjection(toV1(index.projection()))
+                        .withProvisionedThroughput(toV1(index.provisionedThroughput())))
+                : null;
+        List<LocalSecondaryIndexDescription> localIndexes = table.hasLocalSecondaryIndexes()
+                ? convert(table.localSecondaryIndexes(), index -> new LocalSecondaryIndexDescription()
+                        .withIndexName(index.indexName())
+                        .withKeySchema(toV1(index.keySchema()))
+                        .withProjection(toV1(index.projection())))
+                : null;
+        return new TableDescription()
+                .withTableName(table.tableName())
+                .withKeySchema(toV1(table.keySchema()))
+                .withAttributeDefinitions(attributes)
+                .withProvisionedThroughput(toV1(table.provisionedThroughput()))
+                .withBillingModeSummary(Objects.nonNull(table.billingModeSummary())
+                                        ? new BillingModeSummary().withBillingMode(
+                                                table.billingModeSummary().billingModeAsString())
+                                        : null)
+                .withGlobalSecondaryIndexes(globalIndexes)
+                .withLocalSecondaryIndexes(localIndexes);
+    }
+
+    private static List<KeySchemaElement> toV1(
+            List<software.amazon.awssdk.services.dynamodb.model.KeySchemaElement> keySchema) {
+        return convert(keySchema, key -> new KeySchemaElement(key.attributeName(), key.keyTypeAsString()));
+    }
+
+    private static Projection toV1(software.amazon.awssdk.services.dynamodb.model.Projection projection) {
+        if (Objects.isNull(projection)) {
+            return null;
+        }
+        return new Projection().withProjectionType(projection.projectionTypeAsString())
+                               .withNonKeyAttributes(projection.hasNonKeyAttributes()
+                                                     ? projection.nonKeyAttributes()
+                                                     : null);
+    }
+
+    private static ProvisionedThroughputDescription toV1(
+            software.amazon.awssdk.services.dynamodb.model.ProvisionedThroughputDescription throughput) {
+        if (Objects.isNull(throughput)) {
+            return null;
+        }
+        return new ProvisionedThroughputDescription().withReadCapacityUnits(throughput.readCapacityUnits())
+                                                     .withWriteCapacityUnits(throughput.writeCapacityUnits());
+    }
+}
@@ -0,0 +1,73 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientRegistry.ClientKey;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import lombok.extern.slf4j.Slf4j;
+import software.amazon.awssdk.http.nio.netty.NettyNioAsyncHttpClient;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeEndpointsRequest;
+
+/**
+ * Shares AWS SDKv2 asynchronous DynamoDB clients between every UDTF instance in the JVM, like
+ * {@link DynamoDbClientRegistry} does for SDKv1 clients, keyed by the same settings.
+ * <p>
+ * Clients send requests with a Netty HTTP client, whose few event loop threads serve every connection,
+ * so the number of requests in flight is only bounded by the connection pool.
+ */
+@Slf4j
+public final class DynamoDbAsyncClientRegistry {
+    private static final ConcurrentMap<ClientKey, DynamoDbAsyncClient> CLIENTS = new ConcurrentHashMap<>();
+    private static final Set<ClientKey> PREWARMED = ConcurrentHashMap.newKeySet();
+
+    private DynamoDbAsyncClientRegistry() {
+    }
+
+    /**
+     * @param config the UDTF settings
+     * @return the shared client for the settings, built on first use
+     */
+    public static DynamoDbAsyncClient getClient(HiveDdbQueryConfig config) {
+        return CLIENTS.computeIfAbsent(ClientKey.of(config), DynamoDbAsyncClientRegistry::buildClient);
+    }
+
+    /**
+     * Opens {@link HiveDdbQueryConfig#getClientPrewarmConnections()} pooled connections in the background,
+     * up to the pool size, by sending that many concurrent DescribeEndpoints requests. Done once per client.
+     *
+     * @param config      the UDTF settings
+     * @param credentials signs the requests
+     */
+    public static void prewarm(HiveDdbQueryConfig config, AWSCredentialsProvider credentials) {
+        ClientKey key = ClientKey.of(config);
+        int connections = Math.min(config.getClientPrewarmConnections(), key.getMaxConnections());
+        if (connections < 1 || !PREWARMED.add(key)) {
+            return;
+        }
+        DynamoDbAsyncClient client = getClient(config);
+        DescribeEndpointsRequest request = DescribeEndpointsRequest
+                .builder()
+                .overrideConfiguration(DynamoDbAsyncClientAdapter.overrideConfiguration(credentials, null))
+                .build();
+        for (int i = 0; i < connections; i++) {
+            client.describeEndpoints(request).whenComplete((result, error) -> {
+                if (Objects.nonNull(error)) {
+                    // Only a warm up, the queries will report any real problem
+                    log.debug("Failed to prewarm DynamoDB connection", error);
+                }
+            });
+        }
+    }
+
+    private static DynamoDbAsyncClient buildClient(ClientKey key) {
+        log.info("Building shared asynchronous DynamoDB client ({})", key);
+        return DynamoDbAsyncClient.builder()
+                                  .httpClientBuilder(NettyNioAsyncHttpClient.builder()
+                                                                            .maxConcurrency(key.getMaxConnections()))
+                                  .build();
+    }
+}
@@ -0,0 +1,152 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics.QueryMetrics;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends the requests with the AWS SDKv2 asynchronous client, see {@link HiveDdbQueryConfig.ClientSdk#V2}.
+ * <p>
+ * {@link #queryTableAsync(HiveDdbQueryParameters, Multimap, Executor)} never blocks a thread: each page is
+ * requested once the previous one is read, from the SDK threads, and throughput limiting delays the request
+ * instead of sleeping. Concurrent queries are then only bounded by the connection pool, not by the size of the
+ * query pool. The other operations (scans, existence checks, batch gets and puts) block the calling thread
+ * until their requests complete, like {@link DynamoDbClientWrapperImpl}.
+ * <p>
+ * Requests and responses are converted from and to SDKv1 by {@link DynamoDbAsyncClientAdapter}, so rows are
+ * decoded from SDKv1 values as with the SDKv1 client, see {@link SdkV2AttributeValues}.
+ */
+public class DynamoDbAsyncClientWrapper extends DynamoDbClientWrapperImpl {
+    private static final ScheduledExecutorService DELAY_POOL = Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder().setNameFormat("ddb-async-delay-%d").setDaemon(true).build());
+
+    private final DynamoDbAsyncClientAdapter client;
+
+    /**
+     * @param credentials  the credentials used by the DynamoDB client
+     * @param config       the UDTF settings
+     * @param listener     notified of every request attempt, may be {@code null}
+     * @param metrics      updated with the traffic of this wrapper, requesting the consumed capacity of every
+     *                     call, may be {@code null}
+     * @param tableSchemas table schemas resolved during query planning, other tables are described on demand
+     */
+    public DynamoDbAsyncClientWrapper(AWSCredentialsProvider credentials, HiveDdbQueryConfig config,
+                                      DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                                      Map<String, DdbTableSchema> tableSchemas) {
+        this(credentials, new DynamoDbAsyncClientAdapter(DynamoDbAsyncClientRegistry.getClient(config)), config,
+             listener, metrics, tableSchemas);
+    }
+
+    DynamoDbAsyncClientWrapper(AWSCredentialsProvider credentials, DynamoDbAsyncClientAdapter client,
+                               HiveDdbQueryConfig config, DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                               Map<String, DdbTableSchema> tableSchemas) {
+        super(credentials, client, config, listener, metrics, tableSchemas);
+        this.client = client;
+    }
+
+    /**
+     * Reads every page of the query without blocking, the executor is not used.
+     */
+    @Override
+    public CompletableFuture<List<Map<String, AttributeValue>>> queryTableAsync(
+            HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters, Executor executor) {
+        QueryRequest request = this.newQueryRequest(params, filters);
+        CapacityLimiter limiter = this.getConfig().isReadThrottled()
+                                  ? this.getReadLimiter(params.getTableName(), params.getIndexName())
+                                  : null;
+        QueryMetrics queryMetrics = Objects.nonNull(this.getMetrics())
+                                    ? this.getMetrics().onQuery(params.getTableName())
+                                    : null;
+        if (Objects.nonNull(limiter) || Objects.nonNull(queryMetrics)) {
+            request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        }
+        Integer limit = params.getLimit();
+        AsyncQuery query = new AsyncQuery(request, limiter, queryMetrics,
+                                          Objects.nonNull(limit) ? limit : Integer.MAX_VALUE);
+        CompletableFuture<List<Map<String, AttributeValue>>> items = query.nextPage();
+        return Objects.nonNull(queryMetrics) ? items.whenComplete((result, error) -> queryMetrics.onEnd()) : items;
+    }
+
+    /**
+     * The pages of one query, the asynchronous counterpart of {@link QueryPager}.
+     */
+    private class AsyncQuery {
+        private final QueryRequest request;
+        private final CapacityLimiter limiter;
+        private final QueryMetrics queryMetrics;
+        private final Integer pageSize;
+        private final boolean limited;
+        private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        private int remaining;
+
+        AsyncQuery(QueryRequest request, CapacityLimiter limiter, QueryMetrics queryMetrics, int limit) {
+            this.request = request;
+            this.limiter = limiter;
+            this.queryMetrics = queryMetrics;
+            this.pageSize = request.getLimit();
+            this.limited = limit < Integer.MAX_VALUE;
+            this.remaining = limit;
+        }
+
+        CompletableFuture<List<Map<String, AttributeValue>>> nextPage() {
+            if (this.limited) {
+                this.request.setLimit(Objects.isNull(this.pageSize)
+                                      ? this.remaining
+                                      : Math.min(this.pageSize, this.remaining));
+            }
+            long start = System.nanoTime();
+            return this.fetch().thenCompose(page -> {
+                double capacityUnits = getCapacityUnits(page.getConsumedCapacity());
+                if (Objects.nonNull(this.limiter)) {
+                    this.limiter.consume(capacityUnits);
+                }
+                if (Objects.nonNull(this.queryMetrics)) {
+                    this.queryMetrics.onPage(page.getItems(), capacityUnits, System.nanoTime() - start);
+                }
+                this.items.addAll(page.getItems());
+                this.remaining -= page.getItems().size();
+                this.request.setExclusiveStartKey(page.getLastEvaluatedKey());
+                if (Objects.nonNull(page.getLastEvaluatedKey()) && this.remaining > 0) {
+                    return this.nextPage();
+                }
+                return CompletableFuture.completedFuture(this.items);
+            });
+        }
+
+        /**
+         * Sends the request once the limiter has budget for it, delaying it rather than blocking a thread.
+         */
+        private CompletableFuture<QueryResult> fetch() {
+            long waitNanos = Objects.nonNull(this.limiter) ? this.limiter.getWaitNanos() : 0;
+            if (waitNanos <= 0) {
+                return DynamoDbAsyncClientWrapper.this.client.queryAsync(this.request);
+            }
+            CompletableFuture<QueryResult> delayed = new CompletableFuture<>();
+            DELAY_POOL.schedule(() -> this.fetch().whenComplete((page, error) -> {
+                if (Objects.nonNull(error)) {
+                    delayed.completeExceptionally(error);
+                } else {
+                    delayed.complete(page);
+                }
+            }), waitNanos, TimeUnit.NANOSECONDS);
+            return delayed;
+        }
+    }
+}
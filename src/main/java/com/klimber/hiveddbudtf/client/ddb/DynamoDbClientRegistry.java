@@ -0,0 +1,92 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.ClientConfiguration;
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
+import com.amazonaws.services.dynamodbv2.model.DescribeEndpointsRequest;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Shares DynamoDB clients, and their connection pools, between every UDTF instance in the JVM.
+ * <p>
+ * Clients are keyed by their configuration. Credentials are not part of the key, every request carries
+ * the credentials provider of the UDTF that sent it (see
+ * {@link com.amazonaws.AmazonWebServiceRequest#setRequestCredentialsProvider(AWSCredentialsProvider)}),
+ * so UDTFs using different accounts can share a client. Clients live as long as the JVM, which lets
+ * reused containers (e.g. Tez) skip the SDK setup and TLS handshakes of previous tasks.
+ */
+@Slf4j
+public final class DynamoDbClientRegistry {
+    private static final ConcurrentMap<ClientKey, AmazonDynamoDB> CLIENTS = new ConcurrentHashMap<>();
+    private static final Set<ClientKey> PREWARMED = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService PREWARM_POOL = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+            .setNameFormat("ddb-prewarm-%d")
+            .setDaemon(true)
+            .build());
+
+    private DynamoDbClientRegistry() {
+    }
+
+    /**
+     * @param config the UDTF settings
+     * @return the shared client for the settings, built on first use
+     */
+    public static AmazonDynamoDB getClient(HiveDdbQueryConfig config) {
+        return CLIENTS.computeIfAbsent(ClientKey.of(config), DynamoDbClientRegistry::buildClient);
+    }
+
+    /**
+     * Opens {@link HiveDdbQueryConfig#getClientPrewarmConnections()} pooled connections in the background,
+     * up to the pool size, by sending that many concurrent DescribeEndpoints requests. Done once per client.
+     *
+     * @param config      the UDTF settings
+     * @param credentials signs the requests
+     */
+    public static void prewarm(HiveDdbQueryConfig config, AWSCredentialsProvider credentials) {
+        ClientKey key = ClientKey.of(config);
+        int connections = Math.min(config.getClientPrewarmConnections(), key.getMaxConnections());
+        if (connections < 1 || !PREWARMED.add(key)) {
+            return;
+        }
+        AmazonDynamoDB client = getClient(config);
+        for (int i = 0; i < connections; i++) {
+            PREWARM_POOL.execute(() -> {
+                try {
+                    client.describeEndpoints(new DescribeEndpointsRequest()
+                                                     .withRequestCredentialsProvider(credentials));
+                } catch (RuntimeException e) {
+                    // Only a warm up, the queries will report any real problem
+                    log.debug("Failed to prewarm DynamoDB connection", e);
+                }
+            });
+        }
+    }
+
+    private static AmazonDynamoDB buildClient(ClientKey key) {
+        log.info("Building shared DynamoDB client ({})", key);
+        return AmazonDynamoDBClientBuilder.standard()
+                                          .withClientConfiguration(new ClientConfiguration()
+                                                  .withMaxConnections(key.getMaxConnections()))
+                                          .withRequestHandlers(new RequestListenerHandler())
+                                          .build();
+    }
+
+    @Value
+    static class ClientKey {
+        int maxConnections;
+
+        static ClientKey of(HiveDdbQueryConfig config) {
+            return new ClientKey(Math.max(ClientConfiguration.DEFAULT_MAX_CONNECTIONS,
+                                          config.getQueryConcurrency()));
+        }
+    }
+}
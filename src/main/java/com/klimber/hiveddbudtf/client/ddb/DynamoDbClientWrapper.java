@@ -4,10 +4,134 @@ import com.amazonaws.services.dynamodbv2.model.AttributeValue;
 import com.google.common.collect.Multimap;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
-public interface DynamoDbClientWrapper {
+public interface DynamoDbClientWrapper extends AutoCloseable {
+    /**
+     * Queries DynamoDB lazily, fetching pages as the results are consumed.
+     * <p>
+     * The returned stream should be closed when done, so pages fetched in the background are cancelled.
+     *
+     * @param params  the query parameters
+     * @param filters the query filters, keyed by attribute name
+     * @return the items returned by the query
+     */
     Stream<Map<String, AttributeValue>> queryTable(HiveDdbQueryParameters params,
                                                    Multimap<String, HiveDdbQueryFilter> filters);
+
+    /**
+     * Runs {@link #queryTable(HiveDdbQueryParameters, Multimap)} on the given {@link Executor},
+     * collecting every page of results.
+     * <p>
+     * Filter values are read from another thread, so they should not be reused by the caller.
+     *
+     * @param params   the query parameters
+     * @param filters  the query filters, keyed by attribute name
+     * @param executor runs the query
+     * @return a future completed with all the items returned by the query
+     */
+    default CompletableFuture<List<Map<String, AttributeValue>>> queryTableAsync(
+            HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try (Stream<Map<String, AttributeValue>> items = this.queryTable(params, filters)) {
+                return items.collect(Collectors.toList());
+            }
+        }, executor);
+    }
+
+    /**
+     * Splits a query using the {@code IN} operator on the hash key, with an array of values, into one query
+     * per distinct value. Filter values of the returned queries are copied, so they can be read later.
+     *
+     * @param params  the query parameters
+     * @param filters the query filters, keyed by attribute name
+     * @return the filters of each query, or the given filters when the hash key does not use {@code IN}
+     */
+    default List<Multimap<String, HiveDdbQueryFilter>> fanOut(HiveDdbQueryParameters params,
+                                                              Multimap<String, HiveDdbQueryFilter> filters) {
+        return Collections.singletonList(filters);
+    }
+
+    /**
+     * Finds the primary key bound by the filters, when the query can only return a single item
+     * from the base table and could be done with {@link #batchGetItems(HiveDdbQueryParameters, Collection)}.
+     *
+     * @param params  the query parameters
+     * @param filters the query filters, keyed by attribute name
+     * @return the primary key attributes and their values, empty if the query is not a single item lookup
+     */
+    default Optional<Map<String, AttributeValue>> findPrimaryKey(HiveDdbQueryParameters params,
+                                                                 Multimap<String, HiveDdbQueryFilter> filters) {
+        return Optional.empty();
+    }
+
+    /**
+     * Checks whether the query matches at least one item, without reading attributes other than the keys.
+     * The column mappings in {@code params} are ignored.
+     *
+     * @param params  the query parameters
+     * @param filters the query filters, keyed by attribute name
+     * @return whether at least one item matches
+     */
+    boolean exists(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters);
+
+    /**
+     * Scans one segment of a parallel scan lazily, fetching pages as the results are consumed. Every filter
+     * is pushed down as part of the filter expression.
+     * <p>
+     * The returned stream should be closed when done, so segments scanned in the background are cancelled.
+     *
+     * @param params        the scan parameters
+     * @param filters       the scan filters, keyed by attribute name
+     * @param segment       the segment to scan, from 0 to {@code totalSegments - 1}
+     * @param totalSegments the number of segments the table is split into
+     * @return the items in the segment matching the filters
+     */
+    Stream<Map<String, AttributeValue>> scanTable(HiveDdbQueryParameters params,
+                                                  Multimap<String, HiveDdbQueryFilter> filters,
+                                                  int segment, int totalSegments);
+
+    /**
+     * Fetches items from the table in {@code params} by primary key, using as many BatchGetItem
+     * calls as needed and retrying unprocessed keys.
+     *
+     * @param params the query parameters, defining the table and the attributes to fetch
+     * @param keys   the primary keys to fetch
+     * @return the items found, keyed by their primary key normalized with {@link ItemKeys#normalize(Map)}
+     */
+    Map<Map<String, AttributeValue>, Map<String, AttributeValue>> batchGetItems(
+            HiveDdbQueryParameters params, Collection<Map<String, AttributeValue>> keys);
+
+    /**
+     * Writes items to a table using as many BatchWriteItem calls as needed, retrying unprocessed items
+     * with backoff.
+     *
+     * @param tableName the table name
+     * @param items     the items to put, without two items sharing a primary key
+     * @return the items still unprocessed once retries are exhausted, empty if every item was written
+     */
+    List<Map<String, AttributeValue>> batchPutItems(String tableName, List<Map<String, AttributeValue>> items);
+
+    /**
+     * Describes the key schemas, key attribute types, indexes and read capacity of a table.
+     *
+     * @param tableName the table name
+     * @return the table schema
+     */
+    DdbTableSchema describeTableSchema(String tableName);
+
+    /**
+     * Releases resources held by this wrapper, it should not be used afterwards.
+     */
+    @Override
+    default void close() {
+    }
 }
@@ -1,142 +1,697 @@
 package com.klimber.hiveddbudtf.client.ddb;
 
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.auth.AWSCredentials;
 import com.amazonaws.auth.AWSCredentialsProvider;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
-import com.amazonaws.services.dynamodbv2.AmazonDynamoDBClientBuilder;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
-import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
-import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
-import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.common.util.concurrent.UncheckedExecutionException;
+import com.klimber.hiveddbudtf.client.ddb.DdbTableSchema.IndexSchema;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics.QueryMetrics;
+import com.klimber.hiveddbudtf.client.ddb.QueryTemplate.Shape;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
 import java.util.Spliterator;
 import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
-import java.util.stream.Collectors;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
-import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
 
+@Slf4j
 public class DynamoDbClientWrapperImpl implements DynamoDbClientWrapper {
+    /**
+     * Shared by every wrapper in the JVM, keyed by client (region and endpoint), credentials and table name,
+     * since clients are shared by queries reading tables of different accounts.
+     */
+    private static final Cache<SchemaKey, DdbTableSchema> SCHEMA_CACHE = CacheBuilder
+            .newBuilder()
+            .expireAfterWrite(1, TimeUnit.HOURS)
+            .build();
+    private static final int MAX_TEMPLATES = 1_024;
+    private static final int MAX_SCAN_SEGMENTS = 1_000_000;
+
     private final AWSCredentialsProvider credentials;
-    private AmazonDynamoDB client;
-    private final Cache<String, TableDescription> tableCache = CacheBuilder.newBuilder().build();
+    private final HiveDdbQueryConfig config;
+    private final DynamoDbRequestListener listener;
+    private final DynamoDbMetrics metrics;
+    private final Map<String, DdbTableSchema> tableSchemas;
+    private volatile AmazonDynamoDB client;
+    private volatile ExecutorService prefetchExecutor;
+
+    private final ConcurrentMap<String, CapacityLimiter> readLimiters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, CapacityLimiter> writeLimiters = new ConcurrentHashMap<>();
+    private final ConcurrentMap<Shape, QueryTemplate> templates = new ConcurrentHashMap<>();
+    private volatile QueryTemplate lastTemplate;
+    private final LongAdder existenceChecks = new LongAdder();
+    private final DoubleAdder existenceCapacity = new DoubleAdder();
+
+    public DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, HiveDdbQueryConfig config) {
+        this(credentials, config, null, Collections.emptyMap());
+    }
 
-    public DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials) {
+    /**
+     * @param credentials  the credentials used by the DynamoDB client
+     * @param config       the UDTF settings
+     * @param listener     notified of every request attempt, may be {@code null}
+     * @param tableSchemas table schemas resolved during query planning, other tables are described on demand
+     */
+    public DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, HiveDdbQueryConfig config,
+                                     DynamoDbRequestListener listener, Map<String, DdbTableSchema> tableSchemas) {
+        this(credentials, config, listener, null, tableSchemas);
+    }
+
+    /**
+     * @param credentials  the credentials used by the DynamoDB client
+     * @param config       the UDTF settings
+     * @param listener     notified of every request attempt, may be {@code null}
+     * @param metrics      updated with the traffic of this wrapper, requesting the consumed capacity of every
+     *                     call, may be {@code null}
+     * @param tableSchemas table schemas resolved during query planning, other tables are described on demand
+     */
+    public DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, HiveDdbQueryConfig config,
+                                     DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                                     Map<String, DdbTableSchema> tableSchemas) {
         this.credentials = credentials;
+        this.config = config;
+        this.listener = DynamoDbRequestListener.both(listener, metrics);
+        this.metrics = metrics;
+        this.tableSchemas = tableSchemas;
     }
 
     DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, AmazonDynamoDB client) {
+        this(credentials, client, HiveDdbQueryConfig.builder().build());
+    }
+
+    DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, AmazonDynamoDB client, HiveDdbQueryConfig config) {
+        this(credentials, client, config, Collections.emptyMap());
+    }
+
+    DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, AmazonDynamoDB client, HiveDdbQueryConfig config,
+                              Map<String, DdbTableSchema> tableSchemas) {
+        this(credentials, client, config, null, tableSchemas);
+    }
+
+    DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, AmazonDynamoDB client, HiveDdbQueryConfig config,
+                              DynamoDbMetrics metrics, Map<String, DdbTableSchema> tableSchemas) {
+        this(credentials, client, config, null, metrics, tableSchemas);
+    }
+
+    DynamoDbClientWrapperImpl(AWSCredentialsProvider credentials, AmazonDynamoDB client, HiveDdbQueryConfig config,
+                              DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                              Map<String, DdbTableSchema> tableSchemas) {
         this.credentials = credentials;
+        this.config = config;
+        this.listener = DynamoDbRequestListener.both(listener, metrics);
+        this.metrics = metrics;
+        this.tableSchemas = tableSchemas;
         this.client = client;
-    } 
+    }
 
     @Override
     public Stream<Map<String, AttributeValue>> queryTable(HiveDdbQueryParameters params,
                                                           Multimap<String, HiveDdbQueryFilter> filters) {
-        if(Objects.isNull(this.client)) {
-            this.client = AmazonDynamoDBClientBuilder.standard()
-                                                     .withCredentials(this.credentials)
-                                                     .build();
+        String tableName = params.getTableName();
+        String indexName = params.getIndexName();
+        QueryRequest queryReq = this.newQueryRequest(params, filters);
+
+        Function<QueryRequest, QueryResult> pageFetcher = this.client::query;
+        if (this.config.isReadThrottled()) {
+            CapacityLimiter limiter = this.getReadLimiter(tableName, indexName);
+            queryReq.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            pageFetcher = request -> {
+                limiter.acquire();
+                QueryResult result = this.client.query(request);
+                limiter.consume(getCapacityUnits(result.getConsumedCapacity()));
+                return result;
+            };
+        }
+        QueryMetrics queryMetrics = Objects.nonNull(this.metrics) ? this.metrics.onQuery(tableName) : null;
+        if (Objects.nonNull(queryMetrics)) {
+            queryReq.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            Function<QueryRequest, QueryResult> fetcher = pageFetcher;
+            pageFetcher = request -> {
+                long start = System.nanoTime();
+                QueryResult result = fetcher.apply(request);
+                queryMetrics.onPage(result.getItems(), getCapacityUnits(result.getConsumedCapacity()),
+                                    System.nanoTime() - start);
+                return result;
+            };
         }
+        // Stops paging once the items requested for the row were read
+        QueryPager pager = new QueryPager(pageFetcher, queryReq, params.getLimit());
+        Iterator<QueryResult> resultIterator;
+        Runnable closeHandler;
+        if (this.config.getQueryPrefetchPages() > 0) {
+            PrefetchingQueryResultIterator prefetchingIterator = new PrefetchingQueryResultIterator(
+                    pager, this.config.getQueryPrefetchPages(), this.getPrefetchExecutor());
+            resultIterator = prefetchingIterator;
+            closeHandler = prefetchingIterator::close;
+        } else {
+            resultIterator = pager;
+            closeHandler = () -> { };
+        }
+        Spliterator<QueryResult> queryResultSpliterator = Spliterators.spliteratorUnknownSize(resultIterator, 0);
+        Stream<QueryResult> queryResults = StreamSupport.stream(() -> queryResultSpliterator,
+                                                                queryResultSpliterator.characteristics(),
+                                                                false);
+        Stream<Map<String, AttributeValue>> items = queryResults.flatMap(q -> q.getItems().stream())
+                                                                .onClose(closeHandler);
+        return Objects.nonNull(queryMetrics) ? items.onClose(queryMetrics::onEnd) : items;
+    }
+
+    /**
+     * Builds the first page request of a query, from the cached template of its shape.
+     */
+    QueryRequest newQueryRequest(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        this.initializeClient();
+        return this.prepare(this.getTemplate(params, filters).newRequest(filters))
+                   .withScanIndexForward(params.getScanIndexForward())
+                   .withLimit(params.getPageSize());
+    }
+
+    HiveDdbQueryConfig getConfig() {
+        return this.config;
+    }
+
+    DynamoDbMetrics getMetrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Splits the segment into the configured number of sub-segments of a scan with proportionally more
+     * segments, segment {@code s} of {@code n} becoming segments {@code s * k} to {@code s * k + k - 1} of
+     * {@code n * k}, so every segment is still scanned exactly once across the tasks. Sub-segments are
+     * scanned concurrently, sharing the read limiter of the table.
+     */
+    @Override
+    public Stream<Map<String, AttributeValue>> scanTable(HiveDdbQueryParameters params,
+                                                         Multimap<String, HiveDdbQueryFilter> filters,
+                                                         int segment, int totalSegments) {
+        int subSegments = this.config.getScanSubSegments();
+        if (totalSegments <= 0 || segment < 0 || segment >= totalSegments) {
+            throw new IllegalArgumentException(String.format(
+                    "Expected segment to be between 0 and totalSegments - 1 (segment=%d, totalSegments=%d)",
+                    segment, totalSegments));
+        }
+        if ((long) totalSegments * subSegments > MAX_SCAN_SEGMENTS) {
+            throw new IllegalArgumentException(String.format(
+                    "Too many scan segments, at most %d are supported (totalSegments=%d, subSegments=%d)",
+                    MAX_SCAN_SEGMENTS, totalSegments, subSegments));
+        }
+        this.initializeClient();
+        QueryTemplate template = QueryTemplate.compileScan(params, filters);
+
+        Function<ScanRequest, ScanResult> pageFetcher = this.client::scan;
+        boolean throttled = this.config.isReadThrottled();
+        if (throttled) {
+            CapacityLimiter limiter = this.getReadLimiter(params.getTableName(), params.getIndexName());
+            pageFetcher = request -> {
+                limiter.acquire();
+                ScanResult result = this.client.scan(request);
+                limiter.consume(getCapacityUnits(result.getConsumedCapacity()));
+                return result;
+            };
+        }
+        QueryMetrics scanMetrics = Objects.nonNull(this.metrics)
+                                   ? this.metrics.onQuery(params.getTableName())
+                                   : null;
+        if (Objects.nonNull(scanMetrics)) {
+            Function<ScanRequest, ScanResult> fetcher = pageFetcher;
+            pageFetcher = request -> {
+                long start = System.nanoTime();
+                ScanResult result = fetcher.apply(request);
+                scanMetrics.onPage(result.getItems(), getCapacityUnits(result.getConsumedCapacity()),
+                                   System.nanoTime() - start);
+                return result;
+            };
+        }
+        List<ScanPager> pagers = new ArrayList<>(subSegments);
+        for (int i = 0; i < subSegments; i++) {
+            ScanRequest scanReq = this.prepare(template.newScanRequest(filters))
+                                      .withSegment(segment * subSegments + i)
+                                      .withTotalSegments(totalSegments * subSegments)
+                                      .withLimit(params.getPageSize());
+            if (throttled || Objects.nonNull(scanMetrics)) {
+                scanReq.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            }
+            pagers.add(new ScanPager(pageFetcher, scanReq));
+        }
+
+        Iterator<ScanResult> resultIterator;
+        Runnable closeHandler;
+        if (subSegments > 1) {
+            ParallelScanIterator parallelIterator = new ParallelScanIterator(pagers, this.getPrefetchExecutor());
+            resultIterator = parallelIterator;
+            closeHandler = parallelIterator::close;
+        } else {
+            resultIterator = pagers.get(0);
+            closeHandler = () -> { };
+        }
+        Spliterator<ScanResult> scanResultSpliterator = Spliterators.spliteratorUnknownSize(resultIterator, 0);
+        Stream<Map<String, AttributeValue>> items = StreamSupport
+                .stream(() -> scanResultSpliterator, scanResultSpliterator.characteristics(), false)
+                .flatMap(page -> page.getItems().stream());
+        if (Objects.nonNull(params.getLimit())) {
+            items = items.limit(params.getLimit());
+        }
+        items = items.onClose(closeHandler);
+        return Objects.nonNull(scanMetrics) ? items.onClose(scanMetrics::onEnd) : items;
+    }
+
+    /**
+     * Checks the full primary key with a GetItem projecting only the key attributes when it is bound,
+     * otherwise counts the matching items, reading a single key when there is no filter expression.
+     */
+    @Override
+    public boolean exists(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        this.initializeClient();
+        this.existenceChecks.increment();
         String tableName = params.getTableName();
+        QueryMetrics checkMetrics = Objects.nonNull(this.metrics) ? this.metrics.onQuery(tableName) : null;
         String indexName = params.getIndexName();
-        Map<KeyType, String> keyAttributes = this.findKeyAttributes(tableName, indexName);
+        QueryTemplate template = this.getTemplate(params, filters);
+        CapacityLimiter limiter = this.config.isReadThrottled() ? this.getReadLimiter(tableName, indexName) : null;
+        Optional<Map<String, AttributeValue>> primaryKey = Objects.isNull(indexName)
+                                                           ? template.getPrimaryKey(filters)
+                                                           : Optional.empty();
+        if (primaryKey.isPresent()) {
+            Map<String, String> exprAttNames = new HashMap<>();
+            for (String keyAttribute : primaryKey.get().keySet()) {
+                exprAttNames.put("#k" + exprAttNames.size(), keyAttribute);
+            }
+            GetItemRequest request = this.prepare(new GetItemRequest())
+                                         .withTableName(tableName)
+                                         .withKey(primaryKey.get())
+                                         .withProjectionExpression(String.join(", ", exprAttNames.keySet()))
+                                         .withExpressionAttributeNames(exprAttNames)
+                                         .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+            long start = System.nanoTime();
+            if (Objects.nonNull(limiter)) {
+                limiter.acquire();
+            }
+            GetItemResult result = this.client.getItem(request);
+            this.consumeExistenceCapacity(limiter, checkMetrics, result.getConsumedCapacity(),
+                                          Objects.nonNull(result.getItem()) ? 1 : 0, start);
+            if (Objects.nonNull(checkMetrics)) {
+                checkMetrics.onEnd();
+            }
+            return Objects.nonNull(result.getItem());
+        }
+
+        QueryRequest request = this.prepare(template.newCountRequest(filters))
+                                   .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+        // Filter expressions are applied after Limit, so pages must be read until an item matches
+        if (Objects.isNull(template.getFilterExpr())) {
+            request.setLimit(1);
+        }
+        QueryResult page;
+        do {
+            long start = System.nanoTime();
+            if (Objects.nonNull(limiter)) {
+                limiter.acquire();
+            }
+            page = this.client.query(request);
+            this.consumeExistenceCapacity(limiter, checkMetrics, page.getConsumedCapacity(), page.getCount(), start);
+            request.setExclusiveStartKey(page.getLastEvaluatedKey());
+        } while (page.getCount() == 0 && Objects.nonNull(page.getLastEvaluatedKey()));
+        if (Objects.nonNull(checkMetrics)) {
+            checkMetrics.onEnd();
+        }
+        return page.getCount() > 0;
+    }
+
+    private void consumeExistenceCapacity(CapacityLimiter limiter, QueryMetrics checkMetrics,
+                                          ConsumedCapacity consumedCapacity, int itemCount, long startNanos) {
+        double capacityUnits = getCapacityUnits(consumedCapacity);
+        this.existenceCapacity.add(capacityUnits);
+        if (Objects.nonNull(checkMetrics)) {
+            // Only keys or counts are read, so the size of the items is unknown
+            checkMetrics.onPage(itemCount, -1, capacityUnits, System.nanoTime() - startNanos);
+        }
+        if (Objects.nonNull(limiter)) {
+            limiter.consume(capacityUnits);
+        }
+    }
+
+    /**
+     * @return the number of existence checks done
+     */
+    public long getExistenceCheckCount() {
+        return this.existenceChecks.sum();
+    }
+
+    /**
+     * @return the read capacity units consumed by existence checks
+     */
+    public double getExistenceCapacityUnits() {
+        return this.existenceCapacity.sum();
+    }
+
+    @Override
+    public void close() {
+        long checks = this.getExistenceCheckCount();
+        if (checks > 0) {
+            log.info("Existence checks closed (keys={}, rcu={}, rcuPerKey={})", checks,
+                     this.getExistenceCapacityUnits(), this.getExistenceCapacityUnits() / checks);
+        }
+        if (Objects.nonNull(this.prefetchExecutor)) {
+            this.prefetchExecutor.shutdownNow();
+        }
+    }
 
-        DdbFilterHelper filterHelper = new DdbFilterHelper(filters, keyAttributes);
+    @Override
+    public List<Multimap<String, HiveDdbQueryFilter>> fanOut(HiveDdbQueryParameters params,
+                                                             Multimap<String, HiveDdbQueryFilter> filters) {
+        String hashKey = this.findKeyAttributes(params.getTableName(), params.getIndexName()).get(KeyType.HASH);
+        return QueryTemplate.fanOut(filters, hashKey);
+    }
+
+    @Override
+    public Optional<Map<String, AttributeValue>> findPrimaryKey(HiveDdbQueryParameters params,
+                                                                Multimap<String, HiveDdbQueryFilter> filters) {
+        // BatchGetItem can only read from the base table
+        if (Objects.nonNull(params.getIndexName())) {
+            return Optional.empty();
+        }
+        return this.getTemplate(params, filters).getPrimaryKey(filters);
+    }
+
+    @Override
+    public Map<Map<String, AttributeValue>, Map<String, AttributeValue>> batchGetItems(
+            HiveDdbQueryParameters params, Collection<Map<String, AttributeValue>> keys) {
+        this.initializeClient();
+        String tableName = params.getTableName();
+        Collection<String> keyAttributes = this.findKeyAttributes(tableName, null).values();
 
+        // Key attributes are always fetched, so items can be matched back to their keys
         Map<String, String> exprAttNames = new HashMap<>();
         for (int i = 0; i < params.getHiveDdbColumnMapping().size(); i++) {
-            String attName = params.getHiveDdbColumnMapping().get(i).getDdbAttName();
-            String alias = "#p" + i;
-            exprAttNames.put(alias, attName);
+            exprAttNames.put("#p" + i, params.getHiveDdbColumnMapping().get(i).getDdbAttName());
+        }
+        int k = 0;
+        for (String keyAttribute : keyAttributes) {
+            if (!exprAttNames.containsValue(keyAttribute)) {
+                exprAttNames.put("#k" + k++, keyAttribute);
+            }
         }
         String projectionExpr = String.join(", ", exprAttNames.keySet());
+        CapacityLimiter limiter = this.config.isReadThrottled() ? this.getReadLimiter(tableName, null) : null;
+        QueryMetrics batchMetrics = Objects.nonNull(this.metrics) ? this.metrics.onQuery(tableName) : null;
 
-        exprAttNames.putAll(filterHelper.getExprAttNames());
+        // Keys differing only by the form of their numbers are the same item, BatchGetItem rejects duplicates
+        Set<Map<String, AttributeValue>> distinctKeys = new LinkedHashSet<>();
+        keys.forEach(key -> distinctKeys.add(ItemKeys.normalize(key)));
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items = new HashMap<>();
+        int batchSize = HiveDdbQueryConfig.MAX_BATCH_GET_SIZE;
+        for (List<Map<String, AttributeValue>> batch : Iterables.partition(distinctKeys, batchSize)) {
+            KeysAndAttributes keysAndAttributes = new KeysAndAttributes()
+                    .withKeys(batch)
+                    .withProjectionExpression(projectionExpr)
+                    .withExpressionAttributeNames(exprAttNames);
+            Map<String, KeysAndAttributes> requestItems = ImmutableMap.of(tableName, keysAndAttributes);
+            int retry = 0;
+            while (Objects.nonNull(requestItems) && !requestItems.isEmpty()) {
+                if (retry > 0) {
+                    ExponentialBackoff.DEFAULT.pause(retry, "BatchGetItem");
+                }
+                BatchGetItemRequest request = this.prepare(new BatchGetItemRequest()).withRequestItems(requestItems);
+                long start = System.nanoTime();
+                if (Objects.nonNull(limiter)) {
+                    limiter.acquire();
+                }
+                if (Objects.nonNull(limiter) || Objects.nonNull(batchMetrics)) {
+                    request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                }
+                BatchGetItemResult result = this.client.batchGetItem(request);
+                double capacityUnits = getCapacityUnits(result.getConsumedCapacity());
+                if (Objects.nonNull(limiter)) {
+                    limiter.consume(capacityUnits);
+                }
+                List<Map<String, AttributeValue>> responses = result.getResponses()
+                                                                    .getOrDefault(tableName, Collections.emptyList());
+                if (Objects.nonNull(batchMetrics)) {
+                    batchMetrics.onPage(responses, capacityUnits, System.nanoTime() - start);
+                }
+                for (Map<String, AttributeValue> item : responses) {
+                    items.put(ItemKeys.normalize(this.getKey(item, keyAttributes)), item);
+                }
+                requestItems = result.getUnprocessedKeys();
+                retry++;
+            }
+        }
+        if (Objects.nonNull(batchMetrics)) {
+            batchMetrics.onEnd();
+        }
+        return items;
+    }
 
-        QueryRequest queryReq = new QueryRequest()
-                .withTableName(tableName)
-                .withIndexName(indexName)
-                .withProjectionExpression(projectionExpr)
-                .withKeyConditionExpression(filterHelper.getKeyConditionExpr())
-                .withFilterExpression(filterHelper.getFilterExpr())
-                .withExpressionAttributeNames(exprAttNames)
-                .withExpressionAttributeValues(filterHelper.getExprAttValues());
+    /**
+     * Writes batches of up to 25 items, retrying unprocessed items with backoff. Items still unprocessed
+     * once retries are exhausted are returned instead of failing, so the caller can report them.
+     */
+    @Override
+    public List<Map<String, AttributeValue>> batchPutItems(String tableName,
+                                                           List<Map<String, AttributeValue>> items) {
+        this.initializeClient();
+        CapacityLimiter limiter = this.config.isWriteThrottled() ? this.getWriteLimiter(tableName) : null;
 
-        QueryResultIterator resultIterator = new QueryResultIterator(this.client, queryReq);
-        Spliterator<QueryResult> queryResultSpliterator = Spliterators.spliteratorUnknownSize(resultIterator, 0);
-        Stream<QueryResult> queryResults = StreamSupport.stream(() -> queryResultSpliterator,
-                                                                queryResultSpliterator.characteristics(),
-                                                                false);
-        return queryResults.flatMap(q -> q.getItems().stream());
+        List<Map<String, AttributeValue>> unprocessed = new ArrayList<>();
+        int batchSize = HiveDdbQueryConfig.MAX_BATCH_WRITE_SIZE;
+        for (List<Map<String, AttributeValue>> batch : Iterables.partition(items, batchSize)) {
+            List<WriteRequest> writeRequests = new ArrayList<>(batch.size());
+            for (Map<String, AttributeValue> item : batch) {
+                writeRequests.add(new WriteRequest(new PutRequest(item)));
+            }
+            Map<String, List<WriteRequest>> requestItems = ImmutableMap.of(tableName, writeRequests);
+            int retry = 0;
+            while (Objects.nonNull(requestItems) && !requestItems.isEmpty()) {
+                if (retry > 0) {
+                    if (ExponentialBackoff.DEFAULT.isExhausted(retry)) {
+                        requestItems.getOrDefault(tableName, Collections.emptyList())
+                                    .forEach(request -> unprocessed.add(request.getPutRequest().getItem()));
+                        break;
+                    }
+                    ExponentialBackoff.DEFAULT.pause(retry, "BatchWriteItem");
+                }
+                BatchWriteItemRequest request = this.prepare(new BatchWriteItemRequest())
+                                                    .withRequestItems(requestItems);
+                if (Objects.nonNull(limiter)) {
+                    limiter.acquire();
+                }
+                if (Objects.nonNull(limiter) || Objects.nonNull(this.metrics)) {
+                    request.setReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+                }
+                BatchWriteItemResult result = this.client.batchWriteItem(request);
+                double capacityUnits = getCapacityUnits(result.getConsumedCapacity());
+                if (Objects.nonNull(limiter)) {
+                    limiter.consume(capacityUnits);
+                }
+                if (Objects.nonNull(this.metrics)) {
+                    int sent = requestItems.get(tableName).size();
+                    int unprocessedCount = Objects.nonNull(result.getUnprocessedItems())
+                                           ? result.getUnprocessedItems()
+                                                   .getOrDefault(tableName, Collections.emptyList()).size()
+                                           : 0;
+                    this.metrics.onWrite(tableName, sent - unprocessedCount, capacityUnits);
+                }
+                requestItems = result.getUnprocessedItems();
+                retry++;
+            }
+        }
+        return unprocessed;
     }
 
-    private Map<KeyType, String> findKeyAttributes(String tableName, String indexName) {
-        TableDescription tableDesc = this.describeTable(tableName);
-        Stream<KeySchemaElement> keySchemaElements = this.getKeySchemaElements(tableDesc, indexName);
-        return keySchemaElements.collect(Collectors.toMap(e -> KeyType.fromValue(e.getKeyType()),
-                                                          KeySchemaElement::getAttributeName));
+    /**
+     * Finds the read limiter for the table, or for the global secondary index which has its own capacity.
+     * The budget is a share of the configured read throughput, split across the tasks.
+     */
+    CapacityLimiter getReadLimiter(String tableName, String indexName) {
+        DdbTableSchema schema = this.describeTableSchema(tableName);
+        IndexSchema index = schema.getIndex(indexName);
+        // Global indexes have their own capacity, local indexes share the table capacity
+        boolean globalIndex = Objects.nonNull(index) && index.isGlobal();
+        IndexSchema capacitySource = globalIndex ? index : schema.getBaseTable();
+        String limiterKey = globalIndex ? tableName + "/" + indexName : tableName;
+        return this.readLimiters.computeIfAbsent(limiterKey, k -> {
+            double budget = this.config.getReadThroughputRcu();
+            if (budget <= 0) {
+                double capacity = schema.isOnDemand() || capacitySource.getReadCapacityUnits() == 0
+                                  ? this.config.getReadThroughputOnDemandRcu()
+                                  : capacitySource.getReadCapacityUnits();
+                budget = this.config.getReadThroughputPercent() * capacity;
+            }
+            return new CapacityLimiter(budget / Math.max(1, this.config.getThroughputTasks()));
+        });
     }
 
-    private TableDescription describeTable(String tableName) {
-        try {
-            return this.tableCache.get(tableName, () -> this.callDescribeTable(tableName));
-        } catch (ExecutionException | UncheckedExecutionException e) {
-            throw new DynamoDbClientWrapperException("Failed to load table description.", e.getCause());
+    /**
+     * Finds the write limiter for the table, its budget is the configured write throughput split across the tasks.
+     */
+    CapacityLimiter getWriteLimiter(String tableName) {
+        return this.writeLimiters.computeIfAbsent(tableName, k -> new CapacityLimiter(
+                this.config.getWriteThroughputWcu() / Math.max(1, this.config.getThroughputTasks())));
+    }
+
+    static double getCapacityUnits(List<ConsumedCapacity> consumedCapacity) {
+        if (Objects.isNull(consumedCapacity)) {
+            return 0;
         }
+        return consumedCapacity.stream().mapToDouble(DynamoDbClientWrapperImpl::getCapacityUnits).sum();
     }
 
-    private TableDescription callDescribeTable(String tableName) {
-        return this.client.describeTable(tableName).getTable();
+    static double getCapacityUnits(ConsumedCapacity consumedCapacity) {
+        if (Objects.isNull(consumedCapacity) || Objects.isNull(consumedCapacity.getCapacityUnits())) {
+            return 0;
+        }
+        return consumedCapacity.getCapacityUnits();
     }
 
-    private Stream<KeySchemaElement> getKeySchemaElements(TableDescription tableDesc, String indexName) {
-        if (Objects.isNull(indexName)) {
-            return tableDesc.getKeySchema().stream();
-        } else {
-            Stream<KeySchemaElement> globalKeys = tableDesc.getGlobalSecondaryIndexes().stream()
-                                                           .filter(g -> indexName.equals(g.getIndexName()))
-                                                           .map(GlobalSecondaryIndexDescription::getKeySchema)
-                                                           .flatMap(List::stream);
-            Stream<KeySchemaElement> localKeys = tableDesc.getLocalSecondaryIndexes().stream()
-                                                          .filter(l -> indexName.equals(l.getIndexName()))
-                                                          .map(LocalSecondaryIndexDescription::getKeySchema)
-                                                          .flatMap(List::stream);
-            return Stream.concat(globalKeys, localKeys);
+    private Map<String, AttributeValue> getKey(Map<String, AttributeValue> item, Collection<String> keyAttributes) {
+        Map<String, AttributeValue> key = new HashMap<>();
+        for (String keyAttribute : keyAttributes) {
+            key.put(keyAttribute, item.get(keyAttribute));
         }
+        return key;
     }
 
-    @RequiredArgsConstructor
-    private static class QueryResultIterator implements Iterator<QueryResult> {
-        private final AmazonDynamoDB client;
-        private final QueryRequest request;
-        private boolean hasNext = true;
+    private void initializeClient() {
+        // Queries may run concurrently, see queryTableAsync, but the registry always returns the same client
+        if (Objects.isNull(this.client)) {
+            this.client = DynamoDbClientRegistry.getClient(this.config);
+        }
+    }
 
-        @Override
-        public boolean hasNext() {
-            return this.hasNext;
+    /**
+     * Attaches the credentials and the listener of this wrapper, since the client is shared.
+     */
+    private <T extends AmazonWebServiceRequest> T prepare(T request) {
+        request.setRequestCredentialsProvider(this.credentials);
+        if (Objects.nonNull(this.listener)) {
+            request.addHandlerContext(RequestListenerHandler.LISTENER, this.listener);
         }
+        return request;
+    }
 
-        @Override
-        public QueryResult next() {
-            QueryResult next = this.client.query(this.request);
-            this.request.setExclusiveStartKey(next.getLastEvaluatedKey());
-            this.hasNext = next.getLastEvaluatedKey() != null;
-            return next;
+    private ExecutorService getPrefetchExecutor() {
+        if (Objects.isNull(this.prefetchExecutor)) {
+            synchronized (this) {
+                if (Objects.isNull(this.prefetchExecutor)) {
+                    this.prefetchExecutor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                            .setNameFormat("ddb-prefetch-%d")
+                            .setDaemon(true)
+                            .build());
+                }
+            }
         }
+        return this.prefetchExecutor;
+    }
+
+    /**
+     * Finds the template compiled for the shape of the query, checking the last one used first since
+     * most UDTF calls send the same shape on every row.
+     */
+    private QueryTemplate getTemplate(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        QueryTemplate template = this.lastTemplate;
+        if (Objects.nonNull(template) && template.matches(params, filters)) {
+            return template;
+        }
+        Shape shape = Shape.of(params, filters);
+        template = this.templates.get(shape);
+        if (Objects.isNull(template)) {
+            Map<KeyType, String> keyAttributes = this.findKeyAttributes(params.getTableName(), params.getIndexName());
+            template = QueryTemplate.compile(params, filters, keyAttributes);
+            // Filters naming attributes from the input rows could create a template per row
+            if (this.templates.size() < MAX_TEMPLATES) {
+                this.templates.putIfAbsent(shape, template);
+            }
+        }
+        this.lastTemplate = template;
+        return template;
+    }
+
+    private Map<KeyType, String> findKeyAttributes(String tableName, String indexName) {
+        return this.describeTableSchema(tableName).getKeyAttributes(indexName);
+    }
+
+    @Override
+    public DdbTableSchema describeTableSchema(String tableName) {
+        DdbTableSchema schema = this.tableSchemas.get(tableName);
+        if (Objects.nonNull(schema)) {
+            return schema;
+        }
+        this.initializeClient();
+        try {
+            // Concurrent loads of the same table wait for the first one
+            SchemaKey key = new SchemaKey(this.client, this.getAccessKeyId(), tableName);
+            return SCHEMA_CACHE.get(key, () -> DdbTableSchema.of(this.callDescribeTable(tableName)));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            throw new DynamoDbClientWrapperException("Failed to load table description.", e.getCause());
+        }
+    }
+
+    private TableDescription callDescribeTable(String tableName) {
+        return this.client.describeTable(this.prepare(new DescribeTableRequest()).withTableName(tableName))
+                          .getTable();
+    }
+
+    /**
+     * @return the access key signing the requests of this wrapper, {@code null} when there are no credentials
+     */
+    private String getAccessKeyId() {
+        AWSCredentials awsCredentials = Objects.nonNull(this.credentials) ? this.credentials.getCredentials() : null;
+        return Objects.nonNull(awsCredentials) ? awsCredentials.getAWSAccessKeyId() : null;
+    }
+
+    @Value
+    private static class SchemaKey {
+        AmazonDynamoDB client;
+        String accessKeyId;
+        String tableName;
     }
-}
\ No newline at end of file
+}
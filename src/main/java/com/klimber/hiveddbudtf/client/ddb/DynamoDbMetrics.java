@@ -0,0 +1,223 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Totals of the DynamoDB traffic of a task: queries, result pages, items, consumed capacity, throttled
+ * attempts and retries, with latency and size histograms per operation and per table.
+ * <p>
+ * Updated from every thread sending requests (e.g. concurrent queries, prefetching, parallel scans),
+ * so totals are kept in adders, which don't contend on updates, and only summed when read.
+ */
+public class DynamoDbMetrics implements DynamoDbRequestListener {
+    private final LongAdder queries = new LongAdder();
+    private final LongAdder pages = new LongAdder();
+    private final LongAdder items = new LongAdder();
+    private final LongAdder writtenItems = new LongAdder();
+    private final DoubleAdder readCapacity = new DoubleAdder();
+    private final DoubleAdder writeCapacity = new DoubleAdder();
+    private final LongAdder throttles = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private final ConcurrentMap<String, LogHistogram> attemptLatencies = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, TableMetrics> tables = new ConcurrentHashMap<>();
+
+    /**
+     * Called when a query, scan, existence check or batch read starts.
+     *
+     * @param tableName the table read
+     * @return the metrics of the query, to update with its pages
+     */
+    QueryMetrics onQuery(String tableName) {
+        this.queries.increment();
+        TableMetrics table = this.getTable(tableName);
+        table.queries.increment();
+        return new QueryMetrics(table);
+    }
+
+    /**
+     * @param tableName     the table written
+     * @param itemCount     the number of items written by the request
+     * @param capacityUnits the write capacity units consumed by the request
+     */
+    void onWrite(String tableName, int itemCount, double capacityUnits) {
+        this.writtenItems.add(itemCount);
+        this.writeCapacity.add(capacityUnits);
+        TableMetrics table = this.getTable(tableName);
+        table.writtenItems.add(itemCount);
+        table.writeCapacity.add(capacityUnits);
+    }
+
+    private TableMetrics getTable(String tableName) {
+        return this.tables.computeIfAbsent(tableName, k -> new TableMetrics());
+    }
+
+    @Override
+    public void onAttempt(String operation, long startNanos, long latencyNanos, boolean throttled) {
+        if (throttled) {
+            this.throttles.increment();
+        }
+        this.attemptLatencies.computeIfAbsent(operation, k -> new LogHistogram())
+                             .record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+    }
+
+    @Override
+    public void onRetry(String operation) {
+        this.retries.increment();
+    }
+
+    public long getQueryCount() {
+        return this.queries.sum();
+    }
+
+    public long getPageCount() {
+        return this.pages.sum();
+    }
+
+    public long getItemCount() {
+        return this.items.sum();
+    }
+
+    public long getWrittenItemCount() {
+        return this.writtenItems.sum();
+    }
+
+    public double getReadCapacityUnits() {
+        return this.readCapacity.sum();
+    }
+
+    public double getWriteCapacityUnits() {
+        return this.writeCapacity.sum();
+    }
+
+    public long getThrottleCount() {
+        return this.throttles.sum();
+    }
+
+    public long getRetryCount() {
+        return this.retries.sum();
+    }
+
+    /**
+     * @param operation the request type, e.g. {@code Query}
+     * @return the latency in microseconds of every attempt of the operation, retries included
+     */
+    public LogHistogram getAttemptLatencies(String operation) {
+        return this.attemptLatencies.getOrDefault(operation, new LogHistogram());
+    }
+
+    /**
+     * @return the totals, the attempt latencies per operation and the breakdown per table
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("queries", this.getQueryCount());
+        summary.put("pages", this.getPageCount());
+        summary.put("items", this.getItemCount());
+        summary.put("writtenItems", this.getWrittenItemCount());
+        summary.put("rcu", this.getReadCapacityUnits());
+        summary.put("wcu", this.getWriteCapacityUnits());
+        summary.put("throttles", this.getThrottleCount());
+        summary.put("retries", this.getRetryCount());
+        Map<String, Object> latencies = new TreeMap<>();
+        this.attemptLatencies.forEach((operation, histogram) -> latencies.put(operation, histogram.toMap()));
+        summary.put("attemptLatencyMicros", latencies);
+        Map<String, Object> tableSummaries = new TreeMap<>();
+        this.tables.forEach((tableName, table) -> tableSummaries.put(tableName, table.toMap()));
+        summary.put("tables", tableSummaries);
+        return summary;
+    }
+
+    /**
+     * Traffic of a single query, scan, existence check or batch read, recording its pages in the totals
+     * of the task and of the table, and how many pages and items it read once it ends.
+     */
+    class QueryMetrics {
+        private final TableMetrics table;
+        private final LongAdder queryPages = new LongAdder();
+        private final LongAdder queryItems = new LongAdder();
+        private final AtomicBoolean ended = new AtomicBoolean();
+
+        private QueryMetrics(TableMetrics table) {
+            this.table = table;
+        }
+
+        /**
+         * @param pageItems     the items returned by the response
+         * @param capacityUnits the read capacity units consumed by the request
+         * @param latencyNanos  the time taken to read the page, retries and throughput limiting included
+         */
+        void onPage(List<Map<String, AttributeValue>> pageItems, double capacityUnits, long latencyNanos) {
+            this.onPage(pageItems.size(), CachingDynamoDbClientWrapper.estimateSize(pageItems), capacityUnits,
+                        latencyNanos);
+        }
+
+        /**
+         * @param itemCount     the number of items read by the request
+         * @param bytes         the estimated size of the items, {@code -1} when they were not returned
+         * @param capacityUnits the read capacity units consumed by the request
+         * @param latencyNanos  the time taken to read the page, retries and throughput limiting included
+         */
+        void onPage(int itemCount, long bytes, double capacityUnits, long latencyNanos) {
+            DynamoDbMetrics.this.pages.increment();
+            DynamoDbMetrics.this.items.add(itemCount);
+            DynamoDbMetrics.this.readCapacity.add(capacityUnits);
+            this.queryPages.increment();
+            this.queryItems.add(itemCount);
+            this.table.pages.increment();
+            this.table.items.add(itemCount);
+            this.table.readCapacity.add(capacityUnits);
+            this.table.pageLatencies.record(TimeUnit.NANOSECONDS.toMicros(latencyNanos));
+            if (bytes >= 0) {
+                this.table.bytesPerPage.record(bytes);
+            }
+        }
+
+        /**
+         * Records the pages and items read by the query, only the first call has an effect.
+         */
+        void onEnd() {
+            if (this.ended.compareAndSet(false, true)) {
+                this.table.pagesPerQuery.record(this.queryPages.sum());
+                this.table.itemsPerQuery.record(this.queryItems.sum());
+            }
+        }
+    }
+
+    private static class TableMetrics {
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder pages = new LongAdder();
+        private final LongAdder items = new LongAdder();
+        private final LongAdder writtenItems = new LongAdder();
+        private final DoubleAdder readCapacity = new DoubleAdder();
+        private final DoubleAdder writeCapacity = new DoubleAdder();
+        private final LogHistogram pageLatencies = new LogHistogram();
+        private final LogHistogram pagesPerQuery = new LogHistogram();
+        private final LogHistogram itemsPerQuery = new LogHistogram();
+        private final LogHistogram bytesPerPage = new LogHistogram();
+
+        private Map<String, Object> toMap() {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("queries", this.queries.sum());
+            summary.put("pages", this.pages.sum());
+            summary.put("items", this.items.sum());
+            summary.put("writtenItems", this.writtenItems.sum());
+            summary.put("rcu", this.readCapacity.sum());
+            summary.put("wcu", this.writeCapacity.sum());
+            summary.put("pageLatencyMicros", this.pageLatencies.toMap());
+            summary.put("pagesPerQuery", this.pagesPerQuery.toMap());
+            summary.put("itemsPerQuery", this.itemsPerQuery.toMap());
+            summary.put("bytesPerPage", this.bytesPerPage.toMap());
+            return summary;
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import java.util.Objects;
+
+/**
+ * Notified of every request attempt sent to DynamoDB, including the retries done by the SDK.
+ * <p>
+ * Called from the threads sending the requests, so implementations should be thread safe and fast.
+ */
+@FunctionalInterface
+public interface DynamoDbRequestListener {
+    /**
+     * @param operation    the DynamoDB operation (e.g. {@code Query})
+     * @param startNanos   when the attempt started, from {@link System#nanoTime()}
+     * @param latencyNanos how long the attempt took
+     * @param throttled    whether DynamoDB rejected the attempt for exceeding throughput
+     */
+    void onAttempt(String operation, long startNanos, long latencyNanos, boolean throttled);
+
+    /**
+     * Called before an attempt retrying a request, after {@link #onAttempt} was called for the failed one.
+     *
+     * @param operation the DynamoDB operation (e.g. {@code Query})
+     */
+    default void onRetry(String operation) {
+    }
+
+    /**
+     * @return a listener notifying both listeners, either of them may be {@code null}
+     */
+    static DynamoDbRequestListener both(DynamoDbRequestListener first, DynamoDbRequestListener second) {
+        if (Objects.isNull(first) || Objects.isNull(second)) {
+            return Objects.isNull(first) ? second : first;
+        }
+        return new DynamoDbRequestListener() {
+            @Override
+            public void onAttempt(String operation, long startNanos, long latencyNanos, boolean throttled) {
+                first.onAttempt(operation, startNanos, latencyNanos, throttled);
+                second.onAttempt(operation, startNanos, latencyNanos, throttled);
+            }
+
+            @Override
+            public void onRetry(String operation) {
+                first.onRetry(operation);
+                second.onRetry(operation);
+            }
+        };
+    }
+}
@@ -0,0 +1,46 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import java.util.concurrent.ThreadLocalRandom;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Exponential backoff with full jitter, used when DynamoDB asks us to retry part of a request.
+ */
+@RequiredArgsConstructor
+class ExponentialBackoff {
+    static final ExponentialBackoff DEFAULT = new ExponentialBackoff(50, 5_000, 10);
+
+    private final long baseMillis;
+    private final long maxMillis;
+    private final int maxRetries;
+
+    /**
+     * @param retry the retry about to happen, starting from 1
+     * @return whether the retry is beyond the maximum number of retries
+     */
+    boolean isExhausted(int retry) {
+        return retry > this.maxRetries;
+    }
+
+    /**
+     * Waits before the next retry.
+     *
+     * @param retry     the retry about to happen, starting from 1
+     * @param operation described in the exception if retries are exhausted
+     * @throws DynamoDbClientWrapperException if there are no retries left, or the thread is interrupted
+     */
+    void pause(int retry, String operation) {
+        if (this.isExhausted(retry)) {
+            String msg = String.format("Exhausted retries for DynamoDB operation (operation=%s, retries=%d)",
+                                       operation, this.maxRetries);
+            throw new DynamoDbClientWrapperException(msg, null);
+        }
+        long ceiling = Math.min(this.maxMillis, this.baseMillis << Math.min(retry - 1, 20));
+        try {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(ceiling + 1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DynamoDbClientWrapperException("Interrupted while waiting to retry " + operation, e);
+        }
+    }
+}
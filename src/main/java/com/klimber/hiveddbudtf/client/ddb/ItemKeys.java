@@ -0,0 +1,44 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import lombok.experimental.UtilityClass;
+
+/**
+ * Primary keys used to match items returned by BatchGetItem back to the keys that asked for them.
+ * <p>
+ * DynamoDB returns numbers in their canonical form, e.g. a key sent as {@code 1.0} or {@code 01} comes back as
+ * {@code 1}, so keys are only comparable once their numbers are normalized the same way.
+ */
+@UtilityClass
+public class ItemKeys {
+
+    /**
+     * @param key the primary key attributes and their values
+     * @return the key with its numbers in canonical form, the given key when it has none
+     */
+    public static Map<String, AttributeValue> normalize(Map<String, AttributeValue> key) {
+        boolean numeric = key.values().stream().anyMatch(value -> Objects.nonNull(value.getN()));
+        if (!numeric) {
+            return key;
+        }
+        Map<String, AttributeValue> normalized = new LinkedHashMap<>(key.size() * 4 / 3 + 1);
+        key.forEach((name, value) -> normalized.put(name, Objects.nonNull(value.getN())
+                                                          ? new AttributeValue().withN(normalize(value.getN()))
+                                                          : value));
+        return normalized;
+    }
+
+    private static String normalize(String number) {
+        try {
+            BigDecimal value = new BigDecimal(number.trim());
+            return value.signum() == 0 ? "0" : value.stripTrailingZeros().toPlainString();
+        } catch (NumberFormatException e) {
+            // Rejected by DynamoDB anyway, compared as is
+            return number;
+        }
+    }
+}
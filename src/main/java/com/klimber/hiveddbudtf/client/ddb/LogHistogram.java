@@ -0,0 +1,109 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of non-negative values in fixed memory, HDR style: every power of two is split into
+ * {@value #SUB_BUCKETS} linear sub-buckets, so percentiles are within 1/{@value #SUB_BUCKETS} of the
+ * recorded values, from {@code 0} to {@link Long#MAX_VALUE}, in under 8 KB.
+ * <p>
+ * Updated from every thread sending requests, recording is lock free.
+ */
+public class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Values below SUB_BUCKETS have their own bucket, every other power of two has SUB_BUCKETS buckets
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * @param value recorded value, negative values are recorded as {@code 0}
+     */
+    public void record(long value) {
+        long v = Math.max(0, value);
+        this.counts.incrementAndGet(bucketOf(v));
+        this.count.increment();
+        this.sum.add(v);
+        this.max.accumulate(v);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long n = this.getCount();
+        return n == 0 ? 0 : (double) this.sum.sum() / n;
+    }
+
+    /**
+     * @param quantile between {@code 0} and {@code 1}, e.g. {@code 0.99}
+     * @return the highest value of the bucket holding the quantile, at most the highest recorded value,
+     * {@code 0} when nothing was recorded
+     */
+    public long getPercentile(double quantile) {
+        long n = this.getCount();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(quantile * n));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += this.counts.get(bucket);
+            if (seen >= rank) {
+                return Math.min(upperBoundOf(bucket), this.getMax());
+            }
+        }
+        // Counts are read while other threads record values
+        return this.getMax();
+    }
+
+    /**
+     * @return count, mean, p50, p99, p999 and max, in that order
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("count", this.getCount());
+        summary.put("mean", Math.round(this.getMean() * 100) / 100.0);
+        summary.put("p50", this.getPercentile(0.5));
+        summary.put("p99", this.getPercentile(0.99));
+        summary.put("p999", this.getPercentile(0.999));
+        summary.put("max", this.getMax());
+        return summary;
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int shift = exponent - SUB_BUCKET_BITS;
+        int subBucket = (int) (value >>> shift) - SUB_BUCKETS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + subBucket;
+    }
+
+    static long lowerBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        int subBucket = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + subBucket) << shift;
+    }
+
+    static long upperBoundOf(int bucket) {
+        return bucket + 1 < BUCKETS ? lowerBoundOf(bucket + 1) - 1 : Long.MAX_VALUE;
+    }
+}
@@ -0,0 +1,102 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Scans several segments concurrently, handing their pages over to the consuming thread as they arrive.
+ * <p>
+ * Pages from different segments are interleaved. At most one page per segment waits in the buffer, plus
+ * the page being consumed and the page each segment is trying to hand over, so memory stays bounded by
+ * about twice the number of segments of up to 1 MB pages. {@link #close()} cancels the segments still
+ * running, and should be called when the consumer stops early.
+ */
+class ParallelScanIterator implements Iterator<ScanResult>, AutoCloseable {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> pages;
+    private final List<Future<?>> producers = new ArrayList<>();
+    private int running;
+    private Object next;
+
+    ParallelScanIterator(List<? extends Iterator<ScanResult>> segments, ExecutorService executor) {
+        this.pages = new ArrayBlockingQueue<>(Math.max(1, segments.size()));
+        this.running = segments.size();
+        for (Iterator<ScanResult> segment : segments) {
+            this.producers.add(executor.submit(() -> this.fetchPages(segment)));
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (Objects.isNull(this.next) && this.running > 0) {
+            Object page;
+            try {
+                page = this.pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.close();
+                throw new DynamoDbClientWrapperException("Interrupted while waiting for scan results", e);
+            }
+            if (page == END) {
+                this.running--;
+            } else {
+                this.next = page;
+            }
+        }
+        if (this.next instanceof Failure) {
+            this.close();
+            throw ((Failure) this.next).getCause();
+        }
+        return Objects.nonNull(this.next);
+    }
+
+    @Override
+    public ScanResult next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        ScanResult page = (ScanResult) this.next;
+        this.next = null;
+        return page;
+    }
+
+    @Override
+    public void close() {
+        this.producers.forEach(producer -> producer.cancel(true));
+    }
+
+    private void fetchPages(Iterator<ScanResult> segment) {
+        try {
+            while (segment.hasNext() && !Thread.currentThread().isInterrupted()) {
+                this.pages.put(segment.next());
+            }
+            this.pages.put(END);
+        } catch (InterruptedException e) {
+            // Cancelled by the consumer, nobody is waiting for more pages
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            try {
+                this.pages.put(new Failure(e));
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Failure {
+        private final RuntimeException cause;
+    }
+}
@@ -0,0 +1,94 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Iterates over query result pages while the following pages are fetched in the background.
+ * <p>
+ * At most {@code depth} pages wait in the buffer, plus the page being consumed and the page the
+ * background fetch is trying to hand over, so memory stays bounded by {@code depth + 2} pages of
+ * up to 1 MB each. {@link #close()} cancels the outstanding fetch, and should be called when the
+ * consumer stops early.
+ */
+class PrefetchingQueryResultIterator implements Iterator<QueryResult>, AutoCloseable {
+    private static final Object END = new Object();
+
+    private final BlockingQueue<Object> pages;
+    private final Future<?> producer;
+    private Object next;
+
+    PrefetchingQueryResultIterator(Function<QueryRequest, QueryResult> pageFetcher, QueryRequest request,
+                                   int depth, ExecutorService executor) {
+        this(new QueryPager(pageFetcher, request), depth, executor);
+    }
+
+    PrefetchingQueryResultIterator(QueryPager pager, int depth, ExecutorService executor) {
+        this.pages = new ArrayBlockingQueue<>(depth);
+        this.producer = executor.submit(() -> this.fetchPages(pager));
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (Objects.isNull(this.next)) {
+            try {
+                this.next = this.pages.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                this.close();
+                throw new DynamoDbClientWrapperException("Interrupted while waiting for query results", e);
+            }
+        }
+        if (this.next instanceof Failure) {
+            throw ((Failure) this.next).getCause();
+        }
+        return this.next != END;
+    }
+
+    @Override
+    public QueryResult next() {
+        if (!this.hasNext()) {
+            throw new NoSuchElementException();
+        }
+        QueryResult page = (QueryResult) this.next;
+        this.next = null;
+        return page;
+    }
+
+    @Override
+    public void close() {
+        this.producer.cancel(true);
+    }
+
+    private void fetchPages(QueryPager pager) {
+        try {
+            do {
+                this.pages.put(pager.next());
+            } while (pager.hasNext() && !Thread.currentThread().isInterrupted());
+            this.pages.put(END);
+        } catch (InterruptedException e) {
+            // Cancelled by the consumer, nobody is waiting for more pages
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            // The query failed, drop pages not consumed yet so the failure fits in the buffer
+            this.pages.clear();
+            this.pages.offer(new Failure(e));
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class Failure {
+        private final RuntimeException cause;
+    }
+}
@@ -0,0 +1,70 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+
+/**
+ * Identifies a query by everything that affects its results: table, index, projection, filters, limit
+ * and order.
+ * <p>
+ * Filter values are copied from the Hive objects as standard Java objects, since Hive may reuse
+ * them for the next row, so building a key does not require converting them to {@code AttributeValue}.
+ */
+@Value
+class QueryKey {
+    String tableName;
+    String indexName;
+    List<ColumnMapping> projection;
+    List<FilterKey> filters;
+    Integer limit;
+    Boolean scanIndexForward;
+
+    static QueryKey of(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        ImmutableList.Builder<FilterKey> filterKeys = ImmutableList.builder();
+        for (HiveDdbQueryFilter filter : filters.values()) {
+            Object value = ObjectInspectorUtils.copyToStandardObject(filter.getValue(), filter.getValueOi(),
+                                                                     ObjectInspectorCopyOption.JAVA);
+            filterKeys.add(new FilterKey(filter.getAttribute(), filter.getAttributeType(),
+                                         filter.getOperator(), filter.getOrGroup(), toKeyValue(value)));
+        }
+        return new QueryKey(params.getTableName(), params.getIndexName(), params.getHiveDdbColumnMapping(),
+                            filterKeys.build(), params.getLimit(), params.getScanIndexForward());
+    }
+
+    /**
+     * Arrays don't implement equals and hashCode, so binary values are wrapped, including the elements of the
+     * lists given to IN and contains.
+     */
+    private static Object toKeyValue(Object value) {
+        if (value instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) value);
+        }
+        if (value instanceof List) {
+            List<?> values = (List<?>) value;
+            List<Object> keyValues = new ArrayList<>(values.size());
+            for (Object element : values) {
+                keyValues.add(toKeyValue(element));
+            }
+            return keyValues;
+        }
+        return value;
+    }
+
+    @Value
+    static class FilterKey {
+        String attribute;
+        String attributeType;
+        String operator;
+        String orGroup;
+        Object value;
+    }
+}
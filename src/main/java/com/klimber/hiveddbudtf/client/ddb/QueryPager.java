@@ -0,0 +1,62 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Iterates over query result pages, until the query is exhausted or the item limit is reached.
+ * <p>
+ * With a limit, each page asks for at most the items still missing, so the last page stops right at the
+ * limit and no further pages are read. The request's own {@code Limit} is kept as the page size.
+ */
+class QueryPager implements Iterator<QueryResult> {
+    private final Function<QueryRequest, QueryResult> pageFetcher;
+    private final QueryRequest request;
+    private final Integer pageSize;
+    private final boolean limited;
+    private int remaining;
+    private boolean hasNext = true;
+
+    QueryPager(Function<QueryRequest, QueryResult> pageFetcher, QueryRequest request) {
+        this(pageFetcher, request, null);
+    }
+
+    /**
+     * @param pageFetcher fetches a page of results
+     * @param request     the query, updated with the start key of each page
+     * @param limit       maximum number of items to return, {@code null} to read every page
+     */
+    QueryPager(Function<QueryRequest, QueryResult> pageFetcher, QueryRequest request, Integer limit) {
+        this.pageFetcher = pageFetcher;
+        this.request = request;
+        this.pageSize = request.getLimit();
+        this.limited = Objects.nonNull(limit);
+        this.remaining = this.limited ? limit : Integer.MAX_VALUE;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    @Override
+    public QueryResult next() {
+        if (!this.hasNext) {
+            throw new NoSuchElementException();
+        }
+        if (this.limited) {
+            this.request.setLimit(Objects.isNull(this.pageSize)
+                                  ? this.remaining
+                                  : Math.min(this.pageSize, this.remaining));
+        }
+        QueryResult page = this.pageFetcher.apply(this.request);
+        this.remaining -= page.getItems().size();
+        this.request.setExclusiveStartKey(page.getLastEvaluatedKey());
+        this.hasNext = Objects.nonNull(page.getLastEvaluatedKey()) && this.remaining > 0;
+        return page;
+    }
+}
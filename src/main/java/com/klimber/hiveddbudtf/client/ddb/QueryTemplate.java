@@ -0,0 +1,622 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
+
+/**
+ * A query compiled for one shape of parameters and filters: the table, index, projected attributes and,
+ * for each filter, its attribute, type and operator.
+ * <p>
+ * Expressions, attribute name aliases and value encoders are built once per shape, so binding a row
+ * only encodes its filter values. Filters are bound in the iteration order of the multimap they were
+ * compiled from, see {@link #matches(HiveDdbQueryParameters, Multimap)}.
+ */
+@Getter
+class QueryTemplate {
+    private static final String PK_VALUE = ":pkValue";
+    private static final String SK_VALUE = ":skValue";
+    private static final int MAX_IN_VALUES = 100;
+
+    private final String tableName;
+    private final String indexName;
+    private final List<ColumnMapping> projection;
+    private final List<FilterShape> filterShapes;
+    private final String projectionExpr;
+    private final Map<String, String> exprAttNames;
+    private final Map<String, String> countExprAttNames;
+    private final String keyConditionExpr;
+    private final String filterExpr;
+    private final List<ValueEncoder> encoders;
+    private final Map<String, String> primaryKeyAliases;
+
+    private QueryTemplate(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters,
+                          Map<KeyType, String> keyAttributes, boolean scan) {
+        this.tableName = params.getTableName();
+        this.indexName = params.getIndexName();
+        this.projection = params.getHiveDdbColumnMapping();
+        this.filterShapes = FilterShape.of(filters);
+
+        Map<String, String> exprAttNamesBuilder = new HashMap<>();
+        List<String> projectionAliases = new ArrayList<>();
+        if (Objects.nonNull(this.projection)) {
+            for (int i = 0; i < this.projection.size(); i++) {
+                String alias = "#p" + i;
+                exprAttNamesBuilder.put(alias, this.projection.get(i).getDdbAttName());
+                projectionAliases.add(alias);
+            }
+        }
+        this.projectionExpr = projectionAliases.isEmpty() ? null : String.join(", ", projectionAliases);
+
+        String hashKey = keyAttributes.get(KeyType.HASH);
+        String sortKey = keyAttributes.get(KeyType.RANGE);
+        List<String> keyConditions = new ArrayList<>();
+        Optional<Operators> sortKeyOperator = Optional.empty();
+        // Scans have no key condition, every filter is part of the filter expression
+        if (!scan) {
+            keyConditions.add(parseHashKey(filters, hashKey, exprAttNamesBuilder));
+            sortKeyOperator = parseSortKey(filters, sortKey, exprAttNamesBuilder);
+            sortKeyOperator.ifPresent(op -> keyConditions.add(op.getCondition("#sk", op.getValueAliases(SK_VALUE, 1))));
+        }
+
+        // One encoder per filter, in the order filters are bound
+        List<ValueEncoder> encodersBuilder = new ArrayList<>();
+        // Conditions AND-ed together, conditions of the same OR group share a clause
+        List<List<String>> filterClauses = new ArrayList<>();
+        Map<String, List<String>> orGroups = new HashMap<>();
+        Map<String, String> attAliases = new HashMap<>();
+        Map<String, Integer> valueCounts = new HashMap<>();
+        Iterator<FilterShape> shapes = this.filterShapes.iterator();
+        for (Map.Entry<String, HiveDdbQueryFilter> entry : filters.entries()) {
+            HiveDdbQueryFilter filter = entry.getValue();
+            Operators operator = Operators.parse(filter.getOperator());
+            int valueCount = shapes.next().getValueCount();
+            List<String> valueAliases;
+            if (entry.getKey().equals(hashKey) || entry.getKey().equals(sortKey)) {
+                if (Objects.nonNull(filter.getOrGroup())) {
+                    String msg = String.format("Key attribute filters can't be part of an OR group "
+                                               + "(attribute=%s, orGroup=%s)", entry.getKey(), filter.getOrGroup());
+                    throw new IllegalArgumentException(msg);
+                }
+                valueAliases = operator.getValueAliases(entry.getKey().equals(hashKey) ? PK_VALUE : SK_VALUE,
+                                                        valueCount);
+            } else {
+                String attAlias = attAliases.computeIfAbsent(entry.getKey(), att -> "a" + (attAliases.size() + 1));
+                exprAttNamesBuilder.put("#" + attAlias, entry.getKey());
+                int j = valueCounts.merge(attAlias, 1, Integer::sum);
+                valueAliases = operator.getValueAliases(":" + attAlias + "v" + j, valueCount);
+                String condition = operator.getCondition("#" + attAlias, valueAliases);
+                if (Objects.isNull(filter.getOrGroup())) {
+                    filterClauses.add(Collections.singletonList(condition));
+                } else {
+                    orGroups.computeIfAbsent(filter.getOrGroup(), group -> {
+                        List<String> clause = new ArrayList<>();
+                        filterClauses.add(clause);
+                        return clause;
+                    }).add(condition);
+                }
+            }
+            HiveDynamoDBType type = HiveDynamoDBTypeFactory.getTypeObjectFromDynamoDBType(filter.getAttributeType());
+            encodersBuilder.add(new ValueEncoder(valueAliases, type, operator.isArray()));
+        }
+        this.exprAttNames = ImmutableMap.copyOf(exprAttNamesBuilder);
+        this.countExprAttNames = ImmutableMap.copyOf(Maps.filterKeys(exprAttNamesBuilder,
+                                                                     alias -> !projectionAliases.contains(alias)));
+        this.keyConditionExpr = keyConditions.isEmpty() ? null : String.join(" AND ", keyConditions);
+        this.filterExpr = filterClauses.isEmpty()
+                          ? null
+                          : filterClauses.stream()
+                                         .map(c -> c.size() == 1 ? c.get(0) : "(" + String.join(" OR ", c) + ")")
+                                         .collect(Collectors.joining(" AND "));
+        this.encoders = encodersBuilder;
+        this.primaryKeyAliases = !scan && filterClauses.isEmpty()
+                                 ? findPrimaryKeyAliases(hashKey, sortKey, sortKeyOperator)
+                                 : null;
+    }
+
+    /**
+     * @param params        the query parameters
+     * @param filters       the query filters, keyed by attribute name, only their shape is used
+     * @param keyAttributes the key attributes of the table or index being queried
+     * @return the query compiled for the shape of the parameters and filters
+     * @throws IllegalArgumentException if the filters don't bind the hash key, or bind the keys more than once
+     */
+    static QueryTemplate compile(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters,
+                                 Map<KeyType, String> keyAttributes) {
+        return new QueryTemplate(params, filters, keyAttributes, false);
+    }
+
+    /**
+     * @param params  the scan parameters
+     * @param filters the scan filters, keyed by attribute name, only their shape is used
+     * @return the scan compiled for the shape of the parameters and filters, every filter being part of
+     *         the filter expression
+     */
+    static QueryTemplate compileScan(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        return new QueryTemplate(params, filters, Collections.emptyMap(), true);
+    }
+
+    /**
+     * Splits filters using the {@code IN} operator on the hash key, whose value is a list, into one set of
+     * filters per distinct value, each using {@code EQ} on the hash key and keeping the other filters as is.
+     * Values are copied, so they can be read after Hive moves on to the next row.
+     *
+     * @param filters the query filters, keyed by attribute name
+     * @param hashKey the hash key attribute of the queried table or index
+     * @return the filters of each query, or the given filters when the hash key does not use {@code IN}
+     */
+    static List<Multimap<String, HiveDdbQueryFilter>> fanOut(Multimap<String, HiveDdbQueryFilter> filters,
+                                                             String hashKey) {
+        Collection<HiveDdbQueryFilter> hashFilters = filters.get(hashKey);
+        if (hashFilters.size() != 1
+            || !Operators.IN.name().equalsIgnoreCase(hashFilters.iterator().next().getOperator())) {
+            return Collections.singletonList(filters);
+        }
+        HiveDdbQueryFilter inFilter = hashFilters.iterator().next();
+        if (!(inFilter.getValueOi() instanceof ListObjectInspector)) {
+            String msg = String.format("Expected IN filter value to be an array (attribute=%s, found=%s)",
+                                       hashKey, inFilter.getValueOi().getTypeName());
+            throw new IllegalArgumentException(msg);
+        }
+        ListObjectInspector listOI = (ListObjectInspector) inFilter.getValueOi();
+        ObjectInspector valueOI = ObjectInspectorUtils.getStandardObjectInspector(
+                listOI.getListElementObjectInspector(), ObjectInspectorCopyOption.JAVA);
+        Set<Object> values = new LinkedHashSet<>();
+        for (Object value : listOI.getList(inFilter.getValue())) {
+            if (Objects.nonNull(value)) {
+                values.add(ObjectInspectorUtils.copyToStandardObject(value, listOI.getListElementObjectInspector(),
+                                                                     ObjectInspectorCopyOption.JAVA));
+            }
+        }
+
+        List<Multimap<String, HiveDdbQueryFilter>> fanOut = new ArrayList<>(values.size());
+        for (Object value : values) {
+            HiveDdbQueryFilter eqFilter = inFilter.toBuilder()
+                                                  .operator(Operators.EQ.name())
+                                                  .value(value)
+                                                  .valueOi(valueOI)
+                                                  .build();
+            ImmutableMultimap.Builder<String, HiveDdbQueryFilter> keyFilters = ImmutableMultimap.builder();
+            // Keeps the order of the filters, which is part of the query shape
+            filters.entries().forEach(e -> keyFilters.put(e.getKey(), e.getValue() == inFilter
+                                                                      ? eqFilter
+                                                                      : e.getValue()));
+            fanOut.add(keyFilters.build());
+        }
+        return fanOut;
+    }
+
+    /**
+     * Checks whether the parameters and filters have the shape this template was compiled for, without
+     * allocating a {@link Shape}.
+     */
+    boolean matches(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+        if (!Objects.equals(this.tableName, params.getTableName())
+            || !Objects.equals(this.indexName, params.getIndexName())
+            || !Objects.equals(this.projection, params.getHiveDdbColumnMapping())
+            || this.filterShapes.size() != filters.size()) {
+            return false;
+        }
+        Iterator<FilterShape> shapes = this.filterShapes.iterator();
+        for (HiveDdbQueryFilter filter : filters.values()) {
+            if (!shapes.next().matches(filter)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Encodes the filter values, filters must have the shape this template was compiled for.
+     *
+     * @return the expression attribute values
+     */
+    Map<String, AttributeValue> bind(Multimap<String, HiveDdbQueryFilter> filters) {
+        Map<String, AttributeValue> values = new HashMap<>();
+        Iterator<ValueEncoder> encoders = this.encoders.iterator();
+        for (HiveDdbQueryFilter filter : filters.values()) {
+            encoders.next().encode(filter, values);
+        }
+        return values;
+    }
+
+    /**
+     * @return a request for the filter values, filters must have the shape this template was compiled for
+     */
+    QueryRequest newRequest(Multimap<String, HiveDdbQueryFilter> filters) {
+        return new QueryRequest()
+                .withTableName(this.tableName)
+                .withIndexName(this.indexName)
+                .withProjectionExpression(this.projectionExpr)
+                .withKeyConditionExpression(this.keyConditionExpr)
+                .withFilterExpression(this.filterExpr)
+                .withExpressionAttributeNames(this.exprAttNames)
+                .withExpressionAttributeValues(this.bind(filters));
+    }
+
+    /**
+     * @return a scan request for the filter values, filters must have the shape this template was compiled for
+     */
+    ScanRequest newScanRequest(Multimap<String, HiveDdbQueryFilter> filters) {
+        return new ScanRequest()
+                .withTableName(this.tableName)
+                .withIndexName(this.indexName)
+                .withProjectionExpression(this.projectionExpr)
+                .withFilterExpression(this.filterExpr)
+                .withExpressionAttributeNames(this.exprAttNames.isEmpty() ? null : this.exprAttNames)
+                .withExpressionAttributeValues(filters.isEmpty() ? null : this.bind(filters));
+    }
+
+    /**
+     * Builds a request counting the matching items, without the projection since counting queries can't
+     * return attributes.
+     *
+     * @return a request for the filter values, filters must have the shape this template was compiled for
+     */
+    QueryRequest newCountRequest(Multimap<String, HiveDdbQueryFilter> filters) {
+        return new QueryRequest()
+                .withTableName(this.tableName)
+                .withIndexName(this.indexName)
+                .withSelect(Select.COUNT)
+                .withKeyConditionExpression(this.keyConditionExpr)
+                .withFilterExpression(this.filterExpr)
+                .withExpressionAttributeNames(this.countExprAttNames)
+                .withExpressionAttributeValues(this.bind(filters));
+    }
+
+    /**
+     * Gets the full primary key, when it is bound by equality and there are no other filters,
+     * meaning the query is a single item lookup.
+     *
+     * @return the primary key attributes and their values, empty if this is not a single item lookup
+     */
+    Optional<Map<String, AttributeValue>> getPrimaryKey(Multimap<String, HiveDdbQueryFilter> filters) {
+        if (Objects.isNull(this.primaryKeyAliases)) {
+            return Optional.empty();
+        }
+        Map<String, AttributeValue> values = this.bind(filters);
+        ImmutableMap.Builder<String, AttributeValue> key = ImmutableMap.builder();
+        this.primaryKeyAliases.forEach((attribute, alias) -> key.put(attribute, values.get(alias)));
+        return Optional.of(key.build());
+    }
+
+    private static Map<String, String> findPrimaryKeyAliases(String hashKey, String sortKey,
+                                                             Optional<Operators> sortKeyOperator) {
+        if (Objects.isNull(sortKey)) {
+            return ImmutableMap.of(hashKey, PK_VALUE);
+        }
+        if (!sortKeyOperator.isPresent() || !Operators.EQ.equals(sortKeyOperator.get())) {
+            return null;
+        }
+        return ImmutableMap.of(hashKey, PK_VALUE, sortKey, SK_VALUE);
+    }
+
+    private static String parseHashKey(Multimap<String, HiveDdbQueryFilter> filters, String hashKey,
+                                       Map<String, String> exprAttNamesBuilder) {
+        Collection<HiveDdbQueryFilter> hashFilters = filters.get(hashKey);
+        if (hashFilters.size() != 1) {
+            String msg = String.format("There should be one filter on the hash key attribute "
+                                       + "(found=%d, filters=%s)", hashFilters.size(), hashFilters);
+            throw new IllegalArgumentException(msg);
+        }
+        HiveDdbQueryFilter hashKeyFilter = hashFilters.iterator().next();
+        Operators hashOperator = Operators.parse(hashKeyFilter.getOperator());
+        if (!Operators.EQ.equals(hashOperator)) {
+            String msg = String.format("Hash key attribute should use EQUALS operator"
+                                       + "(found=%s, filters=%s)", hashOperator, hashKeyFilter);
+            throw new IllegalArgumentException(msg);
+        }
+        exprAttNamesBuilder.put("#pk", hashKeyFilter.getAttribute());
+        return hashOperator.getCondition("#pk", hashOperator.getValueAliases(PK_VALUE, 1));
+    }
+
+    private static Optional<Operators> parseSortKey(Multimap<String, HiveDdbQueryFilter> filters, String sortKey,
+                                                    Map<String, String> exprAttNamesBuilder) {
+        Collection<HiveDdbQueryFilter> sortKeyFilters = filters.get(sortKey);
+        if (sortKeyFilters.isEmpty()) {
+            return Optional.empty();
+        }
+        if (sortKeyFilters.size() > 1) {
+            String msg = String.format("There should be at most one filter on the sort key attribute "
+                                       + "(found=%d, filters=%s)", sortKeyFilters.size(), sortKeyFilters);
+            throw new IllegalArgumentException(msg);
+        }
+        HiveDdbQueryFilter sortKeyFilter = sortKeyFilters.iterator().next();
+        Operators sortOperator = Operators.parse(sortKeyFilter.getOperator());
+        if (!sortOperator.isKeyCondition()) {
+            String msg = String.format("Sort key attribute should use a key condition operator "
+                                       + "(found=%s, filters=%s)", sortOperator, sortKeyFilter);
+            throw new IllegalArgumentException(msg);
+        }
+        exprAttNamesBuilder.put("#sk", sortKeyFilter.getAttribute());
+        return Optional.of(sortOperator);
+    }
+
+    /**
+     * Identifies the queries that can share a template.
+     */
+    @Value
+    static class Shape {
+        String tableName;
+        String indexName;
+        List<ColumnMapping> projection;
+        List<FilterShape> filters;
+
+        static Shape of(HiveDdbQueryParameters params, Multimap<String, HiveDdbQueryFilter> filters) {
+            return new Shape(params.getTableName(), params.getIndexName(), params.getHiveDdbColumnMapping(),
+                             FilterShape.of(filters));
+        }
+    }
+
+    /**
+     * The shape of a filter. The number of values is part of it for {@code IN} filters, whose expression has
+     * one alias per value, and {@code -1} for other filters.
+     */
+    @Value
+    static class FilterShape {
+        String attribute;
+        String attributeType;
+        String operator;
+        String orGroup;
+        int valueCount;
+
+        static List<FilterShape> of(Multimap<String, HiveDdbQueryFilter> filters) {
+            List<FilterShape> shapes = new ArrayList<>(filters.size());
+            for (HiveDdbQueryFilter filter : filters.values()) {
+                shapes.add(new FilterShape(filter.getAttribute(), filter.getAttributeType(), filter.getOperator(),
+                                           filter.getOrGroup(), valueCount(filter)));
+            }
+            return shapes;
+        }
+
+        boolean matches(HiveDdbQueryFilter filter) {
+            return this.attribute.equals(filter.getAttribute())
+                   && this.attributeType.equals(filter.getAttributeType())
+                   && this.operator.equals(filter.getOperator())
+                   && Objects.equals(this.orGroup, filter.getOrGroup())
+                   && this.valueCount == valueCount(filter);
+        }
+
+        private static int valueCount(HiveDdbQueryFilter filter) {
+            if (!Operators.IN.name().equalsIgnoreCase(filter.getOperator())) {
+                return -1;
+            }
+            if (!(filter.getValueOi() instanceof ListObjectInspector)) {
+                String msg = String.format("Expected IN filter value to be an array (attribute=%s, found=%s)",
+                                           filter.getAttribute(), filter.getValueOi().getTypeName());
+                throw new IllegalArgumentException(msg);
+            }
+            int count = ((ListObjectInspector) filter.getValueOi()).getListLength(filter.getValue());
+            if (count < 1 || count > MAX_IN_VALUES) {
+                String msg = String.format("Expected IN filter value to have between 1 and %d values "
+                                           + "(attribute=%s, found=%d)", MAX_IN_VALUES, filter.getAttribute(), count);
+                throw new IllegalArgumentException(msg);
+            }
+            return count;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class ValueEncoder {
+        private final List<String> aliases;
+        private final HiveDynamoDBType type;
+        private final boolean array;
+
+        /**
+         * Encodes the filter value into its alias, or each element of an array value into one of the aliases
+         * when the operator takes an array of values.
+         */
+        void encode(HiveDdbQueryFilter filter, Map<String, AttributeValue> values) {
+            if (this.aliases.isEmpty()) {
+                return;
+            }
+            if (!this.array) {
+                values.put(this.aliases.get(0), this.type.getDynamoDBData(filter.getValue(), filter.getValueOi(),
+                                                                          true));
+                return;
+            }
+            List<?> elements = filter.getValueOi() instanceof ListObjectInspector
+                               ? ((ListObjectInspector) filter.getValueOi()).getList(filter.getValue())
+                               : null;
+            if (Objects.isNull(elements) || elements.size() != this.aliases.size()) {
+                String msg = String.format("Expected %s filter value to be an array of %d values "
+                                           + "(attribute=%s, found=%s)", filter.getOperator(), this.aliases.size(),
+                                           filter.getAttribute(), filter.getValue());
+                throw new IllegalArgumentException(msg);
+            }
+            ObjectInspector elementOI = ((ListObjectInspector) filter.getValueOi()).getListElementObjectInspector();
+            for (int i = 0; i < this.aliases.size(); i++) {
+                values.put(this.aliases.get(i), this.type.getDynamoDBData(elements.get(i), elementOI, true));
+            }
+        }
+    }
+
+    @RequiredArgsConstructor
+    enum Operators {
+        EQ(new ComparatorOperator("="), true),
+        NE(new ComparatorOperator("<>"), false),
+        LT(new ComparatorOperator("<"), true),
+        LE(new ComparatorOperator("<="), true),
+        GT(new ComparatorOperator(">"), true),
+        GE(new ComparatorOperator(">="), true),
+        BETWEEN(new BetweenOperator(), true),
+        BEGINS_WITH(new FunctionOperator("begins_with"), true),
+        IN(new InOperator(), false),
+        CONTAINS(new FunctionOperator("contains"), false),
+        ATTRIBUTE_EXISTS(new ExistsOperator("attribute_exists"), false),
+        ATTRIBUTE_NOT_EXISTS(new ExistsOperator("attribute_not_exists"), false),
+        SIZE_EQ(new SizeOperator("="), false),
+        SIZE_NE(new SizeOperator("<>"), false),
+        SIZE_LT(new SizeOperator("<"), false),
+        SIZE_LE(new SizeOperator("<="), false),
+        SIZE_GT(new SizeOperator(">"), false),
+        SIZE_GE(new SizeOperator(">="), false);
+
+        private final Operator op;
+        /**
+         * Whether the operator can be used on the sort key, key attributes can't be part of filter expressions.
+         */
+        @Getter
+        private final boolean keyCondition;
+
+        static Operators parse(String operator) {
+            return Operators.valueOf(operator.toUpperCase());
+        }
+
+        /**
+         * @param valueAlias the alias of the filter value
+         * @param valueCount the number of values of {@code IN} filters
+         * @return the aliases of the values the operator takes, derived from the filter value alias
+         */
+        List<String> getValueAliases(String valueAlias, int valueCount) {
+            return this.op.getValueAliases(valueAlias, valueCount);
+        }
+
+        String getCondition(String attAlias, List<String> valueAliases) {
+            return this.op.getCondition(attAlias, valueAliases);
+        }
+
+        /**
+         * @return whether the operator takes an array of values, bound to one alias each
+         */
+        boolean isArray() {
+            return this.op.isArray();
+        }
+
+        private interface Operator {
+            default List<String> getValueAliases(String valueAlias, int valueCount) {
+                return Collections.singletonList(valueAlias);
+            }
+
+            default boolean isArray() {
+                return false;
+            }
+
+            String getCondition(String attAlias, List<String> valueAliases);
+        }
+
+        @RequiredArgsConstructor
+        private static class ComparatorOperator implements Operator {
+            private final String op;
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return attAlias + " " + this.op + " " + valueAliases.get(0);
+            }
+        }
+
+        @RequiredArgsConstructor
+        private static class SizeOperator implements Operator {
+            private final String op;
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return "size(" + attAlias + ") " + this.op + " " + valueAliases.get(0);
+            }
+        }
+
+        /**
+         * Takes no value, the filter value is ignored.
+         */
+        @RequiredArgsConstructor
+        private static class ExistsOperator implements Operator {
+            private final String function;
+
+            @Override
+            public List<String> getValueAliases(String valueAlias, int valueCount) {
+                return Collections.emptyList();
+            }
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return this.function + "(" + attAlias + ")";
+            }
+        }
+
+        /**
+         * Takes an array of values, the number of values being part of the filter shape.
+         */
+        private static class InOperator implements Operator {
+            @Override
+            public List<String> getValueAliases(String valueAlias, int valueCount) {
+                List<String> aliases = new ArrayList<>(valueCount);
+                for (int i = 1; i <= valueCount; i++) {
+                    aliases.add(valueAlias + "In" + i);
+                }
+                return aliases;
+            }
+
+            @Override
+            public boolean isArray() {
+                return true;
+            }
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return attAlias + " IN (" + String.join(", ", valueAliases) + ")";
+            }
+        }
+
+        @RequiredArgsConstructor
+        private static class FunctionOperator implements Operator {
+            private final String function;
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return this.function + "(" + attAlias + ", " + valueAliases.get(0) + ")";
+            }
+        }
+
+        /**
+         * Takes an array of two values, the inclusive lower and upper bounds.
+         */
+        private static class BetweenOperator implements Operator {
+            @Override
+            public List<String> getValueAliases(String valueAlias, int valueCount) {
+                return Arrays.asList(valueAlias + "From", valueAlias + "To");
+            }
+
+            @Override
+            public boolean isArray() {
+                return true;
+            }
+
+            @Override
+            public String getCondition(String attAlias, List<String> valueAliases) {
+                return attAlias + " BETWEEN " + valueAliases.get(0) + " AND " + valueAliases.get(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.Request;
+import com.amazonaws.handlers.HandlerAfterAttemptContext;
+import com.amazonaws.handlers.HandlerBeforeAttemptContext;
+import com.amazonaws.handlers.HandlerContextKey;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.retry.RetryUtils;
+import java.util.Objects;
+
+/**
+ * Reports every attempt of the SDK client to the {@link DynamoDbRequestListener} attached to the request
+ * with {@link #LISTENER}. Unlike the outcome of a request, attempts show the throttling hidden by the SDK
+ * retries. The listener travels with the request since clients are shared, see {@link DynamoDbClientRegistry}.
+ */
+class RequestListenerHandler extends RequestHandler2 {
+    static final HandlerContextKey<DynamoDbRequestListener> LISTENER = new HandlerContextKey<>("RequestListener");
+    private static final HandlerContextKey<Long> START_NANOS = new HandlerContextKey<>("StartNanos");
+
+    @Override
+    public void beforeAttempt(HandlerBeforeAttemptContext context) {
+        Request<?> request = context.getRequest();
+        // The start of the previous attempt is still there when the SDK retries the request
+        if (Objects.nonNull(request.getHandlerContext(START_NANOS))) {
+            DynamoDbRequestListener listener = request.getOriginalRequest().getHandlerContext(LISTENER);
+            if (Objects.nonNull(listener)) {
+                listener.onRetry(getOperation(request));
+            }
+        }
+        request.addHandlerContext(START_NANOS, System.nanoTime());
+    }
+
+    @Override
+    public void afterAttempt(HandlerAfterAttemptContext context) {
+        DynamoDbRequestListener listener = context.getRequest().getOriginalRequest().getHandlerContext(LISTENER);
+        Long startNanos = context.getRequest().getHandlerContext(START_NANOS);
+        if (Objects.isNull(listener) || Objects.isNull(startNanos)) {
+            return;
+        }
+        long latencyNanos = System.nanoTime() - startNanos;
+        Exception exception = context.getException();
+        boolean throttled = exception instanceof AmazonServiceException
+                            && RetryUtils.isThrottlingException((AmazonServiceException) exception);
+        listener.onAttempt(getOperation(context.getRequest()), startNanos, latencyNanos, throttled);
+    }
+
+    private static String getOperation(Request<?> request) {
+        return request.getOriginalRequest().getClass().getSimpleName().replaceFirst("Request$", "");
+    }
+}
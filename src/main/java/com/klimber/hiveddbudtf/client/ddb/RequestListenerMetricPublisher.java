@@ -0,0 +1,45 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import java.time.Duration;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import software.amazon.awssdk.core.metrics.CoreMetric;
+import software.amazon.awssdk.metrics.MetricCollection;
+import software.amazon.awssdk.metrics.MetricPublisher;
+
+/**
+ * Reports every attempt of an AWS SDKv2 request, retries included, to the {@link DynamoDbRequestListener}
+ * of the wrapper that sent it, the SDKv2 counterpart of {@link RequestListenerHandler}.
+ * <p>
+ * SDKv2 publishes the metrics of a request once it completes, with one child collection per attempt,
+ * so attempts are reported together when the request ends, their start estimated from their duration.
+ */
+@RequiredArgsConstructor
+class RequestListenerMetricPublisher implements MetricPublisher {
+    private static final String ATTEMPT = "ApiCallAttempt";
+    // Value of CoreMetric.ERROR_TYPE for throttling errors, the enum holding it is internal to the SDK
+    private static final String THROTTLING = "Throttling";
+
+    private final DynamoDbRequestListener listener;
+
+    @Override
+    public void publish(MetricCollection metrics) {
+        List<String> operations = metrics.metricValues(CoreMetric.OPERATION_NAME);
+        String operation = operations.isEmpty() ? "Unknown" : operations.get(0);
+        long endNanos = System.nanoTime();
+        int attempt = 0;
+        for (MetricCollection attemptMetrics : metrics.childrenWithName(ATTEMPT).toArray(MetricCollection[]::new)) {
+            if (attempt++ > 0) {
+                this.listener.onRetry(operation);
+            }
+            List<Duration> durations = attemptMetrics.metricValues(CoreMetric.SERVICE_CALL_DURATION);
+            long latencyNanos = durations.isEmpty() ? 0 : durations.get(0).toNanos();
+            boolean throttled = attemptMetrics.metricValues(CoreMetric.ERROR_TYPE).contains(THROTTLING);
+            this.listener.onAttempt(operation, endNanos - latencyNanos, latencyNanos, throttled);
+        }
+    }
+
+    @Override
+    public void close() {
+    }
+}
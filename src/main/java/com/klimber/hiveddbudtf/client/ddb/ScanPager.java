@@ -0,0 +1,35 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Iterates over the result pages of a scan, or of one of its parallel scan segments.
+ */
+@RequiredArgsConstructor
+class ScanPager implements Iterator<ScanResult> {
+    private final Function<ScanRequest, ScanResult> pageFetcher;
+    private final ScanRequest request;
+    private boolean hasNext = true;
+
+    @Override
+    public boolean hasNext() {
+        return this.hasNext;
+    }
+
+    @Override
+    public ScanResult next() {
+        if (!this.hasNext) {
+            throw new NoSuchElementException();
+        }
+        ScanResult page = this.pageFetcher.apply(this.request);
+        this.request.setExclusiveStartKey(page.getLastEvaluatedKey());
+        this.hasNext = Objects.nonNull(page.getLastEvaluatedKey());
+        return page;
+    }
+}
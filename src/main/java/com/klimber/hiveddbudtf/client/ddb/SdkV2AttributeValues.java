@@ -0,0 +1,127 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.experimental.UtilityClass;
+import software.amazon.awssdk.core.SdkBytes;
+
+/**
+ * Converts attribute values between AWS SDKv2, used to send requests with
+ * {@link DynamoDbAsyncClientWrapper}, and SDKv1, used by the rest of the UDTFs.
+ * <p>
+ * Every value of a response is copied once, switching on its
+ * <a href="https://sdk.amazonaws.com/java/api/latest/software/amazon/awssdk/services/dynamodb/model/AttributeValue.html#type()">type</a>.
+ * Rows are then decoded from the SDKv1 copies like with {@link DynamoDbClientWrapperImpl}, since the Hive
+ * types of emr-dynamodb-hive only read SDKv1 values, so SDKv2 adds this copy to decoding rather than saving
+ * the null checks of {@link DynamoDbTypeFinder}.
+ */
+@UtilityClass
+class SdkV2AttributeValues {
+
+    static AttributeValue toV1(software.amazon.awssdk.services.dynamodb.model.AttributeValue value) {
+        switch (value.type()) {
+            case S:
+                return new AttributeValue().withS(value.s());
+            case N:
+                return new AttributeValue().withN(value.n());
+            case B:
+                return new AttributeValue().withB(toV1(value.b()));
+            case SS:
+                return new AttributeValue().withSS(value.ss());
+            case NS:
+                return new AttributeValue().withNS(value.ns());
+            case BS:
+                List<ByteBuffer> bs = new ArrayList<>(value.bs().size());
+                value.bs().forEach(b -> bs.add(toV1(b)));
+                return new AttributeValue().withBS(bs);
+            case M:
+                return new AttributeValue().withM(toV1(value.m()));
+            case L:
+                List<AttributeValue> l = new ArrayList<>(value.l().size());
+                value.l().forEach(v -> l.add(toV1(v)));
+                return new AttributeValue().withL(l);
+            case BOOL:
+                return new AttributeValue().withBOOL(value.bool());
+            case NUL:
+                return new AttributeValue().withNULL(true);
+            default:
+                throw new IllegalArgumentException("Unsupported DynamoDB attribute type (type=" + value.type() + ")");
+        }
+    }
+
+    static Map<String, AttributeValue> toV1(
+            Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> item) {
+        if (Objects.isNull(item)) {
+            return null;
+        }
+        Map<String, AttributeValue> converted = new HashMap<>(item.size() * 4 / 3 + 1);
+        item.forEach((name, value) -> converted.put(name, toV1(value)));
+        return converted;
+    }
+
+    static List<Map<String, AttributeValue>> toV1(
+            List<Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue>> items) {
+        List<Map<String, AttributeValue>> converted = new ArrayList<>(items.size());
+        items.forEach(item -> converted.add(toV1(item)));
+        return converted;
+    }
+
+    static software.amazon.awssdk.services.dynamodb.model.AttributeValue toV2(AttributeValue value) {
+        software.amazon.awssdk.services.dynamodb.model.AttributeValue.Builder builder =
+                software.amazon.awssdk.services.dynamodb.model.AttributeValue.builder();
+        if (Objects.nonNull(value.getS())) {
+            return builder.s(value.getS()).build();
+        }
+        if (Objects.nonNull(value.getN())) {
+            return builder.n(value.getN()).build();
+        }
+        if (Objects.nonNull(value.getB())) {
+            return builder.b(SdkBytes.fromByteBuffer(value.getB())).build();
+        }
+        if (Objects.nonNull(value.getSS())) {
+            return builder.ss(value.getSS()).build();
+        }
+        if (Objects.nonNull(value.getNS())) {
+            return builder.ns(value.getNS()).build();
+        }
+        if (Objects.nonNull(value.getBS())) {
+            List<SdkBytes> bs = new ArrayList<>(value.getBS().size());
+            value.getBS().forEach(b -> bs.add(SdkBytes.fromByteBuffer(b)));
+            return builder.bs(bs).build();
+        }
+        if (Objects.nonNull(value.getM())) {
+            return builder.m(toV2(value.getM())).build();
+        }
+        if (Objects.nonNull(value.getL())) {
+            List<software.amazon.awssdk.services.dynamodb.model.AttributeValue> l =
+                    new ArrayList<>(value.getL().size());
+            value.getL().forEach(v -> l.add(toV2(v)));
+            return builder.l(l).build();
+        }
+        if (Objects.nonNull(value.getBOOL())) {
+            return builder.bool(value.getBOOL()).build();
+        }
+        return builder.nul(true).build();
+    }
+
+    static Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> toV2(
+            Map<String, AttributeValue> item) {
+        if (Objects.isNull(item)) {
+            return null;
+        }
+        Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> converted =
+                new HashMap<>(item.size() * 4 / 3 + 1);
+        item.forEach((name, value) -> converted.put(name, toV2(value)));
+        return converted;
+    }
+
+    private static ByteBuffer toV1(SdkBytes bytes) {
+        // The decoders read the backing array, which read-only buffers don't expose
+        return ByteBuffer.wrap(bytes.asByteArrayUnsafe());
+    }
+}
@@ -0,0 +1,126 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.google.common.base.Ticker;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbRequestListener;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Limit of queries in flight, adjusted with additive-increase / multiplicative-decrease (AIMD).
+ * <p>
+ * Every healthy DynamoDB response grows the limit by {@code 1 / limit}, so it grows by about one
+ * per round of queries. A throttled response, or one slower than {@code latencyTolerance} times the
+ * smoothed latency, halves it. Responses to requests sent before the last decrease are not counted
+ * as congestion again, so one burst of throttling only decreases the limit once.
+ * <p>
+ * A limit whose floor equals its ceiling never changes. This class is thread safe, responses are
+ * reported from the threads running the queries.
+ */
+@Slf4j
+public class AimdConcurrencyLimit implements DynamoDbRequestListener {
+    private static final double DECREASE_FACTOR = 0.5;
+    private static final double LATENCY_SMOOTHING = 0.1;
+
+    private final int floor;
+    private final int ceiling;
+    private final double latencyTolerance;
+    private final Ticker ticker;
+    private double limit;
+    private double smoothedLatencyNanos;
+    private long lastDecreaseNanos;
+    private long increases;
+    private long decreases;
+    private long throttles;
+
+    /**
+     * @param floor            minimum number of queries in flight
+     * @param ceiling          maximum number of queries in flight
+     * @param latencyTolerance how much slower than the smoothed latency a response can be before the
+     *                         limit is decreased, {@code 0} to only decrease on throttling
+     */
+    public AimdConcurrencyLimit(int floor, int ceiling, double latencyTolerance) {
+        this(floor, ceiling, latencyTolerance, Ticker.systemTicker());
+    }
+
+    AimdConcurrencyLimit(int floor, int ceiling, double latencyTolerance, Ticker ticker) {
+        if (floor < 1 || ceiling < floor) {
+            String msg = String.format("Expected 1 <= floor <= ceiling (floor=%d, ceiling=%d)", floor, ceiling);
+            throw new IllegalArgumentException(msg);
+        }
+        this.floor = floor;
+        this.ceiling = ceiling;
+        this.latencyTolerance = latencyTolerance;
+        this.ticker = ticker;
+        this.limit = floor;
+        this.lastDecreaseNanos = ticker.read();
+    }
+
+    /**
+     * A fixed limit, for when concurrency is not adaptive.
+     */
+    public static AimdConcurrencyLimit fixed(int limit) {
+        return new AimdConcurrencyLimit(limit, limit, 0);
+    }
+
+    public synchronized int getLimit() {
+        return (int) this.limit;
+    }
+
+    public int getCeiling() {
+        return this.ceiling;
+    }
+
+    public synchronized long getIncreases() {
+        return this.increases;
+    }
+
+    public synchronized long getDecreases() {
+        return this.decreases;
+    }
+
+    public synchronized long getThrottles() {
+        return this.throttles;
+    }
+
+    @Override
+    public synchronized void onAttempt(String operation, long startNanos, long latencyNanos, boolean throttled) {
+        if (throttled) {
+            this.throttles++;
+        }
+        boolean slow = this.latencyTolerance > 0 && this.smoothedLatencyNanos > 0
+                       && latencyNanos > this.latencyTolerance * this.smoothedLatencyNanos;
+        if (!throttled) {
+            this.smoothedLatencyNanos = this.smoothedLatencyNanos == 0
+                                        ? latencyNanos
+                                        : this.smoothedLatencyNanos
+                                          + LATENCY_SMOOTHING * (latencyNanos - this.smoothedLatencyNanos);
+        }
+        if (this.floor == this.ceiling) {
+            return;
+        }
+        int previous = (int) this.limit;
+        if (throttled || slow) {
+            if (startNanos - this.lastDecreaseNanos < 0) {
+                // Sent with the previous limit, which was already decreased
+                return;
+            }
+            this.limit = Math.max(this.floor, this.limit * DECREASE_FACTOR);
+            this.lastDecreaseNanos = this.ticker.read();
+            this.decreases++;
+            log.info("Decreased query concurrency (operation={}, throttled={}, latencyMs={}, limit={}->{})",
+                     operation, throttled, latencyNanos / 1_000_000, previous, (int) this.limit);
+        } else {
+            this.limit = Math.min(this.ceiling, this.limit + 1 / this.limit);
+            if ((int) this.limit > previous) {
+                this.increases++;
+                log.info("Increased query concurrency (limit={}->{})", previous, (int) this.limit);
+            }
+        }
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("limit=%d, floor=%d, ceiling=%d, increases=%d, decreases=%d, throttles=%d",
+                             (int) this.limit, this.floor, this.ceiling, this.increases, this.decreases,
+                             this.throttles);
+    }
+}
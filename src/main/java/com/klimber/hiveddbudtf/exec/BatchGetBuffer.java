@@ -0,0 +1,170 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Ticker;
+import com.klimber.hiveddbudtf.client.ddb.ItemKeys;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import lombok.Getter;
+
+/**
+ * Collects single item lookups across input rows, so they can be fetched with BatchGetItem.
+ * <p>
+ * Lookups are grouped by query parameters, so every lookup of a batch is fetched with its own table and
+ * projection. A batch becomes ready when it reaches the batch size, when it is
+ * older than the time window, or when the lookups buffered across all batches reach the row window.
+ * Nothing is flushed by a timer, so callers should poll for expired batches while processing rows
+ * and {@link #flush()} when closing.
+ */
+public class BatchGetBuffer {
+    private final int batchSize;
+    private final int windowRows;
+    private final long windowNanos;
+    private final Ticker ticker;
+    private final Map<HiveDdbQueryParameters, Batch> pending = new LinkedHashMap<>();
+    private int bufferedRows;
+
+    /**
+     * @param batchSize    maximum number of distinct keys per batch
+     * @param windowRows   maximum number of lookups buffered across all batches
+     * @param windowMillis maximum time a lookup stays buffered, as long as rows keep being processed
+     */
+    public BatchGetBuffer(int batchSize, int windowRows, long windowMillis) {
+        this(batchSize, windowRows, windowMillis, Ticker.systemTicker());
+    }
+
+    BatchGetBuffer(int batchSize, int windowRows, long windowMillis, Ticker ticker) {
+        this.batchSize = batchSize;
+        this.windowRows = windowRows;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.ticker = ticker;
+    }
+
+    /**
+     * Buffers a single item lookup.
+     *
+     * @param params the query parameters of the input row
+     * @param key    the primary key to fetch
+     * @return the batches ready to be fetched, possibly empty
+     */
+    public List<Batch> add(HiveDdbQueryParameters params, Map<String, AttributeValue> key) {
+        Batch batch = this.pending.get(params);
+        if (Objects.isNull(batch)) {
+            batch = new Batch(params, this.ticker.read());
+            this.pending.put(params, batch);
+        }
+        batch.add(key);
+        this.bufferedRows++;
+
+        List<Batch> ready = new ArrayList<>();
+        if (batch.getKeys().size() >= this.batchSize) {
+            ready.add(this.remove(params));
+        }
+        if (this.bufferedRows >= this.windowRows) {
+            ready.addAll(this.flush());
+        }
+        return ready;
+    }
+
+    /**
+     * @return the batches that are older than the time window, possibly empty
+     */
+    public List<Batch> pollExpired() {
+        long now = this.ticker.read();
+        List<Batch> ready = new ArrayList<>();
+        Iterator<Batch> batches = this.pending.values().iterator();
+        while (batches.hasNext()) {
+            Batch batch = batches.next();
+            if (now - batch.getCreatedNanos() >= this.windowNanos) {
+                batches.remove();
+                this.bufferedRows -= batch.getRequests().size();
+                ready.add(batch);
+            }
+        }
+        return ready;
+    }
+
+    /**
+     * @return every buffered batch, possibly empty
+     */
+    public List<Batch> flush() {
+        List<Batch> ready = new ArrayList<>(this.pending.values());
+        this.pending.clear();
+        this.bufferedRows = 0;
+        return ready;
+    }
+
+    /**
+     * Keeps lookups in input order when they are added to the batch of their parameters only after the batches
+     * of other parameters were flushed.
+     *
+     * @param params the query parameters of the next lookup
+     * @return the buffered batches of other query parameters, possibly empty
+     */
+    public List<Batch> flushOthers(HiveDdbQueryParameters params) {
+        List<Batch> ready = new ArrayList<>();
+        Iterator<Batch> batches = this.pending.values().iterator();
+        while (batches.hasNext()) {
+            Batch batch = batches.next();
+            if (!batch.getParams().equals(params)) {
+                batches.remove();
+                this.bufferedRows -= batch.getRequests().size();
+                ready.add(batch);
+            }
+        }
+        return ready;
+    }
+
+    private Batch remove(HiveDdbQueryParameters params) {
+        Batch batch = this.pending.remove(params);
+        this.bufferedRows -= batch.getRequests().size();
+        return batch;
+    }
+
+    @Getter
+    public static class Batch {
+        private final HiveDdbQueryParameters params;
+        private final long createdNanos;
+        private final Set<Map<String, AttributeValue>> keys = new LinkedHashSet<>();
+        private final List<Map<String, AttributeValue>> requests = new ArrayList<>();
+
+        Batch(HiveDdbQueryParameters params, long createdNanos) {
+            this.params = params;
+            this.createdNanos = createdNanos;
+        }
+
+        private void add(Map<String, AttributeValue> key) {
+            // Matched against the keys of the fetched items, whose numbers are in canonical form
+            Map<String, AttributeValue> normalized = ItemKeys.normalize(key);
+            this.keys.add(normalized);
+            this.requests.add(normalized);
+        }
+
+        /**
+         * Routes fetched items back to the lookups that asked for them, in the order they were added.
+         * A key requested by several input rows produces one result for each of them.
+         *
+         * @param items the fetched items, keyed by their primary key normalized with {@link ItemKeys#normalize(Map)}
+         * @return the items for each lookup, skipping keys that were not found
+         */
+        public List<Map<String, AttributeValue>> route(Map<Map<String, AttributeValue>,
+                                                               Map<String, AttributeValue>> items) {
+            List<Map<String, AttributeValue>> results = new ArrayList<>(this.requests.size());
+            for (Map<String, AttributeValue> key : this.requests) {
+                Map<String, AttributeValue> item = items.get(key);
+                if (Objects.nonNull(item)) {
+                    results.add(item);
+                }
+            }
+            return results;
+        }
+    }
+}
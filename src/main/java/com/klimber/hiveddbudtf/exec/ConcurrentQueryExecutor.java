@@ -0,0 +1,167 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Function;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+
+/**
+ * Runs queries on a bounded thread pool while handing their results back to the calling thread.
+ * <p>
+ * Hive operators are not thread safe, so results are only ever given to the {@link ResultConsumer}
+ * from the thread calling {@link #submit(Function)} or {@link #drain()}. Results that completed but
+ * were not consumed yet count towards the in-flight limit, which bounds the memory held by this executor.
+ * <p>
+ * This class is not thread safe, it should only be used by the thread that owns the UDTF.
+ *
+ * @param <T> the query result type
+ */
+@Slf4j
+public class ConcurrentQueryExecutor<T> implements AutoCloseable {
+    private final AimdConcurrencyLimit limit;
+    private final boolean ordered;
+    private final ResultConsumer<T> consumer;
+    private final ExecutorService pool;
+    private final Deque<CompletableFuture<T>> pending = new ArrayDeque<>();
+    private final BlockingQueue<CompletableFuture<T>> completed = new LinkedBlockingQueue<>();
+    private int inFlight;
+
+    /**
+     * @param maxInFlight maximum number of queries running or waiting to be consumed
+     * @param ordered     whether results are consumed in submission order, or as soon as they complete
+     * @param consumer    receives the query results, always on the calling thread
+     */
+    public ConcurrentQueryExecutor(int maxInFlight, boolean ordered, ResultConsumer<T> consumer) {
+        this(checkMaxInFlight(maxInFlight), ordered, consumer);
+    }
+
+    /**
+     * @param limit    the limit of queries running or waiting to be consumed
+     * @param ordered  whether results are consumed in submission order, or as soon as they complete
+     * @param consumer receives the query results, always on the calling thread
+     */
+    public ConcurrentQueryExecutor(AimdConcurrencyLimit limit, boolean ordered, ResultConsumer<T> consumer) {
+        this.limit = limit;
+        this.ordered = ordered;
+        this.consumer = consumer;
+        this.pool = Executors.newFixedThreadPool(limit.getCeiling(), new ThreadFactoryBuilder()
+                .setNameFormat("ddb-query-%d")
+                .setDaemon(true)
+                .build());
+    }
+
+    /**
+     * Starts a query, blocking while the in-flight limit is reached. Results of queries that already
+     * completed are consumed before returning.
+     *
+     * @param query starts the query on the given {@link Executor}
+     * @throws HiveException if the consumer fails or a query failed with a checked exception
+     */
+    public void submit(Function<Executor, CompletableFuture<T>> query) throws HiveException {
+        while (this.inFlight >= this.limit.getLimit()) {
+            this.consume(this.awaitNext());
+        }
+        CompletableFuture<T> future = query.apply(this.pool);
+        this.inFlight++;
+        if (this.ordered) {
+            this.pending.add(future);
+        } else {
+            future.whenComplete((result, error) -> this.completed.add(future));
+        }
+        this.consumeCompleted();
+    }
+
+    /**
+     * Waits for every submitted query and consumes their results.
+     *
+     * @throws HiveException if the consumer fails or a query failed with a checked exception
+     */
+    public void drain() throws HiveException {
+        while (this.inFlight > 0) {
+            this.consume(this.awaitNext());
+        }
+    }
+
+    public int getInFlight() {
+        return this.inFlight;
+    }
+
+    public AimdConcurrencyLimit getLimit() {
+        return this.limit;
+    }
+
+    @Override
+    public void close() {
+        log.info("Query executor closed ({})", this.limit);
+        this.pool.shutdownNow();
+    }
+
+    private static AimdConcurrencyLimit checkMaxInFlight(int maxInFlight) {
+        if (maxInFlight < 1) {
+            String msg = String.format("Expected at least one query in flight (found=%d)", maxInFlight);
+            throw new IllegalArgumentException(msg);
+        }
+        return AimdConcurrencyLimit.fixed(maxInFlight);
+    }
+
+    private void consumeCompleted() throws HiveException {
+        if (this.ordered) {
+            while (!this.pending.isEmpty() && this.pending.peek().isDone()) {
+                this.consume(this.pending.poll());
+            }
+        } else {
+            CompletableFuture<T> future;
+            while ((future = this.completed.poll()) != null) {
+                this.consume(future);
+            }
+        }
+    }
+
+    private CompletableFuture<T> awaitNext() throws HiveException {
+        if (this.ordered) {
+            // Blocking happens on consume, the head of the queue is always the next one
+            return this.pending.poll();
+        }
+        try {
+            return this.completed.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HiveException("Interrupted while waiting for queries to complete", e);
+        }
+    }
+
+    private void consume(CompletableFuture<T> future) throws HiveException {
+        this.inFlight--;
+        T result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new HiveException("Interrupted while waiting for queries to complete", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new HiveException("Query failed", cause);
+        }
+        this.consumer.accept(result);
+    }
+
+    @FunctionalInterface
+    public interface ResultConsumer<T> {
+        void accept(T result) throws HiveException;
+    }
+}
@@ -0,0 +1,131 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.google.common.base.Ticker;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.apache.hadoop.mapred.Reporter;
+
+/**
+ * Publishes the DynamoDB traffic of a task to its counters, shown by the MapReduce and Tez UIs, and reports
+ * progress so tasks forwarding the rows of long queries are not killed for being idle.
+ * <p>
+ * Only used from the Hive thread. Counters are published at most once per interval, as rows go through
+ * {@link #onInputRow()} and {@link #onOutputRow()}, and when the task closes.
+ */
+public class TaskCounterReporter {
+    public static final String GROUP = "HiveDdbQueryUDTF";
+
+    private final Supplier<Reporter> reporter;
+    private final DynamoDbMetrics metrics;
+    private final long intervalNanos;
+    private final Ticker ticker;
+    private final Map<Counter, Long> published = new EnumMap<>(Counter.class);
+    private long inputRows;
+    private long outputRows;
+    private long lastReportNanos;
+
+    /**
+     * @param reporter       supplies the task reporter, which may only be set once the task is running
+     * @param metrics        the DynamoDB traffic of the task
+     * @param intervalMillis minimum time between two reports
+     */
+    public TaskCounterReporter(Supplier<Reporter> reporter, DynamoDbMetrics metrics, long intervalMillis) {
+        this(reporter, metrics, intervalMillis, Ticker.systemTicker());
+    }
+
+    TaskCounterReporter(Supplier<Reporter> reporter, DynamoDbMetrics metrics, long intervalMillis, Ticker ticker) {
+        this.reporter = reporter;
+        this.metrics = metrics;
+        this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        this.ticker = ticker;
+        this.lastReportNanos = ticker.read();
+    }
+
+    public void onInputRow() {
+        this.inputRows++;
+        this.reportIfDue();
+    }
+
+    public void onOutputRow() {
+        this.outputRows++;
+        this.reportIfDue();
+    }
+
+    public long getInputRows() {
+        return this.inputRows;
+    }
+
+    public long getOutputRows() {
+        return this.outputRows;
+    }
+
+    private void reportIfDue() {
+        if (this.ticker.read() - this.lastReportNanos >= this.intervalNanos) {
+            this.report();
+        }
+    }
+
+    /**
+     * Adds what changed since the previous report to the task counters, and reports progress.
+     */
+    public void report() {
+        this.lastReportNanos = this.ticker.read();
+        Reporter taskReporter = this.reporter.get();
+        if (Objects.isNull(taskReporter)) {
+            return;
+        }
+        for (Counter counter : Counter.values()) {
+            long value = this.getValue(counter);
+            long delta = value - this.published.getOrDefault(counter, 0L);
+            if (delta > 0) {
+                taskReporter.incrCounter(GROUP, counter.name(), delta);
+                this.published.put(counter, value);
+            }
+        }
+        taskReporter.progress();
+    }
+
+    private long getValue(Counter counter) {
+        switch (counter) {
+            case INPUT_ROWS:
+                return this.inputRows;
+            case OUTPUT_ROWS:
+                return this.outputRows;
+            case QUERIES:
+                return this.metrics.getQueryCount();
+            case PAGES:
+                return this.metrics.getPageCount();
+            case ITEMS:
+                return this.metrics.getItemCount();
+            case WRITTEN_ITEMS:
+                return this.metrics.getWrittenItemCount();
+            case CONSUMED_RCU:
+                return Math.round(this.metrics.getReadCapacityUnits());
+            case CONSUMED_WCU:
+                return Math.round(this.metrics.getWriteCapacityUnits());
+            case THROTTLES:
+                return this.metrics.getThrottleCount();
+            case RETRIES:
+                return this.metrics.getRetryCount();
+            default:
+                throw new IllegalStateException("Unexpected counter (counter=" + counter + ")");
+        }
+    }
+
+    public enum Counter {
+        INPUT_ROWS,
+        OUTPUT_ROWS,
+        QUERIES,
+        PAGES,
+        ITEMS,
+        WRITTEN_ITEMS,
+        CONSUMED_RCU,
+        CONSUMED_WCU,
+        THROTTLES,
+        RETRIES
+    }
+}
@@ -0,0 +1,104 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheStats;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.Path;
+
+/**
+ * Compact JSON summary of the DynamoDB traffic of a task, written when it closes so runs and capacity
+ * settings can be compared after the fact: totals, throttles and retries, latency percentiles per operation,
+ * and per table the page latency, pages and items per query and bytes per page percentiles, with the cache
+ * and query coalescing hit rates when they are enabled.
+ * <p>
+ * Percentiles come from {@link com.klimber.hiveddbudtf.client.ddb.LogHistogram}, latencies are in microseconds.
+ */
+@Slf4j
+public class TaskPerformanceReport {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, Object> report = new LinkedHashMap<>();
+
+    /**
+     * @param taskId  the task attempt the report is about
+     * @param metrics the DynamoDB traffic of the task
+     */
+    public TaskPerformanceReport(String taskId, DynamoDbMetrics metrics) {
+        this.report.put("task", taskId);
+        this.report.putAll(metrics.toMap());
+    }
+
+    public TaskPerformanceReport withRows(long inputRows, long outputRows) {
+        this.report.put("inputRows", inputRows);
+        this.report.put("outputRows", outputRows);
+        return this;
+    }
+
+    public TaskPerformanceReport withCache(CacheStats stats) {
+        Map<String, Object> cache = new LinkedHashMap<>();
+        cache.put("hits", stats.hitCount());
+        cache.put("misses", stats.missCount());
+        cache.put("hitRate", stats.hitRate());
+        cache.put("evictions", stats.evictionCount());
+        this.report.put("cache", cache);
+        return this;
+    }
+
+    public TaskPerformanceReport withCoalescing(long queryCount, long coalescedCount) {
+        Map<String, Object> coalescing = new LinkedHashMap<>();
+        coalescing.put("queries", queryCount);
+        coalescing.put("coalesced", coalescedCount);
+        coalescing.put("hitRate", queryCount == 0 ? 0 : (double) coalescedCount / queryCount);
+        this.report.put("coalescing", coalescing);
+        return this;
+    }
+
+    public Map<String, Object> toMap() {
+        return this.report;
+    }
+
+    public String toJson() {
+        try {
+            return MAPPER.writeValueAsString(this.report);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize the task report (task=" + this.report.get("task")
+                                            + ")", e);
+        }
+    }
+
+    /**
+     * Writes the report to the task log, or to a file named after the task in the given directory.
+     * Failing to write the report is logged and doesn't fail the task.
+     *
+     * @param reportPath directory of the reports, {@code null} to write to the task log
+     * @param conf       the configuration used to resolve the file system of the directory
+     */
+    public void write(String reportPath, Configuration conf) {
+        String json = this.toJson();
+        if (Objects.isNull(reportPath)) {
+            log.info("Task report {}", json);
+            return;
+        }
+        Path file = new Path(reportPath, this.report.get("task") + ".json");
+        try {
+            FileSystem fs = file.getFileSystem(conf);
+            try (OutputStream out = fs.create(file, true)) {
+                out.write(json.getBytes(StandardCharsets.UTF_8));
+            }
+            log.info("Task report written (path={})", file);
+        } catch (IOException | UncheckedIOException e) {
+            log.warn("Failed to write task report, logging it instead (path={}) {}", file, json, e);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
+import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardConstantStructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
+
+import static com.klimber.hiveddbudtf.hive.HiveDdbQueryFiltersConverter.ATTRIBUTE;
+import static com.klimber.hiveddbudtf.hive.HiveDdbQueryFiltersConverter.ATTRIBUTE_TYPE;
+import static com.klimber.hiveddbudtf.hive.HiveDdbQueryFiltersConverter.VALUE;
+import static org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector.Category.STRUCT;
+
+/**
+ * Converts an item struct, containing one {@code (attribute, attributeType, value)} struct per attribute like
+ * the filters struct, to a DynamoDB item.
+ * <p>
+ * Attribute names and types must be constant, so the type of every attribute is resolved once. Attributes
+ * with a {@code null} value are left out of the item.
+ */
+public class HiveDdbItemConverter implements Converter {
+    private final StructObjectInspector itemOI;
+    private final StructObjectInspector[] attributeOI;
+    private final StructField[] valueField;
+    private final String[] attribute;
+    private final HiveDynamoDBType[] type;
+
+    /**
+     * @param itemOI the {@link StructObjectInspector} for the item struct
+     * @throws UDFArgumentException if the item struct has an unexpected format
+     */
+    public HiveDdbItemConverter(StructObjectInspector itemOI) throws UDFArgumentException {
+        this.itemOI = itemOI;
+        List<? extends StructField> attributes = this.itemOI.getAllStructFieldRefs();
+        this.attributeOI = new StructObjectInspector[attributes.size()];
+        this.valueField = new StructField[attributes.size()];
+        this.attribute = new String[attributes.size()];
+        this.type = new HiveDynamoDBType[attributes.size()];
+        for (int i = 0; i < attributes.size(); i++) {
+            ObjectInspector oi = attributes.get(i).getFieldObjectInspector();
+            if (!STRUCT.equals(oi.getCategory())) {
+                String msg = String.format("Expected item field to be struct (found=%s)", oi.getTypeName());
+                throw new UDFArgumentException(msg);
+            }
+            this.attributeOI[i] = (StructObjectInspector) oi;
+            this.attribute[i] = this.fetchConstant(this.attributeOI[i],
+                                                   this.attributeOI[i].getStructFieldRef(ATTRIBUTE));
+            String attributeType = this.fetchConstant(this.attributeOI[i],
+                                                      this.attributeOI[i].getStructFieldRef(ATTRIBUTE_TYPE));
+            try {
+                this.type[i] = HiveDynamoDBTypeFactory.getTypeObjectFromDynamoDBType(attributeType);
+            } catch (RuntimeException e) {
+                String msg = String.format("Unsupported item attribute type (attribute=%s, found=%s)",
+                                           this.attribute[i], attributeType);
+                throw new UDFArgumentException(msg);
+            }
+            this.valueField[i] = this.attributeOI[i].getStructFieldRef(VALUE);
+        }
+    }
+
+    @Override
+    public Map<String, AttributeValue> convert(Object input) {
+        List<Object> attributeList = this.itemOI.getStructFieldsDataAsList(input);
+        Map<String, AttributeValue> item = new HashMap<>();
+        for (int i = 0; i < attributeList.size(); i++) {
+            Object value = this.attributeOI[i].getStructFieldData(attributeList.get(i), this.valueField[i]);
+            if (Objects.isNull(value)) {
+                continue;
+            }
+            item.put(this.attribute[i],
+                     this.type[i].getDynamoDBData(value, this.valueField[i].getFieldObjectInspector(), false));
+        }
+        return item;
+    }
+
+    private String fetchConstant(StructObjectInspector structOI, StructField field) throws UDFArgumentException {
+        ObjectInspector fieldOI = field.getFieldObjectInspector();
+        if (!(fieldOI instanceof PrimitiveObjectInspector)) {
+            String msg = String.format("Expected item field to be primitive (name=%s, found=%s)",
+                                       field.getFieldName(), fieldOI.getTypeName());
+            throw new UDFArgumentException(msg);
+        }
+        Object constValue;
+        if (structOI instanceof StandardConstantStructObjectInspector) {
+            constValue = ((StandardConstantStructObjectInspector) structOI).getWritableConstantValue()
+                                                                           .get(field.getFieldID());
+        } else if (fieldOI instanceof ConstantObjectInspector) {
+            constValue = ((ConstantObjectInspector) fieldOI).getWritableConstantValue();
+        } else {
+            String msg = String.format("Expected item field to be constant (name=%s, found=%s)",
+                                       field.getFieldName(), fieldOI.getClass().getSimpleName());
+            throw new UDFArgumentException(msg);
+        }
+        String value = PrimitiveObjectInspectorUtils.getString(constValue, (PrimitiveObjectInspector) fieldOI);
+        if (Objects.isNull(value)) {
+            String msg = String.format("Expected item field to not be null (name=%s)", field.getFieldName());
+            throw new UDFArgumentException(msg);
+        }
+        return value;
+    }
+}
@@ -0,0 +1,374 @@
+package com.klimber.hiveddbudtf.hive;
+
+import java.util.Arrays;
+import java.util.Objects;
+import lombok.Builder;
+import lombok.Value;
+import org.apache.hadoop.conf.Configuration;
+
+/**
+ * Tuning settings read from the Hive configuration (e.g. {@code SET hiveddbudtf.query.concurrency=16;}).
+ * <p>
+ * It is created during query planning, where {@code SessionState} is available, and serialized
+ * with the UDTF to the EMR nodes. Keep every field serializable, never hold on to the
+ * {@link Configuration} itself.
+ */
+@Value
+@Builder(toBuilder = true)
+public class HiveDdbQueryConfig {
+    public static final String QUERY_CONCURRENCY = "hiveddbudtf.query.concurrency";
+    public static final String QUERY_CONCURRENCY_ADAPTIVE = "hiveddbudtf.query.concurrency.adaptive";
+    public static final String QUERY_CONCURRENCY_MIN = "hiveddbudtf.query.concurrency.min";
+    public static final String QUERY_LATENCY_TOLERANCE = "hiveddbudtf.query.latency.tolerance";
+    public static final String QUERY_ORDERED = "hiveddbudtf.query.ordered";
+    public static final String QUERY_COALESCE = "hiveddbudtf.query.coalesce";
+    public static final String QUERY_CONCURRENCY_MAX_ITEMS = "hiveddbudtf.query.concurrency.max.items";
+    public static final String QUERY_PREFETCH_PAGES = "hiveddbudtf.query.prefetch.pages";
+    public static final String QUERY_FAN_OUT_CONCURRENCY = "hiveddbudtf.query.fanout.concurrency";
+    public static final String BATCH_GET_ENABLED = "hiveddbudtf.batchget.enabled";
+    public static final String BATCH_GET_SIZE = "hiveddbudtf.batchget.size";
+    public static final String BATCH_GET_WINDOW_ROWS = "hiveddbudtf.batchget.window.rows";
+    public static final String BATCH_GET_WINDOW_MILLIS = "hiveddbudtf.batchget.window.ms";
+    public static final String CACHE_MAX_BYTES = "hiveddbudtf.cache.max.bytes";
+    public static final String CACHE_TTL_SECONDS = "hiveddbudtf.cache.ttl.seconds";
+    public static final String READ_THROUGHPUT_RCU = "hiveddbudtf.throughput.read.rcu";
+    public static final String READ_THROUGHPUT_PERCENT = "hiveddbudtf.throughput.read.percent";
+    public static final String READ_THROUGHPUT_ON_DEMAND_RCU = "hiveddbudtf.throughput.read.ondemand.rcu";
+    public static final String WRITE_THROUGHPUT_WCU = "hiveddbudtf.throughput.write.wcu";
+    public static final String THROUGHPUT_TASKS = "hiveddbudtf.throughput.tasks";
+    public static final String CLIENT_PREWARM_CONNECTIONS = "hiveddbudtf.client.prewarm.connections";
+    public static final String CLIENT_SDK = "hiveddbudtf.client.sdk";
+    public static final String OUTPUT_MODE = "hiveddbudtf.output.mode";
+    public static final String SCAN_SUB_SEGMENTS = "hiveddbudtf.scan.subsegments";
+    public static final String PUT_CONCURRENCY = "hiveddbudtf.put.concurrency";
+    public static final String COUNTERS_INTERVAL_MILLIS = "hiveddbudtf.counters.interval.ms";
+    public static final String REPORT_ENABLED = "hiveddbudtf.report.enabled";
+    public static final String REPORT_PATH = "hiveddbudtf.report.path";
+    public static final int MAX_BATCH_GET_SIZE = 100;
+    public static final int MAX_BATCH_WRITE_SIZE = 25;
+
+    /**
+     * Maximum number of queries in flight per UDTF instance, {@code 1} keeps the sequential behavior.
+     */
+    @Builder.Default
+    int queryConcurrency = 1;
+    /**
+     * Whether the number of queries in flight adapts to throttling and latency, between
+     * {@link #queryConcurrencyMin} and {@link #queryConcurrency}.
+     */
+    @Builder.Default
+    boolean queryConcurrencyAdaptive = false;
+    /**
+     * Minimum number of queries in flight when concurrency is adaptive, also the starting point.
+     */
+    @Builder.Default
+    int queryConcurrencyMin = 1;
+    /**
+     * When concurrency is adaptive, how much slower than usual a response can be before concurrency
+     * is decreased, {@code 0} to only decrease on throttling.
+     */
+    @Builder.Default
+    double queryLatencyTolerance = 2;
+    /**
+     * When running concurrently, whether results are forwarded in the same order as input rows. Buffered
+     * BatchGetItem lookups are then flushed before a query or a lookup of other parameters is submitted.
+     */
+    @Builder.Default
+    boolean queryOrdered = true;
+    /**
+     * When running concurrently, whether identical queries in flight at the same time share a single call.
+     */
+    @Builder.Default
+    boolean queryCoalesce = true;
+    /**
+     * When running concurrently, maximum number of items read ahead by each query. Queries returning more keep
+     * their stream open, and the items beyond this number are read from it when their results are forwarded.
+     */
+    @Builder.Default
+    int queryConcurrencyMaxItems = 1_000;
+    /**
+     * Number of query result pages fetched ahead of the page being forwarded, {@code 0} disables prefetching.
+     */
+    @Builder.Default
+    int queryPrefetchPages = 0;
+    /**
+     * Maximum number of parallel queries run for an input row using {@code IN} on the hash key, when queries
+     * are not already concurrent.
+     */
+    @Builder.Default
+    int queryFanOutConcurrency = 8;
+    /**
+     * Whether lookups binding the whole primary key by equality are grouped into BatchGetItem calls.
+     */
+    @Builder.Default
+    boolean batchGetEnabled = false;
+    /**
+     * Maximum number of distinct keys per BatchGetItem call.
+     */
+    @Builder.Default
+    int batchGetSize = MAX_BATCH_GET_SIZE;
+    /**
+     * Maximum number of lookups buffered before every batch is flushed.
+     */
+    @Builder.Default
+    int batchGetWindowRows = 1_000;
+    /**
+     * Maximum time a lookup is buffered before its batch is flushed.
+     */
+    @Builder.Default
+    long batchGetWindowMillis = 1_000;
+    /**
+     * Maximum estimated size of the query results cached per task, {@code 0} disables the cache.
+     */
+    @Builder.Default
+    long cacheMaxBytes = 0;
+    /**
+     * How long query results stay cached, {@code 0} keeps them until evicted by size.
+     */
+    @Builder.Default
+    long cacheTtlSeconds = 0;
+    /**
+     * Read capacity units per second shared by all tasks, {@code 0} to use {@link #readThroughputPercent}.
+     */
+    @Builder.Default
+    double readThroughputRcu = 0;
+    /**
+     * Fraction of the table read capacity shared by all tasks (e.g. {@code 0.5}), {@code 0} to not limit reads
+     * unless {@link #readThroughputRcu} is set.
+     */
+    @Builder.Default
+    double readThroughputPercent = 0;
+    /**
+     * Read capacity assumed for on-demand tables when applying {@link #readThroughputPercent}.
+     */
+    @Builder.Default
+    double readThroughputOnDemandRcu = 40_000;
+    /**
+     * Write capacity units per second consumed by all tasks together, {@code 0} for no limit.
+     */
+    @Builder.Default
+    double writeThroughputWcu = 0;
+    /**
+     * Number of tasks sharing the read and write budgets, {@code 0} for the map tasks of the job, or the
+     * parallelism of the vertex on Tez.
+     */
+    @Builder.Default
+    int throughputTasks = 0;
+    /**
+     * Number of connections opened when a task starts, before the first query, {@code 0} to open them on demand.
+     */
+    @Builder.Default
+    int clientPrewarmConnections = 0;
+    /**
+     * Which AWS SDK sends the requests, see {@link ClientSdk}.
+     */
+    @Builder.Default
+    ClientSdk clientSdk = ClientSdk.V1;
+    /**
+     * How output columns are represented, see {@link OutputMode}.
+     */
+    @Builder.Default
+    OutputMode outputMode = OutputMode.JAVA;
+    /**
+     * Number of parallel scan sub-segments each scanned segment is split into, scanned concurrently.
+     */
+    @Builder.Default
+    int scanSubSegments = 1;
+    /**
+     * Maximum number of BatchWriteItem calls in flight per UDTF instance.
+     */
+    @Builder.Default
+    int putConcurrency = 4;
+    /**
+     * How often the DynamoDB traffic is published to the task counters, also reporting progress,
+     * {@code 0} disables counters.
+     */
+    @Builder.Default
+    long countersIntervalMillis = 0;
+    /**
+     * Whether every task writes a JSON summary of its DynamoDB traffic, with latency and size percentiles,
+     * when it closes.
+     */
+    @Builder.Default
+    boolean reportEnabled = false;
+    /**
+     * Directory, e.g. on HDFS, where task reports are written as one file per task attempt,
+     * {@code null} writes them to the task log.
+     */
+    String reportPath;
+
+    public static HiveDdbQueryConfig fromConf(Configuration conf) {
+        HiveDdbQueryConfig defaults = HiveDdbQueryConfig.builder().build();
+        int queryConcurrency = getPositiveInt(conf, QUERY_CONCURRENCY, defaults.getQueryConcurrency());
+        int queryConcurrencyMin = getPositiveInt(conf, QUERY_CONCURRENCY_MIN, defaults.getQueryConcurrencyMin());
+        if (queryConcurrencyMin > queryConcurrency) {
+            String msg = String.format("Expected %s to not be above %s (found=%d, max=%d)", QUERY_CONCURRENCY_MIN,
+                                       QUERY_CONCURRENCY, queryConcurrencyMin, queryConcurrency);
+            throw new IllegalArgumentException(msg);
+        }
+        return HiveDdbQueryConfig.builder()
+                                 .queryConcurrency(queryConcurrency)
+                                 .queryConcurrencyAdaptive(conf.getBoolean(QUERY_CONCURRENCY_ADAPTIVE,
+                                                                           defaults.isQueryConcurrencyAdaptive()))
+                                 .queryConcurrencyMin(queryConcurrencyMin)
+                                 .queryLatencyTolerance(getNonNegativeDouble(conf, QUERY_LATENCY_TOLERANCE,
+                                                                             defaults.getQueryLatencyTolerance()))
+                                 .queryOrdered(conf.getBoolean(QUERY_ORDERED, defaults.isQueryOrdered()))
+                                 .queryCoalesce(conf.getBoolean(QUERY_COALESCE, defaults.isQueryCoalesce()))
+                                 .queryConcurrencyMaxItems(getPositiveInt(conf, QUERY_CONCURRENCY_MAX_ITEMS,
+                                                                          defaults.getQueryConcurrencyMaxItems()))
+                                 .queryPrefetchPages(getNonNegativeInt(conf, QUERY_PREFETCH_PAGES,
+                                                                       defaults.getQueryPrefetchPages()))
+                                 .queryFanOutConcurrency(getPositiveInt(conf, QUERY_FAN_OUT_CONCURRENCY,
+                                                                        defaults.getQueryFanOutConcurrency()))
+                                 .batchGetEnabled(conf.getBoolean(BATCH_GET_ENABLED, defaults.isBatchGetEnabled()))
+                                 .batchGetSize(getBatchGetSize(conf, defaults.getBatchGetSize()))
+                                 .batchGetWindowRows(getPositiveInt(conf, BATCH_GET_WINDOW_ROWS,
+                                                                    defaults.getBatchGetWindowRows()))
+                                 .batchGetWindowMillis(getNonNegativeLong(conf, BATCH_GET_WINDOW_MILLIS,
+                                                                          defaults.getBatchGetWindowMillis()))
+                                 .cacheMaxBytes(getNonNegativeLong(conf, CACHE_MAX_BYTES,
+                                                                   defaults.getCacheMaxBytes()))
+                                 .cacheTtlSeconds(getNonNegativeLong(conf, CACHE_TTL_SECONDS,
+                                                                     defaults.getCacheTtlSeconds()))
+                                 .readThroughputRcu(getNonNegativeDouble(conf, READ_THROUGHPUT_RCU,
+                                                                         defaults.getReadThroughputRcu()))
+                                 .readThroughputPercent(getNonNegativeDouble(conf, READ_THROUGHPUT_PERCENT,
+                                                                             defaults.getReadThroughputPercent()))
+                                 .readThroughputOnDemandRcu(
+                                         getNonNegativeDouble(conf, READ_THROUGHPUT_ON_DEMAND_RCU,
+                                                              defaults.getReadThroughputOnDemandRcu()))
+                                 .writeThroughputWcu(getNonNegativeDouble(conf, WRITE_THROUGHPUT_WCU,
+                                                                          defaults.getWriteThroughputWcu()))
+                                 .throughputTasks(getNonNegativeInt(conf, THROUGHPUT_TASKS,
+                                                                    defaults.getThroughputTasks()))
+                                 .clientPrewarmConnections(getNonNegativeInt(conf, CLIENT_PREWARM_CONNECTIONS,
+                                                                             defaults.getClientPrewarmConnections()))
+                                 .clientSdk(getEnum(conf, CLIENT_SDK, ClientSdk.class, defaults.getClientSdk()))
+                                 .outputMode(getEnum(conf, OUTPUT_MODE, OutputMode.class, defaults.getOutputMode()))
+                                 .scanSubSegments(getPositiveInt(conf, SCAN_SUB_SEGMENTS,
+                                                                 defaults.getScanSubSegments()))
+                                 .putConcurrency(getPositiveInt(conf, PUT_CONCURRENCY, defaults.getPutConcurrency()))
+                                 .countersIntervalMillis(getNonNegativeLong(conf, COUNTERS_INTERVAL_MILLIS,
+                                                                            defaults.getCountersIntervalMillis()))
+                                 .reportEnabled(conf.getBoolean(REPORT_ENABLED, defaults.isReportEnabled()))
+                                 .reportPath(conf.getTrimmed(REPORT_PATH, defaults.getReportPath()))
+                                 .build();
+    }
+
+    private static <E extends Enum<E>> E getEnum(Configuration conf, String name, Class<E> type, E defaultValue) {
+        String value = conf.get(name);
+        if (Objects.isNull(value)) {
+            return defaultValue;
+        }
+        try {
+            return Enum.valueOf(type, value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            String msg = String.format("Expected setting to be one of %s (name=%s, found=%s)",
+                                       Arrays.toString(type.getEnumConstants()), name, value);
+            throw new IllegalArgumentException(msg, e);
+        }
+    }
+
+    private static int getBatchGetSize(Configuration conf, int defaultValue) {
+        int value = getPositiveInt(conf, BATCH_GET_SIZE, defaultValue);
+        if (value > MAX_BATCH_GET_SIZE) {
+            String msg = String.format("BatchGetItem accepts at most %d keys (name=%s, found=%d)",
+                                       MAX_BATCH_GET_SIZE, BATCH_GET_SIZE, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    private static double getNonNegativeDouble(Configuration conf, String name, double defaultValue) {
+        double value = conf.getDouble(name, defaultValue);
+        if (value < 0) {
+            String msg = String.format("Expected setting to not be negative (name=%s, found=%s)", name, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    private static int getNonNegativeInt(Configuration conf, String name, int defaultValue) {
+        int value = conf.getInt(name, defaultValue);
+        if (value < 0) {
+            String msg = String.format("Expected setting to not be negative (name=%s, found=%d)", name, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    private static long getNonNegativeLong(Configuration conf, String name, long defaultValue) {
+        long value = conf.getLong(name, defaultValue);
+        if (value < 0) {
+            String msg = String.format("Expected setting to not be negative (name=%s, found=%d)", name, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    private static int getPositiveInt(Configuration conf, String name, int defaultValue) {
+        int value = conf.getInt(name, defaultValue);
+        if (value < 1) {
+            String msg = String.format("Expected setting to be a positive number (name=%s, found=%d)", name, value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    public boolean isConcurrent() {
+        return this.queryConcurrency > 1;
+    }
+
+    public boolean isWriteThrottled() {
+        return this.writeThroughputWcu > 0;
+    }
+
+    public boolean isReadThrottled() {
+        return this.readThroughputRcu > 0 || this.readThroughputPercent > 0;
+    }
+
+    public boolean isCacheEnabled() {
+        return this.cacheMaxBytes > 0;
+    }
+
+    public boolean isCountersEnabled() {
+        return this.countersIntervalMillis > 0;
+    }
+
+    /**
+     * @return whether the DynamoDB traffic of the tasks is measured, for their counters or their report
+     */
+    public boolean isMetricsEnabled() {
+        return this.isCountersEnabled() || this.reportEnabled;
+    }
+
+    public enum OutputMode {
+        /**
+         * Columns are standard Java objects (e.g. {@code Long}, {@code String}), allocated for every row.
+         */
+        JAVA,
+        /**
+         * Primitive columns are Hadoop writables (e.g. {@code LongWritable}, {@code Text}) reused across rows,
+         * other columns are standard Java objects.
+         */
+        WRITABLE,
+        /**
+         * Rows wrap the DynamoDB items, columns are decoded to standard Java objects the first time Hive reads them.
+         */
+        LAZY
+    }
+
+    public enum ClientSdk {
+        /**
+         * Requests are sent by the AWS SDK for Java 1.x, blocking a thread per request in flight.
+         * Available on every EMR release.
+         */
+        V1,
+        /**
+         * Requests are sent by the non-blocking AWS SDK for Java 2.x with a Netty HTTP client, so concurrent
+         * queries don't hold a thread while they wait for DynamoDB. The SDK jars must be added to the session.
+         */
+        V2
+    }
+}
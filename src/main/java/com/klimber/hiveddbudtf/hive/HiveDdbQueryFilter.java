@@ -5,11 +5,15 @@ import lombok.Value;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class HiveDdbQueryFilter {
     String attribute;
     String attributeType;
     String operator;
     Object value;
     ObjectInspector valueOi;
+    /**
+     * Filters sharing the same group are combined with OR, {@code null} when the filter is AND-ed with the others.
+     */
+    String orGroup;
 }
@@ -1,13 +1,20 @@
 package com.klimber.hiveddbudtf.hive;
 
 import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import java.util.List;
 import java.util.Objects;
+import java.util.Set;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ConstantObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorConverters.Converter;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils.ObjectInspectorCopyOption;
 import org.apache.hadoop.hive.serde2.objectinspector.PrimitiveObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StandardConstantStructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructField;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorUtils;
@@ -19,6 +26,12 @@ public class HiveDdbQueryFiltersConverter implements Converter {
     public static final String ATTRIBUTE_TYPE = "attributeType";
     public static final String OPERATOR = "operator";
     public static final String VALUE = "value";
+    public static final String OR_GROUP = "orGroup";
+    /**
+     * Operators checking the attribute alone, whose filters may have a null value.
+     */
+    private static final Set<String> VALUELESS_OPERATORS = ImmutableSet.of("ATTRIBUTE_EXISTS",
+                                                                           "ATTRIBUTE_NOT_EXISTS");
 
     private final StructObjectInspector filtersOI;
     private final StructObjectInspector[] filterOI;
@@ -26,15 +39,40 @@ public class HiveDdbQueryFiltersConverter implements Converter {
     private final StructField[] attributeTypeField;
     private final StructField[] operatorField;
     private final StructField[] valueField;
+    private final StructField[] orGroupField;
+    private final ObjectInspector[] valueOI;
+    private final String[] constantAttribute;
+    private final String[] constantAttributeType;
+    private final String[] constantOperator;
+    private final String[] constantOrGroup;
+    private final boolean detachValues;
 
     public HiveDdbQueryFiltersConverter(StructObjectInspector filtersOI) throws UDFArgumentException {
+        this(filtersOI, false);
+    }
+
+    /**
+     * @param filtersOI    the {@link StructObjectInspector} for the filters struct
+     * @param detachValues whether filter values should be copied, which is required when they are
+     *                     read after Hive moves to the next row (e.g. on another thread)
+     * @throws UDFArgumentException if the filters struct has an unexpected format
+     */
+    public HiveDdbQueryFiltersConverter(StructObjectInspector filtersOI,
+                                        boolean detachValues) throws UDFArgumentException {
         this.filtersOI = filtersOI;
+        this.detachValues = detachValues;
         List<? extends StructField> filters = this.filtersOI.getAllStructFieldRefs();
         this.filterOI = new StructObjectInspector[filters.size()];
         this.attributeField = new StructField[filters.size()];
         this.attributeTypeField = new StructField[filters.size()];
         this.operatorField = new StructField[filters.size()];
         this.valueField = new StructField[filters.size()];
+        this.orGroupField = new StructField[filters.size()];
+        this.valueOI = new ObjectInspector[filters.size()];
+        this.constantAttribute = new String[filters.size()];
+        this.constantAttributeType = new String[filters.size()];
+        this.constantOperator = new String[filters.size()];
+        this.constantOrGroup = new String[filters.size()];
         for (int i = 0; i < filters.size(); i++) {
             StructField filter = filters.get(i);
             ObjectInspector oi = filter.getFieldObjectInspector();
@@ -55,7 +93,22 @@ public class HiveDdbQueryFiltersConverter implements Converter {
             this.assertPrimitive(this.operatorField[i]);
 
             this.valueField[i] = this.filterOI[i].getStructFieldRef(VALUE);
-            this.assertPrimitive(this.valueField[i]);
+            this.assertValue(this.valueField[i]);
+            this.valueOI[i] = this.detachValues
+                              ? ObjectInspectorUtils.getStandardObjectInspector(
+                                      this.valueField[i].getFieldObjectInspector(), ObjectInspectorCopyOption.JAVA)
+                              : this.valueField[i].getFieldObjectInspector();
+
+            // Optional field, may be omitted from the filter struct
+            this.orGroupField[i] = this.findOptionalField(this.filterOI[i], OR_GROUP);
+
+            // Filters are usually literals, so their attribute, type and operator are read only once
+            this.constantAttribute[i] = this.fetchConstant(this.filterOI[i], this.attributeField[i]);
+            this.constantAttributeType[i] = this.fetchConstant(this.filterOI[i], this.attributeTypeField[i]);
+            this.constantOperator[i] = this.fetchConstant(this.filterOI[i], this.operatorField[i]);
+            if (Objects.nonNull(this.orGroupField[i])) {
+                this.constantOrGroup[i] = this.fetchConstant(this.filterOI[i], this.orGroupField[i]);
+            }
         }
     }
 
@@ -66,24 +119,35 @@ public class HiveDdbQueryFiltersConverter implements Converter {
         for (int i = 0; i < filterList.size(); i++) {
             Object filterData = filterList.get(i);
 
-            String attribute = this.fetchStringField(filterData, this.filterOI[i], this.attributeField[i]);
+            String attribute = this.fetchStringField(filterData, i, this.constantAttribute, this.attributeField);
             Objects.requireNonNull(attribute, "Expected field 'attribute' to not be null in filter");
-            String attributeType = this.fetchStringField(filterData, this.filterOI[i], this.attributeTypeField[i]);
+            String attributeType = this.fetchStringField(filterData, i, this.constantAttributeType,
+                                                         this.attributeTypeField);
             Objects.requireNonNull(attributeType, "Expected field 'attributeType' to not be null in filter "
                                              + "(attribute=" + attribute + ")");
-            String operator = this.fetchStringField(filterData, this.filterOI[i], this.operatorField[i]);
+            String operator = this.fetchStringField(filterData, i, this.constantOperator, this.operatorField);
             Objects.requireNonNull(operator, "Expected field 'operator' to not be null in filter "
                                           + "(attribute=" + attribute + ")");
             Object value = this.filterOI[i].getStructFieldData(filterData, this.valueField[i]);
-            Objects.requireNonNull(value, "Expected field 'value' to not be null in filter "
-                                          + "(attribute=" + attribute + ", operator=" + operator + ")");
+            if (!VALUELESS_OPERATORS.contains(operator.toUpperCase())) {
+                Objects.requireNonNull(value, "Expected field 'value' to not be null in filter "
+                                              + "(attribute=" + attribute + ", operator=" + operator + ")");
+            }
+            String orGroup = Objects.nonNull(this.orGroupField[i])
+                             ? this.fetchStringField(filterData, i, this.constantOrGroup, this.orGroupField)
+                             : null;
+            if (this.detachValues) {
+                value = ObjectInspectorUtils.copyToStandardObject(value, this.valueField[i].getFieldObjectInspector(),
+                                                                  ObjectInspectorCopyOption.JAVA);
+            }
             HiveDdbQueryFilter filter = HiveDdbQueryFilter
                     .builder()
                     .attribute(attribute)
                     .attributeType(attributeType)
                     .operator(operator)
                     .value(value)
-                    .valueOi(this.valueField[i].getFieldObjectInspector())
+                    .valueOi(this.valueOI[i])
+                    .orGroup(orGroup)
                     .build();
             queryMapBuilder.put(filter.getAttribute(), filter);
         }
@@ -99,6 +163,56 @@ public class HiveDdbQueryFiltersConverter implements Converter {
         }
     }
 
+    /**
+     * Values are primitive, or arrays of primitives for operators taking several values (e.g. {@code IN}).
+     */
+    private void assertValue(StructField field) throws UDFArgumentException {
+        ObjectInspector fieldOI = field.getFieldObjectInspector();
+        if (fieldOI instanceof ListObjectInspector) {
+            fieldOI = ((ListObjectInspector) fieldOI).getListElementObjectInspector();
+        }
+        if (!(fieldOI instanceof PrimitiveObjectInspector)) {
+            String msg = String.format("Expected query filter value to be primitive or an array of primitives "
+                                       + "(name=%s, found=%s)",
+                                       field.getFieldName(), field.getFieldObjectInspector().getTypeName());
+            throw new UDFArgumentException(msg);
+        }
+    }
+
+    private StructField findOptionalField(StructObjectInspector structOI, String name) throws UDFArgumentException {
+        for (StructField field : structOI.getAllStructFieldRefs()) {
+            if (field.getFieldName().equalsIgnoreCase(name)) {
+                this.assertPrimitive(field);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private String fetchStringField(Object input, int i, String[] constants, StructField[] fields) {
+        if (Objects.nonNull(constants[i])) {
+            return constants[i];
+        }
+        return this.fetchStringField(input, this.filterOI[i], fields[i]);
+    }
+
+    /**
+     * @return the value of the field when it is constant, {@code null} otherwise
+     */
+    private String fetchConstant(StructObjectInspector structOI, StructField field) {
+        if (structOI instanceof StandardConstantStructObjectInspector) {
+            List<?> constStruct = ((StandardConstantStructObjectInspector) structOI).getWritableConstantValue();
+            return PrimitiveObjectInspectorUtils.getString(constStruct.get(field.getFieldID()),
+                                                           (PrimitiveObjectInspector) field.getFieldObjectInspector());
+        }
+        if (field.getFieldObjectInspector() instanceof ConstantObjectInspector) {
+            ConstantObjectInspector fieldOI = (ConstantObjectInspector) field.getFieldObjectInspector();
+            return PrimitiveObjectInspectorUtils.getString(fieldOI.getWritableConstantValue(),
+                                                           (PrimitiveObjectInspector) fieldOI);
+        }
+        return null;
+    }
+
     private String fetchStringField(Object input, StructObjectInspector structOI, StructField field) {
         Object fieldData = structOI.getStructFieldData(input, field);
         PrimitiveObjectInspector tableNameOI = (PrimitiveObjectInspector) field.getFieldObjectInspector();
@@ -6,13 +6,25 @@ import lombok.Value;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
 
 @Value
-@Builder
+@Builder(toBuilder = true)
 public class HiveDdbQueryParameters {
     String tableName;
     String indexName;
     List<ColumnMapping> hiveDdbColumnMapping;
     List<TypeInfo> hiveTypes;
-    
+    /**
+     * Maximum number of items returned for each input row, {@code null} to return every item.
+     */
+    Integer limit;
+    /**
+     * Whether items are returned in ascending sort key order, {@code null} for DynamoDB's default (ascending).
+     */
+    Boolean scanIndexForward;
+    /**
+     * Maximum number of items evaluated by each query page, {@code null} to let DynamoDB fill 1 MB pages.
+     */
+    Integer pageSize;
+
     @Value
     @Builder
     public static class ColumnMapping {
@@ -5,6 +5,7 @@ import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import lombok.Getter;
 import org.apache.commons.lang.StringUtils;
 import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
@@ -24,6 +25,9 @@ public class HiveDdbQueryParametersConverter implements Converter {
     public static final String INDEX_NAME = "indexName";
     public static final String HIVE_DDB_COLUMN_MAPPING = "hiveDdbColumnMapping";
     public static final String HIVE_TYPE_MAPPING = "hiveTypeMapping";
+    public static final String LIMIT = "limit";
+    public static final String SCAN_INDEX_FORWARD = "scanIndexForward";
+    public static final String PAGE_SIZE = "pageSize";
     public static final String MAPPING_DIVIDER = ",";
     public static final String MAPPING_SEPARATOR = ":";
 
@@ -32,12 +36,26 @@ public class HiveDdbQueryParametersConverter implements Converter {
     private final StructField indexNameField;
     private final StructField hiveDdbColumnMappingField;
     private final StructField hiveTypeMappingField;
+    private final StructField limitField;
+    private final StructField scanIndexForwardField;
+    private final StructField pageSizeField;
     @Getter
     private final List<ColumnMapping> hiveDdbColumnMapping;
     @Getter
     private final List<TypeInfo> hiveTypes;
+    private final boolean constantFields;
+    private HiveDdbQueryParameters constantParams;
 
     public HiveDdbQueryParametersConverter(StructObjectInspector paramsOI) throws UDFArgumentException {
+        this(paramsOI, true);
+    }
+
+    /**
+     * @param paramsOI  the query parameters struct
+     * @param projected whether the struct must define the column mappings and types, they are not read otherwise
+     */
+    public HiveDdbQueryParametersConverter(StructObjectInspector paramsOI, boolean projected)
+            throws UDFArgumentException {
         this.paramsOI = paramsOI;
 
         this.tableNameField = this.paramsOI.getStructFieldRef(TABLE_NAME);
@@ -46,15 +64,34 @@ public class HiveDdbQueryParametersConverter implements Converter {
         this.indexNameField = this.paramsOI.getStructFieldRef(INDEX_NAME);
         this.assertPrimitive(this.indexNameField);
 
-        this.hiveDdbColumnMappingField = this.paramsOI.getStructFieldRef(HIVE_DDB_COLUMN_MAPPING);
-        this.assertPrimitive(this.hiveDdbColumnMappingField);
-        this.assertConstant(this.paramsOI, this.hiveDdbColumnMappingField);
-        this.hiveDdbColumnMapping = this.getMappings(this.fetchConstant(this.paramsOI, this.hiveDdbColumnMappingField));
+        if (projected) {
+            this.hiveDdbColumnMappingField = this.paramsOI.getStructFieldRef(HIVE_DDB_COLUMN_MAPPING);
+            this.assertPrimitive(this.hiveDdbColumnMappingField);
+            this.assertConstant(this.paramsOI, this.hiveDdbColumnMappingField);
+            this.hiveDdbColumnMapping = this.getMappings(this.fetchConstant(this.paramsOI,
+                                                                            this.hiveDdbColumnMappingField));
+
+            this.hiveTypeMappingField = this.paramsOI.getStructFieldRef(HIVE_TYPE_MAPPING);
+            this.assertPrimitive(this.hiveTypeMappingField);
+            this.assertConstant(this.paramsOI, this.hiveTypeMappingField);
+            this.hiveTypes = this.getTypeInfo(this.fetchConstant(this.paramsOI, this.hiveTypeMappingField));
+        } else {
+            this.hiveDdbColumnMappingField = null;
+            this.hiveTypeMappingField = null;
+            this.hiveDdbColumnMapping = ImmutableList.of();
+            this.hiveTypes = ImmutableList.of();
+        }
+
+        // Optional fields, may be omitted from the struct
+        this.limitField = this.findOptionalField(LIMIT);
+        this.scanIndexForwardField = this.findOptionalField(SCAN_INDEX_FORWARD);
+        this.pageSizeField = this.findOptionalField(PAGE_SIZE);
 
-        this.hiveTypeMappingField = this.paramsOI.getStructFieldRef(HIVE_TYPE_MAPPING);
-        this.assertPrimitive(this.hiveTypeMappingField);
-        this.assertConstant(this.paramsOI, this.hiveTypeMappingField);
-        this.hiveTypes = this.getTypeInfo(this.fetchConstant(this.paramsOI, this.hiveTypeMappingField));
+        this.constantFields = this.isConstant(this.paramsOI, this.tableNameField)
+                              && this.isConstant(this.paramsOI, this.indexNameField)
+                              && this.isOptionalConstant(this.limitField)
+                              && this.isOptionalConstant(this.scanIndexForwardField)
+                              && this.isOptionalConstant(this.pageSizeField);
         if (this.hiveDdbColumnMapping.size() != this.hiveTypes.size()) {
             throw new IllegalArgumentException("Hive column type mappings and hive Ddb column mappings "
                                                + "should contain the same number of columns");
@@ -63,15 +100,39 @@ public class HiveDdbQueryParametersConverter implements Converter {
 
     @Override
     public HiveDdbQueryParameters convert(Object input) {
+        // Every row gets the same parameters when all the fields read per row are literals
+        if (Objects.nonNull(this.constantParams)) {
+            return this.constantParams;
+        }
         String tableName = this.fetchStringField(input, this.tableNameField);
         Objects.requireNonNull(tableName, "Expected field '" + this.tableNameField.getFieldName() + "' to not be null");
         String indexName = this.fetchStringField(input, this.indexNameField);
-        return HiveDdbQueryParameters.builder()
-                                     .tableName(tableName)
-                                     .indexName(indexName)
-                                     .hiveDdbColumnMapping(this.hiveDdbColumnMapping)
-                                     .hiveTypes(this.hiveTypes)
-                                     .build();
+        Integer limit = this.fetchPositiveIntField(input, this.limitField);
+        Boolean scanIndexForward = this.fetchBooleanField(input, this.scanIndexForwardField);
+        Integer pageSize = this.fetchPositiveIntField(input, this.pageSizeField);
+        HiveDdbQueryParameters params = HiveDdbQueryParameters.builder()
+                                                              .tableName(tableName)
+                                                              .indexName(indexName)
+                                                              .hiveDdbColumnMapping(this.hiveDdbColumnMapping)
+                                                              .hiveTypes(this.hiveTypes)
+                                                              .limit(limit)
+                                                              .scanIndexForward(scanIndexForward)
+                                                              .pageSize(pageSize)
+                                                              .build();
+        if (this.constantFields) {
+            this.constantParams = params;
+        }
+        return params;
+    }
+
+    /**
+     * @return the table name, if it is the same for every row
+     */
+    public Optional<String> getConstantTableName() {
+        if (!this.isConstant(this.paramsOI, this.tableNameField)) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(this.fetchConstant(this.paramsOI, this.tableNameField));
     }
 
     private void assertPrimitive(StructField field) throws UDFArgumentException {
@@ -83,14 +144,30 @@ public class HiveDdbQueryParametersConverter implements Converter {
         }
     }
 
+    private StructField findOptionalField(String name) throws UDFArgumentException {
+        for (StructField field : this.paramsOI.getAllStructFieldRefs()) {
+            if (field.getFieldName().equalsIgnoreCase(name)) {
+                this.assertPrimitive(field);
+                return field;
+            }
+        }
+        return null;
+    }
+
+    private boolean isOptionalConstant(StructField field) {
+        return Objects.isNull(field) || this.isConstant(this.paramsOI, field);
+    }
+
+    private boolean isConstant(StructObjectInspector structOI, StructField field) {
+        return structOI instanceof ConstantObjectInspector
+               || field.getFieldObjectInspector() instanceof ConstantObjectInspector;
+    }
+
     private void assertConstant(StructObjectInspector structOI, StructField field) throws UDFArgumentException {
-        if (structOI instanceof ConstantObjectInspector) {
+        if (this.isConstant(structOI, field)) {
             return;
         }
         ObjectInspector fieldOI = field.getFieldObjectInspector();
-        if (fieldOI instanceof ConstantObjectInspector) {
-            return;
-        }
         String msg = String.format("Expected query parameter field to be constant (name=%s, found=%s)",
                                    field.getFieldName(), fieldOI.getClass().getSimpleName());
         throw new UDFArgumentException(msg);
@@ -143,4 +220,34 @@ public class HiveDdbQueryParametersConverter implements Converter {
         PrimitiveObjectInspector tableNameOI = (PrimitiveObjectInspector) field.getFieldObjectInspector();
         return PrimitiveObjectInspectorUtils.getString(fieldData, tableNameOI);
     }
+
+    private Integer fetchPositiveIntField(Object input, StructField field) {
+        if (Objects.isNull(field)) {
+            return null;
+        }
+        Object fieldData = this.paramsOI.getStructFieldData(input, field);
+        if (Objects.isNull(fieldData)) {
+            return null;
+        }
+        int value = PrimitiveObjectInspectorUtils.getInt(fieldData,
+                                                         (PrimitiveObjectInspector) field.getFieldObjectInspector());
+        if (value < 1) {
+            String msg = String.format("Expected query parameter field to be a positive number (name=%s, found=%d)",
+                                       field.getFieldName(), value);
+            throw new IllegalArgumentException(msg);
+        }
+        return value;
+    }
+
+    private Boolean fetchBooleanField(Object input, StructField field) {
+        if (Objects.isNull(field)) {
+            return null;
+        }
+        Object fieldData = this.paramsOI.getStructFieldData(input, field);
+        if (Objects.isNull(fieldData)) {
+            return null;
+        }
+        return PrimitiveObjectInspectorUtils.getBoolean(fieldData,
+                                                        (PrimitiveObjectInspector) field.getFieldObjectInspector());
+    }
 }
@@ -0,0 +1,391 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig.OutputMode;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.hadoop.dynamodb.type.DynamoDBTypeConstants;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBType;
+import org.apache.hadoop.hive.dynamodb.type.HiveDynamoDBTypeFactory;
+import org.apache.hadoop.hive.serde2.io.ByteWritable;
+import org.apache.hadoop.hive.serde2.io.DoubleWritable;
+import org.apache.hadoop.hive.serde2.io.ShortWritable;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.ListTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.PrimitiveTypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BooleanWritable;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.FloatWritable;
+import org.apache.hadoop.io.IntWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+
+/**
+ * Decodes DynamoDB items into Hive rows, with one decoder per column built once from the column mappings.
+ * <p>
+ * Each column resolves its object inspector up front, and the {@link HiveDynamoDBType} and type
+ * compatibility check for each DynamoDB type the first time it is seen. Values are first checked against
+ * the DynamoDB type expected for the Hive type (e.g. {@code N} for {@code bigint}), before falling back
+ * to checking every type.
+ * <p>
+ * With {@link OutputMode#WRITABLE}, primitive columns are returned as writables reused across rows and
+ * binary attributes are wrapped without copying when possible. With {@link OutputMode#LAZY}, rows wrap
+ * the items and columns are only decoded when Hive reads them, see {@link LazyRowObjectInspector}.
+ * <p>
+ * Not thread safe, and the returned row, including its writables, is reused by every call, so it should be
+ * forwarded before decoding the next item.
+ */
+public class HiveRowDecoder {
+    private final List<String> hiveColumns;
+    private final ColumnDecoder[] columns;
+    private final OutputMode outputMode;
+    private final Object[] row;
+
+    public HiveRowDecoder(List<ColumnMapping> columnMapping, List<TypeInfo> hiveTypes) {
+        this(columnMapping, hiveTypes, OutputMode.JAVA);
+    }
+
+    public HiveRowDecoder(List<ColumnMapping> columnMapping, List<TypeInfo> hiveTypes, OutputMode outputMode) {
+        if (columnMapping.size() != hiveTypes.size()) {
+            String msg = String.format("Expected a Hive type for each column (columns=%d, types=%d)",
+                                       columnMapping.size(), hiveTypes.size());
+            throw new IllegalArgumentException(msg);
+        }
+        this.hiveColumns = new ArrayList<>(columnMapping.size());
+        this.columns = new ColumnDecoder[columnMapping.size()];
+        for (int i = 0; i < this.columns.length; i++) {
+            this.hiveColumns.add(columnMapping.get(i).getHiveColumn());
+            this.columns[i] = new ColumnDecoder(columnMapping.get(i).getDdbAttName(), hiveTypes.get(i),
+                                                OutputMode.WRITABLE.equals(outputMode));
+        }
+        this.outputMode = outputMode;
+        this.row = new Object[this.columns.length];
+    }
+
+    /**
+     * @return the object inspector of the rows returned by {@link #toRow(Map)}
+     */
+    public StructObjectInspector getRowObjectInspector() {
+        if (OutputMode.LAZY.equals(this.outputMode)) {
+            return new LazyRowObjectInspector(this.hiveColumns, this.columns);
+        }
+        return ObjectInspectorFactory.getStandardStructObjectInspector(this.hiveColumns, this.getObjectInspectors());
+    }
+
+    /**
+     * @param item a DynamoDB item
+     * @return the row to forward, read with {@link #getRowObjectInspector()}
+     */
+    public Object toRow(Map<String, AttributeValue> item) {
+        if (OutputMode.LAZY.equals(this.outputMode)) {
+            return new LazyRowObjectInspector.LazyRow(item, this.columns);
+        }
+        return this.decode(item);
+    }
+
+    /**
+     * @return the object inspectors of the decoded columns
+     */
+    public List<ObjectInspector> getObjectInspectors() {
+        List<ObjectInspector> ois = new ArrayList<>(this.columns.length);
+        for (ColumnDecoder column : this.columns) {
+            ois.add(column.getOutputOI());
+        }
+        return ois;
+    }
+
+    /**
+     * @param item a DynamoDB item
+     * @return the Hive row, reused by the next call
+     * @throws IllegalArgumentException if an attribute type is not supported by its column's Hive type
+     */
+    public Object[] decode(Map<String, AttributeValue> item) {
+        for (int i = 0; i < this.columns.length; i++) {
+            this.row[i] = this.columns[i].decode(item.get(this.columns[i].getDdbAttName()));
+        }
+        return this.row;
+    }
+
+    static class ColumnDecoder {
+        @Getter
+        private final String ddbAttName;
+        private final TypeInfo hiveType;
+        @Getter
+        private final ObjectInspector oi;
+        private final DdbType expected;
+        private final HiveDynamoDBType[] supportedTypes = new HiveDynamoDBType[DdbType.values().length];
+        /**
+         * Converts the Java value to the column's reused writable, {@code null} to output Java values.
+         */
+        private final Function<Object, Object> writableSetter;
+        @Getter
+        private final ObjectInspector outputOI;
+
+        ColumnDecoder(String ddbAttName, TypeInfo hiveType, boolean writable) {
+            this.ddbAttName = ddbAttName;
+            this.hiveType = hiveType;
+            this.oi = TypeInfoUtils.getStandardJavaObjectInspectorFromTypeInfo(hiveType);
+            this.expected = DdbType.expectedFor(hiveType);
+            this.writableSetter = writable ? getWritableSetter(hiveType) : null;
+            this.outputOI = Objects.nonNull(this.writableSetter)
+                            ? PrimitiveObjectInspectorFactory.getPrimitiveWritableObjectInspector(
+                                    (PrimitiveTypeInfo) hiveType)
+                            : this.oi;
+        }
+
+        Object decode(AttributeValue value) {
+            DdbType ddbType = this.expected.isTypeOf(value) ? this.expected : DdbType.of(value);
+            HiveDynamoDBType type = this.getSupportedType(ddbType);
+            if (Objects.isNull(this.writableSetter)) {
+                return type.getHiveData(value, this.oi);
+            }
+            // Skip the intermediate Java value for the common cases
+            if (DdbType.STRING.equals(ddbType) && DdbType.STRING.equals(this.expected)) {
+                return this.writableSetter.apply(value.getS());
+            }
+            if (DdbType.BINARY.equals(ddbType) && DdbType.BINARY.equals(this.expected)) {
+                return wrap(value.getB());
+            }
+            Object javaValue = type.getHiveData(value, this.oi);
+            return Objects.isNull(javaValue) ? null : this.writableSetter.apply(javaValue);
+        }
+
+        private HiveDynamoDBType getSupportedType(DdbType ddbType) {
+            HiveDynamoDBType type = this.supportedTypes[ddbType.ordinal()];
+            if (Objects.nonNull(type)) {
+                return type;
+            }
+            type = HiveDynamoDBTypeFactory.getTypeObjectFromDynamoDBType(ddbType.getDynamoDbType());
+            if (!DdbType.NULL.equals(ddbType) && !type.supportsHiveType(this.hiveType)) {
+                String msg = String.format("Hive type '%s' does not support DynamoDB type '%s' "
+                                           + "(ddbAttributeName=%s)", this.hiveType, type.getDynamoDBType(),
+                                           this.ddbAttName);
+                throw new IllegalArgumentException(msg);
+            }
+            this.supportedTypes[ddbType.ordinal()] = type;
+            return type;
+        }
+    }
+
+    /**
+     * @return a setter updating a writable reused across rows, {@code null} if the type has no such writable
+     */
+    private static Function<Object, Object> getWritableSetter(TypeInfo hiveType) {
+        if (!ObjectInspector.Category.PRIMITIVE.equals(hiveType.getCategory())) {
+            return null;
+        }
+        switch (((PrimitiveTypeInfo) hiveType).getPrimitiveCategory()) {
+            case STRING:
+                Text text = new Text();
+                return value -> {
+                    text.set(value.toString());
+                    return text;
+                };
+            case BOOLEAN:
+                BooleanWritable booleanWritable = new BooleanWritable();
+                return value -> {
+                    booleanWritable.set((Boolean) value);
+                    return booleanWritable;
+                };
+            case BYTE:
+                ByteWritable byteWritable = new ByteWritable();
+                return value -> {
+                    byteWritable.set(((Number) value).byteValue());
+                    return byteWritable;
+                };
+            case SHORT:
+                ShortWritable shortWritable = new ShortWritable();
+                return value -> {
+                    shortWritable.set(((Number) value).shortValue());
+                    return shortWritable;
+                };
+            case INT:
+                IntWritable intWritable = new IntWritable();
+                return value -> {
+                    intWritable.set(((Number) value).intValue());
+                    return intWritable;
+                };
+            case LONG:
+                LongWritable longWritable = new LongWritable();
+                return value -> {
+                    longWritable.set(((Number) value).longValue());
+                    return longWritable;
+                };
+            case FLOAT:
+                FloatWritable floatWritable = new FloatWritable();
+                return value -> {
+                    floatWritable.set(((Number) value).floatValue());
+                    return floatWritable;
+                };
+            case DOUBLE:
+                DoubleWritable doubleWritable = new DoubleWritable();
+                return value -> {
+                    doubleWritable.set(((Number) value).doubleValue());
+                    return doubleWritable;
+                };
+            case BINARY:
+                return value -> new BytesWritable((byte[]) value);
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Wraps the buffer's backing array when it holds exactly the binary value, copies it otherwise.
+     */
+    private static BytesWritable wrap(ByteBuffer buffer) {
+        if (buffer.hasArray() && buffer.arrayOffset() == 0 && buffer.position() == 0
+            && buffer.remaining() == buffer.array().length) {
+            return new BytesWritable(buffer.array());
+        }
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return new BytesWritable(bytes);
+    }
+
+    /**
+     * The DynamoDB attribute types, checked in the same order as
+     * {@link com.klimber.hiveddbudtf.client.ddb.DynamoDbTypeFinder}.
+     */
+    @RequiredArgsConstructor
+    private enum DdbType {
+        STRING(DynamoDBTypeConstants.STRING) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getS());
+            }
+        },
+        NUMBER(DynamoDBTypeConstants.NUMBER) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getN());
+            }
+        },
+        BINARY(DynamoDBTypeConstants.BINARY) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getB());
+            }
+        },
+        STRING_SET(DynamoDBTypeConstants.STRING_SET) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getSS());
+            }
+        },
+        NUMBER_SET(DynamoDBTypeConstants.NUMBER_SET) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getNS());
+            }
+        },
+        BINARY_SET(DynamoDBTypeConstants.BINARY_SET) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getBS());
+            }
+        },
+        MAP(DynamoDBTypeConstants.MAP) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getM());
+            }
+        },
+        LIST(DynamoDBTypeConstants.LIST) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getL());
+            }
+        },
+        NULL(DynamoDBTypeConstants.NULL) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.isNull(value) || Objects.nonNull(value.getNULL());
+            }
+        },
+        BOOLEAN(DynamoDBTypeConstants.BOOLEAN) {
+            @Override
+            boolean isTypeOf(AttributeValue value) {
+                return Objects.nonNull(value) && Objects.nonNull(value.getBOOL());
+            }
+        };
+
+        private static final DdbType[] VALUES = values();
+
+        @Getter
+        private final String dynamoDbType;
+
+        abstract boolean isTypeOf(AttributeValue value);
+
+        static DdbType of(AttributeValue value) {
+            for (DdbType type : VALUES) {
+                if (type.isTypeOf(value)) {
+                    return type;
+                }
+            }
+            throw new IllegalArgumentException("Unknown DynamoDB attribute type (value=" + value + ")");
+        }
+
+        /**
+         * @return the DynamoDB type usually stored in columns of the Hive type, {@link #NULL} if there is none
+         */
+        static DdbType expectedFor(TypeInfo hiveType) {
+            switch (hiveType.getCategory()) {
+                case PRIMITIVE:
+                    return expectedForPrimitive((PrimitiveTypeInfo) hiveType);
+                case LIST:
+                    TypeInfo elementType = ((ListTypeInfo) hiveType).getListElementTypeInfo();
+                    switch (expectedFor(elementType)) {
+                        case STRING:
+                            return STRING_SET;
+                        case NUMBER:
+                            return NUMBER_SET;
+                        case BINARY:
+                            return BINARY_SET;
+                        default:
+                            return LIST;
+                    }
+                case MAP:
+                case STRUCT:
+                    return MAP;
+                default:
+                    return NULL;
+            }
+        }
+
+        private static DdbType expectedForPrimitive(PrimitiveTypeInfo hiveType) {
+            switch (hiveType.getPrimitiveCategory()) {
+                case STRING:
+                case VARCHAR:
+                case CHAR:
+                    return STRING;
+                case BYTE:
+                case SHORT:
+                case INT:
+                case LONG:
+                case FLOAT:
+                case DOUBLE:
+                case DECIMAL:
+                    return NUMBER;
+                case BINARY:
+                    return BINARY;
+                case BOOLEAN:
+                    return BOOLEAN;
+                default:
+                    return NULL;
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.klimber.hiveddbudtf.hive.HiveRowDecoder.ColumnDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.apache.hadoop.hive.serde2.objectinspector.ListObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorUtils;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+
+/**
+ * Reads {@link LazyRow}s, decoding each column of the wrapped item the first time Hive reads it, decoded
+ * values are then cached in the row.
+ * <p>
+ * Primitive columns are decoded when their field is read. List, map and struct columns are returned as
+ * {@link LazyValue}s, read by object inspectors that only decode them when their contents are read, so
+ * operators reading every field without using them (e.g. a LATERAL VIEW join) don't decode them.
+ */
+class LazyRowObjectInspector extends StructObjectInspector {
+    private final List<LazyField> fields;
+
+    LazyRowObjectInspector(List<String> names, ColumnDecoder[] columns) {
+        List<LazyField> fields = new ArrayList<>(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            fields.add(new LazyField(i, names.get(i), lazyInspector(columns[i].getOi())));
+        }
+        this.fields = Collections.unmodifiableList(fields);
+    }
+
+    @Override
+    public List<? extends StructField> getAllStructFieldRefs() {
+        return this.fields;
+    }
+
+    @Override
+    public StructField getStructFieldRef(String fieldName) {
+        return ObjectInspectorUtils.getStandardStructFieldRef(fieldName, this.fields);
+    }
+
+    @Override
+    public Object getStructFieldData(Object data, StructField fieldRef) {
+        if (Objects.isNull(data)) {
+            return null;
+        }
+        return ((LazyRow) data).get(fieldRef.getFieldID());
+    }
+
+    @Override
+    public List<Object> getStructFieldsDataAsList(Object data) {
+        if (Objects.isNull(data)) {
+            return null;
+        }
+        return ((LazyRow) data).getAll();
+    }
+
+    @Override
+    public String getTypeName() {
+        return ObjectInspectorUtils.getStandardStructTypeName(this);
+    }
+
+    @Override
+    public Category getCategory() {
+        return Category.STRUCT;
+    }
+
+    private static ObjectInspector lazyInspector(ObjectInspector oi) {
+        switch (oi.getCategory()) {
+            case LIST:
+                return new LazyListObjectInspector((ListObjectInspector) oi);
+            case MAP:
+                return new LazyMapObjectInspector((MapObjectInspector) oi);
+            case STRUCT:
+                return new LazyStructObjectInspector((StructObjectInspector) oi);
+            default:
+                return oi;
+        }
+    }
+
+    private static boolean isLazy(ColumnDecoder column) {
+        switch (column.getOi().getCategory()) {
+            case LIST:
+            case MAP:
+            case STRUCT:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private static Object resolve(Object data) {
+        return data instanceof LazyValue ? ((LazyValue) data).get() : data;
+    }
+
+    /**
+     * A row wrapping a DynamoDB item, columns are decoded when first read.
+     */
+    static class LazyRow {
+        private final Map<String, AttributeValue> item;
+        private final ColumnDecoder[] columns;
+        private final Object[] values;
+        private final boolean[] decoded;
+
+        LazyRow(Map<String, AttributeValue> item, ColumnDecoder[] columns) {
+            this.item = item;
+            this.columns = columns;
+            this.values = new Object[columns.length];
+            this.decoded = new boolean[columns.length];
+        }
+
+        /**
+         * @throws IllegalArgumentException if the attribute type is not supported by the column's Hive type
+         */
+        Object get(int column) {
+            if (!this.decoded[column]) {
+                ColumnDecoder decoder = this.columns[column];
+                AttributeValue value = this.item.get(decoder.getDdbAttName());
+                if (!isLazy(decoder)) {
+                    this.values[column] = decoder.decode(value);
+                } else if (Objects.nonNull(value) && Objects.isNull(value.getNULL())) {
+                    this.values[column] = new LazyValue(decoder, value);
+                }
+                this.decoded[column] = true;
+            }
+            return this.values[column];
+        }
+
+        List<Object> getAll() {
+            for (int i = 0; i < this.values.length; i++) {
+                this.get(i);
+            }
+            return Arrays.asList(this.values);
+        }
+    }
+
+    /**
+     * A list, map or struct attribute, decoded to its standard Java value when its contents are first read.
+     */
+    static class LazyValue {
+        private final ColumnDecoder column;
+        private AttributeValue value;
+        private Object decoded;
+
+        LazyValue(ColumnDecoder column, AttributeValue value) {
+            this.column = column;
+            this.value = value;
+        }
+
+        Object get() {
+            if (Objects.nonNull(this.value)) {
+                this.decoded = this.column.decode(this.value);
+                this.value = null;
+            }
+            return this.decoded;
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    private static class LazyField implements StructField {
+        private final int fieldID;
+        private final String fieldName;
+        private final ObjectInspector fieldObjectInspector;
+
+        @Override
+        public String getFieldComment() {
+            return null;
+        }
+
+        @Override
+        public String toString() {
+            return this.fieldID + ":" + this.fieldName;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class LazyListObjectInspector implements ListObjectInspector {
+        private final ListObjectInspector delegate;
+
+        @Override
+        public ObjectInspector getListElementObjectInspector() {
+            return this.delegate.getListElementObjectInspector();
+        }
+
+        @Override
+        public Object getListElement(Object data, int index) {
+            return this.delegate.getListElement(resolve(data), index);
+        }
+
+        @Override
+        public int getListLength(Object data) {
+            return this.delegate.getListLength(resolve(data));
+        }
+
+        @Override
+        public List<?> getList(Object data) {
+            return this.delegate.getList(resolve(data));
+        }
+
+        @Override
+        public String getTypeName() {
+            return this.delegate.getTypeName();
+        }
+
+        @Override
+        public Category getCategory() {
+            return Category.LIST;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class LazyMapObjectInspector implements MapObjectInspector {
+        private final MapObjectInspector delegate;
+
+        @Override
+        public ObjectInspector getMapKeyObjectInspector() {
+            return this.delegate.getMapKeyObjectInspector();
+        }
+
+        @Override
+        public ObjectInspector getMapValueObjectInspector() {
+            return this.delegate.getMapValueObjectInspector();
+        }
+
+        @Override
+        public Object getMapValueElement(Object data, Object key) {
+            return this.delegate.getMapValueElement(resolve(data), key);
+        }
+
+        @Override
+        public Map<?, ?> getMap(Object data) {
+            return this.delegate.getMap(resolve(data));
+        }
+
+        @Override
+        public int getMapSize(Object data) {
+            return this.delegate.getMapSize(resolve(data));
+        }
+
+        @Override
+        public String getTypeName() {
+            return this.delegate.getTypeName();
+        }
+
+        @Override
+        public Category getCategory() {
+            return Category.MAP;
+        }
+    }
+
+    @RequiredArgsConstructor
+    private static class LazyStructObjectInspector extends StructObjectInspector {
+        private final StructObjectInspector delegate;
+
+        @Override
+        public List<? extends StructField> getAllStructFieldRefs() {
+            return this.delegate.getAllStructFieldRefs();
+        }
+
+        @Override
+        public StructField getStructFieldRef(String fieldName) {
+            return this.delegate.getStructFieldRef(fieldName);
+        }
+
+        @Override
+        public Object getStructFieldData(Object data, StructField fieldRef) {
+            return this.delegate.getStructFieldData(resolve(data), fieldRef);
+        }
+
+        @Override
+        public List<Object> getStructFieldsDataAsList(Object data) {
+            return this.delegate.getStructFieldsDataAsList(resolve(data));
+        }
+
+        @Override
+        public String getTypeName() {
+            return this.delegate.getTypeName();
+        }
+
+        @Override
+        public Category getCategory() {
+            return Category.STRUCT;
+        }
+    }
+}
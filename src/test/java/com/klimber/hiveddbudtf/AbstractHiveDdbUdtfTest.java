@@ -0,0 +1,53 @@
+package com.klimber.hiveddbudtf;
+
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import org.apache.hadoop.hive.conf.HiveConf.ConfVars;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class AbstractHiveDdbUdtfTest {
+
+    @Test
+    void mapReduceTasksTest() {
+        JobConf jobConf = new JobConf();
+        jobConf.set(ConfVars.HIVE_EXECUTION_ENGINE.varname, "mr");
+        jobConf.setNumMapTasks(4);
+        Assertions.assertEquals(4, this.configure(jobConf).getThroughputTasks());
+    }
+
+    @Test
+    void tezUnknownParallelismTest() {
+        JobConf jobConf = new JobConf();
+        jobConf.set(ConfVars.HIVE_EXECUTION_ENGINE.varname, "tez");
+        // Not used by Tez, budgets are not divided when the vertex parallelism can't be read
+        jobConf.setNumMapTasks(4);
+        Assertions.assertEquals(1, this.configure(jobConf).getThroughputTasks());
+    }
+
+    @Test
+    void explicitTasksTest() {
+        JobConf jobConf = new JobConf();
+        jobConf.set(ConfVars.HIVE_EXECUTION_ENGINE.varname, "tez");
+        HiveDdbQueryUdtf udtf = new HiveDdbQueryUdtf(Mockito.mock(DynamoDbClientWrapper.class));
+        udtf.config = HiveDdbQueryConfig.builder().throughputTasks(8).build();
+        udtf.configure(this.mapredContext(jobConf));
+        Assertions.assertEquals(8, udtf.config.getThroughputTasks());
+    }
+
+    private HiveDdbQueryConfig configure(JobConf jobConf) {
+        HiveDdbQueryUdtf udtf = new HiveDdbQueryUdtf(Mockito.mock(DynamoDbClientWrapper.class));
+        udtf.config = HiveDdbQueryConfig.builder().build();
+        udtf.configure(this.mapredContext(jobConf));
+        return udtf.config;
+    }
+
+    private MapredContext mapredContext(JobConf jobConf) {
+        MapredContext mapredContext = Mockito.mock(MapredContext.class);
+        Mockito.doReturn(jobConf).when(mapredContext).getJobConf();
+        return mapredContext;
+    }
+}
@@ -0,0 +1,90 @@
+package com.klimber.hiveddbudtf;
+
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import lombok.SneakyThrows;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class HiveDdbExistsUdtfTest {
+    private DynamoDbClientWrapper wrapper;
+    private HiveDdbExistsUdtf udtf;
+    private List<Object> forwarded;
+
+    @BeforeEach
+    void setUp() {
+        this.wrapper = Mockito.mock(DynamoDbClientWrapper.class);
+        this.udtf = new HiveDdbExistsUdtf(this.wrapper);
+        this.forwarded = new ArrayList<>();
+        this.udtf.setCollector(row -> this.forwarded.add(((Object[]) row)[0]));
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void existsTest() {
+        // Column mappings are not required
+        StructObjectInspector outputOI = this.udtf.initialize(this.getArgsOI(Arrays.asList("tableName", "indexName")));
+        StructField found = outputOI.getAllStructFieldRefs().get(0);
+        Assertions.assertEquals(HiveDdbExistsUdtf.FOUND_COLUMN, found.getFieldName());
+        Assertions.assertEquals("boolean", found.getFieldObjectInspector().getTypeName());
+
+        Mockito.doReturn(true, false).when(this.wrapper).exists(Mockito.any(), Mockito.any());
+        this.udtf.process(this.getArgs("found"));
+        this.udtf.process(this.getArgs("missing"));
+        // One row for each input row, forwarded while it is processed
+        Assertions.assertEquals(Arrays.asList(true, false), this.forwarded);
+
+        ArgumentCaptor<HiveDdbQueryParameters> params = ArgumentCaptor.forClass(HiveDdbQueryParameters.class);
+        ArgumentCaptor<Multimap<String, HiveDdbQueryFilter>> filters = ArgumentCaptor.forClass(Multimap.class);
+        Mockito.verify(this.wrapper, Mockito.times(2)).exists(params.capture(), filters.capture());
+        Assertions.assertEquals("myTable", params.getValue().getTableName());
+        Assertions.assertTrue(params.getValue().getHiveDdbColumnMapping().isEmpty());
+        Assertions.assertEquals("missing", filters.getValue().get("pk").iterator().next().getValue());
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        StructObjectInspector argsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("params"), Collections.singletonList(javaStringObjectInspector));
+        UDFArgumentException e = Assertions.assertThrows(UDFArgumentException.class,
+                                                         () -> this.udtf.initialize(argsOI));
+        Assertions.assertEquals("DDB_EXISTS requires 2 arguments (found=1)", e.getMessage());
+    }
+
+    private StructObjectInspector getArgsOI(List<String> paramNames) {
+        ObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                paramNames, Arrays.asList(javaStringObjectInspector, javaStringObjectInspector));
+        ObjectInspector filterOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("attribute", "attributeType", "operator", "value"),
+                Arrays.asList(new JavaConstantStringObjectInspector("pk"), new JavaConstantStringObjectInspector("S"),
+                              new JavaConstantStringObjectInspector("EQ"), javaStringObjectInspector));
+        ObjectInspector filtersOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("col1"), Collections.singletonList(filterOI));
+        return ObjectInspectorFactory.getStandardStructObjectInspector(Arrays.asList("params", "filters"),
+                                                                       Arrays.asList(paramsOI, filtersOI));
+    }
+
+    private Object[] getArgs(String pkValue) {
+        Object params = Arrays.asList("myTable", null);
+        Object filters = Collections.singletonList(Arrays.asList("pk", "S", "EQ", pkValue));
+        return new Object[]{params, filters};
+    }
+}
@@ -0,0 +1,178 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.klimber.hiveddbudtf.client.ddb.DdbTableSchema;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.SneakyThrows;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class HiveDdbPutUdtfTest {
+    private DynamoDbClientWrapper wrapper;
+    private HiveDdbPutUdtf udtf;
+    private List<Object[]> forwarded;
+
+    @BeforeEach
+    void setUp() {
+        this.wrapper = Mockito.mock(DynamoDbClientWrapper.class);
+        this.udtf = new HiveDdbPutUdtf(this.wrapper);
+        this.forwarded = Collections.synchronizedList(new ArrayList<>());
+        this.udtf.setCollector(UdtfCollectors.of(row -> this.forwarded.add((Object[]) row), false));
+        TableDescription table = new TableDescription().withKeySchema(
+                new KeySchemaElement().withAttributeName("pk").withKeyType(KeyType.HASH));
+        Mockito.doReturn(DdbTableSchema.of(table)).when(this.wrapper).describeTableSchema("myTable");
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void putTest() {
+        StructObjectInspector outputOI = this.udtf.initialize(this.getArgsOI());
+        Assertions.assertEquals("struct<status:string,error:string,key:map<string,string>>",
+                                outputOI.getTypeName());
+        Map<String, AttributeValue> itemB = ImmutableMap.of("pk", new AttributeValue("b"),
+                                                            "att", new AttributeValue("value"));
+        Mockito.doAnswer(invocation -> {
+            List<Map<String, AttributeValue>> items = invocation.getArgument(1);
+            return items.contains(itemB) ? ImmutableList.of(itemB) : ImmutableList.of();
+        }).when(this.wrapper).batchPutItems(Mockito.eq("myTable"), Mockito.any());
+
+        this.udtf.process(this.getArgs("a", "value"));
+        this.udtf.process(this.getArgs("b", "value"));
+        // A batch can't put the same key twice, so the first one is written before
+        this.udtf.process(this.getArgs("a", null));
+        this.udtf.close();
+
+        Map<String, String> statuses = new HashMap<>();
+        for (Object[] row : this.forwarded) {
+            String pk = ((Map<String, String>) row[2]).get("pk");
+            statuses.merge(pk, (String) row[0], (s1, s2) -> s1 + "," + s2);
+        }
+        Assertions.assertEquals(ImmutableMap.of("a", "OK,OK", "b", HiveDdbPutUdtf.STATUS_UNPROCESSED), statuses);
+        Mockito.verify(this.wrapper).batchPutItems("myTable", ImmutableList.of(
+                ImmutableMap.of("pk", new AttributeValue("a"), "att", new AttributeValue("value")), itemB));
+        // Null values are left out of the item
+        Mockito.verify(this.wrapper).batchPutItems("myTable", ImmutableList.of(
+                ImmutableMap.of("pk", new AttributeValue("a"))));
+    }
+
+    @Test
+    @SneakyThrows
+    void lateralViewTest() {
+        this.udtf.setCollector(UdtfCollectors.of(row -> this.forwarded.add((Object[]) row), true));
+        this.udtf.initialize(this.getArgsOI());
+        Mockito.doReturn(ImmutableList.of()).when(this.wrapper).batchPutItems(Mockito.any(), Mockito.any());
+
+        // The status row is forwarded before the next input row, so Hive pairs it with its input row
+        this.udtf.process(this.getArgs("a", "value"));
+        Assertions.assertEquals(1, this.forwarded.size());
+        this.udtf.process(this.getArgs("b", "value"));
+        Assertions.assertEquals(2, this.forwarded.size());
+        this.udtf.close();
+        Assertions.assertEquals(2, this.forwarded.size());
+        Mockito.verify(this.wrapper, Mockito.times(2)).batchPutItems(Mockito.eq("myTable"), Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void failedPutTest() {
+        this.udtf.initialize(this.getArgsOI());
+        Mockito.doThrow(new IllegalStateException("Boom"))
+               .when(this.wrapper).batchPutItems(Mockito.any(), Mockito.any());
+
+        this.udtf.process(this.getArgs("a", "value"));
+        this.udtf.close();
+        Assertions.assertEquals(1, this.forwarded.size());
+        Assertions.assertEquals(HiveDdbPutUdtf.STATUS_FAILED, this.forwarded.get(0)[0]);
+        Assertions.assertEquals("Boom", this.forwarded.get(0)[1]);
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void missingKeyTest() {
+        this.udtf.initialize(this.getArgsOI());
+
+        this.udtf.process(this.getArgs(null, "value"));
+        this.udtf.close();
+        Assertions.assertEquals(1, this.forwarded.size());
+        Assertions.assertEquals(HiveDdbPutUdtf.STATUS_FAILED, this.forwarded.get(0)[0]);
+        Assertions.assertEquals("Expected item to contain the key attribute (table=myTable, attribute=pk)",
+                                this.forwarded.get(0)[1]);
+        Assertions.assertTrue(((Map<String, String>) this.forwarded.get(0)[2]).isEmpty());
+        Mockito.verify(this.wrapper, Mockito.never()).batchPutItems(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void sameKeyOrderTest() {
+        this.udtf.initialize(this.getArgsOI());
+        List<String> calls = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> {
+            List<Map<String, AttributeValue>> items = invocation.getArgument(1);
+            String att = items.get(0).get("att").getS();
+            calls.add("start " + att);
+            Thread.sleep("first".equals(att) ? 200 : 0);
+            calls.add("end " + att);
+            return ImmutableList.of();
+        }).when(this.wrapper).batchPutItems(Mockito.eq("myTable"), Mockito.any());
+
+        this.udtf.process(this.getArgs("a", "first"));
+        this.udtf.process(this.getArgs("a", "second"));
+        this.udtf.close();
+        // The second put of the key is only sent once the first one is written
+        Assertions.assertEquals(ImmutableList.of("start first", "end first", "start second", "end second"), calls);
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        StructObjectInspector argsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("params"), Collections.singletonList(javaStringObjectInspector));
+        UDFArgumentException e = Assertions.assertThrows(UDFArgumentException.class,
+                                                         () -> this.udtf.initialize(argsOI));
+        Assertions.assertEquals("DDB_PUT requires 2 arguments (found=1)", e.getMessage());
+    }
+
+    private StructObjectInspector getArgsOI() {
+        ObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("tableName", "indexName"),
+                Arrays.asList(javaStringObjectInspector, javaStringObjectInspector));
+        ObjectInspector itemOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("col1", "col2"), Arrays.asList(this.getAttributeOI("pk"), this.getAttributeOI("att")));
+        return ObjectInspectorFactory.getStandardStructObjectInspector(Arrays.asList("params", "item"),
+                                                                       Arrays.asList(paramsOI, itemOI));
+    }
+
+    private ObjectInspector getAttributeOI(String attribute) {
+        return ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("attribute", "attributeType", "value"),
+                Arrays.asList(new JavaConstantStringObjectInspector(attribute),
+                              new JavaConstantStringObjectInspector("S"), javaStringObjectInspector));
+    }
+
+    private Object[] getArgs(String pk, String att) {
+        Object params = Arrays.asList("myTable", null);
+        Object item = Arrays.asList(Arrays.asList("pk", "S", pk), Arrays.asList("att", "S", att));
+        return new Object[]{params, item};
+    }
+}
@@ -0,0 +1,289 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.google.common.util.concurrent.Uninterruptibles;
+import com.klimber.hiveddbudtf.client.ddb.CoalescingDynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.apache.hadoop.hive.ql.udf.generic.Collector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class HiveDdbQueryUdtfFanOutTest {
+    @Test
+    @SneakyThrows
+    void fanOutQueryTest() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1"), this.keyFilters("k2")))
+               .when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            Multimap<String, HiveDdbQueryFilter> filters = invocation.getArgument(1);
+            String key = (String) filters.get("pk").iterator().next().getValue();
+            return Stream.of(ImmutableMap.of("pk", new AttributeValue(key)),
+                             ImmutableMap.of("pk", new AttributeValue(key)));
+        }).when(ddbMock).queryTable(Mockito.any(), Mockito.any());
+        Mockito.doCallRealMethod().when(ddbMock).queryTableAsync(Mockito.any(), Mockito.any(), Mockito.any());
+
+        List<Object> forwarded = this.processKeyQuery(ddbMock);
+        // Queries run in parallel, but results are forwarded in key order before process returns
+        Assertions.assertEquals(ImmutableList.of("k1", "k1", "k2", "k2"), forwarded);
+    }
+
+    @Test
+    @SneakyThrows
+    void fanOutBatchGetTest() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1"), this.keyFilters("k2"), this.keyFilters("k3")))
+               .when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            Multimap<String, HiveDdbQueryFilter> filters = invocation.getArgument(1);
+            String key = (String) filters.get("pk").iterator().next().getValue();
+            return Optional.of(ImmutableMap.of("pk", new AttributeValue(key)));
+        }).when(ddbMock).findPrimaryKey(Mockito.any(), Mockito.any());
+        Map<String, AttributeValue> key1 = ImmutableMap.of("pk", new AttributeValue("k1"));
+        Map<String, AttributeValue> key3 = ImmutableMap.of("pk", new AttributeValue("k3"));
+        Mockito.doReturn(ImmutableMap.of(key3, key3, key1, key1))
+               .when(ddbMock).batchGetItems(Mockito.any(), Mockito.any());
+
+        List<Object> forwarded = this.processKeyQuery(ddbMock);
+        // Fully bound keys are fetched with a single BatchGetItem, missing items are skipped
+        Assertions.assertEquals(ImmutableList.of("k1", "k3"), forwarded);
+        Mockito.verify(ddbMock, Mockito.never()).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void fanOutReadAheadTest() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        AtomicInteger closed = new AtomicInteger();
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1"), this.keyFilters("k2")))
+               .when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            HiveDdbQueryParameters params = invocation.getArgument(0);
+            Multimap<String, HiveDdbQueryFilter> filters = invocation.getArgument(1);
+            String key = (String) filters.get("pk").iterator().next().getValue();
+            Stream<Map<String, AttributeValue>> items = IntStream.range(0, 3).mapToObj(
+                    i -> ImmutableMap.of("pk", new AttributeValue(key + "-" + i))).onClose(closed::incrementAndGet);
+            return Objects.nonNull(params.getLimit()) ? items.limit(params.getLimit()) : items;
+        }).when(ddbMock).queryTable(Mockito.any(), Mockito.any());
+        Mockito.doCallRealMethod().when(ddbMock).queryTableAsync(Mockito.any(), Mockito.any(), Mockito.any());
+
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder().queryConcurrencyMaxItems(2).build();
+        List<Object> forwarded = this.processKeyQuery(ddbMock, config);
+        // Two items are read ahead per key, the third is read from the same query when forwarded
+        Assertions.assertEquals(ImmutableList.of("k1-0", "k1-1", "k1-2", "k2-0", "k2-1", "k2-2"), forwarded);
+        Mockito.verify(ddbMock, Mockito.times(2)).queryTable(Mockito.any(), Mockito.any());
+        Mockito.verify(ddbMock, Mockito.never()).queryTableAsync(Mockito.any(), Mockito.any(), Mockito.any());
+        Assertions.assertEquals(2, closed.get());
+    }
+
+    @Test
+    @SneakyThrows
+    void fanOutFailedSiblingTest() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        List<String> queried = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1"), this.keyFilters("k2")))
+               .doReturn(ImmutableList.of(this.keyFilters("k2"), this.keyFilters("k3")))
+               .when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            Multimap<String, HiveDdbQueryFilter> filters = invocation.getArgument(1);
+            String key = (String) filters.get("pk").iterator().next().getValue();
+            queried.add(key);
+            if ("k1".equals(key)) {
+                CompletableFuture<List<Map<String, AttributeValue>>> failed = new CompletableFuture<>();
+                failed.completeExceptionally(new IllegalStateException("Boom"));
+                return failed;
+            }
+            // Still in flight when the next row queries the same key
+            return CompletableFuture.supplyAsync(() -> {
+                Uninterruptibles.sleepUninterruptibly("k2".equals(key) ? 300 : 0, TimeUnit.MILLISECONDS);
+                return ImmutableList.of(ImmutableMap.of("pk", new AttributeValue(key)));
+            });
+        }).when(ddbMock).queryTableAsync(Mockito.any(), Mockito.any(), Mockito.any());
+
+        List<Object> forwarded = new ArrayList<>();
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder()
+                                                      .queryConcurrency(4)
+                                                      .queryConcurrencyMaxItems(Integer.MAX_VALUE)
+                                                      .build();
+        HiveDdbQueryUdtf udtf = this.initializeKeyQuery(
+                new CoalescingDynamoDbClientWrapper(ddbMock), config,
+                UdtfCollectors.of(row -> forwarded.add(((Object[]) row)[0]), true));
+        Assertions.assertThrows(IllegalStateException.class,
+                                () -> udtf.process(this.keyQueryArgs(Arrays.asList("k1", "k2"))));
+        // The failed row gave up on k2, the next row still gets its results from the same query
+        udtf.process(this.keyQueryArgs(Arrays.asList("k2", "k3")));
+        udtf.close();
+        Assertions.assertEquals(ImmutableList.of("k2", "k3"), forwarded);
+        Assertions.assertEquals(ImmutableList.of("k1", "k2", "k3"), queried);
+    }
+
+    @Test
+    @SneakyThrows
+    void orderedBatchGetTest() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1")))
+               .doReturn(ImmutableList.of(this.keyFilters("q2")))
+               .doReturn(ImmutableList.of(this.keyFilters("k3")))
+               .when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            Multimap<String, HiveDdbQueryFilter> filters = invocation.getArgument(1);
+            String key = (String) filters.get("pk").iterator().next().getValue();
+            return key.startsWith("k") ? Optional.of(ImmutableMap.of("pk", new AttributeValue(key))) : Optional.empty();
+        }).when(ddbMock).findPrimaryKey(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> {
+            Collection<Map<String, AttributeValue>> keys = invocation.getArgument(1);
+            return keys.stream().collect(Collectors.toMap(Function.identity(), Function.identity()));
+        }).when(ddbMock).batchGetItems(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> Stream.of(ImmutableMap.of("pk", new AttributeValue("q2"))))
+               .when(ddbMock).queryTable(Mockito.any(), Mockito.any());
+
+        List<Object> forwarded = new ArrayList<>();
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder().queryConcurrency(4).batchGetEnabled(true).build();
+        HiveDdbQueryUdtf udtf = this.initializeKeyQuery(
+                ddbMock, config, UdtfCollectors.of(row -> forwarded.add(((Object[]) row)[0]), false));
+        for (String key : Arrays.asList("k1", "q2", "k3")) {
+            udtf.process(this.keyQueryArgs(Collections.singletonList(key)));
+        }
+        udtf.close();
+        // The lookup of k1 is flushed before the query of the next row is submitted
+        Assertions.assertEquals(ImmutableList.of("k1", "q2", "k3"), forwarded);
+        Mockito.verify(ddbMock, Mockito.times(2)).batchGetItems(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void notLateralViewTest() {
+        List<Object> forwarded = new ArrayList<>();
+        DynamoDbClientWrapper ddbMock = this.singleKeyMock();
+        HiveDdbQueryUdtf udtf = this.initializeKeyQuery(
+                ddbMock, HiveDdbQueryConfig.builder().batchGetEnabled(true).build(),
+                UdtfCollectors.of(row -> forwarded.add(((Object[]) row)[0]), false));
+
+        udtf.process(this.keyQueryArgs(Collections.singletonList("k1")));
+        // Buffered for BatchGetItem
+        Assertions.assertTrue(forwarded.isEmpty());
+        udtf.close();
+        Assertions.assertEquals(ImmutableList.of("k1"), forwarded);
+        Mockito.verify(ddbMock, Mockito.never()).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    @SneakyThrows
+    void lateralViewTest() {
+        List<Object> forwarded = new ArrayList<>();
+        this.assertSequential(UdtfCollectors.of(row -> forwarded.add(((Object[]) row)[0]), true), forwarded);
+    }
+
+    @Test
+    @SneakyThrows
+    void unknownCollectorTest() {
+        // Not run by a UDTFOperator, so whether it is in a LATERAL VIEW can't be found
+        List<Object> forwarded = new ArrayList<>();
+        this.assertSequential(row -> forwarded.add(((Object[]) row)[0]), forwarded);
+    }
+
+    @SneakyThrows
+    private void assertSequential(Collector collector, List<Object> forwarded) {
+        DynamoDbClientWrapper ddbMock = this.singleKeyMock();
+        HiveDdbQueryUdtf udtf = this.initializeKeyQuery(
+                ddbMock, HiveDdbQueryConfig.builder().batchGetEnabled(true).build(), collector);
+
+        udtf.process(this.keyQueryArgs(Collections.singletonList("k1")));
+        // Forwarded before process returns, so Hive pairs the row with its input row
+        Assertions.assertEquals(ImmutableList.of("k1"), forwarded);
+        udtf.close();
+        Mockito.verify(ddbMock, Mockito.never()).batchGetItems(Mockito.any(), Mockito.any());
+    }
+
+    private DynamoDbClientWrapper singleKeyMock() {
+        DynamoDbClientWrapper ddbMock = Mockito.mock(DynamoDbClientWrapper.class);
+        Mockito.doReturn(ImmutableList.of(this.keyFilters("k1"))).when(ddbMock).fanOut(Mockito.any(), Mockito.any());
+        Map<String, AttributeValue> item = ImmutableMap.of("pk", new AttributeValue("k1"));
+        Mockito.doReturn(Optional.of(item)).when(ddbMock).findPrimaryKey(Mockito.any(), Mockito.any());
+        Mockito.doReturn(ImmutableMap.of(item, item)).when(ddbMock).batchGetItems(Mockito.any(), Mockito.any());
+        Mockito.doAnswer(invocation -> Stream.of(item)).when(ddbMock).queryTable(Mockito.any(), Mockito.any());
+        return ddbMock;
+    }
+
+    private List<Object> processKeyQuery(DynamoDbClientWrapper ddbMock) {
+        return this.processKeyQuery(ddbMock, HiveDdbQueryConfig.builder().build());
+    }
+
+    @SneakyThrows
+    private List<Object> processKeyQuery(DynamoDbClientWrapper ddbMock, HiveDdbQueryConfig config) {
+        List<Object> forwarded = new ArrayList<>();
+        HiveDdbQueryUdtf udtf = this.initializeKeyQuery(
+                ddbMock, config, UdtfCollectors.of(row -> forwarded.add(((Object[]) row)[0]), false));
+        udtf.process(this.keyQueryArgs(Arrays.asList("k1", "k2")));
+        udtf.close();
+        return forwarded;
+    }
+
+    @SneakyThrows
+    private HiveDdbQueryUdtf initializeKeyQuery(DynamoDbClientWrapper ddbMock, HiveDdbQueryConfig config,
+                                                Collector collector) {
+        HiveDdbQueryUdtf udtf = new HiveDdbQueryUdtf(ddbMock);
+        udtf.config = config;
+        udtf.setCollector(collector);
+        ObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("tableName", "indexName", "hiveDdbColumnMapping", "hiveTypeMapping"),
+                Arrays.asList(javaStringObjectInspector, javaStringObjectInspector,
+                              new JavaConstantStringObjectInspector("pk:pk"),
+                              new JavaConstantStringObjectInspector("string")));
+        ObjectInspector filterOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("attribute", "attributeType", "operator", "value"),
+                Arrays.asList(new JavaConstantStringObjectInspector("pk"), new JavaConstantStringObjectInspector("S"),
+                              new JavaConstantStringObjectInspector("IN"),
+                              ObjectInspectorFactory.getStandardListObjectInspector(javaStringObjectInspector)));
+        ObjectInspector filtersOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("col1"), Collections.singletonList(filterOI));
+        udtf.initialize(ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("params", "filters"), Arrays.asList(paramsOI, filtersOI)));
+        return udtf;
+    }
+
+    private Object[] keyQueryArgs(List<String> keys) {
+        Object params = Arrays.asList("myTable", null, "pk:pk", "string");
+        Object filters = Collections.singletonList(Arrays.asList("pk", "S", "IN", keys));
+        return new Object[]{params, filters};
+    }
+
+    private Multimap<String, HiveDdbQueryFilter> keyFilters(String key) {
+        return ImmutableMultimap.of("pk", HiveDdbQueryFilter.builder()
+                                                            .attribute("pk")
+                                                            .attributeType("S")
+                                                            .operator("EQ")
+                                                            .value(key)
+                                                            .valueOi(javaStringObjectInspector)
+                                                            .build());
+    }
+}
@@ -0,0 +1,151 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMap;
+import com.klimber.hiveddbudtf.client.ddb.DdbTableSchema;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbRequestListener;
+import com.klimber.hiveddbudtf.client.ddb.FakeAmazonDynamoDB;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.SneakyThrows;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hadoop.conf.Configuration;
+import org.apache.hadoop.hive.ql.exec.MapredContext;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.apache.hadoop.mapred.JobConf;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+/**
+ * Runs {@link HiveDdbQueryUdtf} end to end against {@link FakeAmazonDynamoDB}, the way a map task would,
+ * and logs the rows and requests per second and the read units per row, to compare settings and commits
+ * without a cluster or a table.
+ * <p>
+ * Only runs when {@code hiveddbudtf.load.rows} is set, sized by system properties:
+ * <ul>
+ *     <li>{@code hiveddbudtf.load.rows}: input rows, each querying a random hash key</li>
+ *     <li>{@code hiveddbudtf.load.keys}: distinct hash keys in the table</li>
+ *     <li>{@code hiveddbudtf.load.itemsPerKey}: items per hash key</li>
+ *     <li>{@code hiveddbudtf.load.latency.micros}: median latency of every request, log-normally distributed</li>
+ *     <li>{@code hiveddbudtf.load.throttle.rate}: share of throttled attempts</li>
+ * </ul>
+ * Every {@code hiveddbudtf.*} setting (e.g. {@code hiveddbudtf.query.concurrency}) is read from the system
+ * properties too.
+ */
+@Slf4j
+@EnabledIfSystemProperty(named = "hiveddbudtf.load.rows", matches = "\\d+")
+class HiveDdbQueryUdtfLoadTest {
+    private static final String TABLE_NAME = "load-" + UUID.randomUUID();
+    private static final String COLUMN_MAPPING = "pk:pk,sk:sk,payload:payload";
+    private static final String HIVE_TYPES = "string,int,string";
+
+    @Test
+    @SneakyThrows
+    void loadTest() {
+        int rows = Integer.getInteger("hiveddbudtf.load.rows");
+        int keys = Integer.getInteger("hiveddbudtf.load.keys", 5_000);
+        int itemsPerKey = Integer.getInteger("hiveddbudtf.load.itemsPerKey", 2);
+        long latencyMicros = Long.getLong("hiveddbudtf.load.latency.micros", 0);
+        double throttleRate = Double.parseDouble(System.getProperty("hiveddbudtf.load.throttle.rate", "0"));
+
+        FakeAmazonDynamoDB client = new FakeAmazonDynamoDB().createTable(TABLE_NAME, "pk", "sk")
+                                                            .withThrottleRate(throttleRate);
+        if (latencyMicros > 0) {
+            client.withLatency(FakeAmazonDynamoDB.Latency.logNormal(latencyMicros, 0.5));
+        }
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int k = 0; k < keys; k++) {
+            for (int i = 0; i < itemsPerKey; i++) {
+                items.add(ImmutableMap.of("pk", new AttributeValue("key" + k),
+                                          "sk", new AttributeValue().withN(String.valueOf(i)),
+                                          "payload", new AttributeValue(UUID.randomUUID().toString())));
+            }
+        }
+        client.putItems(TABLE_NAME, items);
+
+        HiveDdbQueryUdtf udtf = new FakeHiveDdbQueryUdtf(client, this.systemConfig());
+        LongAdder forwarded = new LongAdder();
+        udtf.setCollector(UdtfCollectors.of(row -> forwarded.increment(), false));
+        udtf.initialize(this.argumentsOI());
+        long start;
+        try {
+            udtf.configure(MapredContext.init(true, new JobConf()));
+            Random random = new Random(42);
+            start = System.nanoTime();
+            for (int r = 0; r < rows; r++) {
+                Object params = Arrays.asList(TABLE_NAME, null, COLUMN_MAPPING, HIVE_TYPES);
+                Object filters = Collections.singletonList(Arrays.asList("pk", "S", "EQ",
+                                                                         "key" + random.nextInt(keys)));
+                udtf.process(new Object[]{params, filters});
+            }
+            udtf.close();
+        } finally {
+            MapredContext.close();
+        }
+        double seconds = Math.max(1, System.nanoTime() - start) / (double) TimeUnit.SECONDS.toNanos(1);
+
+        log.info(String.format("Load test: %d rows in %.2f s, %.0f rows/s, %.0f requests/s, %.3f rcu/row, "
+                               + "%d throttled attempts", rows, seconds, rows / seconds,
+                               client.getRequestCount() / seconds, client.getConsumedReadCapacity() / rows,
+                               client.getThrottledAttemptCount()));
+        Assertions.assertEquals((long) rows * itemsPerKey, forwarded.sum());
+    }
+
+    private HiveDdbQueryConfig systemConfig() {
+        Configuration conf = new Configuration(false);
+        System.getProperties().stringPropertyNames().stream()
+              .filter(name -> name.startsWith("hiveddbudtf.") && !name.startsWith("hiveddbudtf.load."))
+              .forEach(name -> conf.set(name, System.getProperty(name)));
+        return HiveDdbQueryConfig.fromConf(conf);
+    }
+
+    private StructObjectInspector argumentsOI() {
+        ObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("tableName", "indexName", "hiveDdbColumnMapping", "hiveTypeMapping"),
+                Arrays.asList(javaStringObjectInspector, javaStringObjectInspector,
+                              new JavaConstantStringObjectInspector(COLUMN_MAPPING),
+                              new JavaConstantStringObjectInspector(HIVE_TYPES)));
+        ObjectInspector filterOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("attribute", "attributeType", "operator", "value"),
+                Arrays.asList(new JavaConstantStringObjectInspector("pk"), new JavaConstantStringObjectInspector("S"),
+                              new JavaConstantStringObjectInspector("EQ"), javaStringObjectInspector));
+        ObjectInspector filtersOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("col1"), Collections.singletonList(filterOI));
+        return ObjectInspectorFactory.getStandardStructObjectInspector(Arrays.asList("params", "filters"),
+                                                                       Arrays.asList(paramsOI, filtersOI));
+    }
+
+    /**
+     * Sends the requests of the UDTF to the fake, keeping the cache, coalescing and concurrency of the settings.
+     */
+    private static class FakeHiveDdbQueryUdtf extends HiveDdbQueryUdtf {
+        private final transient FakeAmazonDynamoDB client;
+
+        FakeHiveDdbQueryUdtf(FakeAmazonDynamoDB client, HiveDdbQueryConfig config) {
+            this.client = client;
+            this.config = config;
+        }
+
+        @Override
+        protected DynamoDbClientWrapper createClientWrapper(DynamoDbRequestListener listener, DynamoDbMetrics metrics,
+                                                            Map<String, DdbTableSchema> schemas) {
+            return this.client.newWrapper(this.config, listener, metrics, schemas);
+        }
+    }
+}
@@ -7,6 +7,7 @@ import com.klarna.hiverunner.HiveRunnerExtension;
 import com.klarna.hiverunner.HiveShell;
 import com.klarna.hiverunner.annotations.HiveSQL;
 import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
 import java.io.File;
@@ -69,6 +70,59 @@ class HiveDdbQueryUdtfTest {
         Assertions.assertEquals(FileUtils.readFileToString(new File(expectedDescribe.toURI())), result);
     }
 
+    @Test
+    @SneakyThrows
+    void concurrentQueryTest() {
+        MockedHiveDdbQueryUdtf.MOCK_SUPPLIER = () -> this.mockDynamoDB(this.dataFormatsNoBinaryMockResult());
+        this.shell.execute("SET " + HiveDdbQueryConfig.QUERY_CONCURRENCY + "=4");
+
+        URL ddbQueryPath = ClassLoader.getSystemResource("HiveDdbUdtfTest/queries/ddb_query_no_binary.sql");
+        URL expectedRows = ClassLoader.getSystemResource("HiveDdbUdtfTest/outputs/no_binary_results.txt");
+
+        this.shell.executeQuery(Paths.get(ddbQueryPath.toURI()));
+        List<String> results = this.shell.executeQuery("SELECT * FROM result");
+        String result = String.join("\n", results);
+        Assertions.assertEquals(FileUtils.readFileToString(new File(expectedRows.toURI())), result);
+    }
+
+    @Test
+    @SneakyThrows
+    void writableOutputTest() {
+        MockedHiveDdbQueryUdtf.MOCK_SUPPLIER = () -> this.mockDynamoDB(this.dataFormatsNoBinaryMockResult());
+        this.shell.execute("SET " + HiveDdbQueryConfig.OUTPUT_MODE + "=writable");
+
+        URL ddbQueryPath = ClassLoader.getSystemResource("HiveDdbUdtfTest/queries/ddb_query_no_binary.sql");
+        URL expectedRows = ClassLoader.getSystemResource("HiveDdbUdtfTest/outputs/no_binary_results.txt");
+        URL expectedDescribe = ClassLoader.getSystemResource("HiveDdbUdtfTest/outputs/no_binary_describe.txt");
+
+        this.shell.executeQuery(Paths.get(ddbQueryPath.toURI()));
+        List<String> results = this.shell.executeQuery("SELECT * FROM result");
+        String result = String.join("\n", results);
+        Assertions.assertEquals(FileUtils.readFileToString(new File(expectedRows.toURI())), result);
+        results = this.shell.executeQuery("DESCRIBE result");
+        result = String.join("\n", results);
+        Assertions.assertEquals(FileUtils.readFileToString(new File(expectedDescribe.toURI())), result);
+    }
+
+    @Test
+    @SneakyThrows
+    void lazyOutputTest() {
+        MockedHiveDdbQueryUdtf.MOCK_SUPPLIER = () -> this.mockDynamoDB(this.dataFormatsNoBinaryMockResult());
+        this.shell.execute("SET " + HiveDdbQueryConfig.OUTPUT_MODE + "=lazy");
+
+        URL ddbQueryPath = ClassLoader.getSystemResource("HiveDdbUdtfTest/queries/ddb_query_no_binary.sql");
+        URL expectedRows = ClassLoader.getSystemResource("HiveDdbUdtfTest/outputs/no_binary_results.txt");
+        URL expectedDescribe = ClassLoader.getSystemResource("HiveDdbUdtfTest/outputs/no_binary_describe.txt");
+
+        this.shell.executeQuery(Paths.get(ddbQueryPath.toURI()));
+        List<String> results = this.shell.executeQuery("SELECT * FROM result");
+        String result = String.join("\n", results);
+        Assertions.assertEquals(FileUtils.readFileToString(new File(expectedRows.toURI())), result);
+        results = this.shell.executeQuery("DESCRIBE result");
+        result = String.join("\n", results);
+        Assertions.assertEquals(FileUtils.readFileToString(new File(expectedDescribe.toURI())), result);
+    }
+
     @Test
     @SneakyThrows
     void binaryDataFormatsTest() {
@@ -164,6 +218,12 @@ class HiveDdbQueryUdtfTest {
         Mockito.doReturn(mockResults)
                .when(ddbMock)
                .queryTable(this.paramsCaptor.capture(), this.filtersCaptor.capture());
+        Mockito.doCallRealMethod()
+               .when(ddbMock)
+               .queryTableAsync(Mockito.any(), Mockito.any(), Mockito.any());
+        Mockito.doCallRealMethod()
+               .when(ddbMock)
+               .fanOut(Mockito.any(), Mockito.any());
         return ddbMock;
     }
 
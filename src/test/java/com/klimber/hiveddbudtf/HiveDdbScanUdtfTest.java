@@ -0,0 +1,111 @@
+package com.klimber.hiveddbudtf;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbClientWrapper;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+import lombok.SneakyThrows;
+import org.apache.hadoop.hive.ql.exec.UDFArgumentException;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaIntObjectInspector;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class HiveDdbScanUdtfTest {
+    private DynamoDbClientWrapper wrapper;
+    private HiveDdbScanUdtf udtf;
+    private List<Object> forwarded;
+
+    @BeforeEach
+    void setUp() {
+        this.wrapper = Mockito.mock(DynamoDbClientWrapper.class);
+        this.udtf = new HiveDdbScanUdtf(this.wrapper);
+        this.forwarded = new ArrayList<>();
+        this.udtf.setCollector(row -> this.forwarded.add(((Object[]) row)[0]));
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void scanTest() {
+        this.udtf.initialize(this.getArgsOI(true));
+        Mockito.doAnswer(invocation -> {
+            AttributeValue value = new AttributeValue("s" + invocation.getArgument(2));
+            return Stream.of(ImmutableMap.of("att1", value));
+        }).when(this.wrapper).scanTable(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
+
+        Object filters = Collections.singletonList(Arrays.asList("att1", "S", "EQ", "s"));
+        this.udtf.process(new Object[]{this.getParams(), filters, 0, 2});
+        this.udtf.process(new Object[]{this.getParams(), filters, 1, 2});
+        Assertions.assertEquals(Arrays.asList("s0", "s1"), this.forwarded);
+
+        ArgumentCaptor<Multimap<String, HiveDdbQueryFilter>> captor = ArgumentCaptor.forClass(Multimap.class);
+        Mockito.verify(this.wrapper).scanTable(Mockito.any(), captor.capture(), Mockito.eq(1), Mockito.eq(2));
+        Assertions.assertEquals("EQ", captor.getValue().get("att1").iterator().next().getOperator());
+    }
+
+    @Test
+    @SneakyThrows
+    @SuppressWarnings("unchecked")
+    void unfilteredScanTest() {
+        this.udtf.initialize(this.getArgsOI(false));
+        Mockito.doReturn(Stream.of(ImmutableMap.of("att1", new AttributeValue("value"))))
+               .when(this.wrapper).scanTable(Mockito.any(), Mockito.any(), Mockito.anyInt(), Mockito.anyInt());
+
+        this.udtf.process(new Object[]{this.getParams(), 3, 4});
+        Assertions.assertEquals(Collections.singletonList("value"), this.forwarded);
+        ArgumentCaptor<Multimap<String, HiveDdbQueryFilter>> captor = ArgumentCaptor.forClass(Multimap.class);
+        Mockito.verify(this.wrapper).scanTable(Mockito.any(), captor.capture(), Mockito.eq(3), Mockito.eq(4));
+        Assertions.assertTrue(captor.getValue().isEmpty());
+    }
+
+    @Test
+    void wrongArgumentsTest() {
+        StructObjectInspector argsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("params", "segment"), Arrays.asList(javaStringObjectInspector, javaIntObjectInspector));
+        UDFArgumentException e = Assertions.assertThrows(UDFArgumentException.class,
+                                                         () -> this.udtf.initialize(argsOI));
+        Assertions.assertEquals("DDB_SCAN requires 3 or 4 arguments (found=2)", e.getMessage());
+    }
+
+    private StructObjectInspector getArgsOI(boolean filtered) {
+        ObjectInspector paramsOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("tableName", "indexName", "hiveDdbColumnMapping", "hiveTypeMapping"),
+                Arrays.asList(javaStringObjectInspector, javaStringObjectInspector,
+                              new JavaConstantStringObjectInspector("col1:att1"),
+                              new JavaConstantStringObjectInspector("string")));
+        ObjectInspector filterOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Arrays.asList("attribute", "attributeType", "operator", "value"),
+                Arrays.asList(new JavaConstantStringObjectInspector("att1"), new JavaConstantStringObjectInspector("S"),
+                              new JavaConstantStringObjectInspector("EQ"), javaStringObjectInspector));
+        ObjectInspector filtersOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                Collections.singletonList("col1"), Collections.singletonList(filterOI));
+        List<String> names = new ArrayList<>(Collections.singletonList("params"));
+        List<ObjectInspector> ois = new ArrayList<>(Collections.singletonList(paramsOI));
+        if (filtered) {
+            names.add("filters");
+            ois.add(filtersOI);
+        }
+        names.addAll(Arrays.asList("segment", "totalSegments"));
+        ois.addAll(Arrays.asList(javaIntObjectInspector, javaIntObjectInspector));
+        return ObjectInspectorFactory.getStandardStructObjectInspector(names, ois);
+    }
+
+    private Object getParams() {
+        return Arrays.asList("myTable", null, "col1:att1", "string");
+    }
+}
@@ -0,0 +1,35 @@
+package com.klimber.hiveddbudtf;
+
+import java.util.Collections;
+import java.util.function.Consumer;
+import lombok.SneakyThrows;
+import lombok.experimental.UtilityClass;
+import org.apache.hadoop.hive.ql.exec.LateralViewJoinOperator;
+import org.apache.hadoop.hive.ql.exec.UDTFOperator;
+import org.apache.hadoop.hive.ql.udf.generic.UDTFCollector;
+import org.mockito.Mockito;
+
+/**
+ * Collectors backed by a mocked {@link UDTFOperator}, the way Hive runs the UDTFs.
+ */
+@UtilityClass
+class UdtfCollectors {
+
+    /**
+     * @param rows        receives the forwarded rows
+     * @param lateralView whether the operator feeds a {@code LATERAL VIEW} join
+     */
+    @SneakyThrows
+    static UDTFCollector of(Consumer<Object> rows, boolean lateralView) {
+        UDTFOperator operator = Mockito.mock(UDTFOperator.class);
+        Mockito.doAnswer(invocation -> {
+            rows.accept(invocation.getArgument(0));
+            return null;
+        }).when(operator).forwardUDTFOutput(Mockito.any());
+        Mockito.doReturn(lateralView
+                         ? Collections.singletonList(Mockito.mock(LateralViewJoinOperator.class))
+                         : Collections.emptyList())
+               .when(operator).getChildOperators();
+        return new UDTFCollector(operator);
+    }
+}
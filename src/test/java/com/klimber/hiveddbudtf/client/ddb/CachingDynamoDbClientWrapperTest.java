@@ -0,0 +1,176 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Ticker;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.writableBinaryObjectInspector;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.writableStringObjectInspector;
+
+class CachingDynamoDbClientWrapperTest {
+    private DynamoDbClientWrapper delegate;
+    private AtomicLong nanos;
+    private Ticker ticker;
+    private HiveDdbQueryParameters params;
+    private List<Map<String, AttributeValue>> items;
+
+    @BeforeEach
+    void setUp() {
+        this.delegate = Mockito.mock(DynamoDbClientWrapper.class);
+        this.nanos = new AtomicLong();
+        this.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return CachingDynamoDbClientWrapperTest.this.nanos.get();
+            }
+        };
+        ColumnMapping mapping = ColumnMapping.builder().hiveColumn("data").ddbAttName("data").build();
+        this.params = HiveDdbQueryParameters.builder()
+                                            .tableName("myTable")
+                                            .hiveDdbColumnMapping(ImmutableList.of(mapping))
+                                            .build();
+        this.items = ImmutableList.of(ImmutableMap.of("data", new AttributeValue("first")),
+                                      ImmutableMap.of("data", new AttributeValue("second")));
+        Mockito.doAnswer(invocation -> this.items.stream()).when(this.delegate).queryTable(Mockito.any(),
+                                                                                              Mockito.any());
+    }
+
+    @Test
+    void cacheHitTest() {
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, 1_000_000, 0,
+                                                                                this.ticker);
+        Text reusedValue = new Text("pk1");
+        Assertions.assertEquals(this.items, this.query(wrapper, this.pkFilter(reusedValue)));
+        // Hive reuses writables between rows, the cached key must not change with them
+        reusedValue.set("pk2");
+        Assertions.assertEquals(this.items, this.query(wrapper, this.pkFilter(reusedValue)));
+        Assertions.assertEquals(this.items, this.query(wrapper, this.pkFilter(new Text("pk1"))));
+
+        Mockito.verify(this.delegate, Mockito.times(2)).queryTable(Mockito.any(), Mockito.any());
+        CacheStats stats = wrapper.getStats();
+        Assertions.assertEquals(1, stats.hitCount());
+        Assertions.assertEquals(2, stats.missCount());
+    }
+
+    @Test
+    void binaryFilterTest() {
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, 1_000_000, 0,
+                                                                                this.ticker);
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute("pk")
+                                                      .attributeType("B")
+                                                      .operator("EQ")
+                                                      .value(new BytesWritable(new byte[]{1, 2}))
+                                                      .valueOi(writableBinaryObjectInspector)
+                                                      .build();
+        this.query(wrapper, ImmutableMultimap.of("pk", filter));
+        this.query(wrapper, ImmutableMultimap.of("pk", filter));
+        Mockito.verify(this.delegate, Mockito.times(1)).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void binaryListFilterTest() {
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, 1_000_000, 0,
+                                                                                this.ticker);
+        ObjectInspector valueOi = ObjectInspectorFactory.getStandardListObjectInspector(
+                writableBinaryObjectInspector);
+        this.query(wrapper, ImmutableMultimap.of("pk", this.binaryInFilter(valueOi)));
+        this.query(wrapper, ImmutableMultimap.of("pk", this.binaryInFilter(valueOi)));
+        Mockito.verify(this.delegate, Mockito.times(1)).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void partiallyConsumedTest() {
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, 1_000_000, 0,
+                                                                                this.ticker);
+        try (Stream<Map<String, AttributeValue>> results = wrapper.queryTable(this.params,
+                                                                              this.pkFilter(new Text("pk1")))) {
+            Assertions.assertTrue(results.findFirst().isPresent());
+        }
+        this.query(wrapper, this.pkFilter(new Text("pk1")));
+        Mockito.verify(this.delegate, Mockito.times(2)).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void largeResultTest() {
+        long maxBytes = 10L * CachingDynamoDbClientWrapper.estimateSize(this.items.subList(0, 1));
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, maxBytes, 0,
+                                                                                this.ticker);
+        Assertions.assertEquals(this.items, this.query(wrapper, this.pkFilter(new Text("pk1"))));
+        Assertions.assertEquals(this.items, this.query(wrapper, this.pkFilter(new Text("pk1"))));
+        Mockito.verify(this.delegate, Mockito.times(2)).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void ttlTest() {
+        CachingDynamoDbClientWrapper wrapper = new CachingDynamoDbClientWrapper(this.delegate, 1_000_000, 60,
+                                                                                this.ticker);
+        this.query(wrapper, this.pkFilter(new Text("pk1")));
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(59));
+        this.query(wrapper, this.pkFilter(new Text("pk1")));
+        Mockito.verify(this.delegate, Mockito.times(1)).queryTable(Mockito.any(), Mockito.any());
+
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        this.query(wrapper, this.pkFilter(new Text("pk1")));
+        Mockito.verify(this.delegate, Mockito.times(2)).queryTable(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void invalidSizeTest() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> new CachingDynamoDbClientWrapper(this.delegate,
+                                                                                                     0, 0));
+        Assertions.assertEquals("Expected cache size to be a positive number (found=0)", ex.getMessage());
+    }
+
+    private List<Map<String, AttributeValue>> query(DynamoDbClientWrapper wrapper,
+                                                    Multimap<String, HiveDdbQueryFilter> filters) {
+        try (Stream<Map<String, AttributeValue>> results = wrapper.queryTable(this.params, filters)) {
+            return results.collect(Collectors.toList());
+        }
+    }
+
+    private Multimap<String, HiveDdbQueryFilter> pkFilter(Text value) {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute("pk")
+                                                      .attributeType("S")
+                                                      .operator("EQ")
+                                                      .value(value)
+                                                      .valueOi(writableStringObjectInspector)
+                                                      .build();
+        return ImmutableMultimap.of("pk", filter);
+    }
+
+    private HiveDdbQueryFilter binaryInFilter(ObjectInspector valueOi) {
+        // New arrays for every row, equal by content only
+        return HiveDdbQueryFilter.builder()
+                                 .attribute("pk")
+                                 .attributeType("B")
+                                 .operator("IN")
+                                 .value(ImmutableList.of(new BytesWritable(new byte[]{1, 2}),
+                                                         new BytesWritable(new byte[]{3})))
+                                 .valueOi(valueOi)
+                                 .build();
+    }
+}
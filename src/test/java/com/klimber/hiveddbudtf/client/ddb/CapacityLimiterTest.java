@@ -0,0 +1,57 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CapacityLimiterTest {
+    private AtomicLong nanos;
+    private Ticker ticker;
+
+    @BeforeEach
+    void setUp() {
+        this.nanos = new AtomicLong();
+        this.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return CapacityLimiterTest.this.nanos.get();
+            }
+        };
+    }
+
+    @Test
+    void waitForDebtTest() {
+        CapacityLimiter limiter = new CapacityLimiter(100, this.ticker);
+        // One second of budget is available upfront
+        limiter.consume(100);
+        Assertions.assertEquals(0, limiter.getWaitNanos());
+
+        limiter.consume(50);
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.getWaitNanos());
+
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(250), limiter.getWaitNanos());
+
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(250));
+        Assertions.assertEquals(0, limiter.getWaitNanos());
+    }
+
+    @Test
+    void burstTest() {
+        CapacityLimiter limiter = new CapacityLimiter(100, this.ticker);
+        // Unused budget is kept for one second at most
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(10));
+        limiter.consume(150);
+        Assertions.assertEquals(TimeUnit.MILLISECONDS.toNanos(500), limiter.getWaitNanos());
+    }
+
+    @Test
+    void invalidBudgetTest() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> new CapacityLimiter(0, this.ticker));
+        Assertions.assertEquals("Expected capacity budget to be positive (found=0.0)", ex.getMessage());
+    }
+}
@@ -0,0 +1,105 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class CoalescingDynamoDbClientWrapperTest {
+    private DynamoDbClientWrapper delegate;
+    private CoalescingDynamoDbClientWrapper wrapper;
+    private HiveDdbQueryParameters params;
+    private CompletableFuture<List<Map<String, AttributeValue>>> pending;
+    private Executor executor;
+
+    @BeforeEach
+    void setUp() {
+        this.delegate = Mockito.mock(DynamoDbClientWrapper.class);
+        this.wrapper = new CoalescingDynamoDbClientWrapper(this.delegate);
+        this.params = HiveDdbQueryParameters.builder().tableName("myTable").build();
+        this.pending = new CompletableFuture<>();
+        this.executor = Runnable::run;
+        Mockito.doReturn(this.pending).when(this.delegate).queryTableAsync(Mockito.any(), Mockito.any(),
+                                                                          Mockito.any());
+    }
+
+    @Test
+    void coalesceInFlightTest() throws Exception {
+        CompletableFuture<List<Map<String, AttributeValue>>> first = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+        CompletableFuture<List<Map<String, AttributeValue>>> second = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+        this.wrapper.queryTableAsync(this.params, this.pkFilter("pk2"), this.executor);
+        Mockito.verify(this.delegate, Mockito.times(2)).queryTableAsync(Mockito.any(), Mockito.any(),
+                                                                         Mockito.any());
+
+        List<Map<String, AttributeValue>> items = ImmutableList.of(ImmutableMap.of("data",
+                                                                                   new AttributeValue("data")));
+        this.pending.complete(items);
+        Assertions.assertEquals(items, first.get());
+        Assertions.assertEquals(items, second.get());
+        Assertions.assertEquals(3, this.wrapper.getQueryCount());
+        Assertions.assertEquals(1, this.wrapper.getCoalescedCount());
+
+        // Completed queries are not reused
+        this.wrapper.queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+        Mockito.verify(this.delegate, Mockito.times(3)).queryTableAsync(Mockito.any(), Mockito.any(),
+                                                                         Mockito.any());
+    }
+
+    @Test
+    void failureTest() {
+        CompletableFuture<List<Map<String, AttributeValue>>> first = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+        CompletableFuture<List<Map<String, AttributeValue>>> second = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+
+        this.pending.completeExceptionally(new SdkClientException("Connection reset"));
+        ExecutionException ex = Assertions.assertThrows(ExecutionException.class, first::get);
+        Assertions.assertTrue(ex.getCause() instanceof SdkClientException);
+        ex = Assertions.assertThrows(ExecutionException.class, second::get);
+        Assertions.assertTrue(ex.getCause() instanceof SdkClientException);
+    }
+
+    @Test
+    void cancelTest() throws Exception {
+        CompletableFuture<List<Map<String, AttributeValue>>> first = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+        CompletableFuture<List<Map<String, AttributeValue>>> second = this.wrapper
+                .queryTableAsync(this.params, this.pkFilter("pk1"), this.executor);
+
+        // A caller giving up doesn't cancel the query for the others
+        first.cancel(true);
+        List<Map<String, AttributeValue>> items = ImmutableList.of(ImmutableMap.of("data",
+                                                                                   new AttributeValue("data")));
+        this.pending.complete(items);
+        Assertions.assertTrue(first.isCancelled());
+        Assertions.assertEquals(items, second.get());
+    }
+
+    private Multimap<String, HiveDdbQueryFilter> pkFilter(String value) {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute("pk")
+                                                      .attributeType("S")
+                                                      .operator("EQ")
+                                                      .value(value)
+                                                      .valueOi(javaStringObjectInspector)
+                                                      .build();
+        return ImmutableMultimap.of("pk", filter);
+    }
+}
@@ -0,0 +1,170 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mockito;
+import software.amazon.awssdk.auth.credentials.AwsCredentials;
+import software.amazon.awssdk.services.dynamodb.DynamoDbAsyncClient;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableRequest;
+import software.amazon.awssdk.services.dynamodb.model.DescribeTableResponse;
+import software.amazon.awssdk.services.dynamodb.model.KeyType;
+import software.amazon.awssdk.services.dynamodb.model.QueryRequest;
+import software.amazon.awssdk.services.dynamodb.model.QueryResponse;
+import software.amazon.awssdk.services.dynamodb.model.ResourceNotFoundException;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class DynamoDbAsyncClientWrapperTest {
+    private DynamoDbAsyncClient client;
+    private AWSCredentialsProvider credentials;
+    private DynamoDbAsyncClientWrapper wrapper;
+    private String tableName;
+    private String partitionKeyAtt;
+    private String pkValue;
+    private String ddbAttName;
+
+    @BeforeEach
+    void setUp() {
+        this.client = Mockito.mock(DynamoDbAsyncClient.class);
+        this.credentials = Mockito.mock(AWSCredentialsProvider.class);
+        Mockito.doReturn(new BasicAWSCredentials("accessKey", "secretKey")).when(this.credentials).getCredentials();
+        this.wrapper = new DynamoDbAsyncClientWrapper(this.credentials, new DynamoDbAsyncClientAdapter(this.client),
+                                                      HiveDdbQueryConfig.builder().build(), null, null,
+                                                      Collections.emptyMap());
+        this.tableName = UUID.randomUUID().toString();
+        this.partitionKeyAtt = UUID.randomUUID().toString();
+        this.pkValue = UUID.randomUUID().toString();
+        this.ddbAttName = UUID.randomUUID().toString();
+
+        DescribeTableResponse describeTableRes = DescribeTableResponse
+                .builder()
+                .table(t -> t.tableName(this.tableName)
+                             .keySchema(k -> k.attributeName(this.partitionKeyAtt).keyType(KeyType.HASH)))
+                .build();
+        Mockito.doReturn(CompletableFuture.completedFuture(describeTableRes))
+               .when(this.client)
+               .describeTable(ArgumentMatchers.any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void queryTableAsyncTest() {
+        List<QueryRequest> requests = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            requests.add(request);
+            QueryResponse.Builder page = QueryResponse.builder().items(this.item("row" + requests.size()));
+            if (requests.size() == 1) {
+                page.lastEvaluatedKey(ImmutableMap.of(this.partitionKeyAtt, this.stringValue(this.pkValue)));
+            }
+            return CompletableFuture.completedFuture(page.build());
+        }).when(this.client).query(ArgumentMatchers.any(QueryRequest.class));
+
+        List<Map<String, AttributeValue>> actual = this.wrapper.queryTableAsync(this.getSampleParams().build(),
+                                                                                this.getFilters(), null).join();
+
+        List<Map<String, AttributeValue>> expected = ImmutableList.of(
+                ImmutableMap.of(this.ddbAttName, new AttributeValue("row1")),
+                ImmutableMap.of(this.ddbAttName, new AttributeValue("row2")));
+        Assertions.assertEquals(expected, actual);
+        Assertions.assertEquals(2, requests.size());
+        QueryRequest first = requests.get(0);
+        Assertions.assertEquals(this.tableName, first.tableName());
+        Assertions.assertEquals("#pk = :pkValue", first.keyConditionExpression());
+        Assertions.assertEquals(this.stringValue(this.pkValue), first.expressionAttributeValues().get(":pkValue"));
+        Assertions.assertFalse(first.hasExclusiveStartKey());
+        Assertions.assertEquals(ImmutableMap.of(this.partitionKeyAtt, this.stringValue(this.pkValue)),
+                                requests.get(1).exclusiveStartKey());
+        AwsCredentials signedWith = first.overrideConfiguration()
+                                         .flatMap(c -> c.credentialsProvider())
+                                         .orElseThrow(IllegalStateException::new)
+                                         .resolveCredentials();
+        Assertions.assertEquals("accessKey", signedWith.accessKeyId());
+    }
+
+    @Test
+    void queryTableAsyncLimitTest() {
+        List<Integer> pageLimits = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            pageLimits.add(request.limit());
+            List<Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue>> items =
+                    Collections.nCopies(request.limit(), this.item("row"));
+            return CompletableFuture.completedFuture(QueryResponse
+                    .builder()
+                    .items(items)
+                    .lastEvaluatedKey(ImmutableMap.of(this.partitionKeyAtt, this.stringValue(this.pkValue)))
+                    .build());
+        }).when(this.client).query(ArgumentMatchers.any(QueryRequest.class));
+
+        HiveDdbQueryParameters params = this.getSampleParams().limit(3).pageSize(2).build();
+        List<Map<String, AttributeValue>> actual = this.wrapper.queryTableAsync(params, this.getFilters(), null)
+                                                               .join();
+
+        Assertions.assertEquals(3, actual.size());
+        Assertions.assertEquals(ImmutableList.of(2, 1), pageLimits);
+    }
+
+    @Test
+    void queryTableAsyncErrorTest() {
+        CompletableFuture<QueryResponse> failed = new CompletableFuture<>();
+        failed.completeExceptionally(ResourceNotFoundException.builder().message("Not found").build());
+        Mockito.doReturn(failed).when(this.client).query(ArgumentMatchers.any(QueryRequest.class));
+
+        CompletableFuture<List<Map<String, AttributeValue>>> actual = this.wrapper.queryTableAsync(
+                this.getSampleParams().build(), this.getFilters(), null);
+
+        CompletionException e = Assertions.assertThrows(CompletionException.class, actual::join);
+        Assertions.assertTrue(e.getCause() instanceof ResourceNotFoundException);
+    }
+
+    private Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue> item(String value) {
+        return ImmutableMap.of(this.ddbAttName, this.stringValue(value));
+    }
+
+    private software.amazon.awssdk.services.dynamodb.model.AttributeValue stringValue(String value) {
+        return software.amazon.awssdk.services.dynamodb.model.AttributeValue.builder().s(value).build();
+    }
+
+    private Multimap<String, HiveDdbQueryFilter> getFilters() {
+        return ImmutableMultimap.of(this.partitionKeyAtt, HiveDdbQueryFilter.builder()
+                                                                            .attribute(this.partitionKeyAtt)
+                                                                            .attributeType("S")
+                                                                            .operator("EQ")
+                                                                            .value(this.pkValue)
+                                                                            .valueOi(javaStringObjectInspector)
+                                                                            .build());
+    }
+
+    private HiveDdbQueryParameters.HiveDdbQueryParametersBuilder getSampleParams() {
+        return HiveDdbQueryParameters.builder()
+                                     .tableName(this.tableName)
+                                     .hiveDdbColumnMapping(ImmutableList.of(
+                                             ColumnMapping.builder()
+                                                          .hiveColumn("col")
+                                                          .ddbAttName(this.ddbAttName)
+                                                          .build()))
+                                     .hiveTypes(ImmutableList.of(
+                                             TypeInfoFactory.getPrimitiveTypeInfo("string")));
+    }
+}
@@ -2,31 +2,62 @@ package com.klimber.hiveddbudtf.client.ddb;
 
 import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.AWSCredentialsProvider;
+import com.amazonaws.auth.AWSStaticCredentialsProvider;
+import com.amazonaws.auth.BasicAWSCredentials;
 import com.amazonaws.services.dynamodbv2.AmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
 import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
 import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.GlobalSecondaryIndexDescription;
 import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
 import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
 import com.amazonaws.services.dynamodbv2.model.LocalSecondaryIndexDescription;
+import com.amazonaws.services.dynamodbv2.model.Projection;
+import com.amazonaws.services.dynamodbv2.model.ProjectionType;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputDescription;
+import com.amazonaws.services.dynamodbv2.model.PutRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryRequest;
 import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
 import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
 import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 
 import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
@@ -62,7 +93,7 @@ class DynamoDbClientWrapperImplTest {
         Collection<KeySchemaElement> keySchema = ImmutableList.of(keySchemaElement);
         TableDescription table = new TableDescription().withKeySchema(keySchema);
         DescribeTableResult describeTableRes = new DescribeTableResult().withTable(table);
-        Mockito.doReturn(describeTableRes).when(this.client).describeTable(this.tableName);
+        Mockito.doReturn(describeTableRes).when(this.client).describeTable(this.describeRequest(this.tableName));
 
         QueryRequest firstRequest = new QueryRequest()
                 .withTableName(this.tableName)
@@ -92,6 +123,28 @@ class DynamoDbClientWrapperImplTest {
         Assertions.assertEquals(expected, actual);
     }
 
+    @Test
+    void queryLimitTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().limit(3).scanIndexForward(false).pageSize(2).build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+
+        Map<String, AttributeValue> record = ImmutableMap.of(this.ddbAttName, new AttributeValue("value"));
+        Map<String, AttributeValue> lastKey = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        List<Integer> pageLimits = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            Assertions.assertFalse(request.getScanIndexForward());
+            pageLimits.add(request.getLimit());
+            return new QueryResult().withItems(Collections.nCopies(request.getLimit(), record))
+                                    .withLastEvaluatedKey(lastKey);
+        }).when(this.client).query(Mockito.any());
+
+        Assertions.assertEquals(3, this.wrapper.queryTable(params, filters).count());
+        // The partition has more pages, but the second one only asks for the missing item and paging stops
+        Assertions.assertEquals(ImmutableList.of(2, 1), pageLimits);
+    }
+
     @Test
     void queryTableWithIndexNameTest() {
         String indexName = UUID.randomUUID().toString();
@@ -111,7 +164,7 @@ class DynamoDbClientWrapperImplTest {
                 .withGlobalSecondaryIndexes(ImmutableList.of())
                 .withLocalSecondaryIndexes(ImmutableList.of(localIndex));
         DescribeTableResult describeTableRes = new DescribeTableResult().withTable(table);
-        Mockito.doReturn(describeTableRes).when(this.client).describeTable(this.tableName);
+        Mockito.doReturn(describeTableRes).when(this.client).describeTable(this.describeRequest(this.tableName));
 
         QueryRequest firstRequest = new QueryRequest()
                 .withTableName(this.tableName)
@@ -142,16 +195,432 @@ class DynamoDbClientWrapperImplTest {
         Assertions.assertEquals(expected, actual);
     }
 
+    @Test
+    void batchGetItemsTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        this.mockHashKeyTable();
+
+        Map<String, AttributeValue> key1 = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue("key1"));
+        Map<String, AttributeValue> key2 = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue("key2"));
+        Map<String, AttributeValue> item1 = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue("key1"),
+                                                            this.ddbAttName, new AttributeValue("value1"));
+        Map<String, AttributeValue> item2 = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue("key2"),
+                                                            this.ddbAttName, new AttributeValue("value2"));
+        KeysAndAttributes unprocessed = new KeysAndAttributes().withKeys(key2);
+        Mockito.doReturn(new BatchGetItemResult()
+                                 .withResponses(ImmutableMap.of(this.tableName, ImmutableList.of(item1)))
+                                 .withUnprocessedKeys(ImmutableMap.of(this.tableName, unprocessed)))
+               .when(this.client)
+               .batchGetItem(Mockito.argThat((BatchGetItemRequest r) -> r.getRequestItems()
+                                                                         .get(this.tableName)
+                                                                         .getKeys()
+                                                                         .size() == 2));
+        Mockito.doReturn(new BatchGetItemResult()
+                                 .withResponses(ImmutableMap.of(this.tableName, ImmutableList.of(item2)))
+                                 .withUnprocessedKeys(ImmutableMap.of()))
+               .when(this.client)
+               .batchGetItem(new BatchGetItemRequest().withRequestItems(ImmutableMap.of(this.tableName,
+                                                                                        unprocessed)));
+
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> actual =
+                this.wrapper.batchGetItems(params, ImmutableList.of(key1, key2));
+        Assertions.assertEquals(ImmutableMap.of(key1, item1, key2, item2), actual);
+
+        BatchGetItemRequest firstRequest = Mockito.mockingDetails(this.client)
+                                                  .getInvocations().stream()
+                                                  .filter(i -> i.getMethod().getName().equals("batchGetItem"))
+                                                  .map(i -> (BatchGetItemRequest) i.getArgument(0))
+                                                  .findFirst()
+                                                  .orElseThrow(AssertionError::new);
+        KeysAndAttributes requested = firstRequest.getRequestItems().get(this.tableName);
+        Assertions.assertEquals(ImmutableMap.of("#p0", this.ddbAttName, "#k0", this.partitionKeyAtt),
+                                requested.getExpressionAttributeNames());
+    }
+
+    @Test
+    void batchGetItemsNumericKeyTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        this.mockHashKeyTable();
+
+        Map<String, AttributeValue> key = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue().withN("1.50"));
+        Map<String, AttributeValue> sameKey = ImmutableMap.of(this.partitionKeyAtt,
+                                                              new AttributeValue().withN("01.5"));
+        Map<String, AttributeValue> item = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue().withN("1.5"),
+                                                           this.ddbAttName, new AttributeValue("value"));
+        Mockito.doReturn(new BatchGetItemResult()
+                                 .withResponses(ImmutableMap.of(this.tableName, ImmutableList.of(item)))
+                                 .withUnprocessedKeys(ImmutableMap.of()))
+               .when(this.client)
+               .batchGetItem(Mockito.any(BatchGetItemRequest.class));
+
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> actual =
+                this.wrapper.batchGetItems(params, ImmutableList.of(key, sameKey));
+        Assertions.assertSame(item, actual.get(ItemKeys.normalize(key)));
+        Assertions.assertSame(item, actual.get(ItemKeys.normalize(sameKey)));
+
+        ArgumentCaptor<BatchGetItemRequest> request = ArgumentCaptor.forClass(BatchGetItemRequest.class);
+        Mockito.verify(this.client).batchGetItem(request.capture());
+        // Both forms are the same item, which BatchGetItem only accepts once
+        Assertions.assertEquals(ImmutableList.of(ImmutableMap.of(this.partitionKeyAtt,
+                                                                 new AttributeValue().withN("1.5"))),
+                                request.getValue().getRequestItems().get(this.tableName).getKeys());
+    }
+
+    @Test
+    void batchPutItemsTest() {
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client,
+                                                     HiveDdbQueryConfig.builder().writeThroughputWcu(1_000).build());
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            items.add(ImmutableMap.of(this.partitionKeyAtt, new AttributeValue("key" + i)));
+        }
+        WriteRequest unprocessed = new WriteRequest(new PutRequest(items.get(0)));
+        List<Integer> batchSizes = new ArrayList<>();
+        Mockito.doAnswer(invocation -> {
+            BatchWriteItemRequest request = invocation.getArgument(0);
+            List<WriteRequest> writes = request.getRequestItems().get(this.tableName);
+            batchSizes.add(writes.size());
+            Assertions.assertEquals(ReturnConsumedCapacity.TOTAL.toString(), request.getReturnConsumedCapacity());
+            // The first batch leaves an item unprocessed, which is written by the retry
+            return new BatchWriteItemResult().withUnprocessedItems(
+                    batchSizes.size() == 1
+                    ? ImmutableMap.of(this.tableName, ImmutableList.of(unprocessed))
+                    : ImmutableMap.of());
+        }).when(this.client).batchWriteItem(Mockito.any());
+
+        Assertions.assertTrue(this.wrapper.batchPutItems(this.tableName, items).isEmpty());
+        Assertions.assertEquals(ImmutableList.of(25, 1, 5), batchSizes);
+    }
+
+    @Test
+    void findPrimaryKeyTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+
+        Map<String, AttributeValue> expected = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        Assertions.assertEquals(expected, this.wrapper.findPrimaryKey(params, filters).orElse(null));
+
+        HiveDdbQueryParameters indexParams = this.getSampleParams().indexName("myIndex").build();
+        Assertions.assertFalse(this.wrapper.findPrimaryKey(indexParams, filters).isPresent());
+    }
+
+    @Test
+    void existsPrimaryKeyTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+        Map<String, AttributeValue> key = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        Mockito.doReturn(new GetItemResult().withItem(key)
+                                            .withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5)))
+               .when(this.client).getItem(Mockito.any(GetItemRequest.class));
+
+        Assertions.assertTrue(this.wrapper.exists(params, filters));
+        ArgumentCaptor<GetItemRequest> request = ArgumentCaptor.forClass(GetItemRequest.class);
+        Mockito.verify(this.client).getItem(request.capture());
+        Assertions.assertEquals(key, request.getValue().getKey());
+        // Only the key attributes are read, whatever the column mappings
+        Assertions.assertEquals("#k0", request.getValue().getProjectionExpression());
+        Assertions.assertEquals(ImmutableMap.of("#k0", this.partitionKeyAtt),
+                                request.getValue().getExpressionAttributeNames());
+        Assertions.assertEquals(1, this.wrapper.getExistenceCheckCount());
+        Assertions.assertEquals(0.5, this.wrapper.getExistenceCapacityUnits());
+
+        Mockito.doReturn(new GetItemResult()).when(this.client).getItem(Mockito.any(GetItemRequest.class));
+        Assertions.assertFalse(this.wrapper.exists(params, filters));
+    }
+
+    @Test
+    void existsQueryTest() {
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        HiveDdbQueryFilter attributeFilter = HiveDdbQueryFilter.builder()
+                                                               .attribute(this.ddbAttName)
+                                                               .attributeType("S")
+                                                               .operator("EQ")
+                                                               .value("value")
+                                                               .valueOi(javaStringObjectInspector)
+                                                               .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter(),
+                                                                            this.ddbAttName, attributeFilter);
+        this.mockHashKeyTable();
+        Map<String, AttributeValue> lastKey = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        Mockito.doReturn(new QueryResult().withCount(0).withLastEvaluatedKey(lastKey),
+                         new QueryResult().withCount(1).withLastEvaluatedKey(lastKey))
+               .when(this.client).query(Mockito.any());
+
+        // Filter expressions are applied after Limit, so pages are read until an item matches
+        Assertions.assertTrue(this.wrapper.exists(params, filters));
+        ArgumentCaptor<QueryRequest> request = ArgumentCaptor.forClass(QueryRequest.class);
+        Mockito.verify(this.client, Mockito.times(2)).query(request.capture());
+        Assertions.assertEquals(Select.COUNT.toString(), request.getValue().getSelect());
+        Assertions.assertNull(request.getValue().getLimit());
+        Assertions.assertNull(request.getValue().getProjectionExpression());
+        Assertions.assertFalse(request.getValue().getExpressionAttributeNames().containsKey("#p0"));
+    }
+
+    @Test
+    void scanTableTest() {
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder().scanSubSegments(2).build();
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client, config);
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        HiveDdbQueryFilter attributeFilter = HiveDdbQueryFilter.builder()
+                                                               .attribute(this.ddbAttName)
+                                                               .attributeType("S")
+                                                               .operator("EQ")
+                                                               .value("value")
+                                                               .valueOi(javaStringObjectInspector)
+                                                               .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.ddbAttName, attributeFilter);
+
+        Map<String, AttributeValue> lastKey = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        List<Integer> segments = Collections.synchronizedList(new ArrayList<>());
+        Mockito.doAnswer(invocation -> {
+            ScanRequest request = invocation.getArgument(0);
+            Assertions.assertEquals(6, request.getTotalSegments());
+            Assertions.assertEquals("#a1 = :a1v1", request.getFilterExpression());
+            Assertions.assertEquals(new AttributeValue("value"), request.getExpressionAttributeValues().get(":a1v1"));
+            segments.add(request.getSegment());
+            Map<String, AttributeValue> item = ImmutableMap.of(this.ddbAttName,
+                                                               new AttributeValue("s" + request.getSegment()));
+            // Two pages for each sub-segment
+            return new ScanResult().withItems(ImmutableList.of(item))
+                                   .withLastEvaluatedKey(Objects.isNull(request.getExclusiveStartKey())
+                                                         ? lastKey
+                                                         : null);
+        }).when(this.client).scan(Mockito.any());
+
+        // Segment 1 of 3 is split into segments 2 and 3 of 6
+        List<String> values;
+        try (Stream<Map<String, AttributeValue>> items = this.wrapper.scanTable(params, filters, 1, 3)) {
+            values = items.map(item -> item.get(this.ddbAttName).getS()).sorted().collect(Collectors.toList());
+        }
+        Assertions.assertEquals(ImmutableList.of("s2", "s2", "s3", "s3"), values);
+        Assertions.assertEquals(ImmutableList.of(2, 2, 3, 3), segments.stream().sorted().collect(Collectors.toList()));
+        Mockito.verify(this.client, Mockito.never()).query(Mockito.any());
+
+        IllegalArgumentException e = Assertions.assertThrows(IllegalArgumentException.class,
+                                                             () -> this.wrapper.scanTable(params, filters, 3, 3));
+        Assertions.assertEquals("Expected segment to be between 0 and totalSegments - 1 (segment=3, totalSegments=3)",
+                                e.getMessage());
+    }
+
+    @Test
+    void requestCredentialsTest() {
+        AWSCredentialsProvider credentials = Mockito.mock(AWSCredentialsProvider.class);
+        this.wrapper = new DynamoDbClientWrapperImpl(credentials, this.client);
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+        Mockito.doReturn(new QueryResult().withItems(ImmutableList.of())).when(this.client).query(Mockito.any());
+        Assertions.assertEquals(0, this.wrapper.queryTable(params, filters).count());
+
+        // The client is shared, so each request carries the credentials of its wrapper
+        ArgumentCaptor<DescribeTableRequest> describeRequest = ArgumentCaptor.forClass(DescribeTableRequest.class);
+        Mockito.verify(this.client).describeTable(describeRequest.capture());
+        Assertions.assertSame(credentials, describeRequest.getValue().getRequestCredentialsProvider());
+        ArgumentCaptor<QueryRequest> queryRequest = ArgumentCaptor.forClass(QueryRequest.class);
+        Mockito.verify(this.client).query(queryRequest.capture());
+        Assertions.assertSame(credentials, queryRequest.getValue().getRequestCredentialsProvider());
+    }
+
+    @Test
+    void readThrottledQueryTest() {
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder().readThroughputRcu(100).build();
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client, config);
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+
+        QueryResult page = new QueryResult().withItems(ImmutableList.of())
+                                            .withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(10.0));
+        Mockito.doReturn(page).when(this.client).query(Mockito.any());
+        Assertions.assertEquals(0, this.wrapper.queryTable(params, filters).count());
+
+        ArgumentCaptor<QueryRequest> request = ArgumentCaptor.forClass(QueryRequest.class);
+        Mockito.verify(this.client).query(request.capture());
+        Assertions.assertEquals(ReturnConsumedCapacity.TOTAL.toString(),
+                                request.getValue().getReturnConsumedCapacity());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void queryMetricsTest() {
+        DynamoDbMetrics metrics = new DynamoDbMetrics();
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client,
+                                                     HiveDdbQueryConfig.builder().build(), metrics,
+                                                     Collections.emptyMap());
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        this.mockHashKeyTable();
+
+        Map<String, AttributeValue> record = ImmutableMap.of(this.ddbAttName, new AttributeValue("value"));
+        Map<String, AttributeValue> lastKey = ImmutableMap.of(this.partitionKeyAtt, new AttributeValue(this.pkValue));
+        Mockito.doAnswer(invocation -> {
+            QueryRequest request = invocation.getArgument(0);
+            // The consumed capacity is requested for the metrics, even though reads are not throttled
+            Assertions.assertEquals(ReturnConsumedCapacity.TOTAL.toString(), request.getReturnConsumedCapacity());
+            return new QueryResult().withItems(ImmutableList.of(record, record))
+                                    .withConsumedCapacity(new ConsumedCapacity().withCapacityUnits(0.5))
+                                    .withLastEvaluatedKey(Objects.isNull(request.getExclusiveStartKey())
+                                                          ? lastKey
+                                                          : null);
+        }).when(this.client).query(Mockito.any());
+
+        try (Stream<Map<String, AttributeValue>> items = this.wrapper.queryTable(params, filters)) {
+            Assertions.assertEquals(4, items.count());
+        }
+        Assertions.assertEquals(1, metrics.getQueryCount());
+        Assertions.assertEquals(2, metrics.getPageCount());
+        Assertions.assertEquals(4, metrics.getItemCount());
+        Assertions.assertEquals(1.0, metrics.getReadCapacityUnits());
+
+        // Pages and items per query are recorded once the query stream is closed
+        Map<String, Object> table = (Map<String, Object>) ((Map<String, Object>) metrics.toMap().get("tables"))
+                .get(params.getTableName());
+        Assertions.assertEquals(2L, table.get("pages"));
+        Assertions.assertEquals(2L, ((Map<String, Object>) table.get("pagesPerQuery")).get("max"));
+        Assertions.assertEquals(4L, ((Map<String, Object>) table.get("itemsPerQuery")).get("max"));
+        Assertions.assertEquals(2L, ((Map<String, Object>) table.get("bytesPerPage")).get("count"));
+
+        metrics.onAttempt("Query", 0, 0, true);
+        metrics.onRetry("Query");
+        Assertions.assertEquals(1, metrics.getThrottleCount());
+        Assertions.assertEquals(1, metrics.getRetryCount());
+    }
+
+    @Test
+    void readLimiterBudgetTest() {
+        GlobalSecondaryIndexDescription globalIndex = new GlobalSecondaryIndexDescription()
+                .withIndexName("globalIndex")
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(200L));
+        TableDescription table = new TableDescription()
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(1_000L))
+                .withGlobalSecondaryIndexes(ImmutableList.of(globalIndex));
+        Mockito.doReturn(new DescribeTableResult().withTable(table))
+               .when(this.client)
+               .describeTable(this.describeRequest(this.tableName));
+        TableDescription onDemandTable = new TableDescription()
+                .withBillingModeSummary(new BillingModeSummary().withBillingMode(BillingMode.PAY_PER_REQUEST))
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(0L));
+        Mockito.doReturn(new DescribeTableResult().withTable(onDemandTable))
+               .when(this.client)
+               .describeTable(this.describeRequest("onDemand"));
+
+        HiveDdbQueryConfig config = HiveDdbQueryConfig.builder().readThroughputPercent(0.5).throughputTasks(4).build();
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client, config);
+        Assertions.assertEquals(125, this.wrapper.getReadLimiter(this.tableName, null).getUnitsPerSecond());
+        Assertions.assertEquals(25, this.wrapper.getReadLimiter(this.tableName, "globalIndex").getUnitsPerSecond());
+        Assertions.assertEquals(5_000, this.wrapper.getReadLimiter("onDemand", null).getUnitsPerSecond());
+
+        config = config.toBuilder().readThroughputRcu(400).build();
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client, config);
+        Assertions.assertEquals(100, this.wrapper.getReadLimiter(this.tableName, null).getUnitsPerSecond());
+    }
+
     @Test
     void describeTableFailureTest() {
         HiveDdbQueryParameters params = this.getSampleParams().build();
-        Mockito.doThrow(SdkClientException.class).when(this.client).describeTable(this.tableName);
+        Mockito.doThrow(SdkClientException.class).when(this.client).describeTable(this.describeRequest(this.tableName));
 
         DynamoDbClientWrapperException ex = Assertions.assertThrows(DynamoDbClientWrapperException.class,
                                                                     () -> this.wrapper.queryTable(params, null));
         Assertions.assertTrue(ex.getMessage().contains("Failed to load table description."));
     }
 
+    @Test
+    void planTimeSchemaTest() {
+        KeySchemaElement keySchemaElement = new KeySchemaElement()
+                .withAttributeName(this.partitionKeyAtt)
+                .withKeyType(KeyType.HASH);
+        TableDescription table = new TableDescription().withTableName(this.tableName)
+                                                       .withKeySchema(ImmutableList.of(keySchemaElement));
+        DdbTableSchema schema = DdbTableSchema.of(table);
+        this.wrapper = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class), this.client,
+                                                     HiveDdbQueryConfig.builder().build(),
+                                                     ImmutableMap.of(this.tableName, schema));
+        Mockito.doReturn(new QueryResult()).when(this.client).query(Mockito.any());
+
+        HiveDdbQueryParameters params = this.getSampleParams().build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.partitionKeyAtt, this.getPkFilter());
+        Assertions.assertEquals(0, this.wrapper.queryTable(params, filters).count());
+        Assertions.assertSame(schema, this.wrapper.describeTableSchema(this.tableName));
+        Mockito.verify(this.client, Mockito.never()).describeTable(Mockito.any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void sharedSchemaCacheTest() {
+        this.mockHashKeyTable();
+        DynamoDbClientWrapperImpl other = new DynamoDbClientWrapperImpl(Mockito.mock(AWSCredentialsProvider.class),
+                                                                        this.client);
+        Assertions.assertSame(this.wrapper.describeTableSchema(this.tableName),
+                              other.describeTableSchema(this.tableName));
+        Mockito.verify(this.client).describeTable(Mockito.any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void schemaCacheByCredentialsTest() {
+        this.mockHashKeyTable();
+        AWSCredentialsProvider account1 = new AWSStaticCredentialsProvider(new BasicAWSCredentials("key1", "s"));
+        AWSCredentialsProvider account2 = new AWSStaticCredentialsProvider(new BasicAWSCredentials("key2", "s"));
+        new DynamoDbClientWrapperImpl(account1, this.client).describeTableSchema(this.tableName);
+        // Another account may have a table with the same name
+        new DynamoDbClientWrapperImpl(account2, this.client).describeTableSchema(this.tableName);
+        new DynamoDbClientWrapperImpl(account1, this.client).describeTableSchema(this.tableName);
+        Mockito.verify(this.client, Mockito.times(2)).describeTable(Mockito.any(DescribeTableRequest.class));
+    }
+
+    @Test
+    void tableSchemaTest() {
+        GlobalSecondaryIndexDescription globalIndex = new GlobalSecondaryIndexDescription()
+                .withIndexName("globalIndex")
+                .withKeySchema(new KeySchemaElement("gsiHash", KeyType.HASH))
+                .withProjection(new Projection().withProjectionType(ProjectionType.INCLUDE)
+                                                .withNonKeyAttributes("att"))
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(20L));
+        LocalSecondaryIndexDescription localIndex = new LocalSecondaryIndexDescription()
+                .withIndexName("localIndex")
+                .withKeySchema(new KeySchemaElement("hash", KeyType.HASH), new KeySchemaElement("lsiRange",
+                                                                                                 KeyType.RANGE))
+                .withProjection(new Projection().withProjectionType(ProjectionType.KEYS_ONLY));
+        TableDescription table = new TableDescription()
+                .withTableName(this.tableName)
+                .withAttributeDefinitions(new AttributeDefinition("hash", ScalarAttributeType.S))
+                .withKeySchema(new KeySchemaElement("hash", KeyType.HASH), new KeySchemaElement("range",
+                                                                                                KeyType.RANGE))
+                .withProvisionedThroughput(new ProvisionedThroughputDescription().withReadCapacityUnits(100L))
+                .withGlobalSecondaryIndexes(globalIndex)
+                .withLocalSecondaryIndexes(localIndex);
+
+        DdbTableSchema schema = DdbTableSchema.of(table);
+        Assertions.assertFalse(schema.isOnDemand());
+        Assertions.assertEquals("S", schema.getAttributeTypes().get("hash"));
+        Assertions.assertEquals(ImmutableMap.of(KeyType.HASH, "hash", KeyType.RANGE, "range"),
+                                schema.getKeyAttributes(null));
+        Assertions.assertEquals(100, schema.getBaseTable().getReadCapacityUnits());
+        Assertions.assertEquals(ImmutableMap.of(KeyType.HASH, "gsiHash"), schema.getKeyAttributes("globalIndex"));
+        Assertions.assertTrue(schema.getIndex("globalIndex").isGlobal());
+        Assertions.assertEquals(ImmutableList.of("att"), schema.getIndex("globalIndex").getNonKeyAttributes());
+        Assertions.assertEquals(20, schema.getIndex("globalIndex").getReadCapacityUnits());
+        Assertions.assertEquals("lsiRange", schema.getKeyAttributes("localIndex").get(KeyType.RANGE));
+        Assertions.assertFalse(schema.getIndex("localIndex").isGlobal());
+        Assertions.assertEquals(100, schema.getIndex("localIndex").getReadCapacityUnits());
+        Assertions.assertTrue(schema.getKeyAttributes("unknown").isEmpty());
+    }
+
+    private void mockHashKeyTable() {
+        KeySchemaElement keySchemaElement = new KeySchemaElement()
+                .withAttributeName(this.partitionKeyAtt)
+                .withKeyType(KeyType.HASH);
+        TableDescription table = new TableDescription().withKeySchema(ImmutableList.of(keySchemaElement));
+        Mockito.doReturn(new DescribeTableResult().withTable(table))
+               .when(this.client)
+               .describeTable(this.describeRequest(this.tableName));
+    }
+
+    private DescribeTableRequest describeRequest(String tableName) {
+        return new DescribeTableRequest().withTableName(tableName);
+    }
+
     private HiveDdbQueryFilter getPkFilter() {
         return HiveDdbQueryFilter.builder()
                                  .attribute(this.partitionKeyAtt)
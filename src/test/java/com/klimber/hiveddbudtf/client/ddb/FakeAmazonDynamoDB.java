@@ -0,0 +1,753 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.AmazonServiceException;
+import com.amazonaws.AmazonWebServiceRequest;
+import com.amazonaws.services.dynamodbv2.AbstractAmazonDynamoDB;
+import com.amazonaws.services.dynamodbv2.model.AttributeDefinition;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchGetItemResult;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemRequest;
+import com.amazonaws.services.dynamodbv2.model.BatchWriteItemResult;
+import com.amazonaws.services.dynamodbv2.model.BillingMode;
+import com.amazonaws.services.dynamodbv2.model.BillingModeSummary;
+import com.amazonaws.services.dynamodbv2.model.ConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableRequest;
+import com.amazonaws.services.dynamodbv2.model.DescribeTableResult;
+import com.amazonaws.services.dynamodbv2.model.GetItemRequest;
+import com.amazonaws.services.dynamodbv2.model.GetItemResult;
+import com.amazonaws.services.dynamodbv2.model.KeySchemaElement;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.KeysAndAttributes;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ResourceNotFoundException;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.amazonaws.services.dynamodbv2.model.ScalarAttributeType;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanResult;
+import com.amazonaws.services.dynamodbv2.model.Select;
+import com.amazonaws.services.dynamodbv2.model.TableDescription;
+import com.amazonaws.services.dynamodbv2.model.WriteRequest;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * In-process stand-in for DynamoDB, serving Query, Scan, GetItem, BatchGetItem, BatchWriteItem and
+ * DescribeTable from seeded tables, so pagination, throttling, latency and consumed capacity can be tested
+ * offline, end to end through {@link DynamoDbClientWrapperImpl}.
+ * <p>
+ * Like DynamoDB:
+ * <ul>
+ *     <li>Query and Scan pages stop after {@code Limit} evaluated items or 1 MB of evaluated items, filter
+ *     expressions being applied after, and consume 4 KB read units over the evaluated items</li>
+ *     <li>reads consume half a unit when eventually consistent, writes a unit per 1 KB of item</li>
+ *     <li>throttled attempts are retried up to {@link #withMaxRetries(int)} times, reporting every attempt
+ *     and retry to the {@link DynamoDbRequestListener} attached to the request, as the SDK client does</li>
+ *     <li>batch operations may leave keys and items unprocessed, see {@link #withUnprocessedRate(double)}</li>
+ * </ul>
+ * Global and local secondary indexes are not supported.
+ */
+public class FakeAmazonDynamoDB extends AbstractAmazonDynamoDB {
+    static final int MAX_PAGE_BYTES = 1024 * 1024;
+    private static final int READ_UNIT_BYTES = 4 * 1024;
+    private static final int WRITE_UNIT_BYTES = 1024;
+    private static final AttributeValue NO_SORT_KEY = new AttributeValue().withNULL(true);
+
+    private final ConcurrentMap<String, Table> tables = new ConcurrentHashMap<>();
+    private final Random random = new Random(42);
+    private volatile Latency latency = Latency.none();
+    private volatile double throttleRate;
+    private volatile double unprocessedRate;
+    private volatile int maxRetries = 10;
+    private volatile CapacityBucket readCapacity;
+
+    private final ConcurrentMap<String, LongAdder> requests = new ConcurrentHashMap<>();
+    private final LongAdder attempts = new LongAdder();
+    private final LongAdder throttledAttempts = new LongAdder();
+    private final DoubleAdder consumedReadCapacity = new DoubleAdder();
+    private final DoubleAdder consumedWriteCapacity = new DoubleAdder();
+
+    /**
+     * @param tableName the table name
+     * @param hashKey   the hash key attribute
+     * @param sortKey   the sort key attribute, {@code null} for tables without sort key
+     */
+    public FakeAmazonDynamoDB createTable(String tableName, String hashKey, String sortKey) {
+        this.tables.put(tableName, new Table(tableName, hashKey, sortKey));
+        return this;
+    }
+
+    /**
+     * Stores items without consuming capacity, replacing items with the same key.
+     */
+    public FakeAmazonDynamoDB putItems(String tableName, Iterable<Map<String, AttributeValue>> items) {
+        Table table = this.getTable(tableName);
+        for (Map<String, AttributeValue> item : items) {
+            table.put(item);
+        }
+        return this;
+    }
+
+    /**
+     * @param latency the time taken by every attempt
+     */
+    public FakeAmazonDynamoDB withLatency(Latency latency) {
+        this.latency = latency;
+        return this;
+    }
+
+    /**
+     * @param throttleRate the share of attempts failing with {@link ProvisionedThroughputExceededException}
+     */
+    public FakeAmazonDynamoDB withThrottleRate(double throttleRate) {
+        this.throttleRate = throttleRate;
+        return this;
+    }
+
+    /**
+     * @param unprocessedRate the share of keys and items left unprocessed by batch operations
+     */
+    public FakeAmazonDynamoDB withUnprocessedRate(double unprocessedRate) {
+        this.unprocessedRate = unprocessedRate;
+        return this;
+    }
+
+    /**
+     * @param maxRetries the number of retries of throttled attempts before the request fails
+     */
+    public FakeAmazonDynamoDB withMaxRetries(int maxRetries) {
+        this.maxRetries = maxRetries;
+        return this;
+    }
+
+    /**
+     * Throttles reads once the read capacity units consumed in the last second exceed the given capacity.
+     */
+    public FakeAmazonDynamoDB withReadCapacity(double capacityUnitsPerSecond) {
+        this.readCapacity = new CapacityBucket(capacityUnitsPerSecond);
+        return this;
+    }
+
+    /**
+     * @return a wrapper sending its requests to this fake, as the UDTFs would to DynamoDB
+     */
+    public DynamoDbClientWrapperImpl newWrapper(HiveDdbQueryConfig config, DynamoDbRequestListener listener,
+                                                DynamoDbMetrics metrics) {
+        return this.newWrapper(config, listener, metrics, Collections.emptyMap());
+    }
+
+    /**
+     * @param schemas table schemas resolved during query planning
+     */
+    public DynamoDbClientWrapperImpl newWrapper(HiveDdbQueryConfig config, DynamoDbRequestListener listener,
+                                                DynamoDbMetrics metrics, Map<String, DdbTableSchema> schemas) {
+        return new DynamoDbClientWrapperImpl(null, this, config, listener, metrics, schemas);
+    }
+
+    public long getRequestCount(String operation) {
+        LongAdder count = this.requests.get(operation);
+        return Objects.isNull(count) ? 0 : count.sum();
+    }
+
+    public long getRequestCount() {
+        return this.requests.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    public long getAttemptCount() {
+        return this.attempts.sum();
+    }
+
+    public long getThrottledAttemptCount() {
+        return this.throttledAttempts.sum();
+    }
+
+    public double getConsumedReadCapacity() {
+        return this.consumedReadCapacity.sum();
+    }
+
+    public double getConsumedWriteCapacity() {
+        return this.consumedWriteCapacity.sum();
+    }
+
+    @Override
+    public DescribeTableResult describeTable(DescribeTableRequest request) {
+        return this.execute(request, false, () -> {
+            Table table = this.getTable(request.getTableName());
+            List<KeySchemaElement> keySchema = new ArrayList<>();
+            keySchema.add(new KeySchemaElement(table.hashKey, KeyType.HASH));
+            if (Objects.nonNull(table.sortKey)) {
+                keySchema.add(new KeySchemaElement(table.sortKey, KeyType.RANGE));
+            }
+            return new DescribeTableResult().withTable(new TableDescription()
+                    .withTableName(table.name)
+                    .withKeySchema(keySchema)
+                    .withAttributeDefinitions(table.getAttributeDefinitions())
+                    .withItemCount(table.size())
+                    .withBillingModeSummary(new BillingModeSummary().withBillingMode(BillingMode.PAY_PER_REQUEST)));
+        });
+    }
+
+    @Override
+    public QueryResult query(QueryRequest request) {
+        return this.execute(request, true, () -> {
+            if (Objects.nonNull(request.getIndexName())) {
+                throw validation("Indexes are not supported (index=" + request.getIndexName() + ")");
+            }
+            Table table = this.getTable(request.getTableName());
+            Predicate<Map<String, AttributeValue>> keyCondition = FakeExpression.parse(
+                    request.getKeyConditionExpression(), request.getExpressionAttributeNames(),
+                    request.getExpressionAttributeValues());
+            AttributeValue hashValue = findHashValue(table, request);
+            NavigableMap<AttributeValue, Map<String, AttributeValue>> partition = table.getPartition(hashValue);
+            if (Boolean.FALSE.equals(request.getScanIndexForward())) {
+                partition = partition.descendingMap();
+            }
+            if (Objects.nonNull(request.getExclusiveStartKey())) {
+                partition = partition.tailMap(table.getSortValue(request.getExclusiveStartKey()), false);
+            }
+            Page page = this.readPage(table, partition.values().iterator(), keyCondition, request.getLimit(),
+                                      request.getFilterExpression(), request.getExpressionAttributeNames(),
+                                      request.getExpressionAttributeValues(), request.getProjectionExpression());
+            double capacityUnits = this.consumeRead(page.bytes, request.getConsistentRead());
+            return new QueryResult().withItems(Select.COUNT.toString().equals(request.getSelect()) ? null : page.items)
+                                    .withCount(page.items.size())
+                                    .withScannedCount(page.scanned)
+                                    .withLastEvaluatedKey(page.lastKey)
+                                    .withConsumedCapacity(consumedCapacity(request.getReturnConsumedCapacity(),
+                                                                           table.name, capacityUnits));
+        });
+    }
+
+    @Override
+    public ScanResult scan(ScanRequest request) {
+        return this.execute(request, true, () -> {
+            if (Objects.nonNull(request.getIndexName())) {
+                throw validation("Indexes are not supported (index=" + request.getIndexName() + ")");
+            }
+            Table table = this.getTable(request.getTableName());
+            int segment = Objects.isNull(request.getSegment()) ? 0 : request.getSegment();
+            int totalSegments = Objects.isNull(request.getTotalSegments()) ? 1 : request.getTotalSegments();
+            Iterator<Map<String, AttributeValue>> items = table.scan(segment, totalSegments,
+                                                                     request.getExclusiveStartKey());
+            Page page = this.readPage(table, items, item -> true, request.getLimit(), request.getFilterExpression(),
+                                      request.getExpressionAttributeNames(), request.getExpressionAttributeValues(),
+                                      request.getProjectionExpression());
+            double capacityUnits = this.consumeRead(page.bytes, request.getConsistentRead());
+            return new ScanResult().withItems(page.items)
+                                   .withCount(page.items.size())
+                                   .withScannedCount(page.scanned)
+                                   .withLastEvaluatedKey(page.lastKey)
+                                   .withConsumedCapacity(consumedCapacity(request.getReturnConsumedCapacity(),
+                                                                          table.name, capacityUnits));
+        });
+    }
+
+    @Override
+    public GetItemResult getItem(GetItemRequest request) {
+        return this.execute(request, true, () -> {
+            Table table = this.getTable(request.getTableName());
+            Map<String, AttributeValue> item = table.get(request.getKey());
+            double capacityUnits = this.consumeRead(Objects.isNull(item) ? 0 : itemSize(item),
+                                                    request.getConsistentRead());
+            List<String> projection = FakeExpression.parseProjection(request.getProjectionExpression(),
+                                                                     request.getExpressionAttributeNames());
+            return new GetItemResult().withItem(Objects.isNull(item) ? null : project(item, projection))
+                                      .withConsumedCapacity(consumedCapacity(request.getReturnConsumedCapacity(),
+                                                                             table.name, capacityUnits));
+        });
+    }
+
+    @Override
+    public BatchGetItemResult batchGetItem(BatchGetItemRequest request) {
+        return this.execute(request, true, () -> {
+            int keyCount = request.getRequestItems().values().stream().mapToInt(k -> k.getKeys().size()).sum();
+            if (keyCount > HiveDdbQueryConfig.MAX_BATCH_GET_SIZE) {
+                throw validation("Too many items requested for the BatchGetItem call (keys=" + keyCount + ")");
+            }
+            Map<String, List<Map<String, AttributeValue>>> responses = new HashMap<>();
+            Map<String, KeysAndAttributes> unprocessed = new HashMap<>();
+            List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+            for (Map.Entry<String, KeysAndAttributes> entry : request.getRequestItems().entrySet()) {
+                Table table = this.getTable(entry.getKey());
+                KeysAndAttributes keys = entry.getValue();
+                List<String> projection = FakeExpression.parseProjection(keys.getProjectionExpression(),
+                                                                         keys.getExpressionAttributeNames());
+                List<Map<String, AttributeValue>> items = new ArrayList<>();
+                List<Map<String, AttributeValue>> unprocessedKeys = new ArrayList<>();
+                double capacityUnits = 0;
+                for (Map<String, AttributeValue> key : keys.getKeys()) {
+                    if (this.nextDouble() < this.unprocessedRate) {
+                        unprocessedKeys.add(key);
+                        continue;
+                    }
+                    Map<String, AttributeValue> item = table.get(key);
+                    // Every key is charged separately, rounded up to a read unit
+                    capacityUnits += this.consumeRead(Objects.isNull(item) ? 0 : itemSize(item),
+                                                      keys.getConsistentRead());
+                    if (Objects.nonNull(item)) {
+                        items.add(project(item, projection));
+                    }
+                }
+                responses.put(table.name, items);
+                if (!unprocessedKeys.isEmpty()) {
+                    unprocessed.put(table.name, keys.clone().withKeys(unprocessedKeys));
+                }
+                ConsumedCapacity tableCapacity = consumedCapacity(request.getReturnConsumedCapacity(), table.name,
+                                                                  capacityUnits);
+                if (Objects.nonNull(tableCapacity)) {
+                    consumedCapacity.add(tableCapacity);
+                }
+            }
+            return new BatchGetItemResult().withResponses(responses)
+                                           .withUnprocessedKeys(unprocessed)
+                                           .withConsumedCapacity(consumedCapacity.isEmpty() ? null : consumedCapacity);
+        });
+    }
+
+    @Override
+    public BatchWriteItemResult batchWriteItem(BatchWriteItemRequest request) {
+        return this.execute(request, false, () -> {
+            int itemCount = request.getRequestItems().values().stream().mapToInt(List::size).sum();
+            if (itemCount > HiveDdbQueryConfig.MAX_BATCH_WRITE_SIZE) {
+                throw validation("Too many items requested for the BatchWriteItem call (items=" + itemCount + ")");
+            }
+            Map<String, List<WriteRequest>> unprocessed = new HashMap<>();
+            List<ConsumedCapacity> consumedCapacity = new ArrayList<>();
+            for (Map.Entry<String, List<WriteRequest>> entry : request.getRequestItems().entrySet()) {
+                Table table = this.getTable(entry.getKey());
+                List<WriteRequest> unprocessedWrites = new ArrayList<>();
+                double capacityUnits = 0;
+                for (WriteRequest write : entry.getValue()) {
+                    if (this.nextDouble() < this.unprocessedRate) {
+                        unprocessedWrites.add(write);
+                        continue;
+                    }
+                    Map<String, AttributeValue> item;
+                    if (Objects.nonNull(write.getPutRequest())) {
+                        item = write.getPutRequest().getItem();
+                        table.put(item);
+                    } else {
+                        item = table.delete(write.getDeleteRequest().getKey());
+                    }
+                    double units = Math.max(1, Math.ceil((double) itemSize(item) / WRITE_UNIT_BYTES));
+                    this.consumedWriteCapacity.add(units);
+                    capacityUnits += units;
+                }
+                if (!unprocessedWrites.isEmpty()) {
+                    unprocessed.put(table.name, unprocessedWrites);
+                }
+                ConsumedCapacity tableCapacity = consumedCapacity(request.getReturnConsumedCapacity(), table.name,
+                                                                  capacityUnits);
+                if (Objects.nonNull(tableCapacity)) {
+                    consumedCapacity.add(tableCapacity);
+                }
+            }
+            return new BatchWriteItemResult().withUnprocessedItems(unprocessed)
+                                             .withConsumedCapacity(consumedCapacity.isEmpty()
+                                                                   ? null
+                                                                   : consumedCapacity);
+        });
+    }
+
+    /**
+     * Runs the request like the SDK client would: every attempt takes the configured latency and may be
+     * throttled, throttled attempts being retried, and attempts and retries are reported to the listener
+     * attached to the request.
+     */
+    private <T> T execute(AmazonWebServiceRequest request, boolean read, Supplier<T> action) {
+        String operation = request.getClass().getSimpleName().replaceFirst("Request$", "");
+        this.requests.computeIfAbsent(operation, k -> new LongAdder()).increment();
+        DynamoDbRequestListener listener = request.getHandlerContext(RequestListenerHandler.LISTENER);
+        for (int attempt = 0; ; attempt++) {
+            if (attempt > 0 && Objects.nonNull(listener)) {
+                listener.onRetry(operation);
+            }
+            this.attempts.increment();
+            long startNanos = System.nanoTime();
+            long latencyNanos = this.latency.nextNanos(this.random);
+            if (latencyNanos > 0) {
+                LockSupport.parkNanos(latencyNanos);
+            }
+            CapacityBucket capacity = this.readCapacity;
+            boolean throttled = this.nextDouble() < this.throttleRate
+                                || (read && Objects.nonNull(capacity) && capacity.isExhausted());
+            if (Objects.nonNull(listener)) {
+                listener.onAttempt(operation, startNanos, System.nanoTime() - startNanos, throttled);
+            }
+            if (!throttled) {
+                return action.get();
+            }
+            this.throttledAttempts.increment();
+            if (attempt >= this.maxRetries) {
+                ProvisionedThroughputExceededException e = new ProvisionedThroughputExceededException(
+                        "The level of configured provisioned throughput for the table was exceeded");
+                e.setErrorCode("ProvisionedThroughputExceededException");
+                e.setStatusCode(400);
+                e.setServiceName("AmazonDynamoDBv2");
+                throw e;
+            }
+        }
+    }
+
+    private Page readPage(Table table, Iterator<Map<String, AttributeValue>> candidates,
+                          Predicate<Map<String, AttributeValue>> keyCondition, Integer limit, String filterExpression,
+                          Map<String, String> names, Map<String, AttributeValue> values, String projectionExpression) {
+        Predicate<Map<String, AttributeValue>> filter = FakeExpression.parse(filterExpression, names, values);
+        List<String> projection = FakeExpression.parseProjection(projectionExpression, names);
+        Page page = new Page();
+        Map<String, AttributeValue> last = null;
+        while (candidates.hasNext()) {
+            Map<String, AttributeValue> item = candidates.next();
+            if (!keyCondition.test(item)) {
+                continue;
+            }
+            boolean full = (Objects.nonNull(limit) && page.scanned >= limit) || page.bytes >= MAX_PAGE_BYTES;
+            if (full) {
+                page.lastKey = table.getKey(last);
+                break;
+            }
+            page.scanned++;
+            page.bytes += itemSize(item);
+            last = item;
+            if (filter.test(item)) {
+                page.items.add(project(item, projection));
+            }
+        }
+        return page;
+    }
+
+    private double consumeRead(long bytes, Boolean consistentRead) {
+        double units = Math.max(1, Math.ceil((double) bytes / READ_UNIT_BYTES));
+        double capacityUnits = Boolean.TRUE.equals(consistentRead) ? units : units / 2;
+        this.consumedReadCapacity.add(capacityUnits);
+        CapacityBucket capacity = this.readCapacity;
+        if (Objects.nonNull(capacity)) {
+            capacity.consume(capacityUnits);
+        }
+        return capacityUnits;
+    }
+
+    private double nextDouble() {
+        synchronized (this.random) {
+            return this.random.nextDouble();
+        }
+    }
+
+    private Table getTable(String tableName) {
+        Table table = this.tables.get(tableName);
+        if (Objects.isNull(table)) {
+            ResourceNotFoundException e = new ResourceNotFoundException("Requested resource not found (table="
+                                                                        + tableName + ")");
+            e.setErrorCode("ResourceNotFoundException");
+            e.setStatusCode(400);
+            throw e;
+        }
+        return table;
+    }
+
+    private static AttributeValue findHashValue(Table table, QueryRequest request) {
+        // Key conditions bind the hash key with #alias = :alias, see QueryTemplate
+        for (String clause : request.getKeyConditionExpression().split("(?i)\\s+AND\\s+")) {
+            String[] sides = clause.trim().split("\\s*=\\s*");
+            if (sides.length == 2 && table.hashKey.equals(request.getExpressionAttributeNames().get(sides[0]))) {
+                return request.getExpressionAttributeValues().get(sides[1]);
+            }
+        }
+        throw validation("Query condition missed key schema element (key=" + table.hashKey + ")");
+    }
+
+    private static Map<String, AttributeValue> project(Map<String, AttributeValue> item, List<String> projection) {
+        if (Objects.isNull(projection)) {
+            return new HashMap<>(item);
+        }
+        Map<String, AttributeValue> projected = new HashMap<>();
+        for (String attribute : projection) {
+            AttributeValue value = item.get(attribute);
+            if (Objects.nonNull(value)) {
+                projected.put(attribute, value);
+            }
+        }
+        return projected;
+    }
+
+    private static ConsumedCapacity consumedCapacity(String returnConsumedCapacity, String tableName,
+                                                     double capacityUnits) {
+        if (Objects.isNull(returnConsumedCapacity)
+            || ReturnConsumedCapacity.NONE.toString().equals(returnConsumedCapacity)) {
+            return null;
+        }
+        return new ConsumedCapacity().withTableName(tableName).withCapacityUnits(capacityUnits);
+    }
+
+    private static AmazonServiceException validation(String message) {
+        AmazonServiceException e = new AmazonServiceException(message);
+        e.setErrorCode("ValidationException");
+        e.setStatusCode(400);
+        return e;
+    }
+
+    /**
+     * @return the size of the item as DynamoDB computes it: attribute names and values, numbers taking about
+     * one byte per two digits
+     */
+    static long itemSize(Map<String, AttributeValue> item) {
+        long size = 0;
+        for (Map.Entry<String, AttributeValue> attribute : item.entrySet()) {
+            size += utf8Length(attribute.getKey()) + valueSize(attribute.getValue());
+        }
+        return size;
+    }
+
+    private static long valueSize(AttributeValue value) {
+        if (Objects.nonNull(value.getS())) {
+            return utf8Length(value.getS());
+        }
+        if (Objects.nonNull(value.getN())) {
+            return numberSize(value.getN());
+        }
+        if (Objects.nonNull(value.getB())) {
+            return value.getB().remaining();
+        }
+        if (Objects.nonNull(value.getSS())) {
+            return value.getSS().stream().mapToLong(FakeAmazonDynamoDB::utf8Length).sum();
+        }
+        if (Objects.nonNull(value.getNS())) {
+            return value.getNS().stream().mapToLong(FakeAmazonDynamoDB::numberSize).sum();
+        }
+        if (Objects.nonNull(value.getBS())) {
+            return value.getBS().stream().mapToLong(b -> b.remaining()).sum();
+        }
+        if (Objects.nonNull(value.getL())) {
+            return 3 + value.getL().stream().mapToLong(v -> 1 + valueSize(v)).sum();
+        }
+        if (Objects.nonNull(value.getM())) {
+            return 3 + value.getM().entrySet().stream()
+                            .mapToLong(e -> 1 + utf8Length(e.getKey()) + valueSize(e.getValue()))
+                            .sum();
+        }
+        // BOOL and NULL
+        return 1;
+    }
+
+    private static long numberSize(String number) {
+        return (number.replaceAll("[^0-9]", "").length() + 1) / 2 + 1;
+    }
+
+    private static long utf8Length(String value) {
+        return value.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    /**
+     * Time taken by every attempt.
+     */
+    @FunctionalInterface
+    public interface Latency {
+        long nextNanos(Random random);
+
+        static Latency none() {
+            return random -> 0;
+        }
+
+        static Latency fixed(long micros) {
+            return random -> TimeUnit.MICROSECONDS.toNanos(micros);
+        }
+
+        /**
+         * Log-normal latencies, the usual shape of service latencies: most close to the median, with a long tail.
+         *
+         * @param medianMicros the median latency
+         * @param sigma        the spread, e.g. {@code 0.5} puts p99 at about 3 times the median
+         */
+        static Latency logNormal(long medianMicros, double sigma) {
+            return random -> {
+                double gaussian;
+                synchronized (random) {
+                    gaussian = random.nextGaussian();
+                }
+                return (long) (TimeUnit.MICROSECONDS.toNanos(medianMicros) * Math.exp(sigma * gaussian));
+            };
+        }
+    }
+
+    private static class Page {
+        private final List<Map<String, AttributeValue>> items = new ArrayList<>();
+        private int scanned;
+        private long bytes;
+        private Map<String, AttributeValue> lastKey;
+    }
+
+    /**
+     * Read capacity refilled continuously, holding at most one second of capacity.
+     */
+    private static class CapacityBucket {
+        private final double capacityUnitsPerSecond;
+        private double available;
+        private long lastRefillNanos = System.nanoTime();
+
+        CapacityBucket(double capacityUnitsPerSecond) {
+            this.capacityUnitsPerSecond = capacityUnitsPerSecond;
+            this.available = capacityUnitsPerSecond;
+        }
+
+        synchronized boolean isExhausted() {
+            long now = System.nanoTime();
+            double refill = (now - this.lastRefillNanos) / 1e9 * this.capacityUnitsPerSecond;
+            this.available = Math.min(this.capacityUnitsPerSecond, this.available + refill);
+            this.lastRefillNanos = now;
+            return this.available <= 0;
+        }
+
+        synchronized void consume(double capacityUnits) {
+            this.available -= capacityUnits;
+        }
+    }
+
+    private static class Table {
+        private final String name;
+        private final String hashKey;
+        private final String sortKey;
+        private final ConcurrentSkipListMap<AttributeValue, ConcurrentSkipListMap<AttributeValue,
+                Map<String, AttributeValue>>> partitions = new ConcurrentSkipListMap<>(Table::compareKeys);
+
+        Table(String name, String hashKey, String sortKey) {
+            this.name = name;
+            this.hashKey = hashKey;
+            this.sortKey = sortKey;
+        }
+
+        void put(Map<String, AttributeValue> item) {
+            AttributeValue hashValue = this.getHashValue(item);
+            this.partitions.computeIfAbsent(hashValue, k -> new ConcurrentSkipListMap<>(Table::compareKeys))
+                           .put(this.getSortValue(item), new HashMap<>(item));
+        }
+
+        Map<String, AttributeValue> get(Map<String, AttributeValue> key) {
+            return this.getPartition(this.getHashValue(key)).get(this.getSortValue(key));
+        }
+
+        Map<String, AttributeValue> delete(Map<String, AttributeValue> key) {
+            Map<String, AttributeValue> item = this.getPartition(this.getHashValue(key)).remove(this.getSortValue(key));
+            return Objects.isNull(item) ? key : item;
+        }
+
+        NavigableMap<AttributeValue, Map<String, AttributeValue>> getPartition(AttributeValue hashValue) {
+            NavigableMap<AttributeValue, Map<String, AttributeValue>> partition = this.partitions.get(hashValue);
+            return Objects.isNull(partition) ? new ConcurrentSkipListMap<>(Table::compareKeys) : partition;
+        }
+
+        /**
+         * @return the key attribute types, as found in the stored items
+         */
+        List<AttributeDefinition> getAttributeDefinitions() {
+            List<AttributeDefinition> definitions = new ArrayList<>();
+            Map.Entry<AttributeValue, ConcurrentSkipListMap<AttributeValue, Map<String, AttributeValue>>> first =
+                    this.partitions.firstEntry();
+            if (Objects.isNull(first) || first.getValue().isEmpty()) {
+                return definitions;
+            }
+            definitions.add(new AttributeDefinition(this.hashKey, scalarType(first.getKey())));
+            if (Objects.nonNull(this.sortKey)) {
+                definitions.add(new AttributeDefinition(this.sortKey, scalarType(first.getValue().firstKey())));
+            }
+            return definitions;
+        }
+
+        private static ScalarAttributeType scalarType(AttributeValue value) {
+            if (Objects.nonNull(value.getN())) {
+                return ScalarAttributeType.N;
+            }
+            return Objects.nonNull(value.getB()) ? ScalarAttributeType.B : ScalarAttributeType.S;
+        }
+
+        long size() {
+            return this.partitions.values().stream().mapToLong(Map::size).sum();
+        }
+
+        /**
+         * Iterates the items of a scan segment, partitions being assigned to segments by hash.
+         */
+        Iterator<Map<String, AttributeValue>> scan(int segment, int totalSegments,
+                                                    Map<String, AttributeValue> exclusiveStartKey) {
+            NavigableMap<AttributeValue, ConcurrentSkipListMap<AttributeValue, Map<String, AttributeValue>>>
+                    partitions = this.partitions;
+            AttributeValue startHash = null;
+            AttributeValue startSort = null;
+            if (Objects.nonNull(exclusiveStartKey)) {
+                startHash = this.getHashValue(exclusiveStartKey);
+                startSort = this.getSortValue(exclusiveStartKey);
+                partitions = partitions.tailMap(startHash, true);
+            }
+            List<Map<String, AttributeValue>> items = new ArrayList<>();
+            for (Map.Entry<AttributeValue, ConcurrentSkipListMap<AttributeValue, Map<String, AttributeValue>>> entry
+                    : partitions.entrySet()) {
+                if (Math.floorMod(entry.getKey().hashCode(), totalSegments) != segment) {
+                    continue;
+                }
+                Collection<Map<String, AttributeValue>> partitionItems = entry.getKey().equals(startHash)
+                                                                          ? entry.getValue()
+                                                                                 .tailMap(startSort, false)
+                                                                                 .values()
+                                                                          : entry.getValue().values();
+                items.addAll(partitionItems);
+            }
+            return items.iterator();
+        }
+
+        Map<String, AttributeValue> getKey(Map<String, AttributeValue> item) {
+            Map<String, AttributeValue> key = new HashMap<>();
+            key.put(this.hashKey, item.get(this.hashKey));
+            if (Objects.nonNull(this.sortKey)) {
+                key.put(this.sortKey, item.get(this.sortKey));
+            }
+            return key;
+        }
+
+        private AttributeValue getHashValue(Map<String, AttributeValue> item) {
+            AttributeValue value = item.get(this.hashKey);
+            if (Objects.isNull(value)) {
+                throw validation("Missing the key " + this.hashKey + " in the item (table=" + this.name + ")");
+            }
+            return value;
+        }
+
+        AttributeValue getSortValue(Map<String, AttributeValue> item) {
+            if (Objects.isNull(this.sortKey)) {
+                return NO_SORT_KEY;
+            }
+            AttributeValue value = item.get(this.sortKey);
+            if (Objects.isNull(value)) {
+                throw validation("Missing the key " + this.sortKey + " in the item (table=" + this.name + ")");
+            }
+            return value;
+        }
+
+        private static int compareKeys(AttributeValue left, AttributeValue right) {
+            Integer comparison = FakeExpression.compare(left, right);
+            if (Objects.isNull(comparison)) {
+                throw validation("Key attributes must all have the same scalar type");
+            }
+            return comparison;
+        }
+    }
+}
@@ -0,0 +1,162 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.ProvisionedThroughputExceededException;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.amazonaws.services.dynamodbv2.model.ReturnConsumedCapacity;
+import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaIntObjectInspector;
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.javaStringObjectInspector;
+
+class FakeAmazonDynamoDBTest {
+    private FakeAmazonDynamoDB client;
+    private String tableName;
+
+    @BeforeEach
+    void setUp() {
+        // Table schemas are cached JVM wide
+        this.tableName = UUID.randomUUID().toString();
+        this.client = new FakeAmazonDynamoDB().createTable(this.tableName, "pk", "sk");
+        String data = Strings.repeat("x", 100 * 1024);
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            items.add(ImmutableMap.of("pk", new AttributeValue("pk1"),
+                                      "sk", new AttributeValue().withN(String.valueOf(i)),
+                                      "data", new AttributeValue(data)));
+        }
+        items.add(ImmutableMap.of("pk", new AttributeValue("pk2"),
+                                  "sk", new AttributeValue().withN("0"),
+                                  "data", new AttributeValue("small")));
+        this.client.putItems(this.tableName, items);
+    }
+
+    @Test
+    void queryPagesTest() {
+        QueryRequest request = new QueryRequest()
+                .withTableName(this.tableName)
+                .withKeyConditionExpression("#pk = :pk AND #sk >= :sk")
+                .withFilterExpression("#sk < :max")
+                .withExpressionAttributeNames(ImmutableMap.of("#pk", "pk", "#sk", "sk"))
+                .withExpressionAttributeValues(ImmutableMap.of(":pk", new AttributeValue("pk1"),
+                                                               ":sk", new AttributeValue().withN("5"),
+                                                               ":max", new AttributeValue().withN("8")))
+                .withReturnConsumedCapacity(ReturnConsumedCapacity.TOTAL);
+
+        // Pages end with the item crossing 1 MB, capacity is counted over the evaluated items, filtered or not
+        QueryResult first = this.client.query(request);
+        Assertions.assertEquals(11, first.getScannedCount());
+        Assertions.assertEquals(3, first.getCount());
+        Assertions.assertEquals(ImmutableMap.of("pk", new AttributeValue("pk1"),
+                                                "sk", new AttributeValue().withN("15")),
+                                first.getLastEvaluatedKey());
+        long itemSize = FakeAmazonDynamoDB.itemSize(first.getItems().get(0));
+        Assertions.assertEquals(Math.ceil(11 * itemSize / 4096.0) / 2, first.getConsumedCapacity().getCapacityUnits());
+
+        QueryResult second = this.client.query(request.clone().withExclusiveStartKey(first.getLastEvaluatedKey()));
+        Assertions.assertEquals(9, second.getScannedCount());
+        Assertions.assertEquals(0, second.getCount());
+        Assertions.assertNull(second.getLastEvaluatedKey());
+    }
+
+    @Test
+    void wrapperQueryTest() {
+        DynamoDbMetrics metrics = new DynamoDbMetrics();
+        DynamoDbClientWrapperImpl wrapper = this.client.newWrapper(HiveDdbQueryConfig.builder().build(), null,
+                                                                   metrics);
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(
+                "pk", this.filter("pk", "S", "EQ", "pk1", javaStringObjectInspector),
+                "sk", this.filter("sk", "N", "GE", 20, javaIntObjectInspector));
+
+        List<String> sortKeys = wrapper.queryTable(this.params("sk"), filters)
+                                       .map(item -> item.get("sk").getN())
+                                       .collect(Collectors.toList());
+        Assertions.assertEquals(ImmutableList.of("20", "21", "22", "23", "24"), sortKeys);
+        Assertions.assertEquals(1, this.client.getRequestCount("Query"));
+        Assertions.assertEquals(this.client.getConsumedReadCapacity(), metrics.getReadCapacityUnits());
+    }
+
+    @Test
+    void throttleTest() {
+        DynamoDbMetrics metrics = new DynamoDbMetrics();
+        DynamoDbClientWrapperImpl wrapper = this.client.withThrottleRate(0.5)
+                                                       .newWrapper(HiveDdbQueryConfig.builder().build(), null,
+                                                                   metrics);
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(
+                "pk", this.filter("pk", "S", "EQ", "pk2", javaStringObjectInspector));
+        for (int i = 0; i < 20; i++) {
+            Assertions.assertEquals(1, wrapper.queryTable(this.params("data"), filters).count());
+        }
+
+        Assertions.assertTrue(this.client.getThrottledAttemptCount() > 0);
+        Assertions.assertEquals(this.client.getThrottledAttemptCount(), metrics.getThrottleCount());
+        Assertions.assertEquals(this.client.getThrottledAttemptCount(), metrics.getRetryCount());
+        Assertions.assertEquals(this.client.getAttemptCount(),
+                                metrics.getAttemptLatencies("DescribeTable").getCount()
+                                + metrics.getAttemptLatencies("Query").getCount());
+
+        this.client.withThrottleRate(1).withMaxRetries(2);
+        Assertions.assertThrows(ProvisionedThroughputExceededException.class,
+                                () -> wrapper.queryTable(this.params("data"), filters).count());
+    }
+
+    @Test
+    void batchGetUnprocessedTest() {
+        DynamoDbClientWrapperImpl wrapper = this.client.withUnprocessedRate(0.3)
+                                                       .newWrapper(HiveDdbQueryConfig.builder().build(), null,
+                                                                   null);
+        List<Map<String, AttributeValue>> keys = IntStream.range(0, 25)
+                                                          .mapToObj(i -> ImmutableMap.of(
+                                                                  "pk", new AttributeValue("pk1"),
+                                                                  "sk", new AttributeValue().withN(
+                                                                          String.valueOf(i))))
+                                                          .collect(Collectors.toList());
+
+        Map<Map<String, AttributeValue>, Map<String, AttributeValue>> items = wrapper.batchGetItems(
+                this.params("sk"), keys);
+        Assertions.assertEquals(25, items.size());
+        Assertions.assertTrue(this.client.getRequestCount("BatchGetItem") > 1);
+    }
+
+    private HiveDdbQueryParameters params(String attribute) {
+        return HiveDdbQueryParameters.builder()
+                                     .tableName(this.tableName)
+                                     .hiveDdbColumnMapping(ImmutableList.of(ColumnMapping.builder()
+                                                                                         .hiveColumn(attribute)
+                                                                                         .ddbAttName(attribute)
+                                                                                         .build()))
+                                     .hiveTypes(ImmutableList.of(TypeInfoFactory.getPrimitiveTypeInfo("string")))
+                                     .build();
+    }
+
+    private HiveDdbQueryFilter filter(String attribute, String type, String operator, Object value,
+                                      ObjectInspector valueOi) {
+        return HiveDdbQueryFilter.builder()
+                                 .attribute(attribute)
+                                 .attributeType(type)
+                                 .operator(operator)
+                                 .value(value)
+                                 .valueOi(valueOi)
+                                 .build();
+    }
+}
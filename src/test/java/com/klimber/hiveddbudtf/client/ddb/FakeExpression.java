@@ -0,0 +1,348 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Evaluates DynamoDB condition expressions (key conditions and filter expressions) against items, for
+ * {@link FakeAmazonDynamoDB}. Supports comparisons, {@code BETWEEN}, {@code IN}, {@code AND}, {@code OR},
+ * {@code NOT}, parentheses, {@code attribute_exists}, {@code attribute_not_exists}, {@code begins_with},
+ * {@code contains} and {@code size}, on top-level attributes.
+ */
+class FakeExpression {
+    private static final Pattern TOKEN = Pattern.compile(
+            "\\s*(<>|<=|>=|[=<>(),]|[#:]?[A-Za-z_][A-Za-z0-9_]*)");
+
+    private final List<String> tokens;
+    private final Map<String, String> names;
+    private final Map<String, AttributeValue> values;
+    private int position;
+
+    private FakeExpression(String expression, Map<String, String> names, Map<String, AttributeValue> values) {
+        this.tokens = tokenize(expression);
+        this.names = Objects.isNull(names) ? Collections.emptyMap() : names;
+        this.values = Objects.isNull(values) ? Collections.emptyMap() : values;
+    }
+
+    /**
+     * @return a predicate matching the items satisfying the expression, every item for a {@code null} expression
+     * @throws IllegalArgumentException if the expression is not supported or refers to missing names or values
+     */
+    static Predicate<Map<String, AttributeValue>> parse(String expression, Map<String, String> names,
+                                                        Map<String, AttributeValue> values) {
+        if (Objects.isNull(expression) || expression.trim().isEmpty()) {
+            return item -> true;
+        }
+        FakeExpression parser = new FakeExpression(expression, names, values);
+        Predicate<Map<String, AttributeValue>> condition = parser.parseOr();
+        if (parser.position != parser.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected token (expression=" + expression + ", token="
+                                               + parser.tokens.get(parser.position) + ")");
+        }
+        return condition;
+    }
+
+    /**
+     * @return the attribute names of a projection expression, {@code null} to project every attribute
+     */
+    static List<String> parseProjection(String expression, Map<String, String> names) {
+        if (Objects.isNull(expression)) {
+            return null;
+        }
+        List<String> attributes = new ArrayList<>();
+        for (String path : expression.split(",")) {
+            String name = path.trim();
+            attributes.add(name.startsWith("#") ? names.get(name) : name);
+        }
+        return attributes;
+    }
+
+    private static List<String> tokenize(String expression) {
+        List<String> tokens = new ArrayList<>();
+        Matcher matcher = TOKEN.matcher(expression);
+        int end = 0;
+        while (end < expression.length() && matcher.find(end) && matcher.start() == end) {
+            tokens.add(matcher.group(1));
+            end = matcher.end();
+        }
+        if (!expression.substring(end).trim().isEmpty()) {
+            throw new IllegalArgumentException("Unsupported expression (expression=" + expression + ")");
+        }
+        return tokens;
+    }
+
+    private Predicate<Map<String, AttributeValue>> parseOr() {
+        Predicate<Map<String, AttributeValue>> condition = this.parseAnd();
+        while (this.accept("OR")) {
+            condition = condition.or(this.parseAnd());
+        }
+        return condition;
+    }
+
+    private Predicate<Map<String, AttributeValue>> parseAnd() {
+        Predicate<Map<String, AttributeValue>> condition = this.parseCondition();
+        while (this.accept("AND")) {
+            condition = condition.and(this.parseCondition());
+        }
+        return condition;
+    }
+
+    private Predicate<Map<String, AttributeValue>> parseCondition() {
+        if (this.accept("NOT")) {
+            return this.parseCondition().negate();
+        }
+        if (this.accept("(")) {
+            Predicate<Map<String, AttributeValue>> condition = this.parseOr();
+            this.expect(")");
+            return condition;
+        }
+        String token = this.peek();
+        switch (token.toLowerCase()) {
+            case "attribute_exists": {
+                String attribute = this.parseFunctionPath();
+                this.expect(")");
+                return item -> item.containsKey(attribute);
+            }
+            case "attribute_not_exists": {
+                String attribute = this.parseFunctionPath();
+                this.expect(")");
+                return item -> !item.containsKey(attribute);
+            }
+            case "begins_with": {
+                String attribute = this.parseFunctionPath();
+                this.expect(",");
+                Function<Map<String, AttributeValue>, AttributeValue> prefix = this.parseOperand();
+                this.expect(")");
+                return item -> beginsWith(item.get(attribute), prefix.apply(item));
+            }
+            case "contains": {
+                String attribute = this.parseFunctionPath();
+                this.expect(",");
+                Function<Map<String, AttributeValue>, AttributeValue> operand = this.parseOperand();
+                this.expect(")");
+                return item -> contains(item.get(attribute), operand.apply(item));
+            }
+            default:
+                return this.parseComparison();
+        }
+    }
+
+    private Predicate<Map<String, AttributeValue>> parseComparison() {
+        Function<Map<String, AttributeValue>, AttributeValue> left = this.parseOperand();
+        String comparator = this.next();
+        if ("BETWEEN".equalsIgnoreCase(comparator)) {
+            Function<Map<String, AttributeValue>, AttributeValue> low = this.parseOperand();
+            this.expect("AND");
+            Function<Map<String, AttributeValue>, AttributeValue> high = this.parseOperand();
+            return item -> {
+                Integer fromLow = compare(left.apply(item), low.apply(item));
+                Integer toHigh = compare(left.apply(item), high.apply(item));
+                return Objects.nonNull(fromLow) && Objects.nonNull(toHigh) && fromLow >= 0 && toHigh <= 0;
+            };
+        }
+        if ("IN".equalsIgnoreCase(comparator)) {
+            this.expect("(");
+            List<Function<Map<String, AttributeValue>, AttributeValue>> candidates = new ArrayList<>();
+            do {
+                candidates.add(this.parseOperand());
+            } while (this.accept(","));
+            this.expect(")");
+            return item -> candidates.stream().anyMatch(c -> Integer.valueOf(0).equals(compare(left.apply(item),
+                                                                                                c.apply(item))));
+        }
+        Function<Map<String, AttributeValue>, AttributeValue> right = this.parseOperand();
+        switch (comparator) {
+            case "=":
+                return item -> Integer.valueOf(0).equals(compare(left.apply(item), right.apply(item)));
+            case "<>":
+                return item -> !Integer.valueOf(0).equals(compare(left.apply(item), right.apply(item)));
+            case "<":
+                return item -> matches(compare(left.apply(item), right.apply(item)), c -> c < 0);
+            case "<=":
+                return item -> matches(compare(left.apply(item), right.apply(item)), c -> c <= 0);
+            case ">":
+                return item -> matches(compare(left.apply(item), right.apply(item)), c -> c > 0);
+            case ">=":
+                return item -> matches(compare(left.apply(item), right.apply(item)), c -> c >= 0);
+            default:
+                throw new IllegalArgumentException("Unsupported comparator (comparator=" + comparator + ")");
+        }
+    }
+
+    private Function<Map<String, AttributeValue>, AttributeValue> parseOperand() {
+        String token = this.next();
+        if ("size".equalsIgnoreCase(token)) {
+            this.expect("(");
+            String attribute = this.resolveName(this.next());
+            this.expect(")");
+            return item -> size(item.get(attribute));
+        }
+        if (token.startsWith(":")) {
+            AttributeValue value = this.values.get(token);
+            if (Objects.isNull(value)) {
+                throw new IllegalArgumentException("Missing expression attribute value (alias=" + token + ")");
+            }
+            return item -> value;
+        }
+        String attribute = this.resolveName(token);
+        return item -> item.get(attribute);
+    }
+
+    private String parseFunctionPath() {
+        this.next();
+        this.expect("(");
+        return this.resolveName(this.next());
+    }
+
+    private String resolveName(String token) {
+        if (!token.startsWith("#")) {
+            return token;
+        }
+        String name = this.names.get(token);
+        if (Objects.isNull(name)) {
+            throw new IllegalArgumentException("Missing expression attribute name (alias=" + token + ")");
+        }
+        return name;
+    }
+
+    private boolean accept(String token) {
+        if (this.position < this.tokens.size() && this.tokens.get(this.position).equalsIgnoreCase(token)) {
+            this.position++;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(String token) {
+        if (!this.accept(token)) {
+            throw new IllegalArgumentException("Expected token (expected=" + token + ", position=" + this.position
+                                               + ", tokens=" + this.tokens + ")");
+        }
+    }
+
+    private String peek() {
+        if (this.position >= this.tokens.size()) {
+            throw new IllegalArgumentException("Unexpected end of expression (tokens=" + this.tokens + ")");
+        }
+        return this.tokens.get(this.position);
+    }
+
+    private String next() {
+        String token = this.peek();
+        this.position++;
+        return token;
+    }
+
+    private static boolean matches(Integer comparison, Predicate<Integer> test) {
+        return Objects.nonNull(comparison) && test.test(comparison);
+    }
+
+    /**
+     * Compares scalars of the same type, numbers by value, strings and binaries byte by byte, other values
+     * are only equal to identical values.
+     *
+     * @return the comparison, {@code null} when the values can't be compared (missing or different types)
+     */
+    static Integer compare(AttributeValue left, AttributeValue right) {
+        if (Objects.isNull(left) || Objects.isNull(right)) {
+            return null;
+        }
+        if (Objects.nonNull(left.getS()) && Objects.nonNull(right.getS())) {
+            return Integer.signum(left.getS().compareTo(right.getS()));
+        }
+        if (Objects.nonNull(left.getN()) && Objects.nonNull(right.getN())) {
+            return new BigDecimal(left.getN()).compareTo(new BigDecimal(right.getN()));
+        }
+        if (Objects.nonNull(left.getB()) && Objects.nonNull(right.getB())) {
+            return compareBytes(left.getB(), right.getB());
+        }
+        return left.equals(right) ? 0 : null;
+    }
+
+    private static int compareBytes(ByteBuffer left, ByteBuffer right) {
+        ByteBuffer l = left.duplicate();
+        ByteBuffer r = right.duplicate();
+        while (l.hasRemaining() && r.hasRemaining()) {
+            int c = Integer.compare(l.get() & 0xff, r.get() & 0xff);
+            if (c != 0) {
+                return c;
+            }
+        }
+        return Integer.compare(l.remaining(), r.remaining());
+    }
+
+    private static boolean beginsWith(AttributeValue value, AttributeValue prefix) {
+        if (Objects.isNull(value) || Objects.isNull(prefix)) {
+            return false;
+        }
+        if (Objects.nonNull(value.getS()) && Objects.nonNull(prefix.getS())) {
+            return value.getS().startsWith(prefix.getS());
+        }
+        if (Objects.nonNull(value.getB()) && Objects.nonNull(prefix.getB())) {
+            ByteBuffer v = value.getB().duplicate();
+            ByteBuffer p = prefix.getB();
+            if (v.remaining() < p.remaining()) {
+                return false;
+            }
+            v.limit(v.position() + p.remaining());
+            return compareBytes(v, p) == 0;
+        }
+        return false;
+    }
+
+    private static boolean contains(AttributeValue value, AttributeValue operand) {
+        if (Objects.isNull(value) || Objects.isNull(operand)) {
+            return false;
+        }
+        if (Objects.nonNull(value.getS()) && Objects.nonNull(operand.getS())) {
+            return value.getS().contains(operand.getS());
+        }
+        if (Objects.nonNull(value.getSS()) && Objects.nonNull(operand.getS())) {
+            return value.getSS().contains(operand.getS());
+        }
+        if (Objects.nonNull(value.getNS()) && Objects.nonNull(operand.getN())) {
+            BigDecimal number = new BigDecimal(operand.getN());
+            return value.getNS().stream().anyMatch(n -> new BigDecimal(n).compareTo(number) == 0);
+        }
+        if (Objects.nonNull(value.getBS()) && Objects.nonNull(operand.getB())) {
+            return value.getBS().contains(operand.getB());
+        }
+        if (Objects.nonNull(value.getL())) {
+            return value.getL().contains(operand);
+        }
+        return false;
+    }
+
+    private static AttributeValue size(AttributeValue value) {
+        if (Objects.isNull(value)) {
+            return null;
+        }
+        Integer size = null;
+        if (Objects.nonNull(value.getS())) {
+            size = value.getS().length();
+        } else if (Objects.nonNull(value.getB())) {
+            size = value.getB().remaining();
+        } else if (Objects.nonNull(value.getSS())) {
+            size = value.getSS().size();
+        } else if (Objects.nonNull(value.getNS())) {
+            size = value.getNS().size();
+        } else if (Objects.nonNull(value.getBS())) {
+            size = value.getBS().size();
+        } else if (Objects.nonNull(value.getL())) {
+            size = value.getL().size();
+        } else if (Objects.nonNull(value.getM())) {
+            size = value.getM().size();
+        }
+        return Objects.isNull(size) ? null : new AttributeValue().withN(Integer.toString(size));
+    }
+}
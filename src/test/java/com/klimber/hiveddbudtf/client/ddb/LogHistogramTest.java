@@ -0,0 +1,42 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LogHistogramTest {
+
+    @Test
+    void bucketBoundsTest() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 31, 32, 1_000, 123_456_789, Long.MAX_VALUE}) {
+            int bucket = LogHistogram.bucketOf(value);
+            Assertions.assertTrue(LogHistogram.lowerBoundOf(bucket) <= value, "value=" + value);
+            Assertions.assertTrue(LogHistogram.upperBoundOf(bucket) >= value, "value=" + value);
+        }
+        // Small values are exact, larger ones within 1/16
+        Assertions.assertEquals(15, LogHistogram.upperBoundOf(LogHistogram.bucketOf(15)));
+        long upper = LogHistogram.upperBoundOf(LogHistogram.bucketOf(1_000));
+        Assertions.assertTrue(upper - 1_000 <= 1_000 / LogHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    void percentileTest() {
+        LogHistogram histogram = new LogHistogram();
+        Assertions.assertEquals(0, histogram.getPercentile(0.99));
+        for (int i = 1; i <= 1_000; i++) {
+            histogram.record(i);
+        }
+        histogram.record(-5);
+        Assertions.assertEquals(1_001, histogram.getCount());
+        Assertions.assertEquals(1_000, histogram.getMax());
+        assertWithin(500, histogram.getPercentile(0.5));
+        assertWithin(990, histogram.getPercentile(0.99));
+        Assertions.assertEquals(1_000, histogram.getPercentile(0.999));
+        Assertions.assertEquals(0, histogram.getPercentile(0));
+        Assertions.assertEquals(500.0, histogram.getMean(), 1.0);
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        Assertions.assertTrue(actual >= expected && actual <= expected + expected / LogHistogram.SUB_BUCKETS,
+                              "expected=" + expected + ", actual=" + actual);
+    }
+}
@@ -0,0 +1,96 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.SdkClientException;
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.QueryResult;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PrefetchingQueryResultIteratorTest {
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        this.executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void close() {
+        this.executor.shutdownNow();
+    }
+
+    @Test
+    void allPagesTest() {
+        Function<QueryRequest, QueryResult> fetcher = request -> {
+            int page = request.getExclusiveStartKey() == null
+                       ? 0
+                       : Integer.parseInt(request.getExclusiveStartKey().get("page").getN());
+            QueryResult result = new QueryResult().withItems(ImmutableList.of(this.item(page)));
+            return page < 4 ? result.withLastEvaluatedKey(this.item(page + 1)) : result;
+        };
+        PrefetchingQueryResultIterator iterator =
+                new PrefetchingQueryResultIterator(fetcher, new QueryRequest(), 2, this.executor);
+
+        List<Map<String, AttributeValue>> items = new ArrayList<>();
+        iterator.forEachRemaining(page -> items.addAll(page.getItems()));
+        Assertions.assertEquals(ImmutableList.of(this.item(0), this.item(1), this.item(2),
+                                                 this.item(3), this.item(4)), items);
+        Assertions.assertFalse(iterator.hasNext());
+    }
+
+    @Test
+    @SneakyThrows
+    void boundedAndCancelledTest() {
+        AtomicInteger fetched = new AtomicInteger();
+        CountDownLatch bufferFull = new CountDownLatch(3);
+        Function<QueryRequest, QueryResult> fetcher = request -> {
+            int page = fetched.getAndIncrement();
+            bufferFull.countDown();
+            return new QueryResult().withItems(ImmutableList.of(this.item(page)))
+                                    .withLastEvaluatedKey(this.item(page + 1));
+        };
+        PrefetchingQueryResultIterator iterator =
+                new PrefetchingQueryResultIterator(fetcher, new QueryRequest(), 2, this.executor);
+
+        // Two pages in the buffer and one waiting to be handed over
+        Assertions.assertTrue(bufferFull.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        Assertions.assertEquals(3, fetched.get());
+
+        Assertions.assertEquals(ImmutableList.of(this.item(0)), iterator.next().getItems());
+        iterator.close();
+        Thread.sleep(100);
+        Assertions.assertTrue(fetched.get() <= 4);
+    }
+
+    @Test
+    void failureTest() {
+        Function<QueryRequest, QueryResult> fetcher = request -> {
+            throw new SdkClientException("Connection reset");
+        };
+        PrefetchingQueryResultIterator iterator =
+                new PrefetchingQueryResultIterator(fetcher, new QueryRequest(), 2, this.executor);
+
+        SdkClientException ex = Assertions.assertThrows(SdkClientException.class, iterator::hasNext);
+        Assertions.assertEquals("Connection reset", ex.getMessage());
+    }
+
+    private Map<String, AttributeValue> item(int page) {
+        return ImmutableMap.of("page", new AttributeValue().withN(String.valueOf(page)));
+    }
+}
@@ -0,0 +1,550 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.amazonaws.services.dynamodbv2.model.KeyType;
+import com.amazonaws.services.dynamodbv2.model.QueryRequest;
+import com.amazonaws.services.dynamodbv2.model.ScanRequest;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableMultimap;
+import com.google.common.collect.Multimap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryFilter;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory.*;
+
+class QueryTemplateTest {
+    private HiveDdbQueryParameters params;
+    private String pkAtt;
+    private String pkAttType;
+    private String pkAttValue;
+    private HiveDdbQueryFilter pkFilter;
+    private String skAtt;
+    private String skAttType;
+    private String skAttValue;
+    private HiveDdbQueryFilter skFilter;
+
+    @BeforeEach
+    void setUp() {
+        this.params = HiveDdbQueryParameters.builder()
+                                            .tableName("Table")
+                                            .hiveDdbColumnMapping(ImmutableList.of())
+                                            .build();
+        this.pkAtt = "PartitionKey";
+        this.pkAttType = "S";
+        this.pkAttValue = "TargetPkValue";
+        this.pkFilter = HiveDdbQueryFilter.builder()
+                                          .attribute(this.pkAtt)
+                                          .attributeType(this.pkAttType)
+                                          .operator("EQ")
+                                          .value(this.pkAttValue)
+                                          .valueOi(javaStringObjectInspector)
+                                          .build();
+        this.skAtt = "RangeKey";
+        this.skAttType = "S";
+        this.skAttValue = "TargetSkValue";
+        this.skFilter = HiveDdbQueryFilter.builder()
+                                          .attribute(this.skAtt)
+                                          .attributeType(this.skAttType)
+                                          .operator("EQ")
+                                          .value(this.skAttValue)
+                                          .valueOi(javaStringObjectInspector)
+                                          .build();
+    }
+    
+    @Test
+    void noFilterTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of();
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> this.compile(filters, keyAttributes));
+        Assertions.assertTrue(ex.getMessage().contains("There should be one filter on the hash key attribute"));
+    }
+
+    @Test
+    void noPkFilterTest() {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute("SomeField")
+                                                      .attributeType("S")
+                                                      .operator("EQ")
+                                                      .value("SomeValue")
+                                                      .valueOi(javaStringObjectInspector)
+                                                      .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of("SomeField", filter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> this.compile(filters, keyAttributes));
+        Assertions.assertTrue(ex.getMessage().contains("There should be one filter on the hash key attribute"));
+    }
+
+    @Test
+    void pkFilterTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertNull(template.getFilterExpr());
+        Assertions.assertEquals("#pk = :pkValue", template.getKeyConditionExpr());
+        Map<String, String> expectedAttNames = ImmutableMap.of("#pk", this.pkAtt);
+        Assertions.assertEquals(expectedAttNames, template.getExprAttNames());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.of(":pkValue",
+                                                                        new AttributeValue(this.pkAttValue));
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+    }
+
+    @Test
+    void pkWrongOperatorFilterTest() {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute(this.pkAtt)
+                                                      .attributeType("S")
+                                                      .operator("GT")
+                                                      .value("SomeValue")
+                                                      .valueOi(javaStringObjectInspector)
+                                                      .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, filter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> this.compile(filters, keyAttributes));
+        Assertions.assertTrue(ex.getMessage().contains("Hash key attribute should use EQUALS operator"));
+    }
+
+    @Test
+    void multiplePkFilterTest() {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute(this.pkAtt)
+                                                      .attributeType("S")
+                                                      .operator("EQ")
+                                                      .value("SomeValue")
+                                                      .valueOi(javaStringObjectInspector)
+                                                      .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.pkAtt, filter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> this.compile(filters, keyAttributes));
+        Assertions.assertTrue(ex.getMessage().contains("There should be one filter on the hash key attribute"));
+    }
+
+    @Test
+    void pkAndSkFilterTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, this.skFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertNull(template.getFilterExpr());
+        Assertions.assertEquals("#pk = :pkValue AND #sk = :skValue", template.getKeyConditionExpr());
+        Map<String, String> expectedAttNames = ImmutableMap.of("#pk", this.pkAtt,
+                                                               "#sk", this.skAtt);
+        Assertions.assertEquals(expectedAttNames, template.getExprAttNames());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.of(":pkValue",
+                                                                        new AttributeValue(this.pkAttValue),
+                                                                        ":skValue",
+                                                                        new AttributeValue(this.skAttValue));
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+    }
+
+    @Test
+    void skBetweenFilterTest() {
+        HiveDdbQueryFilter skBetweenFilter = this.filterBuilder(this.skAtt, "BETWEEN")
+                                                 .value(Arrays.asList("2024-01", "2024-12"))
+                                                 .valueOi(ObjectInspectorFactory.getStandardListObjectInspector(
+                                                         javaStringObjectInspector))
+                                                 .build();
+        HiveDdbQueryFilter otherFilter = this.filterBuilder("SomeField", "between")
+                                             .value(Arrays.asList("a", "b"))
+                                             .valueOi(skBetweenFilter.getValueOi())
+                                             .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, skBetweenFilter,
+                                                                            "SomeField", otherFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertEquals("#pk = :pkValue AND #sk BETWEEN :skValueFrom AND :skValueTo",
+                                template.getKeyConditionExpr());
+        Assertions.assertEquals("#a1 BETWEEN :a1v1From AND :a1v1To", template.getFilterExpr());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.of(":pkValue", new AttributeValue(this.pkAttValue),
+                                                                        ":skValueFrom", new AttributeValue("2024-01"),
+                                                                        ":skValueTo", new AttributeValue("2024-12"),
+                                                                        ":a1v1From", new AttributeValue("a"),
+                                                                        ":a1v1To", new AttributeValue("b"));
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+        Assertions.assertFalse(template.getPrimaryKey(filters).isPresent());
+
+        HiveDdbQueryFilter oneBoundFilter = skBetweenFilter.toBuilder().value(Arrays.asList("2024-01")).build();
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> template.bind(ImmutableMultimap.of(this.pkAtt, this.pkFilter, this.skAtt, oneBoundFilter,
+                                                         "SomeField", otherFilter)));
+        Assertions.assertEquals("Expected BETWEEN filter value to be an array of 2 values "
+                                + "(attribute=RangeKey, found=[2024-01])", ex.getMessage());
+    }
+
+    @Test
+    void skBeginsWithFilterTest() {
+        HiveDdbQueryFilter skPrefixFilter = this.filterBuilder(this.skAtt, "BEGINS_WITH").value("ORDER#2024-").build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, skPrefixFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertNull(template.getFilterExpr());
+        Assertions.assertEquals("#pk = :pkValue AND begins_with(#sk, :skValue)", template.getKeyConditionExpr());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.of(":pkValue", new AttributeValue(this.pkAttValue),
+                                                                        ":skValue", new AttributeValue("ORDER#2024-"));
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+    }
+
+    @Test
+    void filterExpressionOperatorsTest() {
+        ObjectInspector stringListOI = ObjectInspectorFactory.getStandardListObjectInspector(javaStringObjectInspector);
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.<String, HiveDdbQueryFilter>builder()
+                .put(this.pkAtt, this.pkFilter)
+                .put("Status", this.filterBuilder("Status", "NE").value("DELETED").build())
+                .put("Type", this.filterBuilder("Type", "IN").value(Arrays.asList("A", "B"))
+                                 .valueOi(stringListOI).build())
+                .put("Tags", this.filterBuilder("Tags", "CONTAINS").value("red").build())
+                .put("Items", this.filterBuilder("Items", "SIZE_GT").attributeType("N").value(2L)
+                                  .valueOi(javaLongObjectInspector).build())
+                .put("Archived", this.filterBuilder("Archived", "ATTRIBUTE_NOT_EXISTS").orGroup("g").build())
+                .put("Expiry", this.filterBuilder("Expiry", "GT").value("2024").orGroup("g").build())
+                .build();
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertEquals("#pk = :pkValue", template.getKeyConditionExpr());
+        Assertions.assertEquals("#a1 <> :a1v1 AND #a2 IN (:a2v1In1, :a2v1In2) AND contains(#a3, :a3v1) "
+                                + "AND size(#a4) > :a4v1 AND (attribute_not_exists(#a5) OR #a6 > :a6v1)",
+                                template.getFilterExpr());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.<String, AttributeValue>builder()
+                                                                    .put(":pkValue",
+                                                                         new AttributeValue(this.pkAttValue))
+                                                                    .put(":a1v1", new AttributeValue("DELETED"))
+                                                                    .put(":a2v1In1", new AttributeValue("A"))
+                                                                    .put(":a2v1In2", new AttributeValue("B"))
+                                                                    .put(":a3v1", new AttributeValue("red"))
+                                                                    .put(":a4v1", new AttributeValue().withN("2"))
+                                                                    .put(":a6v1", new AttributeValue("2024"))
+                                                                    .build();
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+
+        // The number of IN values is part of the query shape
+        HiveDdbQueryFilter threeValues = filters.get("Type").iterator().next().toBuilder()
+                                                .value(Arrays.asList("A", "B", "C"))
+                                                .build();
+        Assertions.assertFalse(template.getFilterShapes().get(2).matches(threeValues));
+    }
+
+    @Test
+    void keyFilterOperatorsTest() {
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        HiveDdbQueryFilter skNotEqualFilter = this.filterBuilder(this.skAtt, "NE").value(this.skAttValue).build();
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> this.compile(ImmutableMultimap.of(this.pkAtt, this.pkFilter, this.skAtt, skNotEqualFilter),
+                                   keyAttributes));
+        Assertions.assertTrue(ex.getMessage().startsWith("Sort key attribute should use a key condition operator"));
+
+        HiveDdbQueryFilter skGroupedFilter = this.skFilter.toBuilder().orGroup("g").build();
+        ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> this.compile(ImmutableMultimap.of(this.pkAtt, this.pkFilter, this.skAtt, skGroupedFilter),
+                                   keyAttributes));
+        Assertions.assertEquals("Key attribute filters can't be part of an OR group (attribute=RangeKey, orGroup=g)",
+                                ex.getMessage());
+    }
+
+    @Test
+    void pkAndMultipleSkFilterTest() {
+        HiveDdbQueryFilter filter = HiveDdbQueryFilter.builder()
+                                                      .attribute(this.skAtt)
+                                                      .attributeType("S")
+                                                      .operator("EQ")
+                                                      .value("SomeValue")
+                                                      .valueOi(javaStringObjectInspector)
+                                                      .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, this.skFilter,
+                                                                            this.skAtt, filter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> this.compile(filters, keyAttributes));
+        Assertions.assertTrue(ex.getMessage().contains("There should be at most one filter on the sort key attribute"));
+    }
+
+    @Test
+    void multipleFilterTest() {
+        HiveDdbQueryFilter f1v1 = HiveDdbQueryFilter.builder()
+                                                    .attribute("FieldOne")
+                                                    .attributeType("S")
+                                                    .operator("GT")
+                                                    .value("FieldOneValue")
+                                                    .valueOi(javaStringObjectInspector)
+                                                    .build();
+        HiveDdbQueryFilter f1v2 = HiveDdbQueryFilter.builder()
+                                                    .attribute("FieldOne")
+                                                    .attributeType("S")
+                                                    .operator("LT")
+                                                    .value("FieldOneValueOther")
+                                                    .valueOi(javaStringObjectInspector)
+                                                    .build();
+        HiveDdbQueryFilter f2v1 = HiveDdbQueryFilter.builder()
+                                                    .attribute("FieldTwo")
+                                                    .attributeType("S")
+                                                    .operator("GE")
+                                                    .value("FieldTwoValue")
+                                                    .valueOi(javaStringObjectInspector)
+                                                    .build();
+        HiveDdbQueryFilter f2v2 = HiveDdbQueryFilter.builder()
+                                                    .attribute("FieldTwo")
+                                                    .attributeType("S")
+                                                    .operator("LE")
+                                                    .value("FieldTwoValueOther")
+                                                    .valueOi(javaStringObjectInspector)
+                                                    .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.<String, HiveDdbQueryFilter>builder()
+                                                                        .put(this.pkAtt, this.pkFilter)
+                                                                        .put(this.skAtt, this.skFilter)
+                                                                        .put("FieldOne", f1v1)
+                                                                        .put("FieldOne", f1v2)
+                                                                        .put("FieldTwo", f2v1)
+                                                                        .put("FieldTwo", f2v2)
+                                                                        .build();
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Assertions.assertEquals("#a1 > :a1v1 AND #a1 < :a1v2 AND "
+                                + "#a2 >= :a2v1 AND #a2 <= :a2v2", template.getFilterExpr());
+        Assertions.assertEquals("#pk = :pkValue AND #sk = :skValue", template.getKeyConditionExpr());
+        Map<String, String> expectedAttNames = ImmutableMap.of("#pk", this.pkAtt,
+                                                               "#sk", this.skAtt,
+                                                               "#a1", "FieldOne",
+                                                               "#a2", "FieldTwo");
+        Assertions.assertEquals(expectedAttNames, template.getExprAttNames());
+        Map<String, AttributeValue> expectedAttValues = ImmutableMap.<String, AttributeValue>builder()
+                                                                    .put(":pkValue",
+                                                                         new AttributeValue(this.pkAttValue))
+                                                                    .put(":skValue",
+                                                                         new AttributeValue(this.skAttValue))
+                                                                    .put(":a1v1",
+                                                                         new AttributeValue("FieldOneValue"))
+                                                                    .put(":a1v2",
+                                                                         new AttributeValue("FieldOneValueOther"))
+                                                                    .put(":a2v1",
+                                                                         new AttributeValue("FieldTwoValue"))
+                                                                    .put(":a2v2",
+                                                                         new AttributeValue("FieldTwoValueOther"))
+                                                                    .build();
+        Assertions.assertEquals(expectedAttValues, template.bind(filters));
+    }
+
+    @Test
+    void primaryKeyTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, this.skFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Map<String, AttributeValue> expectedKey = ImmutableMap.of(this.pkAtt, new AttributeValue(this.pkAttValue),
+                                                                  this.skAtt, new AttributeValue(this.skAttValue));
+        Assertions.assertEquals(expectedKey, template.getPrimaryKey(filters).orElse(null));
+    }
+
+    @Test
+    void hashOnlyPrimaryKeyTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        Map<String, AttributeValue> expectedKey = ImmutableMap.of(this.pkAtt, new AttributeValue(this.pkAttValue));
+        Assertions.assertEquals(expectedKey, template.getPrimaryKey(filters).orElse(null));
+    }
+
+    @Test
+    void noPrimaryKeyTest() {
+        HiveDdbQueryFilter skRangeFilter = HiveDdbQueryFilter.builder()
+                                                             .attribute(this.skAtt)
+                                                             .attributeType(this.skAttType)
+                                                             .operator("GE")
+                                                             .value(this.skAttValue)
+                                                             .valueOi(javaStringObjectInspector)
+                                                             .build();
+        HiveDdbQueryFilter otherFilter = HiveDdbQueryFilter.builder()
+                                                           .attribute("FieldOne")
+                                                           .attributeType("S")
+                                                           .operator("EQ")
+                                                           .value("FieldOneValue")
+                                                           .valueOi(javaStringObjectInspector)
+                                                           .build();
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+
+        Multimap<String, HiveDdbQueryFilter> pkOnly = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        Assertions.assertFalse(this.findPrimaryKey(pkOnly, keyAttributes).isPresent());
+
+        Multimap<String, HiveDdbQueryFilter> skRange = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, skRangeFilter);
+        Assertions.assertFalse(this.findPrimaryKey(skRange, keyAttributes).isPresent());
+
+        Multimap<String, HiveDdbQueryFilter> withFilter = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                               this.skAtt, this.skFilter,
+                                                                               "FieldOne", otherFilter);
+        Assertions.assertFalse(this.findPrimaryKey(withFilter, keyAttributes).isPresent());
+    }
+
+    @Test
+    void newRequestTest() {
+        ColumnMapping attOne = ColumnMapping.builder().hiveColumn("col1").ddbAttName("AttOne").build();
+        ColumnMapping attTwo = ColumnMapping.builder().hiveColumn("col2").ddbAttName("AttTwo").build();
+        HiveDdbQueryParameters params = HiveDdbQueryParameters.builder()
+                                                              .tableName("Table")
+                                                              .indexName("Index")
+                                                              .hiveDdbColumnMapping(ImmutableList.of(attOne, attTwo))
+                                                              .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt);
+        QueryRequest request = QueryTemplate.compile(params, filters, keyAttributes).newRequest(filters);
+
+        Assertions.assertEquals("Table", request.getTableName());
+        Assertions.assertEquals("Index", request.getIndexName());
+        Assertions.assertEquals("#p0, #p1", request.getProjectionExpression());
+        Assertions.assertEquals("#pk = :pkValue", request.getKeyConditionExpression());
+        Assertions.assertNull(request.getFilterExpression());
+        Assertions.assertEquals(ImmutableMap.of("#p0", "AttOne", "#p1", "AttTwo", "#pk", this.pkAtt),
+                                request.getExpressionAttributeNames());
+        Assertions.assertEquals(ImmutableMap.of(":pkValue", new AttributeValue(this.pkAttValue)),
+                                request.getExpressionAttributeValues());
+    }
+
+    @Test
+    void newScanRequestTest() {
+        ColumnMapping attOne = ColumnMapping.builder().hiveColumn("col1").ddbAttName("AttOne").build();
+        HiveDdbQueryParameters params = HiveDdbQueryParameters.builder()
+                                                              .tableName("Table")
+                                                              .hiveDdbColumnMapping(ImmutableList.of(attOne))
+                                                              .build();
+        // The hash key is filtered like any other attribute
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        QueryTemplate template = QueryTemplate.compileScan(params, filters);
+        ScanRequest request = template.newScanRequest(filters);
+
+        Assertions.assertNull(template.getKeyConditionExpr());
+        Assertions.assertEquals("Table", request.getTableName());
+        Assertions.assertEquals("#p0", request.getProjectionExpression());
+        Assertions.assertEquals("#a1 = :a1v1", request.getFilterExpression());
+        Assertions.assertEquals(ImmutableMap.of("#p0", "AttOne", "#a1", this.pkAtt),
+                                request.getExpressionAttributeNames());
+        Assertions.assertEquals(ImmutableMap.of(":a1v1", new AttributeValue(this.pkAttValue)),
+                                request.getExpressionAttributeValues());
+
+        ScanRequest unfiltered = QueryTemplate.compileScan(params, ImmutableMultimap.of())
+                                              .newScanRequest(ImmutableMultimap.of());
+        Assertions.assertNull(unfiltered.getFilterExpression());
+        Assertions.assertNull(unfiltered.getExpressionAttributeValues());
+    }
+
+    @Test
+    void bindOtherValuesTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, this.skFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        HiveDdbQueryFilter otherPkFilter = this.filterBuilder(this.pkAtt, "EQ").value("OtherPkValue").build();
+        HiveDdbQueryFilter otherSkFilter = this.filterBuilder(this.skAtt, "EQ").value("OtherSkValue").build();
+        Multimap<String, HiveDdbQueryFilter> otherFilters = ImmutableMultimap.of(this.pkAtt, otherPkFilter,
+                                                                                 this.skAtt, otherSkFilter);
+        Assertions.assertTrue(template.matches(this.params, otherFilters));
+        Assertions.assertEquals(ImmutableMap.of(":pkValue", new AttributeValue("OtherPkValue"),
+                                                ":skValue", new AttributeValue("OtherSkValue")),
+                                template.bind(otherFilters));
+    }
+
+    @Test
+    void matchesTest() {
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                            this.skAtt, this.skFilter);
+        Map<KeyType, String> keyAttributes = ImmutableMap.of(KeyType.HASH, this.pkAtt,
+                                                             KeyType.RANGE, this.skAtt);
+        QueryTemplate template = this.compile(filters, keyAttributes);
+
+        HiveDdbQueryFilter skRangeFilter = this.filterBuilder(this.skAtt, "GE").value(this.skAttValue).build();
+        Assertions.assertFalse(template.matches(this.params, ImmutableMultimap.of(this.pkAtt, this.pkFilter)));
+        Assertions.assertFalse(template.matches(this.params, ImmutableMultimap.of(this.pkAtt, this.pkFilter,
+                                                                                  this.skAtt, skRangeFilter)));
+        HiveDdbQueryParameters otherTable = HiveDdbQueryParameters.builder()
+                                                                  .tableName("OtherTable")
+                                                                  .hiveDdbColumnMapping(ImmutableList.of())
+                                                                  .build();
+        Assertions.assertFalse(template.matches(otherTable, filters));
+    }
+
+    @Test
+    void fanOutTest() {
+        HiveDdbQueryFilter pkInFilter = this.filterBuilder(this.pkAtt, "IN")
+                                            .value(Arrays.asList("a", "b", "a", null))
+                                            .valueOi(ObjectInspectorFactory.getStandardListObjectInspector(
+                                                    javaStringObjectInspector))
+                                            .build();
+        Multimap<String, HiveDdbQueryFilter> filters = ImmutableMultimap.of(this.pkAtt, pkInFilter,
+                                                                            this.skAtt, this.skFilter);
+        List<Multimap<String, HiveDdbQueryFilter>> fanOut = QueryTemplate.fanOut(filters, this.pkAtt);
+
+        // Duplicated and null values are dropped
+        Assertions.assertEquals(2, fanOut.size());
+        Assertions.assertEquals(ImmutableMultimap.of(this.pkAtt, this.pkFilter.toBuilder().value("a").build(),
+                                                     this.skAtt, this.skFilter), fanOut.get(0));
+        Assertions.assertEquals(ImmutableMultimap.of(this.pkAtt, this.pkFilter.toBuilder().value("b").build(),
+                                                     this.skAtt, this.skFilter), fanOut.get(1));
+
+        Multimap<String, HiveDdbQueryFilter> eqFilters = ImmutableMultimap.of(this.pkAtt, this.pkFilter);
+        Assertions.assertEquals(Collections.singletonList(eqFilters), QueryTemplate.fanOut(eqFilters, this.pkAtt));
+
+        HiveDdbQueryFilter scalarInFilter = this.filterBuilder(this.pkAtt, "IN").value("a").build();
+        IllegalArgumentException ex = Assertions.assertThrows(
+                IllegalArgumentException.class,
+                () -> QueryTemplate.fanOut(ImmutableMultimap.of(this.pkAtt, scalarInFilter), this.pkAtt));
+        Assertions.assertEquals("Expected IN filter value to be an array (attribute=PartitionKey, found=string)",
+                                ex.getMessage());
+    }
+
+    private HiveDdbQueryFilter.HiveDdbQueryFilterBuilder filterBuilder(String attribute, String operator) {
+        return HiveDdbQueryFilter.builder()
+                                 .attribute(attribute)
+                                 .attributeType("S")
+                                 .operator(operator)
+                                 .valueOi(javaStringObjectInspector);
+    }
+
+    private QueryTemplate compile(Multimap<String, HiveDdbQueryFilter> filters, Map<KeyType, String> keyAttributes) {
+        return QueryTemplate.compile(this.params, filters, keyAttributes);
+    }
+
+    private Optional<Map<String, AttributeValue>> findPrimaryKey(Multimap<String, HiveDdbQueryFilter> filters,
+                                                                 Map<KeyType, String> keyAttributes) {
+        return this.compile(filters, keyAttributes).getPrimaryKey(filters);
+    }
+}
@@ -0,0 +1,58 @@
+package com.klimber.hiveddbudtf.client.ddb;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableMap;
+import java.nio.ByteBuffer;
+import java.util.Map;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class SdkV2AttributeValuesTest {
+
+    @Test
+    void roundTripTest() {
+        Map<String, AttributeValue> item = ImmutableMap
+                .<String, AttributeValue>builder()
+                .put("s", new AttributeValue("String"))
+                .put("n", new AttributeValue().withN("1.5"))
+                .put("b", new AttributeValue().withB(ByteBuffer.wrap("Binary".getBytes(UTF_8))))
+                .put("ss", new AttributeValue().withSS("One", "Two"))
+                .put("ns", new AttributeValue().withNS("1", "2"))
+                .put("bs", new AttributeValue().withBS(ByteBuffer.wrap("One".getBytes(UTF_8)),
+                                                       ByteBuffer.wrap("Two".getBytes(UTF_8))))
+                .put("m", new AttributeValue().withM(ImmutableMap.of("nested", new AttributeValue("Value"))))
+                .put("l", new AttributeValue().withL(new AttributeValue("One"), new AttributeValue().withN("2")))
+                .put("bool", new AttributeValue().withBOOL(true))
+                .put("null", new AttributeValue().withNULL(true))
+                .build();
+        Assertions.assertEquals(item, SdkV2AttributeValues.toV1(SdkV2AttributeValues.toV2(item)));
+    }
+
+    @Test
+    void toV2TypeTest() {
+        software.amazon.awssdk.services.dynamodb.model.AttributeValue value =
+                SdkV2AttributeValues.toV2(new AttributeValue().withNS("1", "2"));
+        Assertions.assertEquals(software.amazon.awssdk.services.dynamodb.model.AttributeValue.Type.NS, value.type());
+    }
+
+    @Test
+    void binaryHasArrayTest() {
+        software.amazon.awssdk.services.dynamodb.model.AttributeValue value =
+                software.amazon.awssdk.services.dynamodb.model.AttributeValue
+                        .builder()
+                        .b(software.amazon.awssdk.core.SdkBytes.fromUtf8String("Binary"))
+                        .build();
+        ByteBuffer converted = SdkV2AttributeValues.toV1(value).getB();
+        Assertions.assertTrue(converted.hasArray());
+        Assertions.assertEquals("Binary", new String(converted.array(), UTF_8));
+    }
+
+    @Test
+    void nullItemTest() {
+        Assertions.assertNull(SdkV2AttributeValues.toV1(
+                (Map<String, software.amazon.awssdk.services.dynamodb.model.AttributeValue>) null));
+        Assertions.assertNull(SdkV2AttributeValues.toV2((Map<String, AttributeValue>) null));
+    }
+}
@@ -0,0 +1,99 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.google.common.base.Ticker;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class AimdConcurrencyLimitTest {
+    private static final long LATENCY = TimeUnit.MILLISECONDS.toNanos(10);
+
+    private AtomicLong nanos;
+    private Ticker ticker;
+
+    @BeforeEach
+    void setUp() {
+        this.nanos = new AtomicLong();
+        this.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return AimdConcurrencyLimitTest.this.nanos.get();
+            }
+        };
+    }
+
+    @Test
+    void additiveIncreaseTest() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 3, 0, this.ticker);
+        Assertions.assertEquals(1, limit.getLimit());
+        this.healthy(limit, 1);
+        Assertions.assertEquals(2, limit.getLimit());
+        // Grows by one after a round of responses at the current limit
+        this.healthy(limit, 1);
+        Assertions.assertEquals(2, limit.getLimit());
+        this.healthy(limit, 1);
+        Assertions.assertEquals(3, limit.getLimit());
+        this.healthy(limit, 10);
+        Assertions.assertEquals(3, limit.getLimit());
+        Assertions.assertEquals(2, limit.getIncreases());
+    }
+
+    @Test
+    void multiplicativeDecreaseTest() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(2, 64, 0, this.ticker);
+        this.healthy(limit, 1_000);
+        Assertions.assertEquals(44, limit.getLimit());
+
+        long sentBefore = this.nanos.getAndIncrement();
+        limit.onAttempt("Query", this.nanos.get(), LATENCY, true);
+        Assertions.assertEquals(22, limit.getLimit());
+        // Throttling of requests sent before the decrease is not counted again
+        limit.onAttempt("Query", sentBefore, LATENCY, true);
+        Assertions.assertEquals(22, limit.getLimit());
+
+        for (int i = 0; i < 10; i++) {
+            this.nanos.incrementAndGet();
+            limit.onAttempt("Query", this.nanos.get(), LATENCY, true);
+        }
+        Assertions.assertEquals(2, limit.getLimit());
+        Assertions.assertEquals(12, limit.getThrottles());
+    }
+
+    @Test
+    void latencyTest() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 16, 2, this.ticker);
+        this.healthy(limit, 100);
+        int previous = limit.getLimit();
+
+        this.nanos.incrementAndGet();
+        limit.onAttempt("Query", this.nanos.get(), 2 * LATENCY - 1, false);
+        Assertions.assertEquals(previous, limit.getLimit());
+        limit.onAttempt("Query", this.nanos.get(), 3 * LATENCY, false);
+        Assertions.assertEquals(previous / 2, limit.getLimit());
+        Assertions.assertEquals(1, limit.getDecreases());
+    }
+
+    @Test
+    void fixedTest() {
+        AimdConcurrencyLimit limit = AimdConcurrencyLimit.fixed(4);
+        this.healthy(limit, 100);
+        limit.onAttempt("Query", System.nanoTime(), LATENCY, true);
+        Assertions.assertEquals(4, limit.getLimit());
+        Assertions.assertEquals(1, limit.getThrottles());
+    }
+
+    @Test
+    void invalidBoundsTest() {
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> new AimdConcurrencyLimit(4, 2, 0));
+        Assertions.assertEquals("Expected 1 <= floor <= ceiling (floor=4, ceiling=2)", ex.getMessage());
+    }
+
+    private void healthy(AimdConcurrencyLimit limit, int responses) {
+        for (int i = 0; i < responses; i++) {
+            limit.onAttempt("Query", this.nanos.get(), LATENCY, false);
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.base.Ticker;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.klimber.hiveddbudtf.client.ddb.ItemKeys;
+import com.klimber.hiveddbudtf.exec.BatchGetBuffer.Batch;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BatchGetBufferTest {
+    private AtomicLong nanos;
+    private Ticker ticker;
+    private HiveDdbQueryParameters params;
+
+    @BeforeEach
+    void setUp() {
+        this.nanos = new AtomicLong();
+        this.ticker = new Ticker() {
+            @Override
+            public long read() {
+                return BatchGetBufferTest.this.nanos.get();
+            }
+        };
+        this.params = HiveDdbQueryParameters.builder().tableName("myTable").build();
+    }
+
+    @Test
+    void flushOnBatchSizeTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(2, 100, 1_000, this.ticker);
+        Assertions.assertTrue(buffer.add(this.params, this.key("1")).isEmpty());
+        // Duplicated keys are fetched once
+        Assertions.assertTrue(buffer.add(this.params, this.key("1")).isEmpty());
+
+        List<Batch> ready = buffer.add(this.params, this.key("2"));
+        Assertions.assertEquals(1, ready.size());
+        Assertions.assertEquals(ImmutableList.of(this.key("1"), this.key("2")),
+                                ImmutableList.copyOf(ready.get(0).getKeys()));
+        Assertions.assertEquals(3, ready.get(0).getRequests().size());
+        Assertions.assertTrue(buffer.flush().isEmpty());
+    }
+
+    @Test
+    void flushOnWindowRowsTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 2, 1_000, this.ticker);
+        HiveDdbQueryParameters otherParams = HiveDdbQueryParameters.builder().tableName("otherTable").build();
+        Assertions.assertTrue(buffer.add(this.params, this.key("1")).isEmpty());
+
+        List<Batch> ready = buffer.add(otherParams, this.key("1"));
+        Assertions.assertEquals(2, ready.size());
+        Assertions.assertEquals("myTable", ready.get(0).getParams().getTableName());
+        Assertions.assertEquals("otherTable", ready.get(1).getParams().getTableName());
+    }
+
+    @Test
+    void batchByParametersTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 100, 1_000, this.ticker);
+        HiveDdbQueryParameters otherColumns = this.params
+                .toBuilder()
+                .hiveDdbColumnMapping(ImmutableList.of(ColumnMapping.builder()
+                                                                    .hiveColumn("col")
+                                                                    .ddbAttName("data")
+                                                                    .build()))
+                .build();
+        buffer.add(this.params, this.key("1"));
+        buffer.add(otherColumns, this.key("1"));
+        buffer.add(HiveDdbQueryParameters.builder().tableName("myTable").build(), this.key("2"));
+
+        List<Batch> ready = buffer.flush();
+        Assertions.assertEquals(2, ready.size());
+        Assertions.assertEquals(this.params, ready.get(0).getParams());
+        Assertions.assertEquals(2, ready.get(0).getKeys().size());
+        Assertions.assertEquals(otherColumns, ready.get(1).getParams());
+        Assertions.assertEquals(1, ready.get(1).getKeys().size());
+    }
+
+    @Test
+    void flushOthersTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 100, 1_000, this.ticker);
+        HiveDdbQueryParameters otherParams = HiveDdbQueryParameters.builder().tableName("otherTable").build();
+        buffer.add(this.params, this.key("1"));
+        buffer.add(otherParams, this.key("1"));
+
+        List<Batch> ready = buffer.flushOthers(this.params);
+        Assertions.assertEquals(1, ready.size());
+        Assertions.assertEquals(otherParams, ready.get(0).getParams());
+        Assertions.assertTrue(buffer.flushOthers(this.params).isEmpty());
+        Assertions.assertEquals(this.params, buffer.flush().get(0).getParams());
+    }
+
+    @Test
+    void flushOnWindowMillisTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 100, 1_000, this.ticker);
+        buffer.add(this.params, this.key("1"));
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        Assertions.assertTrue(buffer.pollExpired().isEmpty());
+
+        this.nanos.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        Assertions.assertEquals(1, buffer.pollExpired().size());
+        Assertions.assertTrue(buffer.flush().isEmpty());
+    }
+
+    @Test
+    void routeTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 100, 1_000, this.ticker);
+        buffer.add(this.params, this.key("1"));
+        buffer.add(this.params, this.key("2"));
+        buffer.add(this.params, this.key("1"));
+        Batch batch = buffer.flush().get(0);
+
+        Map<String, AttributeValue> item = ImmutableMap.of("pk", new AttributeValue("1"),
+                                                           "data", new AttributeValue("data"));
+        List<Map<String, AttributeValue>> routed = batch.route(ImmutableMap.of(this.key("1"), item));
+        Assertions.assertEquals(ImmutableList.of(item, item), routed);
+    }
+
+    @Test
+    void routeNumericKeyTest() {
+        BatchGetBuffer buffer = new BatchGetBuffer(100, 100, 1_000, this.ticker);
+        buffer.add(this.params, ImmutableMap.of("pk", new AttributeValue().withN("1.0")));
+        buffer.add(this.params, ImmutableMap.of("pk", new AttributeValue().withN("1")));
+        Batch batch = buffer.flush().get(0);
+        Assertions.assertEquals(1, batch.getKeys().size());
+
+        // DynamoDB returns numbers in canonical form
+        Map<String, AttributeValue> item = ImmutableMap.of("pk", new AttributeValue().withN("1"),
+                                                           "data", new AttributeValue("data"));
+        List<Map<String, AttributeValue>> routed = batch.route(ImmutableMap.of(ItemKeys.normalize(item), item));
+        Assertions.assertEquals(ImmutableList.of(item, item), routed);
+    }
+
+    private Map<String, AttributeValue> key(String value) {
+        return ImmutableMap.of("pk", new AttributeValue(value));
+    }
+}
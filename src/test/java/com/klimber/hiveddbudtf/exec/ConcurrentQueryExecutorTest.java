@@ -0,0 +1,133 @@
+package com.klimber.hiveddbudtf.exec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import lombok.SneakyThrows;
+import org.apache.hadoop.hive.ql.metadata.HiveException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class ConcurrentQueryExecutorTest {
+    private List<String> consumed;
+    private ConcurrentQueryExecutor<String> executor;
+
+    @BeforeEach
+    void setUp() {
+        this.consumed = new ArrayList<>();
+    }
+
+    @AfterEach
+    void close() {
+        if (this.executor != null) {
+            this.executor.close();
+        }
+    }
+
+    @Test
+    @SneakyThrows
+    void orderedTest() {
+        this.executor = new ConcurrentQueryExecutor<>(4, true, this.consumed::add);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        CompletableFuture<String> second = new CompletableFuture<>();
+
+        this.executor.submit(pool -> first);
+        this.executor.submit(pool -> second);
+        second.complete("second");
+        this.executor.submit(pool -> CompletableFuture.completedFuture("third"));
+        Assertions.assertTrue(this.consumed.isEmpty());
+
+        first.complete("first");
+        this.executor.drain();
+        Assertions.assertEquals(Arrays.asList("first", "second", "third"), this.consumed);
+        Assertions.assertEquals(0, this.executor.getInFlight());
+    }
+
+    @Test
+    @SneakyThrows
+    void unorderedTest() {
+        this.executor = new ConcurrentQueryExecutor<>(4, false, this.consumed::add);
+        CompletableFuture<String> first = new CompletableFuture<>();
+
+        this.executor.submit(pool -> first);
+        this.executor.submit(pool -> CompletableFuture.completedFuture("second"));
+        Assertions.assertEquals(1, this.consumed.size());
+        Assertions.assertEquals("second", this.consumed.get(0));
+
+        first.complete("first");
+        this.executor.drain();
+        Assertions.assertEquals(2, this.consumed.size());
+        Assertions.assertEquals("first", this.consumed.get(1));
+    }
+
+    @Test
+    @SneakyThrows
+    void adaptiveLimitTest() {
+        AimdConcurrencyLimit limit = new AimdConcurrencyLimit(1, 4, 0);
+        this.executor = new ConcurrentQueryExecutor<>(limit, false, this.consumed::add);
+        CompletableFuture<String> first = new CompletableFuture<>();
+        this.executor.submit(pool -> first);
+        Assertions.assertEquals(1, this.executor.getInFlight());
+
+        // A healthy response raises the limit, so a second query can start while the first is running
+        limit.onAttempt("Query", System.nanoTime(), 1_000_000, false);
+        this.executor.submit(pool -> CompletableFuture.completedFuture("second"));
+        Assertions.assertEquals(Arrays.asList("second"), this.consumed);
+
+        first.complete("first");
+        this.executor.drain();
+        Assertions.assertEquals(Arrays.asList("second", "first"), this.consumed);
+    }
+
+    @Test
+    @SneakyThrows
+    void inFlightLimitTest() {
+        this.executor = new ConcurrentQueryExecutor<>(2, true, this.consumed::add);
+        this.executor.submit(pool -> CompletableFuture.supplyAsync(() -> "first", pool));
+        this.executor.submit(pool -> CompletableFuture.supplyAsync(() -> "second", pool));
+        Assertions.assertTrue(this.executor.getInFlight() <= 2);
+
+        // Blocks until "first" is consumed
+        this.executor.submit(pool -> CompletableFuture.supplyAsync(() -> "third", pool));
+        Assertions.assertTrue(this.consumed.contains("first"));
+        Assertions.assertTrue(this.executor.getInFlight() <= 2);
+
+        this.executor.drain();
+        Assertions.assertEquals(3, this.consumed.size());
+    }
+
+    @Test
+    void runtimeExceptionTest() {
+        this.executor = new ConcurrentQueryExecutor<>(2, false, this.consumed::add);
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class, () -> {
+            this.executor.submit(pool -> CompletableFuture.supplyAsync(() -> {
+                throw new IllegalArgumentException("Bad filter");
+            }, pool));
+            this.executor.drain();
+        });
+        Assertions.assertEquals("Bad filter", ex.getMessage());
+    }
+
+    @Test
+    void checkedExceptionTest() {
+        this.executor = new ConcurrentQueryExecutor<>(2, true, this.consumed::add);
+        CompletableFuture<String> failed = new CompletableFuture<>();
+        failed.completeExceptionally(new Exception("Checked"));
+        HiveException ex = Assertions.assertThrows(HiveException.class, () -> {
+            this.executor.submit(pool -> failed);
+            this.executor.drain();
+        });
+        Assertions.assertEquals("Checked", ex.getCause().getMessage());
+    }
+
+    @Test
+    void invalidLimitTest() {
+        IllegalArgumentException ex =
+                Assertions.assertThrows(IllegalArgumentException.class,
+                                        () -> new ConcurrentQueryExecutor<String>(0, true, this.consumed::add));
+        Assertions.assertEquals("Expected at least one query in flight (found=0)", ex.getMessage());
+    }
+}
@@ -0,0 +1,62 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.google.common.base.Ticker;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.apache.hadoop.mapred.Reporter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+class TaskCounterReporterTest {
+    private AtomicLong nanos;
+    private Reporter reporter;
+    private DynamoDbMetrics metrics;
+    private TaskCounterReporter counterReporter;
+
+    @BeforeEach
+    void setUp() {
+        this.nanos = new AtomicLong();
+        Ticker ticker = new Ticker() {
+            @Override
+            public long read() {
+                return TaskCounterReporterTest.this.nanos.get();
+            }
+        };
+        this.reporter = Mockito.mock(Reporter.class);
+        this.metrics = new DynamoDbMetrics();
+        this.counterReporter = new TaskCounterReporter(() -> this.reporter, this.metrics, 1_000, ticker);
+    }
+
+    @Test
+    void reportTest() {
+        this.counterReporter.onInputRow();
+        this.counterReporter.onOutputRow();
+        // Nothing is published before the interval elapses
+        Mockito.verifyNoInteractions(this.reporter);
+
+        this.nanos.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        this.metrics.onRetry("Query");
+        this.counterReporter.onOutputRow();
+        Mockito.verify(this.reporter).incrCounter(TaskCounterReporter.GROUP, "INPUT_ROWS", 1);
+        Mockito.verify(this.reporter).incrCounter(TaskCounterReporter.GROUP, "OUTPUT_ROWS", 2);
+        Mockito.verify(this.reporter).incrCounter(TaskCounterReporter.GROUP, "RETRIES", 1);
+        Mockito.verify(this.reporter).progress();
+
+        // Only what changed since the previous report is added
+        this.counterReporter.onOutputRow();
+        this.counterReporter.report();
+        Mockito.verify(this.reporter).incrCounter(TaskCounterReporter.GROUP, "OUTPUT_ROWS", 1);
+        Mockito.verify(this.reporter, Mockito.times(2)).progress();
+        Mockito.verifyNoMoreInteractions(this.reporter);
+    }
+
+    @Test
+    void noReporterTest() {
+        TaskCounterReporter withoutReporter = new TaskCounterReporter(() -> null, this.metrics, 0);
+        // Tasks may not have a reporter, e.g. when running locally
+        withoutReporter.onOutputRow();
+        withoutReporter.report();
+    }
+}
@@ -0,0 +1,41 @@
+package com.klimber.hiveddbudtf.exec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.cache.CacheStats;
+import com.klimber.hiveddbudtf.client.ddb.DynamoDbMetrics;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.apache.hadoop.conf.Configuration;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TaskPerformanceReportTest {
+
+    @Test
+    void writeReportTest(@TempDir Path reportDir) throws Exception {
+        DynamoDbMetrics metrics = new DynamoDbMetrics();
+        metrics.onAttempt("Query", 0, TimeUnit.MILLISECONDS.toNanos(5), false);
+        metrics.onAttempt("Query", 0, TimeUnit.MILLISECONDS.toNanos(40), true);
+        TaskPerformanceReport report = new TaskPerformanceReport("attempt_1", metrics)
+                .withRows(3, 7)
+                .withCache(new CacheStats(3, 1, 0, 0, 0, 0))
+                .withCoalescing(4, 1);
+
+        report.write(reportDir.toUri().toString(), new Configuration());
+
+        byte[] json = Files.readAllBytes(reportDir.resolve("attempt_1.json"));
+        JsonNode node = new ObjectMapper().readTree(new String(json, StandardCharsets.UTF_8));
+        Assertions.assertEquals("attempt_1", node.get("task").asText());
+        Assertions.assertEquals(1, node.get("throttles").asLong());
+        Assertions.assertEquals(7, node.get("outputRows").asLong());
+        Assertions.assertEquals(0.75, node.get("cache").get("hitRate").asDouble());
+        Assertions.assertEquals(0.25, node.get("coalescing").get("hitRate").asDouble());
+        JsonNode queryLatency = node.get("attemptLatencyMicros").get("Query");
+        Assertions.assertEquals(2, queryLatency.get("count").asLong());
+        Assertions.assertEquals(40_000, queryLatency.get("p999").asLong());
+    }
+}
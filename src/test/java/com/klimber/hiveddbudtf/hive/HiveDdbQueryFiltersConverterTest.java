@@ -12,6 +12,7 @@ import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspectorFactory;
 import org.apache.hadoop.hive.serde2.objectinspector.StandardListObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StandardStructObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaConstantStringObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaLongObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.JavaStringObjectInspector;
 import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
@@ -97,6 +98,53 @@ class HiveDdbQueryFiltersConverterTest {
         Assertions.assertEquals(1L, numberFilter.getValue());
     }
 
+    @Test
+    @SneakyThrows
+    void constantFieldsConvertTest() {
+        List<ObjectInspector> constantFilterFieldOIs = Arrays.asList(new JavaConstantStringObjectInspector("myString"),
+                                                                     new JavaConstantStringObjectInspector("S"),
+                                                                     new JavaConstantStringObjectInspector("EQ"),
+                                                                     this.stringOI);
+        StructObjectInspector constantFilterOI = ObjectInspectorFactory
+                .getStandardStructObjectInspector(this.filterFieldNames, constantFilterFieldOIs);
+        StandardStructObjectInspector filtersOI = ObjectInspectorFactory
+                .getStandardStructObjectInspector(Collections.singletonList("col1"),
+                                                  Collections.singletonList(constantFilterOI));
+        HiveDdbQueryFiltersConverter converter = new HiveDdbQueryFiltersConverter(filtersOI);
+
+        // Constant fields are read from their object inspector, not from the row
+        List<Object> filterStruct = Arrays.asList(null, null, null, "targetValue");
+        Multimap<String, HiveDdbQueryFilter> actual = converter.convert(Collections.singletonList(filterStruct));
+        HiveDdbQueryFilter filter = actual.get("myString").iterator().next();
+        Assertions.assertEquals("S", filter.getAttributeType());
+        Assertions.assertEquals("EQ", filter.getOperator());
+        Assertions.assertEquals("targetValue", filter.getValue());
+    }
+
+    @Test
+    @SneakyThrows
+    void orGroupConvertTest() {
+        List<String> groupFilterFieldNames = Arrays.asList("attribute", "attributeType", "operator", "value",
+                                                           "orGroup");
+        StructObjectInspector groupFilterOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                groupFilterFieldNames, Arrays.asList(this.stringOI, this.stringOI, this.stringOI, this.stringOI,
+                                                     new JavaConstantStringObjectInspector("g1")));
+        StandardStructObjectInspector filtersOI = ObjectInspectorFactory
+                .getStandardStructObjectInspector(Arrays.asList("col1", "col2"),
+                                                  Arrays.asList(groupFilterOI, this.stringFilterOI));
+        HiveDdbQueryFiltersConverter converter = new HiveDdbQueryFiltersConverter(filtersOI);
+
+        // Operators checking the attribute alone don't need a value
+        List<Object> filter1Struct = Arrays.asList("myString", "S", "attribute_not_exists", null, null);
+        List<Object> filter2Struct = Arrays.asList("myNumber", "N", "EQ", "1");
+        Multimap<String, HiveDdbQueryFilter> actual = converter.convert(Arrays.asList(filter1Struct,
+                                                                                      filter2Struct));
+        HiveDdbQueryFilter groupFilter = actual.get("myString").iterator().next();
+        Assertions.assertEquals("g1", groupFilter.getOrGroup());
+        Assertions.assertNull(groupFilter.getValue());
+        Assertions.assertNull(actual.get("myNumber").iterator().next().getOrGroup());
+    }
+
     @Test
     @SneakyThrows
     void nullAttributeConvertTest() {
@@ -209,7 +257,9 @@ class HiveDdbQueryFiltersConverterTest {
     @Test
     void wrongFilterFieldElementTypeTest() {
         List<String> filterFieldNames = Arrays.asList("attribute", "attributeType", "operator", "value");
-        StandardListObjectInspector listOI = ObjectInspectorFactory.getStandardListObjectInspector(this.stringOI);
+        // Arrays of primitives are valid values, nested arrays are not
+        StandardListObjectInspector listOI = ObjectInspectorFactory.getStandardListObjectInspector(
+                ObjectInspectorFactory.getStandardListObjectInspector(this.stringOI));
         List<ObjectInspector> invalidFilterFieldOIs = Arrays.asList(this.stringOI, this.stringOI, this.stringOI,
                                                                     listOI);
         StructObjectInspector invalidFilterOI = ObjectInspectorFactory
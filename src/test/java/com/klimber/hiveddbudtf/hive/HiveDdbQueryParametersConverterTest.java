@@ -54,6 +54,81 @@ class HiveDdbQueryParametersConverterTest {
         Assertions.assertEquals(actual.getHiveTypes(), converter.getHiveTypes());
     }
 
+    @Test
+    @SneakyThrows
+    void pagingConvertTest() {
+        List<String> fieldNames = new ArrayList<>(this.fieldNames);
+        fieldNames.addAll(Arrays.asList("limit", "scanIndexForward", "pageSize"));
+        List<ObjectInspector> fieldOIs = new ArrayList<>(this.fieldOIs);
+        fieldOIs.addAll(Arrays.asList(PrimitiveObjectInspectorFactory.javaIntObjectInspector,
+                                      PrimitiveObjectInspectorFactory.javaBooleanObjectInspector,
+                                      PrimitiveObjectInspectorFactory.javaIntObjectInspector));
+        StructObjectInspector structOI = ObjectInspectorFactory.getStandardStructObjectInspector(fieldNames, fieldOIs);
+        HiveDdbQueryParametersConverter converter = new HiveDdbQueryParametersConverter(structOI);
+
+        HiveDdbQueryParameters actual = converter.convert(Arrays.asList("myTable", null, null, null, 1, false, 100));
+        Assertions.assertEquals(1, actual.getLimit());
+        Assertions.assertFalse(actual.getScanIndexForward());
+        Assertions.assertEquals(100, actual.getPageSize());
+
+        actual = converter.convert(Arrays.asList("myTable", null, null, null, null, null, null));
+        Assertions.assertNull(actual.getLimit());
+        Assertions.assertNull(actual.getScanIndexForward());
+        Assertions.assertNull(actual.getPageSize());
+
+        Assertions.assertThrows(IllegalArgumentException.class,
+                                () -> converter.convert(Arrays.asList("myTable", null, null, null, 0, null, null)));
+
+        // Optional fields may be omitted
+        structOI = ObjectInspectorFactory.getStandardStructObjectInspector(this.fieldNames, this.fieldOIs);
+        actual = new HiveDdbQueryParametersConverter(structOI).convert(Arrays.asList("myTable", null));
+        Assertions.assertNull(actual.getLimit());
+    }
+
+    @Test
+    @SneakyThrows
+    void unprojectedConvertTest() {
+        StructObjectInspector structOI = ObjectInspectorFactory.getStandardStructObjectInspector(
+                this.fieldNames.subList(0, 2), this.fieldOIs.subList(0, 2));
+        HiveDdbQueryParametersConverter converter = new HiveDdbQueryParametersConverter(structOI, false);
+
+        HiveDdbQueryParameters actual = converter.convert(Arrays.asList("myTable", "myIndex"));
+        Assertions.assertEquals("myTable", actual.getTableName());
+        Assertions.assertEquals("myIndex", actual.getIndexName());
+        Assertions.assertTrue(actual.getHiveDdbColumnMapping().isEmpty());
+        Assertions.assertTrue(actual.getHiveTypes().isEmpty());
+    }
+
+    @Test
+    @SneakyThrows
+    void constantTableNameTest() {
+        StructObjectInspector structOI = ObjectInspectorFactory.getStandardStructObjectInspector(this.fieldNames,
+                                                                                                 this.fieldOIs);
+        Assertions.assertFalse(new HiveDdbQueryParametersConverter(structOI).getConstantTableName().isPresent());
+
+        List<ObjectInspector> constantFieldOIs = new ArrayList<>(this.fieldOIs);
+        constantFieldOIs.set(0, new JavaConstantStringObjectInspector("myTable"));
+        structOI = ObjectInspectorFactory.getStandardStructObjectInspector(this.fieldNames, constantFieldOIs);
+        Assertions.assertEquals("myTable",
+                                new HiveDdbQueryParametersConverter(structOI).getConstantTableName().orElse(null));
+    }
+
+    @Test
+    @SneakyThrows
+    void constantParamsConvertTest() {
+        List<ObjectInspector> constantFieldOIs = new ArrayList<>(this.fieldOIs);
+        constantFieldOIs.set(0, new JavaConstantStringObjectInspector("myTable"));
+        constantFieldOIs.set(1, new JavaConstantStringObjectInspector("myIndex"));
+        StructObjectInspector structOI = ObjectInspectorFactory.getStandardStructObjectInspector(this.fieldNames,
+                                                                                                 constantFieldOIs);
+        HiveDdbQueryParametersConverter converter = new HiveDdbQueryParametersConverter(structOI);
+
+        HiveDdbQueryParameters first = converter.convert(Arrays.asList("myTable", "myIndex"));
+        Assertions.assertEquals("myTable", first.getTableName());
+        Assertions.assertEquals("myIndex", first.getIndexName());
+        Assertions.assertSame(first, converter.convert(Arrays.asList("myTable", "myIndex")));
+    }
+
     @Test
     @SneakyThrows
     void nullTableNameConvertTest() {
@@ -0,0 +1,142 @@
+package com.klimber.hiveddbudtf.hive;
+
+import com.amazonaws.services.dynamodbv2.model.AttributeValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryConfig.OutputMode;
+import com.klimber.hiveddbudtf.hive.HiveDdbQueryParameters.ColumnMapping;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import org.apache.hadoop.hive.serde2.objectinspector.MapObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.ObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.StructField;
+import org.apache.hadoop.hive.serde2.objectinspector.StructObjectInspector;
+import org.apache.hadoop.hive.serde2.objectinspector.primitive.PrimitiveObjectInspectorFactory;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfo;
+import org.apache.hadoop.hive.serde2.typeinfo.TypeInfoUtils;
+import org.apache.hadoop.io.BytesWritable;
+import org.apache.hadoop.io.LongWritable;
+import org.apache.hadoop.io.Text;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class HiveRowDecoderTest {
+
+    @Test
+    void decodeTest() {
+        HiveRowDecoder decoder = this.getDecoder("string,bigint,double,boolean,array<string>");
+        Map<String, AttributeValue> item = ImmutableMap.<String, AttributeValue>builder()
+                .put("att0", new AttributeValue("value"))
+                .put("att1", new AttributeValue().withN("42"))
+                .put("att2", new AttributeValue().withN("1.5"))
+                .put("att3", new AttributeValue().withBOOL(true))
+                .put("att4", new AttributeValue().withSS("one", "two"))
+                .build();
+
+        Object[] row = decoder.decode(item);
+        Assertions.assertEquals("value", row[0]);
+        Assertions.assertEquals(42L, row[1]);
+        Assertions.assertEquals(1.5, row[2]);
+        Assertions.assertEquals(true, row[3]);
+        Assertions.assertEquals(Arrays.asList("one", "two"), row[4]);
+    }
+
+    @Test
+    void nullTest() {
+        HiveRowDecoder decoder = this.getDecoder("string,bigint");
+
+        Object[] row = decoder.decode(ImmutableMap.of("att1", new AttributeValue().withNULL(true)));
+        Assertions.assertNull(row[0]);
+        Assertions.assertNull(row[1]);
+    }
+
+    @Test
+    void unsupportedTypeTest() {
+        HiveRowDecoder decoder = this.getDecoder("bigint");
+
+        Map<String, AttributeValue> item = ImmutableMap.of("att0", new AttributeValue("notANumber"));
+        IllegalArgumentException ex = Assertions.assertThrows(IllegalArgumentException.class,
+                                                              () -> decoder.decode(item));
+        Assertions.assertTrue(ex.getMessage().contains("Hive type 'bigint' does not support DynamoDB type 'S'"));
+    }
+
+    @Test
+    void reusedRowTest() {
+        HiveRowDecoder decoder = this.getDecoder("string");
+
+        Object[] first = decoder.decode(ImmutableMap.of("att0", new AttributeValue("first")));
+        Object[] second = decoder.decode(ImmutableMap.of("att0", new AttributeValue("second")));
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals("second", second[0]);
+    }
+
+    @Test
+    void writableTest() {
+        HiveRowDecoder decoder = this.getDecoder("string,bigint,binary,array<string>", OutputMode.WRITABLE);
+        byte[] bytes = "binary".getBytes(StandardCharsets.UTF_8);
+        Map<String, AttributeValue> item = ImmutableMap.of("att0", new AttributeValue("value"),
+                                                           "att1", new AttributeValue().withN("42"),
+                                                           "att2", new AttributeValue().withB(ByteBuffer.wrap(bytes)),
+                                                           "att3", new AttributeValue().withSS("one"));
+
+        Object[] row = decoder.decode(item);
+        Assertions.assertEquals(new Text("value"), row[0]);
+        Assertions.assertEquals(new LongWritable(42), row[1]);
+        Assertions.assertSame(bytes, ((BytesWritable) row[2]).getBytes());
+        Assertions.assertEquals(ImmutableList.of("one"), row[3]);
+        List<ObjectInspector> ois = decoder.getObjectInspectors();
+        Assertions.assertEquals(PrimitiveObjectInspectorFactory.writableStringObjectInspector, ois.get(0));
+        Assertions.assertEquals(PrimitiveObjectInspectorFactory.writableLongObjectInspector, ois.get(1));
+        Assertions.assertEquals(PrimitiveObjectInspectorFactory.writableBinaryObjectInspector, ois.get(2));
+
+        // Writables are reused for the next rows
+        Object[] next = decoder.decode(ImmutableMap.of("att0", new AttributeValue("next"),
+                                                       "att1", new AttributeValue().withN("43")));
+        Assertions.assertSame(row[0], next[0]);
+        Assertions.assertEquals(new Text("next"), next[0]);
+        Assertions.assertEquals(new LongWritable(43), next[1]);
+        Assertions.assertNull(next[2]);
+    }
+
+    @Test
+    void lazyTest() {
+        HiveRowDecoder decoder = this.getDecoder("string,bigint,map<string,string>,array<string>", OutputMode.LAZY);
+        Map<String, AttributeValue> item = ImmutableMap.of(
+                "att0", new AttributeValue("value"),
+                "att1", new AttributeValue("not a number"),
+                "att2", new AttributeValue().withM(ImmutableMap.of("key", new AttributeValue("mapValue"))));
+        StructObjectInspector oi = decoder.getRowObjectInspector();
+        List<? extends StructField> fields = oi.getAllStructFieldRefs();
+        Object row = decoder.toRow(item);
+
+        Assertions.assertEquals("value", oi.getStructFieldData(row, fields.get(0)));
+        // Unsupported types only fail when the column is read
+        Assertions.assertThrows(IllegalArgumentException.class, () -> oi.getStructFieldData(row, fields.get(1)));
+        Assertions.assertEquals(fields.get(2), oi.getStructFieldRef("col2"));
+
+        // Nested values are only decoded when their contents are read
+        Object map = oi.getStructFieldData(row, fields.get(2));
+        Assertions.assertTrue(map instanceof LazyRowObjectInspector.LazyValue);
+        MapObjectInspector mapOI = (MapObjectInspector) fields.get(2).getFieldObjectInspector();
+        Assertions.assertEquals(ImmutableMap.of("key", "mapValue"), mapOI.getMap(map));
+        Assertions.assertEquals("mapValue", mapOI.getMapValueElement(map, "key"));
+        Assertions.assertSame(map, oi.getStructFieldData(row, fields.get(2)));
+        Assertions.assertNull(oi.getStructFieldData(row, fields.get(3)));
+    }
+
+    private HiveRowDecoder getDecoder(String hiveTypes) {
+        return this.getDecoder(hiveTypes, OutputMode.JAVA);
+    }
+
+    private HiveRowDecoder getDecoder(String hiveTypes, OutputMode outputMode) {
+        List<TypeInfo> types = TypeInfoUtils.getTypeInfosFromTypeString(hiveTypes);
+        ImmutableList.Builder<ColumnMapping> mappings = ImmutableList.builder();
+        for (int i = 0; i < types.size(); i++) {
+            mappings.add(ColumnMapping.builder().hiveColumn("col" + i).ddbAttName("att" + i).build());
+        }
+        return new HiveRowDecoder(mappings.build(), types, outputMode);
+    }
+}